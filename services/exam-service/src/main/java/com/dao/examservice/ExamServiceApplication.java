@@ -5,11 +5,13 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @Import(com.dao.common.notification.NotificationProducerService.class)
 @EnableDiscoveryClient
 @EnableFeignClients
+@EnableScheduling
 public class ExamServiceApplication {
 
     public static void main(String[] args) {
@@ -26,6 +26,7 @@ import org.springframework.stereotype.Component;
  *   <li>exams.show_correct_answers = NULL -> true</li>
  *   <li>exams.partial_scoring_enabled = NULL -> false</li>
  *   <li>exams.randomize_option_order = NULL -> false</li>
+ *   <li>exams.adaptive = NULL -> false</li>
  *   <li>question_tags.id = NULL -> gen_random_uuid()</li>
  *   <li>quiz_submissions.is_final = NULL -> false</li>
  *   <li>quiz_rankings.student_id / quiz_submissions.student_id type conversion to uuid</li>
@@ -67,6 +68,8 @@ public class DatabaseSchemaPatchRunner implements ApplicationRunner {
                 "UPDATE exams SET partial_scoring_enabled = false WHERE partial_scoring_enabled IS NULL");
         patchNullableBoolean("exams", "randomize_option_order",
                 "UPDATE exams SET randomize_option_order = false WHERE randomize_option_order IS NULL");
+        patchNullableBoolean("exams", "adaptive",
+                "UPDATE exams SET adaptive = false WHERE adaptive IS NULL");
         log.info("Exams table patch done.");
     }
 
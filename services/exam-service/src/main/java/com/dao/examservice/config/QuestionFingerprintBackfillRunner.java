@@ -0,0 +1,94 @@
+package com.dao.examservice.config;
+
+import com.dao.examservice.repository.QuestionJdbcRepository;
+import com.dao.examservice.service.LongHashSet;
+import com.dao.examservice.service.QuestionFingerprinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Điền {@code questions.content_fingerprint} cho câu hỏi tạo trước khi có cột này.
+ *
+ * <p>Duyệt theo thứ tự tạo: bản đầu tiên của mỗi nội dung nhận fingerprint, các bản trùng
+ * giữ NULL để không vi phạm unique index. Các bản trùng đó được duyệt lại ở mỗi lần khởi
+ * động (chỉ tốn một lần băm cho mỗi dòng).</p>
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 50)
+public class QuestionFingerprintBackfillRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(QuestionFingerprintBackfillRunner.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QuestionJdbcRepository questionJdbcRepository;
+    private final QuestionFingerprinter fingerprinter;
+
+    public QuestionFingerprintBackfillRunner(JdbcTemplate jdbcTemplate,
+                                             QuestionJdbcRepository questionJdbcRepository,
+                                             QuestionFingerprinter fingerprinter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.questionJdbcRepository = questionJdbcRepository;
+        this.fingerprinter = fingerprinter;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            backfill();
+        } catch (DataAccessException ex) {
+            log.warn("Could not backfill question fingerprints: {}", ex.getMessage());
+        }
+    }
+
+    private void backfill() {
+        LongHashSet known = questionJdbcRepository.loadFingerprints();
+        List<Object[]> updates = new ArrayList<>(BATCH_SIZE);
+        int[] totals = new int[2];
+
+        jdbcTemplate.query("""
+                SELECT id, content::text AS content
+                FROM questions
+                WHERE content_fingerprint IS NULL
+                ORDER BY created_at, id
+                """,
+                rs -> {
+                    totals[0]++;
+                    Long fingerprint = fingerprinter.fingerprint(rs.getString("content"));
+                    if (fingerprint == null || !known.add(fingerprint)) {
+                        return;
+                    }
+                    updates.add(new Object[]{fingerprint, rs.getObject("id", UUID.class)});
+                    if (updates.size() >= BATCH_SIZE) {
+                        totals[1] += flush(updates);
+                    }
+                });
+        totals[1] += flush(updates);
+
+        if (totals[0] > 0) {
+            log.info("Question fingerprint backfill: scanned {}, assigned {}", totals[0], totals[1]);
+        }
+    }
+
+    private int flush(List<Object[]> updates) {
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate("UPDATE questions SET content_fingerprint = ? WHERE id = ?", updates);
+        int count = updates.size();
+        updates.clear();
+        return count;
+    }
+}
@@ -0,0 +1,105 @@
+package com.dao.examservice.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tạo hàm và index phục vụ tìm kiếm toàn văn (xem {@code SearchJdbcRepository}).
+ *
+ * <p>Cần extension {@code unaccent} (bỏ dấu tiếng Việt, kể cả đ → d) và {@code pg_trgm}.
+ * Nội dung tìm kiếm được tính bằng hàm IMMUTABLE {@code cs_exam_document} /
+ * {@code cs_question_document}, index là index biểu thức nên không cần thêm cột vào entity:</p>
+ * <ul>
+ *   <li>GIN {@code tsvector} cho khớp từ (kể cả tiền tố khi đang gõ);</li>
+ *   <li>GIN trigram cho khớp gần đúng / gõ sai.</li>
+ * </ul>
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 40)
+public class SearchIndexRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexRunner.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SearchIndexRunner(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            createExtensions();
+            createFunctions();
+            createIndexes();
+        } catch (DataAccessException ex) {
+            log.warn("Could not prepare full-text search (unaccent/pg_trgm required): {}", ex.getMessage());
+        }
+    }
+
+    private void createExtensions() {
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS unaccent");
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+    }
+
+    private void createFunctions() {
+        String unaccentSchema = jdbcTemplate.queryForObject("""
+                SELECT n.nspname
+                FROM pg_extension e
+                JOIN pg_namespace n ON n.oid = e.extnamespace
+                WHERE e.extname = 'unaccent'
+                """, String.class);
+        String schema = jdbcTemplate.queryForObject("SELECT current_schema()", String.class);
+
+        // unaccent() chỉ là STABLE; bọc lại với dictionary cố định để dùng được trong index.
+        jdbcTemplate.execute("""
+                CREATE OR REPLACE FUNCTION "%1$s".cs_fold(value text) RETURNS text
+                LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+                AS $$ SELECT lower("%2$s".unaccent('"%2$s".unaccent'::regdictionary, value)) $$
+                """.formatted(schema, unaccentSchema));
+        jdbcTemplate.execute("""
+                CREATE OR REPLACE FUNCTION "%1$s".cs_exam_document(title text, description text) RETURNS text
+                LANGUAGE sql IMMUTABLE PARALLEL SAFE
+                AS $$ SELECT "%1$s".cs_fold(concat_ws(' ', title, description)) $$
+                """.formatted(schema));
+        jdbcTemplate.execute("""
+                CREATE OR REPLACE FUNCTION "%1$s".cs_question_document(question_text text, content jsonb) RETURNS text
+                LANGUAGE sql IMMUTABLE PARALLEL SAFE
+                AS $$
+                    SELECT "%1$s".cs_fold(concat_ws(' ',
+                        coalesce(question_text, content ->> 'question'),
+                        (SELECT string_agg(option, ' ')
+                         FROM jsonb_array_elements_text(
+                             CASE WHEN jsonb_typeof(content -> 'options') = 'array'
+                                  THEN content -> 'options' ELSE '[]'::jsonb END) AS option)))
+                $$
+                """.formatted(schema));
+    }
+
+    private void createIndexes() {
+        jdbcTemplate.execute("""
+                CREATE INDEX IF NOT EXISTS idx_exams_search_fts ON exams
+                USING gin (to_tsvector('simple'::regconfig, cs_exam_document(title, description)))
+                """);
+        jdbcTemplate.execute("""
+                CREATE INDEX IF NOT EXISTS idx_exams_search_trgm ON exams
+                USING gin (cs_exam_document(title, description) gin_trgm_ops)
+                """);
+        jdbcTemplate.execute("""
+                CREATE INDEX IF NOT EXISTS idx_questions_search_fts ON questions
+                USING gin (to_tsvector('simple'::regconfig, cs_question_document(text, content)))
+                """);
+        jdbcTemplate.execute("""
+                CREATE INDEX IF NOT EXISTS idx_questions_search_trgm ON questions
+                USING gin (cs_question_document(text, content) gin_trgm_ops)
+                """);
+        log.info("Full-text search indexes are ready");
+    }
+}
@@ -0,0 +1,169 @@
+package com.dao.examservice.controller;
+
+import com.dao.common.dto.ApiResponse;
+import com.dao.examservice.dto.request.ProctoringEventBatchRequest;
+import com.dao.examservice.dto.request.SaveAnswerRequest;
+import com.dao.examservice.dto.response.AdaptiveQuestionResponse;
+import com.dao.examservice.dto.response.AttemptPaperResponse;
+import com.dao.examservice.dto.response.AttemptResponse;
+import com.dao.examservice.dto.response.AttemptResultResponse;
+import com.dao.examservice.dto.response.BundleKeyResponse;
+import com.dao.examservice.dto.response.ProctoringIngestResponse;
+import com.dao.examservice.exception.ValidationException;
+import com.dao.examservice.service.ExamAttemptService;
+import com.dao.examservice.service.ExamBundleService;
+import com.dao.examservice.service.LiveAttempt;
+import com.dao.examservice.service.ProctoringService;
+import com.dao.examservice.service.SubmissionGrader;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+@Slf4j
+public class ExamAttemptController {
+
+    private final ExamAttemptService attemptService;
+    private final ExamBundleService bundleService;
+    private final ProctoringService proctoringService;
+
+    @PostMapping("/exams/{examId}/attempts")
+    public ResponseEntity<ApiResponse<AttemptResponse>> start(@PathVariable UUID examId,
+                                                             Authentication authentication,
+                                                             HttpServletRequest request) {
+        UUID userId = currentUserId(authentication);
+        LiveAttempt attempt = attemptService.start(examId, userId,
+                request.getRemoteAddr(), request.getHeader(HttpHeaders.USER_AGENT));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success("Attempt started", toResponse(attempt)));
+    }
+
+    @GetMapping("/attempts/{submissionId}")
+    public ResponseEntity<ApiResponse<AttemptResponse>> get(@PathVariable UUID submissionId,
+                                                           Authentication authentication) {
+        LiveAttempt attempt = attemptService.get(submissionId, currentUserId(authentication));
+        return ResponseEntity.ok(ApiResponse.success(toResponse(attempt)));
+    }
+
+    @GetMapping("/attempts/{submissionId}/paper")
+    public ResponseEntity<ApiResponse<AttemptPaperResponse>> getPaper(@PathVariable UUID submissionId,
+                                                                     Authentication authentication) {
+        return ResponseEntity.ok(ApiResponse.success(
+                attemptService.getPaper(submissionId, currentUserId(authentication))));
+    }
+
+    /**
+     * Đề thích ứng: câu tiếp theo chọn theo năng lực hiện tại (thay cho {@code /paper}).
+     */
+    @GetMapping("/attempts/{submissionId}/next-question")
+    public ResponseEntity<ApiResponse<AdaptiveQuestionResponse>> nextQuestion(@PathVariable UUID submissionId,
+                                                                           Authentication authentication) {
+        return ResponseEntity.ok(ApiResponse.success(
+                attemptService.nextQuestion(submissionId, currentUserId(authentication))));
+    }
+
+    /**
+     * Gói đề mã hóa, tải trước giờ thi; mở bằng khóa từ {@code /attempts/{submissionId}/bundle-key}.
+     */
+    @GetMapping("/exams/{examId}/bundle")
+    public ResponseEntity<byte[]> getBundle(@PathVariable UUID examId,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        ExamBundleService.Bundle bundle = bundleService.getBundle(examId);
+        CacheControl cacheControl = CacheControl.noCache().cachePublic();
+        if (bundle.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(bundle.etag()).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .eTag(bundle.etag())
+                .cacheControl(cacheControl)
+                .body(bundle.body());
+    }
+
+    @GetMapping("/attempts/{submissionId}/bundle-key")
+    public ResponseEntity<ApiResponse<BundleKeyResponse>> getBundleKey(@PathVariable UUID submissionId,
+                                                                       Authentication authentication) {
+        return ResponseEntity.ok(ApiResponse.success(
+                attemptService.getBundleKey(submissionId, currentUserId(authentication))));
+    }
+
+    @PutMapping("/attempts/{submissionId}/answers/{questionId}")
+    public ResponseEntity<ApiResponse<Void>> saveAnswer(@PathVariable UUID submissionId,
+                                                        @PathVariable UUID questionId,
+                                                        @Valid @RequestBody SaveAnswerRequest request,
+                                                        Authentication authentication) {
+        attemptService.saveAnswer(submissionId, currentUserId(authentication), questionId, request.selectedAnswer);
+        return ResponseEntity.ok(ApiResponse.success("Answer saved"));
+    }
+
+    @PostMapping("/attempts/{submissionId}/submit")
+    public ResponseEntity<ApiResponse<AttemptResultResponse>> submit(@PathVariable UUID submissionId,
+                                                                    Authentication authentication) {
+        SubmissionGrader.GradeResult result = attemptService.submit(submissionId, currentUserId(authentication));
+        return ResponseEntity.ok(ApiResponse.success("Attempt submitted", toResultResponse(submissionId, result)));
+    }
+
+    /**
+     * Lô sự kiện giám sát của lượt làm bài (client gửi vài lần mỗi giây).
+     */
+    @PostMapping("/attempts/{submissionId}/proctoring-events")
+    public ResponseEntity<ApiResponse<ProctoringIngestResponse>> ingestProctoringEvents(
+            @PathVariable UUID submissionId,
+            @Valid @RequestBody ProctoringEventBatchRequest request,
+            Authentication authentication) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(
+                proctoringService.ingest(submissionId, currentUserId(authentication), request.events)));
+    }
+
+    private UUID currentUserId(Authentication authentication) {
+        if (authentication == null) {
+            throw new ValidationException("Authentication is required");
+        }
+        try {
+            return UUID.fromString(authentication.getName());
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid user id in token: " + authentication.getName());
+        }
+    }
+
+    private AttemptResponse toResponse(LiveAttempt attempt) {
+        AttemptResponse r = new AttemptResponse();
+        r.answers = attemptService.displayedAnswers(attempt);
+        synchronized (attempt) {
+            r.submissionId = attempt.getSubmissionId();
+            r.sessionId = attempt.getSessionId();
+            r.examId = attempt.getExamId();
+            r.status = attempt.getState().name();
+            r.startedAt = attempt.getStartedAt();
+            r.deadline = attempt.getDeadline();
+            r.submittedAt = attempt.getSubmittedAt();
+            r.totalQuestions = attempt.getTotalQuestions();
+            if (attempt.getResult() != null) {
+                r.result = toResultResponse(attempt.getSubmissionId(), attempt.getResult());
+            }
+        }
+        return r;
+    }
+
+    private AttemptResultResponse toResultResponse(UUID submissionId, SubmissionGrader.GradeResult result) {
+        AttemptResultResponse r = new AttemptResultResponse();
+        r.submissionId = submissionId;
+        r.score = result.score();
+        r.correctAnswers = result.correctAnswers();
+        r.wrongAnswers = result.wrongAnswers();
+        r.totalQuestions = result.totalQuestions();
+        return r;
+    }
+}
@@ -1,19 +1,33 @@
 package com.dao.examservice.controller;
 
 import com.dao.common.dto.ApiResponse;
+import com.dao.examservice.dto.request.BulkRegistrationRequest;
+import com.dao.examservice.dto.request.ExamBlueprintRequest;
 import com.dao.examservice.dto.request.ExamConfigRequest;
 import com.dao.examservice.dto.request.ExamCreationRequest;
 import com.dao.examservice.dto.request.ExamScheduleRequest;
+import com.dao.examservice.dto.request.ScheduleConflictRequest;
 import com.dao.examservice.dto.request.ExamStatusUpdateRequest;
 import com.dao.examservice.dto.request.ExamUpdateRequest;
+import com.dao.examservice.dto.response.BulkRegistrationResponse;
 import com.dao.examservice.dto.response.EnumOptionResponse;
+import com.dao.examservice.dto.response.EssayScoringResponse;
 import com.dao.examservice.dto.response.ExamResponse;
 import com.dao.examservice.dto.response.GeneratedQuestionsResponse;
-import com.dao.examservice.dto.response.QuestionResponse;
+import com.dao.examservice.dto.response.ScheduleConflictResponse;
+import com.dao.examservice.dto.response.SearchPageResponse;
 import com.dao.examservice.entity.Exam;
+import com.dao.examservice.exception.ValidationException;
+import com.dao.examservice.service.EssayScoringPipeline;
+import com.dao.examservice.service.ExamPaperCache;
+import com.dao.examservice.service.ExamRegistrationService;
+import com.dao.examservice.service.ExamResultExportService;
 import com.dao.examservice.service.ExamService;
 import com.dao.examservice.service.QuestionService;
+import com.dao.examservice.service.ScheduleConflictService;
+import com.dao.examservice.service.SearchService;
 import com.dao.examservice.repository.ExamQuestionRepository;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,10 +36,17 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
@@ -42,6 +63,12 @@ public class ExamController {
     private final ExamService examService;
     private final QuestionService questionService;
     private final ExamQuestionRepository examQuestionRepository;
+    private final ExamRegistrationService registrationService;
+    private final SearchService searchService;
+    private final ExamPaperCache paperCache;
+    private final EssayScoringPipeline essayScoringPipeline;
+    private final ExamResultExportService resultExportService;
+    private final ScheduleConflictService scheduleConflictService;
 
     @PostMapping
     public ResponseEntity<ApiResponse<ExamResponse>> create(@Valid @RequestBody ExamCreationRequest request) {
@@ -112,6 +139,61 @@ public class ExamController {
         return ResponseEntity.ok(ApiResponse.success("Exam scheduled successfully", toResponse(exam)));
     }
 
+    /**
+     * Thí sinh của kỳ thi bị trùng giờ với kỳ thi khác đã đăng ký.
+     */
+    @GetMapping("/{id}/schedule-conflicts")
+    public ResponseEntity<ApiResponse<ScheduleConflictResponse>> scheduleConflicts(@PathVariable UUID id) {
+        return ResponseEntity.ok(ApiResponse.success(scheduleConflictService.checkExams(List.of(id))));
+    }
+
+    /**
+     * Kiểm tra trùng giờ cho nhiều kỳ thi cùng lúc (ví dụ lịch thi cuối kỳ trước khi công bố).
+     */
+    @PostMapping("/schedules/conflicts")
+    public ResponseEntity<ApiResponse<ScheduleConflictResponse>> scheduleConflictsBulk(
+            @RequestBody ScheduleConflictRequest request) {
+        return ResponseEntity.ok(ApiResponse.success(scheduleConflictService.checkExams(request.examIds)));
+    }
+
+    @PostMapping("/{id}/registrations/bulk")
+    public ResponseEntity<ApiResponse<BulkRegistrationResponse>> registerBulk(@PathVariable UUID id,
+                                                                              @RequestBody BulkRegistrationRequest request) {
+        BulkRegistrationResponse response = registrationService.registerBulk(id, request.candidateIds,
+                !Boolean.FALSE.equals(request.notify), Boolean.TRUE.equals(request.allowConflicts));
+        return ResponseEntity.ok(ApiResponse.success("Candidates registered", response));
+    }
+
+    @PostMapping(value = "/{id}/registrations/bulk/csv", consumes = "multipart/form-data")
+    public ResponseEntity<ApiResponse<BulkRegistrationResponse>> registerBulkCsv(
+            @PathVariable UUID id,
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "notify", defaultValue = "true") boolean notify,
+            @RequestParam(value = "allowConflicts", defaultValue = "false") boolean allowConflicts) throws IOException {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("File is empty");
+        }
+        try (InputStream in = file.getInputStream()) {
+            BulkRegistrationResponse response = registrationService.registerFromCsv(id, in, notify, allowConflicts);
+            return ResponseEntity.ok(ApiResponse.success("Candidates registered", response));
+        }
+    }
+
+    /**
+     * Đưa các câu tự luận chưa có điểm của kỳ thi vào hàng đợi chấm tự động.
+     */
+    @PostMapping("/{id}/essay-scoring")
+    public ResponseEntity<ApiResponse<EssayScoringResponse>> scoreEssays(@PathVariable UUID id) {
+        if (!essayScoringPipeline.isEnabled()) {
+            throw new ValidationException("Essay scoring is not configured");
+        }
+        EssayScoringResponse r = new EssayScoringResponse();
+        r.examId = id;
+        r.scorer = essayScoringPipeline.getScorerName();
+        r.queued = essayScoringPipeline.enqueueExam(id);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success("Essay scoring queued", r));
+    }
+
     @PostMapping("/{id}/generate-questions")
     public ResponseEntity<ApiResponse<GeneratedQuestionsResponse>> generate(@PathVariable UUID id, @RequestBody com.dao.examservice.dto.request.GenerateQuestionsRequest request) {
         log.info("Generating questions for exam: {}", id);
@@ -119,18 +201,58 @@ public class ExamController {
 
         GeneratedQuestionsResponse r = new GeneratedQuestionsResponse();
         r.questionIds = new ArrayList<>(questionIds);
+        r.nearDuplicateGroups = questionService.findNearDuplicateGroups(questionIds);
         return ResponseEntity.ok(ApiResponse.success("Questions generated successfully", r));
     }
 
-    @GetMapping("/{id}/questions")
-    public ResponseEntity<ApiResponse<List<QuestionResponse>>> getExamQuestions(@PathVariable UUID id) {
-        List<com.dao.examservice.entity.ExamQuestion> examQuestions = examService.getExamQuestions(id);
+    @PostMapping("/{id}/blueprint")
+    public ResponseEntity<ApiResponse<GeneratedQuestionsResponse>> generateFromBlueprint(@PathVariable UUID id,
+                                                                                         @Valid @RequestBody ExamBlueprintRequest request) {
+        log.info("Generating questions for exam {} from blueprint ({} sections)", id, request.sections.size());
+        List<UUID> questionIds = examService.generateFromBlueprint(id, request);
 
-        List<QuestionResponse> responses = examQuestions.stream()
-                .map(eq -> toQuestionResponse(eq.getQuestion()))
-                .collect(Collectors.toList());
+        GeneratedQuestionsResponse r = new GeneratedQuestionsResponse();
+        r.questionIds = new ArrayList<>(questionIds);
+        r.nearDuplicateGroups = questionService.findNearDuplicateGroups(questionIds);
+        return ResponseEntity.ok(ApiResponse.success("Questions generated successfully", r));
+    }
 
-        return ResponseEntity.ok(ApiResponse.success(responses));
+    /**
+     * Xuất mọi bài nộp và câu trả lời của đề (format=csv|xlsx), ghi thẳng ra response.
+     */
+    @GetMapping("/{id}/results/export")
+    public void exportResults(@PathVariable UUID id, @RequestParam(defaultValue = "csv") String format,
+                              HttpServletResponse response) throws IOException {
+        ExamResultExportService.Format exportFormat = ExamResultExportService.Format.parse(format);
+        String fileName = resultExportService.prepare(id, exportFormat);
+        log.info("Exporting results of exam {} as {}", id, exportFormat);
+        response.setContentType(exportFormat.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+        resultExportService.export(id, exportFormat, response.getOutputStream());
+    }
+
+    /**
+     * Đề thi phục vụ từ {@link ExamPaperCache}: body đã serialize sẵn, client gửi lại
+     * {@code If-None-Match} sẽ nhận 304. Đề của kỳ thi thích ứng chỉ dành cho ADMIN.
+     */
+    @GetMapping("/{id}/questions")
+    public ResponseEntity<byte[]> getExamQuestions(@PathVariable UUID id,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                   Authentication authentication) {
+        ExamPaperCache.Paper paper = paperCache.getForViewer(id, isAdmin(authentication));
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        if (paper.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(paper.etag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(paper.etag())
+                .cacheControl(cacheControl)
+                .body(paper.body());
     }
 
     @GetMapping("/schedules")
@@ -181,6 +303,20 @@ public class ExamController {
         return ResponseEntity.ok(ApiResponse.success(responsePage));
     }
 
+    @GetMapping("/search/text")
+    public ResponseEntity<ApiResponse<SearchPageResponse<ExamResponse>>> searchText(
+            @RequestParam String q,
+            @RequestParam(required = false) Exam.ExamStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        SearchService.Result<Exam> result = searchService.searchExams(q, status, cursor, size);
+
+        SearchPageResponse<ExamResponse> r = new SearchPageResponse<>();
+        r.items = result.items().stream().map(this::toResponse).collect(Collectors.toList());
+        r.nextCursor = result.nextCursor();
+        return ResponseEntity.ok(ApiResponse.success(r));
+    }
+
     @GetMapping("/subjects")
     public ResponseEntity<ApiResponse<List<String>>> getAllSubjects() {
         List<String> subjects = questionService.getAllSubjects();
@@ -221,6 +357,7 @@ public class ExamController {
         r.totalQuestions = e.getTotalQuestions();
         r.createdBy = e.getCreatedBy();
         r.status = e.getStatus().name();
+        r.adaptive = Boolean.TRUE.equals(e.getAdaptive());
         r.createdAt = e.getCreatedAt();
         r.updatedAt = e.getUpdatedAt();
         // orgId, examType, difficulty removed per ERD schema
@@ -229,17 +366,8 @@ public class ExamController {
         return r;
     }
 
-    private QuestionResponse toQuestionResponse(com.dao.examservice.entity.Question q) {
-        QuestionResponse r = new QuestionResponse();
-        r.id = q.getId();
-        r.type = q.getType();
-        r.content = q.getContent();
-        r.difficulty = q.getDifficulty();
-        r.explanation = q.getExplanation();
-        r.score = q.getScore();
-        r.text = q.getText();
-        r.createdAt = q.getCreatedAt();
-        r.updatedAt = q.getUpdatedAt();
-        return r;
+    private static boolean isAdmin(Authentication authentication) {
+        return authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
     }
 }
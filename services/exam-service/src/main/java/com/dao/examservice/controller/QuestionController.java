@@ -3,9 +3,14 @@ package com.dao.examservice.controller;
 import com.dao.examservice.dto.request.QuestionCreationRequest;
 import com.dao.examservice.dto.request.QuestionSearchRequest;
 import com.dao.examservice.dto.response.GeneratedQuestionsResponse;
+import com.dao.examservice.dto.response.ItemAnalysisResponse;
 import com.dao.examservice.dto.response.QuestionResponse;
+import com.dao.examservice.dto.response.SearchPageResponse;
+import com.dao.examservice.dto.response.SimilarQuestionResponse;
 import com.dao.examservice.entity.Question;
+import com.dao.examservice.service.ItemAnalysisService;
 import com.dao.examservice.service.QuestionService;
+import com.dao.examservice.service.SearchService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,9 +25,14 @@ import java.util.Set;
 public class QuestionController {
 
     private final QuestionService questionService;
+    private final SearchService searchService;
+    private final ItemAnalysisService itemAnalysisService;
 
-    public QuestionController(QuestionService questionService) {
+    public QuestionController(QuestionService questionService, SearchService searchService,
+                              ItemAnalysisService itemAnalysisService) {
         this.questionService = questionService;
+        this.searchService = searchService;
+        this.itemAnalysisService = itemAnalysisService;
     }
 
     @PostMapping
@@ -37,6 +47,17 @@ public class QuestionController {
         return ResponseEntity.ok().build();
     }
 
+    @GetMapping("/{id}/item-analysis")
+    public ResponseEntity<ItemAnalysisResponse> itemAnalysis(@PathVariable UUID id) {
+        return ResponseEntity.ok(itemAnalysisService.getItemAnalysis(id));
+    }
+
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<SimilarQuestionResponse>> similar(@PathVariable UUID id,
+                                                                 @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(questionService.findSimilar(id, limit));
+    }
+
     @GetMapping
     public ResponseEntity<List<QuestionResponse>> search(
             @RequestParam(required = false) List<String> tags,
@@ -50,6 +71,18 @@ public class QuestionController {
         return ResponseEntity.ok(results.stream().map(this::toResponse).collect(Collectors.toList()));
     }
 
+    @GetMapping("/text-search")
+    public ResponseEntity<SearchPageResponse<QuestionResponse>> textSearch(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        SearchService.Result<Question> result = searchService.searchQuestions(q, cursor, size);
+        SearchPageResponse<QuestionResponse> r = new SearchPageResponse<>();
+        r.items = result.items().stream().map(this::toResponse).collect(Collectors.toList());
+        r.nextCursor = result.nextCursor();
+        return ResponseEntity.ok(r);
+    }
+
     @PostMapping("/generate")
     public ResponseEntity<GeneratedQuestionsResponse> generate(
             @RequestParam(defaultValue = "10") int count,
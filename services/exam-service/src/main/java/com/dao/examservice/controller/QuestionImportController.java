@@ -1,21 +1,29 @@
 package com.dao.examservice.controller;
 
 import com.dao.examservice.dto.response.DeleteQuestionsByTagResponse;
+import com.dao.examservice.dto.response.ImportJobResponse;
 import com.dao.examservice.dto.response.QuestionImportResponse;
 import com.dao.examservice.dto.response.QuestionImportStatsResponse;
+import com.dao.examservice.service.ImportJob;
+import com.dao.examservice.service.QuestionImportJobService;
 import com.dao.examservice.service.QuestionImportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/questions")
@@ -25,6 +33,7 @@ import java.util.Map;
 public class QuestionImportController {
 
     private final QuestionImportService questionImportService;
+    private final QuestionImportJobService importJobService;
 
     /**
      * Import questions from Excel file (.xlsx)
@@ -88,6 +97,8 @@ public class QuestionImportController {
             response.skipped = (int) result.get("skipped");
             response.errors = (int) result.get("errors");
             response.errorDetails = (List<String>) result.get("errorDetails");
+            response.nearDuplicates = (int) result.get("nearDuplicates");
+            response.nearDuplicateDetails = (List<String>) result.get("nearDuplicateDetails");
             response.subject = (String) result.get("subject");
             response.tags = List.of(tagArray);
             
@@ -99,6 +110,54 @@ public class QuestionImportController {
         }
     }
 
+    /**
+     * Start a background import job for an Excel file (.xlsx), same format as /import-excel.
+     * Returns immediately with the job id; progress via GET /import-jobs/{jobId} or its /events stream.
+     */
+    @PostMapping(value = "/import-jobs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Start a background question import job",
+               description = "Upload an Excel file; questions are imported in chunks by a background worker.")
+    public ResponseEntity<ImportJobResponse> startImportJob(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("subject") String subject,
+            @RequestParam(value = "tags", required = false) String tags,
+            @RequestParam(value = "skipDuplicates", defaultValue = "false") boolean skipDuplicates,
+            Authentication authentication
+    ) throws IOException {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("File is empty");
+        }
+
+        String filename = file.getOriginalFilename();
+        if (filename == null || !filename.toLowerCase().endsWith(".xlsx")) {
+            throw new IllegalArgumentException("Only .xlsx files are supported");
+        }
+
+        String[] tagArray = (tags != null && !tags.isEmpty())
+            ? tags.split(",")
+            : new String[]{subject};
+        String requestedBy = authentication != null ? authentication.getName() : "SYSTEM";
+
+        ImportJob job = importJobService.submit(file.getInputStream(), filename, subject, tagArray,
+                skipDuplicates, requestedBy);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(importJobService.toResponse(job));
+    }
+
+    @GetMapping("/import-jobs/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get question import job progress")
+    public ResponseEntity<ImportJobResponse> getImportJob(@PathVariable UUID jobId) {
+        return ResponseEntity.ok(importJobService.toResponse(importJobService.get(jobId)));
+    }
+
+    @GetMapping(value = "/import-jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Stream question import job progress (SSE)")
+    public SseEmitter streamImportJob(@PathVariable UUID jobId) {
+        return importJobService.subscribe(jobId);
+    }
+
     /**
      * Get import statistics
      */
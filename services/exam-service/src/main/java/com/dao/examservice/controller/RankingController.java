@@ -0,0 +1,57 @@
+package com.dao.examservice.controller;
+
+import com.dao.common.dto.ApiResponse;
+import com.dao.examservice.dto.response.RankingResponse;
+import com.dao.examservice.exception.ValidationException;
+import com.dao.examservice.service.QuizLeaderboard;
+import com.dao.examservice.service.RankingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/exams/{examId}/rankings")
+@RequiredArgsConstructor
+public class RankingController {
+
+    private final RankingService rankingService;
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<RankingResponse>>> top(@PathVariable UUID examId,
+                                                                 @RequestParam(defaultValue = "10") int limit) {
+        List<RankingResponse> top = rankingService.getTop(examId, limit).stream()
+                .map(this::toResponse)
+                .toList();
+        return ResponseEntity.ok(ApiResponse.success(top));
+    }
+
+    @GetMapping("/me")
+    public ResponseEntity<ApiResponse<RankingResponse>> me(@PathVariable UUID examId,
+                                                          Authentication authentication) {
+        if (authentication == null) {
+            throw new ValidationException("Authentication is required");
+        }
+        UUID userId;
+        try {
+            userId = UUID.fromString(authentication.getName());
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid user id in token: " + authentication.getName());
+        }
+        return ResponseEntity.ok(ApiResponse.success(toResponse(rankingService.getPosition(examId, userId))));
+    }
+
+    private RankingResponse toResponse(QuizLeaderboard.Position position) {
+        RankingResponse r = new RankingResponse();
+        r.studentId = position.studentId();
+        r.submissionId = position.submissionId();
+        r.score = position.score();
+        r.rank = position.rank();
+        r.percentile = position.percentile();
+        r.totalSubmissions = position.totalSubmissions();
+        return r;
+    }
+}
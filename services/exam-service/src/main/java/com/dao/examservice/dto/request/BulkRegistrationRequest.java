@@ -0,0 +1,11 @@
+package com.dao.examservice.dto.request;
+
+import java.util.List;
+
+public class BulkRegistrationRequest {
+    /** Id thí sinh dạng chuỗi; id không hợp lệ được báo lại trong kết quả, không làm hỏng cả lô. */
+    public List<String> candidateIds;
+    public Boolean notify;
+    /** Vẫn đăng ký khi thí sinh bị trùng giờ với kỳ thi khác đã đăng ký (mặc định: từ chối). */
+    public Boolean allowConflicts;
+}
@@ -0,0 +1,38 @@
+package com.dao.examservice.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ma trận đề: mỗi section là một nhóm câu hỏi (tag + khoảng độ khó + số câu),
+ * ví dụ "10 dễ + 20 trung bình từ tag A, 5 khó từ tag B".
+ */
+public class ExamBlueprintRequest {
+
+    @NotEmpty(message = "Blueprint must have at least one section")
+    @Valid
+    public List<Section> sections;
+
+    public static class Section {
+
+        /** Tên hiển thị của nhóm, chỉ dùng trong thông báo lỗi. */
+        public String label;
+
+        public Set<String> tags;
+
+        public Integer minDifficulty;
+
+        public Integer maxDifficulty;
+
+        @Min(value = 1, message = "Section count must be at least 1")
+        @Max(value = 500, message = "Section count cannot exceed 500")
+        public int count;
+
+        /** Điểm mỗi câu trong nhóm; bỏ trống thì dùng điểm của câu hỏi. */
+        @Min(value = 0, message = "Score must be at least 0")
+        public Integer score;
+    }
+}
@@ -57,4 +57,7 @@ public class ExamCreationRequest {
     public Boolean showCorrectAnswers;
 
     public Boolean partialScoringEnabled;
+
+    /** Thi thích ứng: {@code totalQuestions} là số câu tối đa giao cho mỗi thí sinh. */
+    public Boolean adaptive;
 }
\ No newline at end of file
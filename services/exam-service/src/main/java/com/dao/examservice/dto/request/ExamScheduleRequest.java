@@ -8,4 +8,6 @@ public class ExamScheduleRequest {
     public List<UUID> candidateIds;
     public Instant startAt;
     public Instant endAt;
+    /** Vẫn lên lịch khi thí sinh bị trùng giờ với kỳ thi khác đã đăng ký (mặc định: từ chối). */
+    public Boolean allowConflicts;
 }
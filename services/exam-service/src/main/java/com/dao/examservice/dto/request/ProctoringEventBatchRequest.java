@@ -0,0 +1,23 @@
+package com.dao.examservice.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.time.Instant;
+import java.util.List;
+
+public class ProctoringEventBatchRequest {
+
+    @NotEmpty(message = "events must not be empty")
+    @Valid
+    public List<Event> events;
+
+    public static class Event {
+        @NotBlank(message = "eventType is required")
+        public String eventType; // TAB_SWITCH, NO_FACE, MULTIPLE_FACES, ...
+        public String severity;  // LOW | MEDIUM | HIGH | CRITICAL, mặc định LOW
+        public Instant timestamp;
+        public String data;      // payload gốc từ client (JSON), lưu nguyên văn
+    }
+}
@@ -0,0 +1,9 @@
+package com.dao.examservice.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class SaveAnswerRequest {
+
+    @NotBlank(message = "selectedAnswer is required")
+    public String selectedAnswer; // option index ("0"), letter ("A"), "0,2" or option text
+}
@@ -0,0 +1,9 @@
+package com.dao.examservice.dto.request;
+
+import java.util.List;
+import java.util.UUID;
+
+public class ScheduleConflictRequest {
+    /** Các kỳ thi cần kiểm tra (ví dụ các đề thi cuối kỳ của một tuần trước khi công bố). */
+    public List<UUID> examIds;
+}
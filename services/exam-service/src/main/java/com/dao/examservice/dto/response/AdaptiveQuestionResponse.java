@@ -0,0 +1,15 @@
+package com.dao.examservice.dto.response;
+
+import java.util.UUID;
+
+/**
+ * Câu tiếp theo của lượt thi thích ứng. {@code finished = true} (không còn câu) thì nộp bài.
+ */
+public class AdaptiveQuestionResponse {
+    public UUID submissionId;
+    public int answered;
+    /** Số câu tối đa; bài có thể dừng sớm hơn khi đã đo đủ chính xác. */
+    public int maxQuestions;
+    public boolean finished;
+    public AttemptPaperResponse.PaperQuestion question;
+}
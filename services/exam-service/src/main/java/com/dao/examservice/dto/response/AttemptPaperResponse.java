@@ -0,0 +1,23 @@
+package com.dao.examservice.dto.response;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Đề thi theo thứ tự riêng của một lượt làm bài (không kèm đáp án).
+ * Đáp án gửi lên dùng chỉ số theo thứ tự {@code options} trả về ở đây.
+ */
+public class AttemptPaperResponse {
+    public UUID submissionId;
+    public UUID examId;
+    public List<PaperQuestion> questions;
+
+    public static class PaperQuestion {
+        public UUID questionId;
+        public int position;
+        public String type;
+        public String text;
+        public List<String> options;
+        public int score;
+    }
+}
@@ -0,0 +1,18 @@
+package com.dao.examservice.dto.response;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+public class AttemptResponse {
+    public UUID submissionId;
+    public UUID sessionId;
+    public UUID examId;
+    public String status;
+    public Instant startedAt;
+    public Instant deadline;
+    public Instant submittedAt;
+    public Integer totalQuestions;
+    public Map<UUID, String> answers;
+    public AttemptResultResponse result;
+}
@@ -0,0 +1,11 @@
+package com.dao.examservice.dto.response;
+
+import java.util.UUID;
+
+public class AttemptResultResponse {
+    public UUID submissionId;
+    public int score;
+    public int correctAnswers;
+    public int wrongAnswers;
+    public int totalQuestions;
+}
@@ -0,0 +1,25 @@
+package com.dao.examservice.dto.response;
+
+import java.util.List;
+import java.util.UUID;
+
+public class BulkRegistrationResponse {
+    public UUID examId;
+    public int requested;
+    public int registered;
+    public int alreadyRegistered;
+    public int duplicates;
+    public int invalid;
+    public List<Outcome> outcomes;
+
+    public static class Outcome {
+        public String candidateId;
+        /** REGISTERED, ALREADY_REGISTERED, DUPLICATE (lặp trong chính request) hoặc INVALID. */
+        public String status;
+
+        public Outcome(String candidateId, String status) {
+            this.candidateId = candidateId;
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.dao.examservice.dto.response;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Khóa giải mã gói đề của một lượt làm bài, kèm thứ tự riêng của lượt đó.
+ * {@code questionOrder} là id câu hỏi theo thứ tự hiển thị; {@code optionOrders[questionId][i]}
+ * là chỉ số gốc (trong gói) của phương án hiển thị ở vị trí {@code i}. Kết quả giống hệt
+ * {@code GET /attempts/{submissionId}/paper}.
+ */
+public class BundleKeyResponse {
+    public UUID submissionId;
+    public UUID examId;
+    public String algorithm;
+    /** Base64, 32 byte. */
+    public String key;
+    /** ETag của gói ứng với khóa này; khác ETag gói đã tải thì phải tải lại. */
+    public String bundleEtag;
+    public List<UUID> questionOrder;
+    public Map<UUID, int[]> optionOrders;
+}
@@ -0,0 +1,10 @@
+package com.dao.examservice.dto.response;
+
+import java.util.UUID;
+
+public class EssayScoringResponse {
+    public UUID examId;
+    public String scorer;
+    /** Số câu tự luận chưa có điểm vừa được đưa vào hàng đợi chấm. */
+    public int queued;
+}
@@ -17,6 +17,7 @@ public class ExamResponse {
     public Integer assignedQuestionCount;
     public UUID createdBy;
     public String status;
+    public boolean adaptive;
     public Instant createdAt;
     public Instant updatedAt;
 }
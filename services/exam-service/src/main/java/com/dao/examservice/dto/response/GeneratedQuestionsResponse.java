@@ -5,6 +5,8 @@ import java.util.UUID;
 
 public class GeneratedQuestionsResponse {
     public List<UUID> questionIds;
+    /** Các nhóm câu gần trùng nhau trong đề (MinHash), để người ra đề thay bớt. */
+    public List<List<UUID>> nearDuplicateGroups;
 }
 
 
@@ -0,0 +1,27 @@
+package com.dao.examservice.dto.response;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Trạng thái job import câu hỏi chạy nền
+ */
+public class ImportJobResponse {
+    public UUID jobId;
+    public String status;
+    public String fileName;
+    public String subject;
+    public List<String> tags;
+    public int imported;
+    public int skipped;
+    public int errors;
+    public List<String> errorDetails;
+    /** Số dòng gần trùng (MinHash) với câu đã có hoặc với dòng khác; vẫn được import. */
+    public int nearDuplicates;
+    public List<String> nearDuplicateDetails;
+    public String message;
+    public Instant createdAt;
+    public Instant startedAt;
+    public Instant finishedAt;
+}
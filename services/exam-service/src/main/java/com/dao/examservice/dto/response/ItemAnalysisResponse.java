@@ -0,0 +1,26 @@
+package com.dao.examservice.dto.response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class ItemAnalysisResponse {
+    public UUID questionId;
+    /** Số lượt trả lời đã chấm được tính vào thống kê. */
+    public long responses;
+    /** Tỉ lệ trả lời đúng (p-value), 0..1. */
+    public double pValue;
+    /** Hệ số tương quan point-biserial giữa câu này và điểm cả bài, -1..1. */
+    public double discrimination;
+    public Integer difficulty;
+    /** Độ khó 1-10 suy ra từ p-value; {@code null} khi chưa đủ số lượt trả lời. */
+    public Integer calibratedDifficulty;
+    public List<OptionPick> options = new ArrayList<>();
+
+    public static class OptionPick {
+        public int index;
+        public long picks;
+        /** Tỉ lệ lượt trả lời chọn phương án này. */
+        public double rate;
+    }
+}
@@ -0,0 +1,9 @@
+package com.dao.examservice.dto.response;
+
+public class ProctoringIngestResponse {
+    public int accepted;
+    public int highSeverityViolationCount;
+    public int violationThreshold;
+    /** Lượt làm bài đã bị đóng do vi phạm vượt ngưỡng. */
+    public boolean terminated;
+}
@@ -10,6 +10,9 @@ public class QuestionImportResponse {
     public int skipped;
     public int errors;
     public List<String> errorDetails;
+    /** Số dòng gần trùng (MinHash) với câu đã có hoặc với dòng khác; vẫn được import. */
+    public int nearDuplicates;
+    public List<String> nearDuplicateDetails;
     public String subject;
     public List<String> tags;
 }
@@ -0,0 +1,13 @@
+package com.dao.examservice.dto.response;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public class RankingResponse {
+    public UUID studentId;
+    public UUID submissionId;
+    public int score;
+    public int rank;
+    public BigDecimal percentile;
+    public int totalSubmissions;
+}
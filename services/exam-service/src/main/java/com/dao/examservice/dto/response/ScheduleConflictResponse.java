@@ -0,0 +1,31 @@
+package com.dao.examservice.dto.response;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public class ScheduleConflictResponse {
+    public List<UUID> examIds;
+    /** Kỳ thi chưa có đủ startAt / endAt nên không kiểm tra được. */
+    public List<UUID> unscheduledExamIds;
+    public int candidatesChecked;
+    public int candidatesWithConflicts;
+    public int conflictCount;
+    /** Danh sách bị cắt theo exam.schedule.max-reported-conflicts; conflictCount vẫn là tổng số. */
+    public boolean truncated;
+    public List<Conflict> conflicts;
+
+    public static class Conflict {
+        public UUID candidateId;
+        public UUID examId;
+        public String examTitle;
+        public Instant startAt;
+        public Instant endAt;
+        public UUID conflictingExamId;
+        public String conflictingExamTitle;
+        public Instant conflictingStartAt;
+        public Instant conflictingEndAt;
+        /** 0 khi hai kỳ thi không chồng nhau nhưng cách nhau ít hơn exam.schedule.min-gap-minutes. */
+        public long overlapMinutes;
+    }
+}
@@ -0,0 +1,12 @@
+package com.dao.examservice.dto.response;
+
+import java.util.List;
+
+/**
+ * Một trang kết quả tìm kiếm. Gửi lại {@code nextCursor} để lấy trang tiếp theo;
+ * {@code null} nghĩa là đã hết kết quả.
+ */
+public class SearchPageResponse<T> {
+    public List<T> items;
+    public String nextCursor;
+}
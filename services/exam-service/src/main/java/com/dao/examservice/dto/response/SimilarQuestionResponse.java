@@ -0,0 +1,12 @@
+package com.dao.examservice.dto.response;
+
+import java.util.UUID;
+
+/**
+ * Câu hỏi gần trùng, kèm độ tương đồng ước lượng (0-1)
+ */
+public class SimilarQuestionResponse {
+    public UUID questionId;
+    public double similarity;
+    public String text;
+}
@@ -84,6 +84,11 @@ public class Exam {
     @Builder.Default
     private Boolean partialScoringEnabled = false;
 
+    /** Thi thích ứng: mỗi lần chỉ giao một câu, chọn theo năng lực ước lượng của thí sinh. */
+    @Column(name = "adaptive", nullable = false)
+    @Builder.Default
+    private Boolean adaptive = false;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
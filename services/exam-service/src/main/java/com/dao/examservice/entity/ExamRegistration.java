@@ -10,6 +10,7 @@ import java.util.UUID;
 @Entity
 @Table(name = "cm_exam_registrations", indexes = {
     @Index(name = "idx_cm_exam_registrations_exam", columnList = "exam_id"),
+    @Index(name = "idx_cm_exam_registrations_exam_user", columnList = "exam_id, user_id"),
     @Index(name = "idx_cm_exam_registrations_user", columnList = "user_id"),
     @Index(name = "idx_cm_exam_registrations_status", columnList = "status")
 })
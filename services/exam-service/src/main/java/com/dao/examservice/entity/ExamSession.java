@@ -15,7 +15,8 @@ import java.util.UUID;
     @Index(name = "idx_exam_sessions_exam", columnList = "exam_id"),
     @Index(name = "idx_exam_sessions_user", columnList = "user_id"),
     @Index(name = "idx_exam_sessions_status", columnList = "status"),
-    @Index(name = "idx_exam_sessions_exam_user", columnList = "exam_id, user_id")
+    @Index(name = "idx_exam_sessions_exam_user", columnList = "exam_id, user_id"),
+    @Index(name = "idx_exam_sessions_status_end", columnList = "status, end_time")
 })
 @Getter
 @Setter
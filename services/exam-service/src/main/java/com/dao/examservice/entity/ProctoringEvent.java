@@ -35,6 +35,9 @@ public class ProctoringEvent {
     @Column(name = "event_data", columnDefinition = "text")
     private String eventData;
 
+    @Column(length = 20)
+    private String severity;
+
     @Column(nullable = false)
     private Instant timestamp;
 
@@ -14,7 +14,8 @@ import java.util.UUID;
 @Table(name = "questions", indexes = {
     @Index(name = "idx_questions_org", columnList = "organization_id"),
     @Index(name = "idx_questions_type", columnList = "type"),
-    @Index(name = "idx_questions_difficulty", columnList = "difficulty")
+    @Index(name = "idx_questions_difficulty", columnList = "difficulty"),
+    @Index(name = "uk_questions_content_fingerprint", columnList = "content_fingerprint", unique = true)
 })
 @Getter
 @Setter
@@ -53,6 +54,13 @@ public class Question {
     @Column(length = 2000)
     private String text;
 
+    /**
+     * Dấu vân tay nội dung đã chuẩn hóa (xem {@code QuestionFingerprinter}). Unique: chỉ bản
+     * đầu tiên của mỗi nội dung giữ giá trị, các bản trùng được import thêm để NULL.
+     */
+    @Column(name = "content_fingerprint")
+    private Long contentFingerprint;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
@@ -47,6 +47,10 @@ public class QuizSubmission {
     @Column(columnDefinition = "text")
     private String answers;
 
+    /** Bài làm đã nộp ở dạng nhị phân gọn, xem {@code AnswerSheetCodec}. */
+    @Column(name = "answer_sheet", columnDefinition = "bytea")
+    private byte[] answerSheet;
+
     @Column(name = "started_at")
     private Instant startedAt;
 
@@ -0,0 +1,138 @@
+package com.dao.examservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Storage behind the compact answer sheets: the question layouts the sheets refer to,
+ * the backfill of sheets for submissions finalized before the format existed, and the
+ * optional compaction of per-answer rows whose content the sheet already holds.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AnswerSheetJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void createTablesIfMissing() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS answer_sheet_layouts (
+                    layout_id    bigint      PRIMARY KEY,
+                    exam_id      uuid        NOT NULL,
+                    question_ids uuid[]      NOT NULL,
+                    created_at   timestamptz NOT NULL DEFAULT now()
+                )
+                """);
+    }
+
+    public void saveLayout(long layoutId, UUID examId, UUID[] questionIds) {
+        jdbcTemplate.update("""
+                INSERT INTO answer_sheet_layouts (layout_id, exam_id, question_ids)
+                VALUES (?, ?, ?)
+                ON CONFLICT (layout_id) DO NOTHING
+                """,
+                ps -> {
+                    ps.setLong(1, layoutId);
+                    ps.setObject(2, examId);
+                    ps.setArray(3, ps.getConnection().createArrayOf("uuid", questionIds));
+                });
+    }
+
+    public Optional<UUID[]> findLayout(long layoutId) {
+        return jdbcTemplate.query("SELECT question_ids FROM answer_sheet_layouts WHERE layout_id = ?",
+                (rs, rowNum) -> {
+                    Array array = rs.getArray("question_ids");
+                    return (UUID[]) array.getArray();
+                },
+                layoutId).stream().findFirst();
+    }
+
+    /**
+     * Final submissions without a sheet, in id order after {@code afterId} (null for the start).
+     */
+    public List<Unencoded> findUnencoded(UUID afterId, int limit) {
+        return jdbcTemplate.query("""
+                SELECT id, quiz_id FROM quiz_submissions
+                WHERE is_final = true AND answer_sheet IS NULL AND quiz_id IS NOT NULL
+                  AND id > COALESCE(?, '00000000-0000-0000-0000-000000000000'::uuid)
+                ORDER BY id
+                LIMIT ?
+                """,
+                (rs, rowNum) -> new Unencoded(rs.getObject("id", UUID.class), rs.getObject("quiz_id", UUID.class)),
+                afterId, limit);
+    }
+
+    public void streamAnswers(UUID[] submissionIds, Consumer<StoredAnswer> consumer) {
+        jdbcTemplate.query("""
+                SELECT submission_id, question_id, selected_answer, is_correct
+                FROM answers
+                WHERE submission_id = ANY(?)
+                """,
+                ps -> {
+                    Connection c = ps.getConnection();
+                    ps.setArray(1, c.createArrayOf("uuid", submissionIds));
+                },
+                rs -> {
+                    consumer.accept(new StoredAnswer(
+                            rs.getObject("submission_id", UUID.class),
+                            rs.getObject("question_id", UUID.class),
+                            rs.getString("selected_answer"),
+                            (Boolean) rs.getObject("is_correct")));
+                });
+    }
+
+    /**
+     * Stores the sheets next to the existing answers, which other services still read; a
+     * sheet written meanwhile (the submission was re-finalized) is kept.
+     */
+    public void writeSheets(List<SheetWrite> sheets) {
+        if (sheets.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                UPDATE quiz_submissions SET answer_sheet = ?
+                WHERE id = ? AND answer_sheet IS NULL
+                """,
+                sheets, sheets.size(), (ps, w) -> {
+                    ps.setBytes(1, w.sheet());
+                    ps.setObject(2, w.submissionId());
+                });
+    }
+
+    /**
+     * Deletes up to {@code limit} auto-graded answer rows ({@code is_correct} set) of
+     * submissions that have a sheet and were submitted before {@code before}. Essay rows keep
+     * their scores and comments and are never deleted.
+     *
+     * @return number of rows deleted
+     */
+    public int deleteEncodedChoiceAnswers(Instant before, int limit) {
+        return jdbcTemplate.update("""
+                DELETE FROM answers
+                WHERE id = ANY(ARRAY(
+                    SELECT a.id
+                    FROM answers a
+                    JOIN quiz_submissions s ON s.id = a.submission_id
+                    WHERE a.is_correct IS NOT NULL
+                      AND s.is_final = true AND s.answer_sheet IS NOT NULL AND s.submitted_at < ?
+                    LIMIT ?))
+                """,
+                Timestamp.from(before), limit);
+    }
+
+    public record Unencoded(UUID submissionId, UUID examId) {}
+
+    public record StoredAnswer(UUID submissionId, UUID questionId, String selectedAnswer, Boolean correct) {}
+
+    public record SheetWrite(UUID submissionId, byte[] sheet) {}
+}
@@ -0,0 +1,78 @@
+package com.dao.examservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads essay answers that still need a score and writes scores back in batches.
+ * Only final submissions are considered; the points of a question come from the exam
+ * placement when set, otherwise from the question itself.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EssayScoringJdbcRepository {
+
+    private static final String SELECT_UNSCORED = """
+            SELECT a.id, a.question_id, a.selected_answer,
+                   COALESCE(q.text, q.content ->> 'question') AS question_text,
+                   COALESCE(q.content ->> 'gradingCriteria', q.explanation) AS criteria,
+                   COALESCE(eq.score, q.score, 1) AS max_score
+            FROM answers a
+            JOIN quiz_submissions s ON s.id = a.submission_id
+            JOIN questions q ON q.id = a.question_id
+            LEFT JOIN exam_questions eq ON eq.exam_id = s.quiz_id AND eq.question_id = q.id
+            WHERE q.type = 'ESSAY' AND s.is_final = true AND a.score IS NULL
+              AND a.selected_answer <> ''
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<EssayAnswer> findUnscoredBySubmissions(UUID[] submissionIds) {
+        return jdbcTemplate.query(SELECT_UNSCORED + " AND a.submission_id = ANY (?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", submissionIds)),
+                (rs, rowNum) -> map(rs));
+    }
+
+    public List<EssayAnswer> findUnscoredByExam(UUID examId) {
+        return jdbcTemplate.query(SELECT_UNSCORED + " AND s.quiz_id = ? ORDER BY a.question_id",
+                (rs, rowNum) -> map(rs), examId);
+    }
+
+    /**
+     * Writes scores only to answers that are still unscored, so a late automatic score never
+     * overwrites a grade the teacher entered meanwhile.
+     */
+    public void updateScores(List<ScoredAnswer> scores) {
+        if (scores.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                UPDATE answers
+                SET score = ?, instructor_comment = ?, updated_at = now()
+                WHERE id = ? AND score IS NULL
+                """,
+                scores, scores.size(), (ps, s) -> {
+                    ps.setBigDecimal(1, s.score());
+                    ps.setString(2, s.comment());
+                    ps.setObject(3, s.answerId());
+                });
+    }
+
+    private static EssayAnswer map(ResultSet rs) throws SQLException {
+        return new EssayAnswer(rs.getObject("id", UUID.class), rs.getObject("question_id", UUID.class),
+                rs.getString("selected_answer"), rs.getString("question_text"), rs.getString("criteria"),
+                rs.getInt("max_score"));
+    }
+
+    public record EssayAnswer(UUID answerId, UUID questionId, String answer, String questionText,
+                              String criteria, int maxScore) {}
+
+    public record ScoredAnswer(UUID answerId, BigDecimal score, String comment) {}
+}
@@ -0,0 +1,243 @@
+package com.dao.examservice.repository;
+
+import com.dao.examservice.service.LiveAttempt;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Batched JDBC writes for the attempt engine. Every statement is idempotent
+ * (keyed by ids generated in memory) so that replaying the local journal after a
+ * crash never duplicates rows.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExamAttemptJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertSubmissions(List<LiveAttempt> attempts) {
+        if (attempts.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO quiz_submissions
+                    (id, quiz_id, student_id, started_at, total_questions, is_final, ip_address, user_agent, version)
+                VALUES (?, ?, ?, ?, ?, false, ?, ?, 1)
+                ON CONFLICT (id) DO NOTHING
+                """,
+                attempts, attempts.size(), (ps, a) -> {
+                    ps.setObject(1, a.getSubmissionId());
+                    ps.setObject(2, a.getExamId());
+                    ps.setObject(3, a.getUserId());
+                    ps.setTimestamp(4, Timestamp.from(a.getStartedAt()));
+                    ps.setInt(5, a.getTotalQuestions());
+                    ps.setString(6, a.getIpAddress());
+                    ps.setString(7, a.getUserAgent());
+                });
+    }
+
+    public void insertSessions(List<LiveAttempt> attempts, int gracePeriodMinutes) {
+        if (attempts.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO exam_sessions
+                    (id, user_id, exam_id, submission_id, start_time, end_time, status,
+                     grace_period_minutes, violation_threshold_count, is_auto_closed, created_at, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, 'ACTIVE', ?, 3, false, ?, ?)
+                ON CONFLICT (id) DO NOTHING
+                """,
+                attempts, attempts.size(), (ps, a) -> {
+                    Timestamp startedAt = Timestamp.from(a.getStartedAt());
+                    ps.setObject(1, a.getSessionId());
+                    ps.setObject(2, a.getUserId());
+                    ps.setObject(3, a.getExamId());
+                    ps.setObject(4, a.getSubmissionId());
+                    ps.setTimestamp(5, startedAt);
+                    ps.setTimestamp(6, a.getDeadline() != null ? Timestamp.from(a.getDeadline()) : null);
+                    ps.setInt(7, gracePeriodMinutes);
+                    ps.setTimestamp(8, startedAt);
+                    ps.setTimestamp(9, startedAt);
+                });
+    }
+
+    /**
+     * Updates answers that already have a row and inserts the others, in one statement.
+     * Rows are matched by id alone: {@code answers} is partitioned by {@code created_at},
+     * which is set on insert and never changed, so the key is not known to the caller.
+     */
+    public void upsertAnswers(List<AnswerWrite> answers) {
+        if (answers.isEmpty()) {
+            return;
+        }
+        int n = answers.size();
+        UUID[] ids = new UUID[n];
+        UUID[] submissionIds = new UUID[n];
+        UUID[] questionIds = new UUID[n];
+        String[] values = new String[n];
+        BigDecimal[] points = new BigDecimal[n];
+        Boolean[] correct = new Boolean[n];
+        Timestamp[] at = new Timestamp[n];
+        for (int i = 0; i < n; i++) {
+            LiveAttempt.AnswerRow row = answers.get(i).row();
+            ids[i] = row.id();
+            submissionIds[i] = answers.get(i).submissionId();
+            questionIds[i] = row.questionId();
+            values[i] = row.selectedAnswer() != null ? row.selectedAnswer() : "";
+            points[i] = row.points();
+            correct[i] = row.correct();
+            at[i] = Timestamp.from(row.updatedAt() != null ? row.updatedAt() : Instant.now());
+        }
+        jdbcTemplate.update("""
+                WITH d AS (
+                    SELECT * FROM unnest(?::uuid[], ?::uuid[], ?::uuid[], ?::text[], ?::numeric[], ?::boolean[],
+                                         ?::timestamptz[])
+                         AS d(id, submission_id, question_id, selected_answer, score, is_correct, at)),
+                updated AS (
+                    UPDATE answers a
+                    SET selected_answer = d.selected_answer,
+                        score = COALESCE(d.score, a.score),
+                        is_correct = d.is_correct,
+                        updated_at = d.at
+                    FROM d
+                    WHERE a.id = d.id
+                    RETURNING a.id)
+                INSERT INTO answers
+                    (id, submission_id, question_id, selected_answer, score, is_correct, created_at, updated_at)
+                SELECT d.id, d.submission_id, d.question_id, d.selected_answer, d.score, d.is_correct, d.at, d.at
+                FROM d
+                WHERE d.id NOT IN (SELECT id FROM updated)
+                ON CONFLICT DO NOTHING
+                """,
+                ps -> {
+                    Connection c = ps.getConnection();
+                    ps.setArray(1, c.createArrayOf("uuid", ids));
+                    ps.setArray(2, c.createArrayOf("uuid", submissionIds));
+                    ps.setArray(3, c.createArrayOf("uuid", questionIds));
+                    ps.setArray(4, c.createArrayOf("text", values));
+                    ps.setArray(5, c.createArrayOf("numeric", points));
+                    ps.setArray(6, c.createArrayOf("bool", correct));
+                    ps.setArray(7, c.createArrayOf("timestamptz", at));
+                });
+    }
+
+    public void finalizeSubmissions(List<SubmissionResult> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                UPDATE quiz_submissions
+                SET score = ?, correct_answers = ?, wrong_answers = ?, total_questions = ?,
+                    time_spent_seconds = ?, submitted_at = ?, answer_sheet = ?, answers = ?, is_final = true,
+                    version = version + 1
+                WHERE id = ?
+                """,
+                results, results.size(), (ps, r) -> {
+                    ps.setInt(1, r.score());
+                    ps.setInt(2, r.correctAnswers());
+                    ps.setInt(3, r.wrongAnswers());
+                    ps.setInt(4, r.totalQuestions());
+                    ps.setInt(5, r.timeSpentSeconds());
+                    ps.setTimestamp(6, Timestamp.from(r.submittedAt()));
+                    ps.setBytes(7, r.answerSheet());
+                    ps.setString(8, r.answersJson());
+                    ps.setObject(9, r.submissionId());
+                });
+        jdbcTemplate.batchUpdate("""
+                UPDATE exam_sessions
+                SET status = CASE WHEN status = 'TERMINATED' THEN status ELSE 'COMPLETED' END,
+                    end_time = ?, is_auto_closed = ?, updated_at = ?
+                WHERE id = ?
+                """,
+                results, results.size(), (ps, r) -> {
+                    Timestamp at = Timestamp.from(r.submittedAt());
+                    ps.setTimestamp(1, at);
+                    ps.setBoolean(2, r.autoClosed());
+                    ps.setTimestamp(3, at);
+                    ps.setObject(4, r.sessionId());
+                });
+    }
+
+    /**
+     * Loads an unfinished attempt that is not held by this node (another replica
+     * started it, or it was flushed and evicted) so that it can continue here.
+     */
+    public Optional<LoadedAttempt> findOpenAttempt(UUID submissionId) {
+        List<LoadedAttempt> rows = jdbcTemplate.query("""
+                SELECT s.id, s.quiz_id, s.student_id, s.started_at, s.total_questions, s.ip_address, s.user_agent,
+                       es.id AS session_id, es.end_time
+                FROM quiz_submissions s
+                JOIN exam_sessions es ON es.submission_id = s.id
+                WHERE s.id = ? AND s.is_final = false AND es.status = 'ACTIVE'
+                """,
+                (rs, i) -> new LoadedAttempt(
+                        rs.getObject("id", UUID.class),
+                        rs.getObject("session_id", UUID.class),
+                        rs.getObject("quiz_id", UUID.class),
+                        rs.getObject("student_id", UUID.class),
+                        toInstant(rs.getTimestamp("started_at")),
+                        toInstant(rs.getTimestamp("end_time")),
+                        rs.getString("ip_address"),
+                        rs.getString("user_agent"),
+                        rs.getInt("total_questions"),
+                        new ArrayList<>()),
+                submissionId);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        LoadedAttempt attempt = rows.get(0);
+        jdbcTemplate.query("""
+                SELECT id, question_id, selected_answer, updated_at
+                FROM answers WHERE submission_id = ?
+                """,
+                rs -> {
+                    attempt.answers().add(new LiveAttempt.AnswerRow(
+                            rs.getObject("id", UUID.class),
+                            rs.getObject("question_id", UUID.class),
+                            rs.getString("selected_answer"),
+                            toInstant(rs.getTimestamp("updated_at")),
+                            null, null));
+                },
+                submissionId);
+        return Optional.of(attempt);
+    }
+
+    /**
+     * Id of the open attempt of a candidate for an exam, if there is one.
+     */
+    public Optional<UUID> findOpenSubmissionId(UUID examId, UUID userId) {
+        List<UUID> ids = jdbcTemplate.queryForList("""
+                SELECT s.id FROM quiz_submissions s
+                JOIN exam_sessions es ON es.submission_id = s.id
+                WHERE s.quiz_id = ? AND s.student_id = ? AND s.is_final = false AND es.status = 'ACTIVE'
+                ORDER BY s.started_at DESC
+                LIMIT 1
+                """, UUID.class, examId, userId);
+        return ids.stream().findFirst();
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    public record AnswerWrite(UUID submissionId, LiveAttempt.AnswerRow row) {}
+
+    public record SubmissionResult(UUID submissionId, UUID sessionId, int score, int correctAnswers,
+                                   int wrongAnswers, int totalQuestions, int timeSpentSeconds,
+                                   Instant submittedAt, byte[] answerSheet, String answersJson,
+                                   boolean autoClosed) {}
+
+    public record LoadedAttempt(UUID submissionId, UUID sessionId, UUID examId, UUID userId,
+                                Instant startedAt, Instant deadline, String ipAddress, String userAgent,
+                                int totalQuestions, List<LiveAttempt.AnswerRow> answers) {}
+}
@@ -0,0 +1,98 @@
+package com.dao.examservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Outbox of cohort notifications in {@code exam_cohort_outbox}. Rows are written in the
+ * transaction that changes the exam, so a notification exists exactly when the change was
+ * committed, and are deleted once fanned out. A replica claims a row for a limited time;
+ * a claim that is not deleted (the replica stopped) expires and the row is delivered again.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExamCohortOutboxJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void createTableIfMissing() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS exam_cohort_outbox (
+                    id            bigserial    PRIMARY KEY,
+                    exam_id       uuid         NOT NULL,
+                    kind          varchar(20)  NOT NULL,
+                    exam_title    varchar(255),
+                    start_at      timestamptz,
+                    recipients    uuid[],
+                    attempts      integer      NOT NULL DEFAULT 0,
+                    claimed_until timestamptz,
+                    created_at    timestamptz  NOT NULL DEFAULT now()
+                )
+                """);
+    }
+
+    /**
+     * @param recipients {@code null} for every candidate registered at delivery time
+     */
+    public void insert(UUID examId, String kind, String examTitle, Instant startAt, List<UUID> recipients) {
+        jdbcTemplate.update("""
+                INSERT INTO exam_cohort_outbox (exam_id, kind, exam_title, start_at, recipients)
+                VALUES (?, ?, ?, ?, ?)
+                """,
+                ps -> {
+                    ps.setObject(1, examId);
+                    ps.setString(2, kind);
+                    ps.setString(3, examTitle);
+                    ps.setTimestamp(4, startAt != null ? Timestamp.from(startAt) : null);
+                    ps.setArray(5, recipients != null
+                            ? ps.getConnection().createArrayOf("uuid", recipients.toArray(new UUID[0]))
+                            : null);
+                });
+    }
+
+    /**
+     * Claims the oldest row that is neither claimed nor out of attempts, in one statement so
+     * two replicas never claim the same row.
+     */
+    public Optional<Entry> claimNext(Duration claimTtl, int maxAttempts) {
+        return jdbcTemplate.query("""
+                UPDATE exam_cohort_outbox
+                SET claimed_until = now() + make_interval(secs => ?), attempts = attempts + 1
+                WHERE id = (
+                    SELECT id FROM exam_cohort_outbox
+                    WHERE (claimed_until IS NULL OR claimed_until < now()) AND attempts < ?
+                    ORDER BY id
+                    LIMIT 1
+                    FOR UPDATE SKIP LOCKED
+                )
+                RETURNING id, exam_id, kind, exam_title, start_at, recipients, attempts
+                """,
+                (rs, rowNum) -> toEntry(rs), claimTtl.toMillis() / 1000.0, maxAttempts).stream().findFirst();
+    }
+
+    public void delete(long id) {
+        jdbcTemplate.update("DELETE FROM exam_cohort_outbox WHERE id = ?", id);
+    }
+
+    private static Entry toEntry(ResultSet rs) throws SQLException {
+        Timestamp startAt = rs.getTimestamp("start_at");
+        Array recipients = rs.getArray("recipients");
+        return new Entry(rs.getLong("id"), rs.getObject("exam_id", UUID.class), rs.getString("kind"),
+                rs.getString("exam_title"), startAt != null ? startAt.toInstant() : null,
+                recipients != null ? List.of((UUID[]) recipients.getArray()) : null, rs.getInt("attempts"));
+    }
+
+    public record Entry(long id, UUID examId, String kind, String examTitle, Instant startAt,
+                        List<UUID> recipients, int attempts) {}
+}
@@ -0,0 +1,90 @@
+package com.dao.examservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Forward-only read of every submission and answer of an exam for result exports. Rows are
+ * handed to the consumer as they arrive; with a fetch size the PostgreSQL driver only uses a
+ * server-side cursor inside a transaction, so callers must run this in one.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExamExportJdbcRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Streams one row per answer, in submission order then paper order. Submissions without
+     * answers yield a single row with {@code null} answer columns. Stored answer rows are
+     * preferred, since they hold the points awarded at grading time. Only when a submission's
+     * auto-graded rows were compacted into its answer sheet are just the ungraded (essay) rows
+     * read; every row of such a submission then carries the sheet, which holds the rest.
+     */
+    public void streamResults(UUID examId, Consumer<ResultRow> consumer) {
+        jdbcTemplate.query("""
+                SELECT s.id AS submission_id, s.student_id, s.started_at, s.submitted_at, s.time_spent_seconds,
+                       s.score, s.correct_answers, s.wrong_answers, s.total_questions, s.is_final,
+                       eq.display_order, a.question_id, a.selected_answer, a.is_correct,
+                       a.score AS answer_score, a.instructor_comment,
+                       CASE WHEN f.from_sheet THEN s.answer_sheet END AS answer_sheet
+                FROM quiz_submissions s
+                CROSS JOIN LATERAL (
+                    SELECT s.answer_sheet IS NOT NULL AND NOT EXISTS (
+                        SELECT 1 FROM answers g WHERE g.submission_id = s.id AND g.is_correct IS NOT NULL
+                    ) AS from_sheet
+                ) f
+                LEFT JOIN answers a ON a.submission_id = s.id AND (NOT f.from_sheet OR a.is_correct IS NULL)
+                LEFT JOIN exam_questions eq ON eq.exam_id = s.quiz_id AND eq.question_id = a.question_id
+                WHERE s.quiz_id = ?
+                ORDER BY s.submitted_at NULLS LAST, s.id, eq.display_order NULLS LAST, a.question_id
+                """,
+                ps -> {
+                    ps.setObject(1, examId);
+                    ps.setFetchSize(FETCH_SIZE);
+                },
+                rs -> {
+                    consumer.accept(new ResultRow(
+                            rs.getObject("submission_id", UUID.class),
+                            rs.getObject("student_id", UUID.class),
+                            instant(rs, "started_at"),
+                            instant(rs, "submitted_at"),
+                            (Integer) rs.getObject("time_spent_seconds"),
+                            (Integer) rs.getObject("score"),
+                            (Integer) rs.getObject("correct_answers"),
+                            (Integer) rs.getObject("wrong_answers"),
+                            (Integer) rs.getObject("total_questions"),
+                            rs.getBoolean("is_final"),
+                            (Integer) rs.getObject("display_order"),
+                            rs.getObject("question_id", UUID.class),
+                            rs.getString("selected_answer"),
+                            (Boolean) rs.getObject("is_correct"),
+                            rs.getBigDecimal("answer_score"),
+                            rs.getString("instructor_comment"),
+                            rs.getBytes("answer_sheet")));
+                });
+    }
+
+    private static Instant instant(ResultSet rs, String column) throws SQLException {
+        Timestamp value = rs.getTimestamp(column);
+        return value != null ? value.toInstant() : null;
+    }
+
+    public record ResultRow(UUID submissionId, UUID studentId, Instant startedAt, Instant submittedAt,
+                            Integer timeSpentSeconds, Integer score, Integer correctAnswers,
+                            Integer wrongAnswers, Integer totalQuestions, boolean isFinal,
+                            Integer displayOrder, UUID questionId, String selectedAnswer,
+                            Boolean isCorrect, BigDecimal answerScore, String instructorComment,
+                            byte[] answerSheet) {}
+}
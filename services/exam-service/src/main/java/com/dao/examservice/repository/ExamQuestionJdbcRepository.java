@@ -0,0 +1,129 @@
+package com.dao.examservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Batched JDBC writes for an exam's question list. Rows are inserted by question id;
+ * the default score is read from {@code questions} inside the same statement, so
+ * questions never have to be loaded as entities.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExamQuestionJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Replaces the questions of an exam. A placement whose question no longer exists is skipped.
+     */
+    public void replaceExamQuestions(UUID examId, List<Placement> placements) {
+        jdbcTemplate.update("DELETE FROM exam_questions WHERE exam_id = ?", examId);
+        if (placements.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO exam_questions (id, exam_id, question_id, display_order, score, created_at)
+                SELECT ?, ?, q.id, ?, COALESCE(?, q.score), ?
+                FROM questions q
+                WHERE q.id = ?
+                """,
+                placements, 500, (ps, p) -> {
+                    ps.setObject(1, UUID.randomUUID());
+                    ps.setObject(2, examId);
+                    ps.setInt(3, p.displayOrder());
+                    ps.setObject(4, p.score(), Types.INTEGER);
+                    ps.setTimestamp(5, now);
+                    ps.setObject(6, p.questionId());
+                });
+    }
+
+    /**
+     * Version stamp of each exam's question list: question count, the latest
+     * {@code updated_at} of its questions and a digest of the placements (see
+     * {@link ContentVersion#placementDigest}), so reordering or re-scoring questions also
+     * changes the stamp. Caches built from an exam compare against it to detect edits made
+     * directly in the database or by another replica. Exams without questions are absent
+     * from the result.
+     */
+    public Map<UUID, ContentVersion> loadVersions(UUID[] examIds) {
+        Map<UUID, ContentVersion> versions = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT eq.exam_id, COUNT(*) AS question_count,
+                       MAX(COALESCE(q.updated_at, q.created_at)) AS max_updated_at,
+                       bit_xor(('x' || left(md5(eq.question_id::text || ':' || COALESCE(eq.display_order::text, '')
+                               || ':' || COALESCE(eq.score::text, '')), 16))::bit(64)::bigint) AS layout_digest
+                FROM exam_questions eq
+                JOIN questions q ON q.id = eq.question_id
+                WHERE eq.exam_id = ANY (?)
+                GROUP BY eq.exam_id
+                """,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", examIds)),
+                rs -> {
+                    Timestamp maxUpdated = rs.getTimestamp("max_updated_at");
+                    versions.put(rs.getObject("exam_id", UUID.class), new ContentVersion(
+                            rs.getInt("question_count"),
+                            maxUpdated != null ? maxUpdated.getTime() : 0L,
+                            rs.getLong("layout_digest")));
+                });
+        return versions;
+    }
+
+    /**
+     * Calibrated difficulty and tags of every question of an exam, used to build the item
+     * pool of an adaptive exam.
+     */
+    public List<PoolItem> findPoolItems(UUID examId) {
+        return jdbcTemplate.query("""
+                SELECT q.id, q.difficulty,
+                       COALESCE(array_agg(qt.tag ORDER BY qt.tag) FILTER (WHERE qt.tag IS NOT NULL), '{}') AS tags
+                FROM exam_questions eq
+                JOIN questions q ON q.id = eq.question_id
+                LEFT JOIN question_tags qt ON qt.question_id = q.id
+                WHERE eq.exam_id = ?
+                GROUP BY q.id, q.difficulty
+                """,
+                (rs, rowNum) -> new PoolItem(rs.getObject("id", UUID.class), (Integer) rs.getObject("difficulty"),
+                        List.of((String[]) rs.getArray("tags").getArray())),
+                examId);
+    }
+
+    public record Placement(UUID questionId, int displayOrder, Integer score) {}
+
+    public record PoolItem(UUID questionId, Integer difficulty, List<String> tags) {}
+
+    /**
+     * @param layoutDigest XOR of {@link #placementDigest} over the exam's placements
+     */
+    public record ContentVersion(int questionCount, long maxUpdatedAtMillis, long layoutDigest) {
+
+        /**
+         * Same value as the SQL in {@link #loadVersions}: the first 8 bytes of
+         * {@code md5("<questionId>:<displayOrder>:<score>")}, nulls as empty strings.
+         */
+        public static long placementDigest(UUID questionId, Integer displayOrder, Integer score) {
+            String text = questionId + ":" + (displayOrder != null ? displayOrder : "") + ":"
+                    + (score != null ? score : "");
+            try {
+                byte[] md5 = MessageDigest.getInstance("MD5").digest(text.getBytes(StandardCharsets.UTF_8));
+                return ByteBuffer.wrap(md5).getLong();
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
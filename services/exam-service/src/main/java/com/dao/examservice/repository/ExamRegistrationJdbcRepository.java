@@ -0,0 +1,233 @@
+package com.dao.examservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * JDBC access to {@code cm_exam_registrations} for cohort-wide work (bulk registration,
+ * notification fan-out) where loading {@code ExamRegistration} entities would be wasted.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExamRegistrationJdbcRepository {
+
+    private static final int CHUNK_SIZE = 5000;
+
+    /** Candidates are locked by stripe so that a whole cohort takes a bounded number of locks. */
+    private static final int CANDIDATE_LOCK_STRIPES = 256;
+
+    private static final String SCHEDULE_SELECT = """
+            SELECT r.user_id, e.id AS exam_id, e.title, e.start_at, e.end_at
+            FROM cm_exam_registrations r
+            JOIN exams e ON e.id = r.exam_id
+            """;
+
+    private static final String SCHEDULE_FILTER = """
+              AND r.status <> 'CANCELLED'
+              AND (e.id = ANY(?)
+                   OR (e.deleted_at IS NULL AND e.status <> 'CANCELLED' AND e.start_at < ? AND e.end_at > ?))
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Serialises bulk registrations for one exam until the current transaction ends, so two
+     * concurrent uploads cannot both insert the same candidate.
+     */
+    public void lockExam(UUID examId) {
+        long key = examId.getMostSignificantBits() ^ examId.getLeastSignificantBits();
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> {
+        }, key);
+    }
+
+    /**
+     * Whether the candidate holds a registration for the exam that was not cancelled.
+     */
+    public boolean hasActiveRegistration(UUID examId, UUID userId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                SELECT EXISTS (
+                    SELECT 1 FROM cm_exam_registrations
+                    WHERE exam_id = ? AND user_id = ? AND status <> 'CANCELLED'
+                )
+                """, Boolean.class, examId, userId));
+    }
+
+    /**
+     * Serialises schedule checks that involve the same candidates until the current transaction
+     * ends: the given candidates, plus the active cohort of {@code examId} if {@code wholeCohort}.
+     * Candidates are hashed into {@value #CANDIDATE_LOCK_STRIPES} stripes, locked in ascending
+     * order so two callers cannot deadlock; unrelated candidates sharing a stripe only wait.
+     * Uses the two-key advisory lock space, so it never collides with {@link #lockExam}.
+     */
+    public void lockCandidates(UUID examId, Collection<UUID> userIds, boolean wholeCohort) {
+        jdbcTemplate.query("""
+                SELECT pg_advisory_xact_lock(hashtext('exam-schedule'), s.stripe)
+                FROM (
+                    SELECT DISTINCT abs(hashtext(c.user_id::text) % ?) AS stripe
+                    FROM (
+                        SELECT unnest(?::uuid[]) AS user_id
+                        UNION ALL
+                        SELECT r.user_id FROM cm_exam_registrations r
+                        WHERE ? AND r.exam_id = ? AND r.status <> 'CANCELLED' AND r.user_id IS NOT NULL
+                    ) c
+                    ORDER BY stripe
+                ) s
+                """,
+                ps -> {
+                    ps.setInt(1, CANDIDATE_LOCK_STRIPES);
+                    ps.setArray(2, ps.getConnection().createArrayOf("uuid", userIds.toArray(new UUID[0])));
+                    ps.setBoolean(3, wholeCohort);
+                    ps.setObject(4, examId);
+                },
+                rs -> {
+                });
+    }
+
+    /**
+     * Registers every candidate without an active registration for the exam: a candidate whose
+     * registration was cancelled gets that row back as {@code SCHEDULED} (the most recent one, if
+     * there are several), anyone else gets a new row. Both happen in one statement per chunk of
+     * {@value #CHUNK_SIZE}. Callers must pass distinct ids and should hold {@link #lockExam}.
+     *
+     * @return the candidates that were actually registered or re-registered
+     */
+    public List<UUID> insertMissing(UUID examId, List<UUID> userIds) {
+        List<UUID> inserted = new ArrayList<>();
+        Timestamp now = Timestamp.from(Instant.now());
+        for (int from = 0; from < userIds.size(); from += CHUNK_SIZE) {
+            List<UUID> chunk = userIds.subList(from, Math.min(from + CHUNK_SIZE, userIds.size()));
+            UUID[] ids = new UUID[chunk.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = UUID.randomUUID();
+            }
+            UUID[] candidates = chunk.toArray(new UUID[0]);
+            // Both statements see the rows as they were before this statement, so a reactivated
+            // candidate still has a row for the INSERT to skip.
+            jdbcTemplate.query("""
+                    WITH c AS (
+                        SELECT * FROM unnest(?::uuid[], ?::uuid[]) AS c(id, user_id)
+                    ), reactivated AS (
+                        UPDATE cm_exam_registrations
+                        SET status = 'SCHEDULED'
+                        WHERE id IN (
+                            SELECT DISTINCT ON (r.user_id) r.id
+                            FROM cm_exam_registrations r
+                            JOIN c ON c.user_id = r.user_id
+                            WHERE r.exam_id = ? AND r.status = 'CANCELLED'
+                              AND NOT EXISTS (
+                                  SELECT 1 FROM cm_exam_registrations a
+                                  WHERE a.exam_id = r.exam_id AND a.user_id = r.user_id AND a.status <> 'CANCELLED'
+                              )
+                            ORDER BY r.user_id, r.registered_at DESC
+                        )
+                        RETURNING user_id
+                    ), created AS (
+                        INSERT INTO cm_exam_registrations (id, exam_id, user_id, registered_at, status)
+                        SELECT c.id, ?, c.user_id, ?, 'SCHEDULED'
+                        FROM c
+                        WHERE NOT EXISTS (
+                            SELECT 1 FROM cm_exam_registrations r
+                            WHERE r.exam_id = ? AND r.user_id = c.user_id
+                        )
+                        RETURNING user_id
+                    )
+                    SELECT user_id FROM reactivated
+                    UNION ALL
+                    SELECT user_id FROM created
+                    """,
+                    ps -> {
+                        ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids));
+                        ps.setArray(2, ps.getConnection().createArrayOf("uuid", candidates));
+                        ps.setObject(3, examId);
+                        ps.setObject(4, examId);
+                        ps.setTimestamp(5, now);
+                        ps.setObject(6, examId);
+                    },
+                    rs -> {
+                        inserted.add(rs.getObject("user_id", UUID.class));
+                    });
+        }
+        return inserted;
+    }
+
+    /**
+     * Streams the schedule of every candidate with an active registration for one of
+     * {@code examIds}: those exams themselves (whatever their window), plus every other
+     * registered, not cancelled exam whose window intersects {@code [from, to)}.
+     */
+    public void streamCohortSchedules(UUID[] examIds, Instant from, Instant to, Consumer<ScheduledExam> consumer) {
+        jdbcTemplate.query(SCHEDULE_SELECT + """
+                WHERE r.user_id IN (
+                        SELECT c.user_id FROM cm_exam_registrations c
+                        WHERE c.exam_id = ANY(?) AND c.status <> 'CANCELLED' AND c.user_id IS NOT NULL)
+                """ + SCHEDULE_FILTER,
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("uuid", examIds));
+                    ps.setArray(2, ps.getConnection().createArrayOf("uuid", examIds));
+                    ps.setTimestamp(3, Timestamp.from(to));
+                    ps.setTimestamp(4, Timestamp.from(from));
+                },
+                rs -> {
+                    consumer.accept(toScheduledExam(rs));
+                });
+    }
+
+    /**
+     * Same as {@link #streamCohortSchedules} for an explicit list of candidates, in chunks of
+     * {@value #CHUNK_SIZE}.
+     */
+    public void streamSchedules(List<UUID> userIds, UUID[] examIds, Instant from, Instant to,
+                                Consumer<ScheduledExam> consumer) {
+        for (int start = 0; start < userIds.size(); start += CHUNK_SIZE) {
+            UUID[] chunk = userIds.subList(start, Math.min(start + CHUNK_SIZE, userIds.size())).toArray(new UUID[0]);
+            jdbcTemplate.query(SCHEDULE_SELECT + """
+                    WHERE r.user_id = ANY(?)
+                    """ + SCHEDULE_FILTER,
+                    ps -> {
+                        ps.setArray(1, ps.getConnection().createArrayOf("uuid", chunk));
+                        ps.setArray(2, ps.getConnection().createArrayOf("uuid", examIds));
+                        ps.setTimestamp(3, Timestamp.from(to));
+                        ps.setTimestamp(4, Timestamp.from(from));
+                    },
+                    rs -> {
+                        consumer.accept(toScheduledExam(rs));
+                    });
+        }
+    }
+
+    /**
+     * Streams the user id of every candidate with a registration for the exam that was not cancelled.
+     */
+    public void streamUserIds(UUID examId, Consumer<UUID> consumer) {
+        jdbcTemplate.query("""
+                SELECT user_id
+                FROM cm_exam_registrations
+                WHERE exam_id = ? AND user_id IS NOT NULL AND status <> 'CANCELLED'
+                """,
+                ps -> ps.setObject(1, examId),
+                rs -> {
+                    consumer.accept(rs.getObject("user_id", UUID.class));
+                });
+    }
+
+    private static ScheduledExam toScheduledExam(ResultSet rs) throws SQLException {
+        Timestamp startAt = rs.getTimestamp("start_at");
+        Timestamp endAt = rs.getTimestamp("end_at");
+        return new ScheduledExam(rs.getObject("user_id", UUID.class), rs.getObject("exam_id", UUID.class),
+                rs.getString("title"), startAt != null ? startAt.toInstant() : null,
+                endAt != null ? endAt.toInstant() : null);
+    }
+
+    public record ScheduledExam(UUID userId, UUID examId, String title, Instant startAt, Instant endAt) {}
+}
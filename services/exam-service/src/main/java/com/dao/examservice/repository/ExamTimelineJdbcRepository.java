@@ -0,0 +1,112 @@
+package com.dao.examservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Set-based reads and updates behind the exam timer: upcoming status transitions and
+ * sessions whose time is up. Every update re-checks its condition, so firing a stale or
+ * duplicate timer is harmless.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExamTimelineJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Exams that must open ({@code SCHEDULED}, {@code start_at}) or close ({@code OPEN},
+     * {@code end_at}) before {@code until}, including overdue ones.
+     */
+    public List<Transition> findTransitionsBefore(Instant until) {
+        Timestamp limit = Timestamp.from(until);
+        return jdbcTemplate.query("""
+                SELECT id, true AS open, start_at AS due_at
+                FROM exams
+                WHERE status = 'SCHEDULED' AND deleted_at IS NULL AND start_at IS NOT NULL AND start_at <= ?
+                UNION ALL
+                SELECT id, false AS open, end_at AS due_at
+                FROM exams
+                WHERE status = 'OPEN' AND deleted_at IS NULL AND end_at IS NOT NULL AND end_at <= ?
+                """,
+                (rs, rowNum) -> new Transition(rs.getObject("id", UUID.class), rs.getBoolean("open"),
+                        rs.getTimestamp("due_at").toInstant()),
+                limit, limit);
+    }
+
+    /**
+     * Scheduled or open exams whose {@code start_at} falls in {@code [from, to]}.
+     */
+    public List<UUID> findStartingBetween(Instant from, Instant to) {
+        return jdbcTemplate.queryForList("""
+                SELECT id
+                FROM exams
+                WHERE status IN ('SCHEDULED', 'OPEN') AND deleted_at IS NULL
+                  AND start_at BETWEEN ? AND ?
+                """, UUID.class, Timestamp.from(from), Timestamp.from(to));
+    }
+
+    public List<OpenedExam> openDue(UUID[] examIds) {
+        return jdbcTemplate.query("""
+                UPDATE exams
+                SET status = 'OPEN', published_at = COALESCE(published_at, now()), updated_at = now()
+                WHERE id = ANY (?) AND status = 'SCHEDULED' AND deleted_at IS NULL AND start_at <= now()
+                RETURNING id, title, start_at, end_at
+                """,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", examIds)),
+                (rs, rowNum) -> {
+                    Timestamp startAt = rs.getTimestamp("start_at");
+                    Timestamp endAt = rs.getTimestamp("end_at");
+                    return new OpenedExam(rs.getObject("id", UUID.class), rs.getString("title"),
+                            startAt != null ? startAt.toInstant() : null,
+                            endAt != null ? endAt.toInstant() : null);
+                });
+    }
+
+    public int closeDue(UUID[] examIds) {
+        return jdbcTemplate.update("""
+                UPDATE exams
+                SET status = 'CLOSED', updated_at = now()
+                WHERE id = ANY (?) AND status = 'OPEN' AND deleted_at IS NULL AND end_at <= now()
+                """,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", examIds)));
+    }
+
+    /**
+     * Unfinished attempts whose session ended (plus grace period) before {@code cutoff}.
+     */
+    public List<UUID> findOverdueSubmissions(Instant cutoff, int limit) {
+        return jdbcTemplate.queryForList("""
+                SELECT es.submission_id
+                FROM exam_sessions es
+                JOIN quiz_submissions s ON s.id = es.submission_id
+                WHERE es.status = 'ACTIVE' AND es.end_time IS NOT NULL
+                  AND es.end_time + make_interval(mins => COALESCE(es.grace_period_minutes, 0)) < ?
+                  AND s.is_final = false
+                ORDER BY es.end_time
+                LIMIT ?
+                """, UUID.class, Timestamp.from(cutoff), limit);
+    }
+
+    /**
+     * Closes expired sessions that have no attempt to grade (created outside the attempt engine).
+     */
+    public int closeOverdueSessionsWithoutSubmission(Instant cutoff) {
+        return jdbcTemplate.update("""
+                UPDATE exam_sessions
+                SET status = 'COMPLETED', is_auto_closed = true, updated_at = now()
+                WHERE status = 'ACTIVE' AND submission_id IS NULL AND end_time IS NOT NULL
+                  AND end_time + make_interval(mins => COALESCE(grace_period_minutes, 0)) < ?
+                """, Timestamp.from(cutoff));
+    }
+
+    public record Transition(UUID examId, boolean open, Instant dueAt) {}
+
+    public record OpenedExam(UUID id, String title, Instant startAt, Instant endAt) {}
+}
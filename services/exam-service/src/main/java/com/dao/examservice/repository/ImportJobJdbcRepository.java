@@ -0,0 +1,165 @@
+package com.dao.examservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * State of background question imports in {@code question_import_jobs}, so that any replica
+ * can answer a status poll and the outcome survives a restart. The replica running a job
+ * refreshes {@code updated_at}; unfinished jobs nobody refreshes are failed by {@link #failStale}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImportJobJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void createTableIfMissing() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS question_import_jobs (
+                    id                     uuid         PRIMARY KEY,
+                    file_name              varchar(500),
+                    subject                varchar(255),
+                    tags                   text[]       NOT NULL,
+                    requested_by           varchar(255),
+                    status                 varchar(20)  NOT NULL,
+                    imported               integer      NOT NULL DEFAULT 0,
+                    skipped                integer      NOT NULL DEFAULT 0,
+                    errors                 integer      NOT NULL DEFAULT 0,
+                    error_details          text[]       NOT NULL,
+                    near_duplicates        integer      NOT NULL DEFAULT 0,
+                    near_duplicate_details text[]       NOT NULL,
+                    message                text,
+                    created_at             timestamptz  NOT NULL,
+                    started_at             timestamptz,
+                    finished_at            timestamptz,
+                    updated_at             timestamptz  NOT NULL DEFAULT now()
+                )
+                """);
+    }
+
+    /**
+     * Inserts the job or overwrites its state; the worker's last write wins.
+     */
+    public void save(Row job) {
+        jdbcTemplate.update("""
+                INSERT INTO question_import_jobs (id, file_name, subject, tags, requested_by, status, imported,
+                        skipped, errors, error_details, near_duplicates, near_duplicate_details, message,
+                        created_at, started_at, finished_at, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, now())
+                ON CONFLICT (id) DO UPDATE SET
+                    status = EXCLUDED.status,
+                    imported = EXCLUDED.imported,
+                    skipped = EXCLUDED.skipped,
+                    errors = EXCLUDED.errors,
+                    error_details = EXCLUDED.error_details,
+                    near_duplicates = EXCLUDED.near_duplicates,
+                    near_duplicate_details = EXCLUDED.near_duplicate_details,
+                    message = EXCLUDED.message,
+                    started_at = EXCLUDED.started_at,
+                    finished_at = EXCLUDED.finished_at,
+                    updated_at = now()
+                """,
+                ps -> {
+                    Connection c = ps.getConnection();
+                    ps.setObject(1, job.id());
+                    ps.setString(2, job.fileName());
+                    ps.setString(3, job.subject());
+                    ps.setArray(4, c.createArrayOf("text", job.tags().toArray(new String[0])));
+                    ps.setString(5, job.requestedBy());
+                    ps.setString(6, job.status());
+                    ps.setInt(7, job.imported());
+                    ps.setInt(8, job.skipped());
+                    ps.setInt(9, job.errors());
+                    ps.setArray(10, c.createArrayOf("text", job.errorDetails().toArray(new String[0])));
+                    ps.setInt(11, job.nearDuplicates());
+                    ps.setArray(12, c.createArrayOf("text", job.nearDuplicateDetails().toArray(new String[0])));
+                    ps.setString(13, job.message());
+                    ps.setTimestamp(14, toTimestamp(job.createdAt()));
+                    ps.setTimestamp(15, toTimestamp(job.startedAt()));
+                    ps.setTimestamp(16, toTimestamp(job.finishedAt()));
+                });
+    }
+
+    public Optional<Row> findById(UUID id) {
+        return jdbcTemplate.query("SELECT * FROM question_import_jobs WHERE id = ?",
+                (rs, rowNum) -> toRow(rs), id).stream().findFirst();
+    }
+
+    public void deleteById(UUID id) {
+        jdbcTemplate.update("DELETE FROM question_import_jobs WHERE id = ?", id);
+    }
+
+    /**
+     * Marks the given jobs as still owned by a live replica.
+     */
+    public void touch(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("UPDATE question_import_jobs SET updated_at = now() WHERE id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids.toArray(new UUID[0]))));
+    }
+
+    /**
+     * Fails queued or running jobs that no replica has refreshed for {@code staleAfter}: the
+     * replica holding them stopped, and with it the spooled upload.
+     *
+     * @return the number of jobs failed
+     */
+    public int failStale(Duration staleAfter, String message) {
+        return jdbcTemplate.update("""
+                UPDATE question_import_jobs
+                SET status = 'FAILED', message = ?, finished_at = now(), updated_at = now()
+                WHERE status IN ('QUEUED', 'RUNNING')
+                  AND updated_at < now() - make_interval(secs => ?)
+                """, message, staleAfter.toMillis() / 1000.0);
+    }
+
+    public int deleteFinishedBefore(Instant cutoff) {
+        return jdbcTemplate.update("""
+                DELETE FROM question_import_jobs
+                WHERE status IN ('COMPLETED', 'FAILED') AND finished_at < ?
+                """, Timestamp.from(cutoff));
+    }
+
+    private static Row toRow(ResultSet rs) throws SQLException {
+        return new Row(rs.getObject("id", UUID.class), rs.getString("file_name"), rs.getString("subject"),
+                toList(rs.getArray("tags")), rs.getString("requested_by"), rs.getString("status"),
+                rs.getInt("imported"), rs.getInt("skipped"), rs.getInt("errors"),
+                toList(rs.getArray("error_details")), rs.getInt("near_duplicates"),
+                toList(rs.getArray("near_duplicate_details")), rs.getString("message"),
+                toInstant(rs.getTimestamp("created_at")), toInstant(rs.getTimestamp("started_at")),
+                toInstant(rs.getTimestamp("finished_at")));
+    }
+
+    private static List<String> toList(Array array) throws SQLException {
+        return array != null ? List.of((String[]) array.getArray()) : List.of();
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return instant != null ? Timestamp.from(instant) : null;
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    public record Row(UUID id, String fileName, String subject, List<String> tags, String requestedBy,
+                      String status, int imported, int skipped, int errors, List<String> errorDetails,
+                      int nearDuplicates, List<String> nearDuplicateDetails, String message,
+                      Instant createdAt, Instant startedAt, Instant finishedAt) {}
+}
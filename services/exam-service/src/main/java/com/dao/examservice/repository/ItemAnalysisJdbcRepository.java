@@ -0,0 +1,281 @@
+package com.dao.examservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Running sums for classical item analysis. Each question keeps the number of graded
+ * responses, the number answered correctly and the sums of submission totals needed for
+ * the point-biserial correlation; per-option pick counts live in a separate table.
+ * All sums are additive, so new submissions are folded in with {@code col = col + delta}
+ * and the whole answers table is never rescanned.
+ *
+ * <p>A single cursor row records the last folded submission, ordered by
+ * {@code (submitted_at, id)}.</p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class ItemAnalysisJdbcRepository {
+
+    private static final String CURSOR_NAME = "answers";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void createTablesIfMissing() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS question_item_stats (
+                    question_id       uuid PRIMARY KEY,
+                    responses         bigint           NOT NULL DEFAULT 0,
+                    correct           bigint           NOT NULL DEFAULT 0,
+                    sum_total         double precision NOT NULL DEFAULT 0,
+                    sum_total_sq      double precision NOT NULL DEFAULT 0,
+                    sum_total_correct double precision NOT NULL DEFAULT 0,
+                    updated_at        timestamptz      NOT NULL DEFAULT now()
+                )
+                """);
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS question_option_stats (
+                    question_id  uuid     NOT NULL,
+                    option_index smallint NOT NULL,
+                    picks        bigint   NOT NULL DEFAULT 0,
+                    PRIMARY KEY (question_id, option_index)
+                )
+                """);
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS item_analysis_cursor (
+                    name               varchar(50) PRIMARY KEY,
+                    last_submitted_at  timestamptz NOT NULL,
+                    last_submission_id uuid        NOT NULL
+                )
+                """);
+    }
+
+    public Cursor readCursor() {
+        return jdbcTemplate.query("""
+                SELECT last_submitted_at, last_submission_id FROM item_analysis_cursor WHERE name = ?
+                """,
+                (rs, rowNum) -> new Cursor(rs.getTimestamp("last_submitted_at").toInstant(),
+                        rs.getObject("last_submission_id", UUID.class)),
+                CURSOR_NAME).stream().findFirst().orElse(Cursor.START);
+    }
+
+    public void writeCursor(Cursor cursor) {
+        jdbcTemplate.update("""
+                INSERT INTO item_analysis_cursor (name, last_submitted_at, last_submission_id)
+                VALUES (?, ?, ?)
+                ON CONFLICT (name) DO UPDATE SET
+                    last_submitted_at = EXCLUDED.last_submitted_at,
+                    last_submission_id = EXCLUDED.last_submission_id
+                """, CURSOR_NAME, Timestamp.from(cursor.submittedAt()), cursor.submissionId());
+    }
+
+    /**
+     * Streams the graded answers of up to {@code limit} final submissions after the cursor and
+     * submitted before {@code before}, in cursor order. A submission with an answer sheet
+     * yields one row carrying the sheet instead of its answer rows; submissions without graded
+     * answers yield one row with a {@code null} question so the cursor still moves past them.
+     */
+    public void streamGradedAnswers(Cursor after, Instant before, int limit, Consumer<GradedAnswer> consumer) {
+        jdbcTemplate.query("""
+                SELECT s.id AS submission_id, s.submitted_at, COALESCE(s.score, 0) AS total, s.answer_sheet,
+                       a.question_id, a.selected_answer, a.is_correct
+                FROM (SELECT id, submitted_at, score, answer_sheet
+                      FROM quiz_submissions
+                      WHERE is_final = true AND submitted_at IS NOT NULL
+                        AND (submitted_at, id) > (?, ?) AND submitted_at < ?
+                      ORDER BY submitted_at, id
+                      LIMIT ?) s
+                LEFT JOIN answers a ON a.submission_id = s.id AND s.answer_sheet IS NULL AND a.is_correct IS NOT NULL
+                ORDER BY s.submitted_at, s.id
+                """,
+                ps -> {
+                    ps.setTimestamp(1, Timestamp.from(after.submittedAt()));
+                    ps.setObject(2, after.submissionId());
+                    ps.setTimestamp(3, Timestamp.from(before));
+                    ps.setInt(4, limit);
+                    ps.setFetchSize(1000);
+                },
+                rs -> {
+                    consumer.accept(new GradedAnswer(
+                            rs.getObject("submission_id", UUID.class),
+                            rs.getTimestamp("submitted_at").toInstant(),
+                            rs.getInt("total"),
+                            rs.getBytes("answer_sheet"),
+                            rs.getObject("question_id", UUID.class),
+                            rs.getString("selected_answer"),
+                            rs.getBoolean("is_correct")));
+                });
+    }
+
+    public void addItemDeltas(List<ItemDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        int n = deltas.size();
+        UUID[] ids = new UUID[n];
+        Long[] responses = new Long[n];
+        Long[] correct = new Long[n];
+        Double[] sumTotal = new Double[n];
+        Double[] sumTotalSq = new Double[n];
+        Double[] sumTotalCorrect = new Double[n];
+        for (int i = 0; i < n; i++) {
+            ItemDelta d = deltas.get(i);
+            ids[i] = d.questionId();
+            responses[i] = d.responses();
+            correct[i] = d.correct();
+            sumTotal[i] = d.sumTotal();
+            sumTotalSq[i] = d.sumTotalSq();
+            sumTotalCorrect[i] = d.sumTotalCorrect();
+        }
+        jdbcTemplate.update("""
+                INSERT INTO question_item_stats AS st
+                    (question_id, responses, correct, sum_total, sum_total_sq, sum_total_correct, updated_at)
+                SELECT d.*, now()
+                FROM unnest(?::uuid[], ?::int8[], ?::int8[], ?::float8[], ?::float8[], ?::float8[])
+                     AS d(question_id, responses, correct, sum_total, sum_total_sq, sum_total_correct)
+                ON CONFLICT (question_id) DO UPDATE SET
+                    responses = st.responses + EXCLUDED.responses,
+                    correct = st.correct + EXCLUDED.correct,
+                    sum_total = st.sum_total + EXCLUDED.sum_total,
+                    sum_total_sq = st.sum_total_sq + EXCLUDED.sum_total_sq,
+                    sum_total_correct = st.sum_total_correct + EXCLUDED.sum_total_correct,
+                    updated_at = now()
+                """,
+                ps -> {
+                    Connection c = ps.getConnection();
+                    ps.setArray(1, c.createArrayOf("uuid", ids));
+                    ps.setArray(2, c.createArrayOf("int8", responses));
+                    ps.setArray(3, c.createArrayOf("int8", correct));
+                    ps.setArray(4, c.createArrayOf("float8", sumTotal));
+                    ps.setArray(5, c.createArrayOf("float8", sumTotalSq));
+                    ps.setArray(6, c.createArrayOf("float8", sumTotalCorrect));
+                });
+    }
+
+    public void addOptionPicks(List<OptionDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        int n = deltas.size();
+        UUID[] ids = new UUID[n];
+        Short[] options = new Short[n];
+        Long[] picks = new Long[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = deltas.get(i).questionId();
+            options[i] = (short) deltas.get(i).optionIndex();
+            picks[i] = deltas.get(i).picks();
+        }
+        jdbcTemplate.update("""
+                INSERT INTO question_option_stats AS st (question_id, option_index, picks)
+                SELECT * FROM unnest(?::uuid[], ?::int2[], ?::int8[])
+                ON CONFLICT (question_id, option_index) DO UPDATE SET picks = st.picks + EXCLUDED.picks
+                """,
+                ps -> {
+                    Connection c = ps.getConnection();
+                    ps.setArray(1, c.createArrayOf("uuid", ids));
+                    ps.setArray(2, c.createArrayOf("int2", options));
+                    ps.setArray(3, c.createArrayOf("int8", picks));
+                });
+    }
+
+    /**
+     * Every question with at least {@code minResponses} graded responses, with its current difficulty.
+     */
+    public List<ItemStats> findCalibratable(long minResponses) {
+        return jdbcTemplate.query("""
+                SELECT st.question_id, q.difficulty, st.responses, st.correct,
+                       st.sum_total, st.sum_total_sq, st.sum_total_correct
+                FROM question_item_stats st
+                JOIN questions q ON q.id = st.question_id
+                WHERE st.responses >= ?
+                """,
+                (rs, rowNum) -> mapStats(rs), minResponses);
+    }
+
+    public Optional<ItemStats> findStats(UUID questionId) {
+        return jdbcTemplate.query("""
+                SELECT st.question_id, q.difficulty, st.responses, st.correct,
+                       st.sum_total, st.sum_total_sq, st.sum_total_correct
+                FROM question_item_stats st
+                JOIN questions q ON q.id = st.question_id
+                WHERE st.question_id = ?
+                """,
+                (rs, rowNum) -> mapStats(rs), questionId).stream().findFirst();
+    }
+
+    public List<OptionDelta> findOptionPicks(UUID questionId) {
+        return jdbcTemplate.query("""
+                SELECT question_id, option_index, picks
+                FROM question_option_stats
+                WHERE question_id = ?
+                ORDER BY option_index
+                """,
+                (rs, rowNum) -> new OptionDelta(rs.getObject("question_id", UUID.class),
+                        rs.getInt("option_index"), rs.getLong("picks")),
+                questionId);
+    }
+
+    /**
+     * Writes calibrated difficulties. {@code updated_at} is left alone on purpose: it versions
+     * answer keys and exam bundles, which must not change under a running exam.
+     */
+    public List<UUID> updateDifficulties(List<ItemStats> items, int[] difficulties) {
+        int n = items.size();
+        UUID[] ids = new UUID[n];
+        Integer[] values = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = items.get(i).questionId();
+            values[i] = difficulties[i];
+        }
+        List<UUID> changed = new ArrayList<>();
+        jdbcTemplate.query("""
+                UPDATE questions q
+                SET difficulty = d.difficulty
+                FROM unnest(?::uuid[], ?::int4[]) AS d(id, difficulty)
+                WHERE q.id = d.id AND q.difficulty IS DISTINCT FROM d.difficulty
+                RETURNING q.id
+                """,
+                ps -> {
+                    Connection c = ps.getConnection();
+                    ps.setArray(1, c.createArrayOf("uuid", ids));
+                    ps.setArray(2, c.createArrayOf("int4", values));
+                },
+                rs -> {
+                    changed.add(rs.getObject("id", UUID.class));
+                });
+        return changed;
+    }
+
+    private static ItemStats mapStats(ResultSet rs) throws SQLException {
+        return new ItemStats(rs.getObject("question_id", UUID.class), (Integer) rs.getObject("difficulty"),
+                rs.getLong("responses"), rs.getLong("correct"), rs.getDouble("sum_total"),
+                rs.getDouble("sum_total_sq"), rs.getDouble("sum_total_correct"));
+    }
+
+    public record Cursor(Instant submittedAt, UUID submissionId) {
+        public static final Cursor START = new Cursor(Instant.EPOCH, new UUID(0L, 0L));
+    }
+
+    public record GradedAnswer(UUID submissionId, Instant submittedAt, int total, byte[] answerSheet,
+                               UUID questionId, String selectedAnswer, boolean correct) {}
+
+    public record ItemDelta(UUID questionId, long responses, long correct, double sumTotal,
+                            double sumTotalSq, double sumTotalCorrect) {}
+
+    public record OptionDelta(UUID questionId, int optionIndex, long picks) {}
+
+    public record ItemStats(UUID questionId, Integer difficulty, long responses, long correct,
+                            double sumTotal, double sumTotalSq, double sumTotalCorrect) {}
+}
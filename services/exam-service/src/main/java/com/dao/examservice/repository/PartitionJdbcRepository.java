@@ -0,0 +1,305 @@
+package com.dao.examservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * DDL for the monthly range-partitioned tables of exam-service. Partitions are named
+ * {@code <table>_pYYYYMM} (one UTC month) and {@code <table>_before_YYYYMM} (everything the
+ * table held when it was converted, up to that month).
+ *
+ * <p>There is deliberately no default partition: PostgreSQL refuses
+ * {@code DETACH PARTITION ... CONCURRENTLY} while one exists. Writers only use server time
+ * (or clamp client time to it), which always falls into the partitions created ahead.
+ * Requires PostgreSQL 14 or later.</p>
+ *
+ * <p>Identifiers are never taken from requests; they come from {@link Table} constants.</p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class PartitionJdbcRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return {@code "p"} for a partitioned table, {@code "r"} for a plain one, {@code null} if missing
+     */
+    public String relationKind(String relation) {
+        return jdbcTemplate.query("""
+                SELECT c.relkind::text FROM pg_class c
+                WHERE c.relname = ? AND c.relnamespace = current_schema()::regnamespace
+                """,
+                (rs, rowNum) -> rs.getString(1), relation).stream().findFirst().orElse(null);
+    }
+
+    /**
+     * First, online half of the conversion; must run outside a transaction. Builds the unique
+     * index on {@code (id, <partition column>)} concurrently and adds, then validates, a
+     * {@code CHECK (<column> IS NOT NULL AND <column> < firstMonth)} constraint. Validation
+     * scans the table but does not block writers. With both in place,
+     * {@link #convertToPartitioned} only changes the catalog under its exclusive lock.
+     * Re-running it is cheap: an existing valid index and constraint are kept.
+     */
+    public void prepareConversion(Table table, YearMonth firstMonth, long lockTimeoutMillis) {
+        String keyIndex = keyIndexName(table);
+        Boolean valid = jdbcTemplate.query("""
+                SELECT i.indisvalid FROM pg_index i
+                JOIN pg_class c ON c.oid = i.indexrelid
+                WHERE c.relname = ? AND c.relnamespace = current_schema()::regnamespace
+                """,
+                (rs, rowNum) -> rs.getBoolean(1), keyIndex).stream().findFirst().orElse(null);
+        if (Boolean.FALSE.equals(valid)) {
+            // Left behind by an interrupted concurrent build.
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + keyIndex);
+        }
+        if (!Boolean.TRUE.equals(valid)) {
+            jdbcTemplate.execute("CREATE UNIQUE INDEX CONCURRENTLY " + keyIndex + " ON " + table.name()
+                    + " (id, \"" + table.column() + "\")");
+        }
+
+        String check = boundCheckName(table, firstMonth);
+        List<BoundCheck> checks = jdbcTemplate.query("""
+                SELECT conname, convalidated FROM pg_constraint
+                WHERE conrelid = ?::regclass AND contype = 'c' AND conname LIKE ?
+                """,
+                (rs, rowNum) -> new BoundCheck(rs.getString("conname"), rs.getBoolean("convalidated")),
+                table.name(), table.name() + "\\_before\\_%\\_bound");
+        for (BoundCheck stale : checks) {
+            if (!stale.name().equals(check)) {
+                withLockTimeout(lockTimeoutMillis, "ALTER TABLE " + table.name() + " DROP CONSTRAINT " + stale.name());
+            }
+        }
+        BoundCheck current = checks.stream().filter(c -> c.name().equals(check)).findFirst().orElse(null);
+        if (current == null) {
+            String column = "\"" + table.column() + "\"";
+            withLockTimeout(lockTimeoutMillis, "ALTER TABLE " + table.name() + " ADD CONSTRAINT " + check
+                    + " CHECK (" + column + " IS NOT NULL AND " + column + " < '" + bound(firstMonth) + "') NOT VALID");
+        }
+        if (current == null || !current.validated()) {
+            jdbcTemplate.execute("ALTER TABLE " + table.name() + " VALIDATE CONSTRAINT " + check);
+        }
+    }
+
+    /**
+     * Removes the constraint added by {@link #prepareConversion} from a table that was not
+     * converted, so that it cannot reject rows once {@code firstMonth} is reached.
+     */
+    public void dropConversionCheck(Table table, YearMonth firstMonth, long lockTimeoutMillis) {
+        if ("r".equals(relationKind(table.name()))) {
+            withLockTimeout(lockTimeoutMillis, "ALTER TABLE " + table.name() + " DROP CONSTRAINT IF EXISTS "
+                    + boundCheckName(table, firstMonth));
+        }
+    }
+
+    /**
+     * Turns a plain table into a partitioned one without copying rows: the table is renamed to
+     * {@code <table>_before_<firstMonth>} and attached as the partition for everything before
+     * {@code firstMonth}. The primary key becomes {@code (id, <partition column>)}; the other
+     * indexes and foreign keys are recreated on the parent, which adopts the existing ones of
+     * the old table. Must run in a transaction, after {@link #prepareConversion} with the same
+     * {@code firstMonth}: the exclusive lock is then held only for catalog changes, and is
+     * given up after {@code lockTimeoutMillis} rather than queueing writers behind it.
+     *
+     * @return {@code false} if the table is missing, already partitioned, not prepared, or
+     *         referenced by a foreign key
+     */
+    public boolean convertToPartitioned(Table table, YearMonth firstMonth, long lockTimeoutMillis) {
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(hashtext('exam-partitions:" + table.name() + "'))");
+        if (!"r".equals(relationKind(table.name()))) {
+            return false;
+        }
+        Integer referencing = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_constraint WHERE confrelid = ?::regclass AND contype = 'f'",
+                Integer.class, table.name());
+        String check = boundCheckName(table, firstMonth);
+        Integer prepared = jdbcTemplate.queryForObject("""
+                SELECT (SELECT count(*) FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+                        WHERE c.relname = ? AND c.relnamespace = current_schema()::regnamespace AND i.indisvalid)
+                     + (SELECT count(*) FROM pg_constraint
+                        WHERE conrelid = ?::regclass AND conname = ? AND convalidated)
+                """, Integer.class, keyIndexName(table), table.name(), check);
+        if ((referencing != null && referencing > 0) || prepared == null || prepared < 2) {
+            return false;
+        }
+        String legacy = legacyName(table, firstMonth);
+        jdbcTemplate.execute("SET LOCAL lock_timeout = " + Math.max(1, lockTimeoutMillis));
+        jdbcTemplate.execute("LOCK TABLE " + table.name() + " IN ACCESS EXCLUSIVE MODE");
+        // The B-tree on the partition column is replaced by a BRIN index of the same name.
+        jdbcTemplate.execute("DROP INDEX IF EXISTS " + table.timeIndex());
+        // The primary key moves to the prepared (id, column) index; its NOT NULL is proven by the check.
+        String primaryKey = jdbcTemplate.query(
+                "SELECT conname FROM pg_constraint WHERE conrelid = ?::regclass AND contype = 'p'",
+                (rs, rowNum) -> rs.getString(1), table.name()).stream().findFirst().orElse(table.name() + "_pkey");
+        jdbcTemplate.execute("ALTER TABLE " + table.name() + " DROP CONSTRAINT IF EXISTS \"" + primaryKey + "\"");
+        jdbcTemplate.execute("ALTER TABLE " + table.name() + " ADD CONSTRAINT \"" + primaryKey
+                + "\" PRIMARY KEY USING INDEX " + keyIndexName(table));
+
+        List<String> indexDefinitions = jdbcTemplate.queryForList("""
+                SELECT i.indexdef FROM pg_indexes i
+                WHERE i.schemaname = current_schema() AND i.tablename = ?
+                  AND i.indexdef NOT LIKE 'CREATE UNIQUE INDEX%'
+                """, String.class, table.name());
+        List<String> indexNames = jdbcTemplate.queryForList("""
+                SELECT i.indexname FROM pg_indexes i
+                WHERE i.schemaname = current_schema() AND i.tablename = ?
+                """, String.class, table.name());
+        List<String> foreignKeys = jdbcTemplate.query("""
+                SELECT format('ALTER TABLE %I ADD CONSTRAINT %I %s', ?::text, conname, pg_get_constraintdef(oid))
+                FROM pg_constraint
+                WHERE conrelid = ?::regclass AND contype = 'f'
+                """,
+                (rs, rowNum) -> rs.getString(1), table.name(), table.name());
+
+        jdbcTemplate.execute("ALTER TABLE " + table.name() + " RENAME TO " + legacy);
+        for (int i = 0; i < indexNames.size(); i++) {
+            jdbcTemplate.execute("ALTER INDEX \"" + indexNames.get(i) + "\" RENAME TO " + legacy + "_idx" + i);
+        }
+        jdbcTemplate.execute("CREATE TABLE " + table.name() + " (LIKE " + legacy
+                + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (\"" + table.column() + "\")");
+        // LIKE copied the bound check; it belongs to the old rows only.
+        jdbcTemplate.execute("ALTER TABLE " + table.name() + " DROP CONSTRAINT " + check);
+        // The validated check proves the bound, so ATTACH does not scan the old rows.
+        jdbcTemplate.execute("ALTER TABLE " + table.name() + " ATTACH PARTITION " + legacy
+                + " FOR VALUES FROM (MINVALUE) TO ('" + bound(firstMonth) + "')");
+        // Adopts the primary key of the old table instead of building a new index.
+        jdbcTemplate.execute("ALTER TABLE " + table.name() + " ADD PRIMARY KEY (id, \"" + table.column() + "\")");
+        indexDefinitions.forEach(jdbcTemplate::execute);
+        foreignKeys.forEach(jdbcTemplate::execute);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table.timeIndex() + " ON " + table.name()
+                + " USING brin (\"" + table.column() + "\") WITH (pages_per_range = 32)");
+        jdbcTemplate.execute("ALTER TABLE " + legacy + " DROP CONSTRAINT " + check);
+        return true;
+    }
+
+    /**
+     * Creates and attaches the (empty) partition of {@code month}. Must run in a transaction.
+     */
+    public void createPartition(Table table, YearMonth month) {
+        String partition = partitionName(table, month);
+        jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE " + table.name()
+                + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        jdbcTemplate.execute("ALTER TABLE " + table.name() + " ATTACH PARTITION " + partition
+                + " FOR VALUES FROM ('" + bound(month) + "') TO ('" + bound(month.plusMonths(1)) + "')");
+    }
+
+    /**
+     * Monthly and legacy partitions of the table: attached, being detached, or detached.
+     */
+    public List<Partition> findPartitions(Table table) {
+        return jdbcTemplate.query("""
+                SELECT c.relname, c.relispartition, COALESCE(h.inhdetachpending, false) AS detach_pending
+                FROM pg_class c
+                LEFT JOIN pg_inherits h ON h.inhrelid = c.oid
+                WHERE c.relnamespace = current_schema()::regnamespace AND c.relkind = 'r'
+                  AND c.relname ~ ?
+                ORDER BY c.relname
+                """,
+                (rs, rowNum) -> new Partition(rs.getString("relname"), rs.getBoolean("relispartition"),
+                        rs.getBoolean("detach_pending")),
+                "^" + table.name() + "_(p|before_)[0-9]{6}$");
+    }
+
+    /**
+     * Detaches a partition with {@code DETACH PARTITION ... CONCURRENTLY}: readers and writers
+     * of the parent are not blocked, and {@code lockTimeoutMillis} only bounds the wait for
+     * the weak lock it takes. A detach interrupted half-way (pending) is completed with
+     * {@code FINALIZE}. Must run outside a transaction.
+     */
+    public void detach(Table table, Partition partition, long lockTimeoutMillis) {
+        withLockTimeout(lockTimeoutMillis, "ALTER TABLE " + table.name() + " DETACH PARTITION " + partition.name()
+                + (partition.detachPending() ? " FINALIZE" : " CONCURRENTLY"));
+    }
+
+    /**
+     * Streams every row of a (detached) partition as text values, after one call with the
+     * column names. Must run in a transaction for the cursor to be used.
+     */
+    public long streamRows(String partition, Consumer<String[]> header, Consumer<String[]> row) {
+        long[] count = {0};
+        jdbcTemplate.query("SELECT * FROM " + partition,
+                ps -> ps.setFetchSize(FETCH_SIZE),
+                rs -> {
+                    ResultSetMetaData meta = rs.getMetaData();
+                    int columns = meta.getColumnCount();
+                    if (count[0] == 0) {
+                        String[] names = new String[columns];
+                        for (int i = 0; i < columns; i++) {
+                            names[i] = meta.getColumnName(i + 1);
+                        }
+                        header.accept(names);
+                    }
+                    String[] values = new String[columns];
+                    for (int i = 0; i < columns; i++) {
+                        values[i] = rs.getString(i + 1);
+                    }
+                    row.accept(values);
+                    count[0]++;
+                });
+        return count[0];
+    }
+
+    public void drop(String partition) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+    }
+
+    public static String partitionName(Table table, YearMonth month) {
+        return table.name() + "_p" + "%04d%02d".formatted(month.getYear(), month.getMonthValue());
+    }
+
+    public static String legacyName(Table table, YearMonth firstMonth) {
+        return table.name() + "_before_" + "%04d%02d".formatted(firstMonth.getYear(), firstMonth.getMonthValue());
+    }
+
+    private static String keyIndexName(Table table) {
+        return table.name() + "_partition_key";
+    }
+
+    private static String boundCheckName(Table table, YearMonth firstMonth) {
+        return legacyName(table, firstMonth) + "_bound";
+    }
+
+    private static String bound(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toString();
+    }
+
+    /**
+     * Runs one autocommit DDL statement with a session {@code lock_timeout}, reset afterwards
+     * so the pooled connection keeps its default.
+     */
+    private void withLockTimeout(long lockTimeoutMillis, String sql) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET lock_timeout = " + Math.max(1, lockTimeoutMillis));
+                try {
+                    statement.execute(sql);
+                } finally {
+                    statement.execute("RESET lock_timeout");
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * A table partitioned by month on {@code column}, with a BRIN index {@code timeIndex} on it.
+     */
+    public record Table(String name, String column, String timeIndex) {}
+
+    /**
+     * @param detachPending a {@code DETACH ... CONCURRENTLY} was interrupted and needs {@code FINALIZE}
+     */
+    public record Partition(String name, boolean attached, boolean detachPending) {}
+
+    private record BoundCheck(String name, boolean validated) {}
+}
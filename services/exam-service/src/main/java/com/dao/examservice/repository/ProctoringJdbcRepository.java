@@ -0,0 +1,155 @@
+package com.dao.examservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Set-based writes for proctoring ingestion: one statement appends a whole batch of
+ * events, one statement applies the violation deltas of every touched session.
+ * Severity levels are ordered {@code LOW < MEDIUM < HIGH < CRITICAL}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProctoringJdbcRepository {
+
+    private static final String SEVERITY_LEVELS = "ARRAY['LOW', 'MEDIUM', 'HIGH', 'CRITICAL']::text[]";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<SessionCounters> findSession(UUID sessionId) {
+        return jdbcTemplate.query("""
+                SELECT id, status, COALESCE(violation_threshold_count, 0) AS threshold,
+                       COALESCE(high_severity_violation_count, 0) AS high_count, max_severity_level
+                FROM exam_sessions
+                WHERE id = ?
+                """,
+                (rs, rowNum) -> new SessionCounters(rs.getObject("id", UUID.class), rs.getString("status"),
+                        rs.getInt("threshold"), rs.getInt("high_count"), rs.getString("max_severity_level")),
+                sessionId).stream().findFirst();
+    }
+
+    /**
+     * Appends events whose session row already exists (sessions are written behind by
+     * the attempt engine and may lag a few seconds). A retried event has the same id and
+     * timestamp, so it hits the {@code (id, timestamp)} key of the partitioned table.
+     *
+     * @return ids of the events actually inserted; the others should be retried
+     */
+    public Set<UUID> insertEvents(List<EventRow> events) {
+        Set<UUID> inserted = new HashSet<>();
+        if (events.isEmpty()) {
+            return inserted;
+        }
+        int n = events.size();
+        UUID[] ids = new UUID[n];
+        UUID[] sessionIds = new UUID[n];
+        String[] types = new String[n];
+        String[] data = new String[n];
+        String[] severities = new String[n];
+        Timestamp[] timestamps = new Timestamp[n];
+        for (int i = 0; i < n; i++) {
+            EventRow e = events.get(i);
+            ids[i] = e.id();
+            sessionIds[i] = e.sessionId();
+            types[i] = e.eventType();
+            data[i] = e.eventData();
+            severities[i] = e.severity();
+            timestamps[i] = Timestamp.from(e.timestamp());
+        }
+        jdbcTemplate.query("""
+                INSERT INTO proctoring_events (id, session_id, event_type, event_data, severity, timestamp, created_at)
+                SELECT d.id, d.session_id, d.event_type, d.event_data, d.severity, d.ts, now()
+                FROM unnest(?::uuid[], ?::uuid[], ?::text[], ?::text[], ?::text[], ?::timestamptz[])
+                     AS d(id, session_id, event_type, event_data, severity, ts)
+                WHERE EXISTS (SELECT 1 FROM exam_sessions es WHERE es.id = d.session_id)
+                ON CONFLICT DO NOTHING
+                RETURNING id
+                """,
+                ps -> {
+                    Connection c = ps.getConnection();
+                    ps.setArray(1, c.createArrayOf("uuid", ids));
+                    ps.setArray(2, c.createArrayOf("uuid", sessionIds));
+                    ps.setArray(3, c.createArrayOf("text", types));
+                    ps.setArray(4, c.createArrayOf("text", data));
+                    ps.setArray(5, c.createArrayOf("text", severities));
+                    ps.setArray(6, c.createArrayOf("timestamptz", timestamps));
+                },
+                rs -> {
+                    inserted.add(rs.getObject("id", UUID.class));
+                });
+        return inserted;
+    }
+
+    /**
+     * Adds high-severity violation counts and raises the max severity of each session.
+     *
+     * @return the resulting totals, for sessions that exist
+     */
+    public List<SessionCounters> applyViolations(List<ViolationDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return List.of();
+        }
+        int n = deltas.size();
+        UUID[] sessionIds = new UUID[n];
+        Integer[] highCounts = new Integer[n];
+        String[] maxSeverities = new String[n];
+        for (int i = 0; i < n; i++) {
+            sessionIds[i] = deltas.get(i).sessionId();
+            highCounts[i] = deltas.get(i).highSeverityCount();
+            maxSeverities[i] = deltas.get(i).maxSeverity();
+        }
+        return jdbcTemplate.query("""
+                UPDATE exam_sessions es
+                SET high_severity_violation_count = COALESCE(es.high_severity_violation_count, 0) + d.high_count,
+                    max_severity_level = (%1$s)[GREATEST(
+                        COALESCE(array_position(%1$s, es.max_severity_level::text), 0),
+                        COALESCE(array_position(%1$s, d.max_severity), 0))],
+                    updated_at = now()
+                FROM unnest(?::uuid[], ?::int[], ?::text[]) AS d(session_id, high_count, max_severity)
+                WHERE es.id = d.session_id
+                RETURNING es.id, es.status, COALESCE(es.violation_threshold_count, 0) AS threshold,
+                          es.high_severity_violation_count AS high_count, es.max_severity_level
+                """.formatted(SEVERITY_LEVELS),
+                ps -> {
+                    Connection c = ps.getConnection();
+                    ps.setArray(1, c.createArrayOf("uuid", sessionIds));
+                    ps.setArray(2, c.createArrayOf("int4", highCounts));
+                    ps.setArray(3, c.createArrayOf("text", maxSeverities));
+                },
+                (rs, rowNum) -> new SessionCounters(rs.getObject("id", UUID.class), rs.getString("status"),
+                        rs.getInt("threshold"), rs.getInt("high_count"), rs.getString("max_severity_level")));
+    }
+
+    /**
+     * Marks a session terminated. Also applies when the attempt engine already closed it
+     * as {@code COMPLETED} (its final write may land before this one).
+     *
+     * @return {@code false} if the session row does not exist yet or was already terminated
+     */
+    public boolean terminateSession(UUID sessionId, String reason, Instant at) {
+        return jdbcTemplate.update("""
+                UPDATE exam_sessions
+                SET status = 'TERMINATED', auto_fail_reason = ?, is_auto_closed = true,
+                    end_time = ?, updated_at = now()
+                WHERE id = ? AND status IN ('ACTIVE', 'COMPLETED') AND auto_fail_reason IS NULL
+                """, reason, Timestamp.from(at), sessionId) > 0;
+    }
+
+    public record EventRow(UUID id, UUID sessionId, String eventType, String eventData, String severity,
+                           Instant timestamp) {}
+
+    public record ViolationDelta(UUID sessionId, int highSeverityCount, String maxSeverity) {}
+
+    public record SessionCounters(UUID sessionId, String status, int threshold, int highSeverityCount,
+                                  String maxSeverity) {}
+}
@@ -0,0 +1,220 @@
+package com.dao.examservice.repository;
+
+import com.dao.examservice.entity.Question;
+import com.dao.examservice.service.LongHashSet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Batched JDBC inserts for bulk question loading (Excel import), also used for single
+ * questions so both paths resolve fingerprint conflicts the same way. Ids are generated
+ * by the caller so questions and their tags can be written in the same pass.
+ */
+@Repository
+@RequiredArgsConstructor
+public class QuestionJdbcRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    /** Per-row digest computed in SQL; see {@link #rowDigest}. */
+    private static final String ROW_DIGEST = "COALESCE(('x' || left(md5(id::text || ':' || "
+            + "floor(extract(epoch FROM COALESCE(updated_at, created_at)) * 1000)::bigint::text), 16))::bit(64)::bigint, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the questions, one statement per {@value #BATCH_SIZE} rows. A question whose
+     * content fingerprint is already stored (written meanwhile by another import, replica or
+     * {@code QuestionService.create}) is skipped instead of failing the whole statement.
+     *
+     * @param createdAt {@code created_at} and {@code updated_at} of every inserted row
+     * @return ids of the questions actually inserted
+     */
+    public Set<UUID> insertQuestions(List<Question> questions, Instant createdAt) {
+        Set<UUID> inserted = new HashSet<>();
+        Timestamp now = Timestamp.from(createdAt);
+        for (int from = 0; from < questions.size(); from += BATCH_SIZE) {
+            List<Question> chunk = questions.subList(from, Math.min(from + BATCH_SIZE, questions.size()));
+            int n = chunk.size();
+            UUID[] ids = new UUID[n];
+            UUID[] organizationIds = new UUID[n];
+            String[] types = new String[n];
+            String[] contents = new String[n];
+            Integer[] difficulties = new Integer[n];
+            String[] explanations = new String[n];
+            Integer[] scores = new Integer[n];
+            String[] texts = new String[n];
+            Long[] fingerprints = new Long[n];
+            for (int i = 0; i < n; i++) {
+                Question q = chunk.get(i);
+                ids[i] = q.getId();
+                organizationIds[i] = q.getOrganizationId();
+                types[i] = q.getType().name();
+                contents[i] = q.getContent();
+                difficulties[i] = q.getDifficulty();
+                explanations[i] = q.getExplanation();
+                scores[i] = q.getScore();
+                texts[i] = q.getText();
+                fingerprints[i] = q.getContentFingerprint();
+            }
+            jdbcTemplate.query("""
+                    INSERT INTO questions
+                        (id, organization_id, type, content, difficulty, explanation, score, text,
+                         content_fingerprint, created_at, updated_at)
+                    SELECT d.id, d.organization_id, d.type, d.content::jsonb, d.difficulty, d.explanation, d.score,
+                           d.text, d.fingerprint, ?, ?
+                    FROM unnest(?::uuid[], ?::uuid[], ?::text[], ?::text[], ?::int[], ?::text[], ?::int[], ?::text[],
+                                ?::bigint[])
+                         AS d(id, organization_id, type, content, difficulty, explanation, score, text, fingerprint)
+                    ON CONFLICT (content_fingerprint) DO NOTHING
+                    RETURNING id
+                    """,
+                    ps -> {
+                        Connection c = ps.getConnection();
+                        ps.setTimestamp(1, now);
+                        ps.setTimestamp(2, now);
+                        ps.setArray(3, c.createArrayOf("uuid", ids));
+                        ps.setArray(4, c.createArrayOf("uuid", organizationIds));
+                        ps.setArray(5, c.createArrayOf("text", types));
+                        ps.setArray(6, c.createArrayOf("text", contents));
+                        ps.setArray(7, c.createArrayOf("int4", difficulties));
+                        ps.setArray(8, c.createArrayOf("text", explanations));
+                        ps.setArray(9, c.createArrayOf("int4", scores));
+                        ps.setArray(10, c.createArrayOf("text", texts));
+                        ps.setArray(11, c.createArrayOf("int8", fingerprints));
+                    },
+                    rs -> {
+                        inserted.add(rs.getObject("id", UUID.class));
+                    });
+        }
+        return inserted;
+    }
+
+    /**
+     * Loads every stored content fingerprint. The unique index is global, so the set
+     * must be too.
+     */
+    public LongHashSet loadFingerprints() {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*)::int FROM questions WHERE content_fingerprint IS NOT NULL", Integer.class);
+        LongHashSet fingerprints = new LongHashSet(count != null ? count : 0);
+        jdbcTemplate.query("SELECT content_fingerprint FROM questions WHERE content_fingerprint IS NOT NULL",
+                rs -> {
+                    fingerprints.add(rs.getLong(1));
+                });
+        return fingerprints;
+    }
+
+    public void insertTags(List<TagRow> tags) {
+        if (tags.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO question_tags (id, question_id, tag)
+                VALUES (?, ?, ?)
+                ON CONFLICT (question_id, tag) DO NOTHING
+                """,
+                tags, BATCH_SIZE, (ps, t) -> {
+                    ps.setObject(1, UUID.randomUUID());
+                    ps.setObject(2, t.questionId());
+                    ps.setString(3, t.tag());
+                });
+    }
+
+    /**
+     * Streams every question for the in-memory bank index. A question is canonical when
+     * it owns its content fingerprint (or has no content to fingerprint).
+     */
+    public void streamIndexRows(Consumer<IndexRow> consumer) {
+        jdbcTemplate.query("""
+                SELECT id, difficulty, (content_fingerprint IS NOT NULL OR content IS NULL) AS canonical
+                FROM questions
+                """,
+                rs -> {
+                    consumer.accept(new IndexRow(
+                            rs.getObject("id", UUID.class),
+                            (Integer) rs.getObject("difficulty"),
+                            rs.getBoolean("canonical")));
+                });
+    }
+
+    /**
+     * Streams the text and JSON content of every question for the near-duplicate index, with
+     * the row's {@link #rowDigest}.
+     */
+    public void streamContents(Consumer<ContentRow> consumer) {
+        jdbcTemplate.query("SELECT id, text, content, " + ROW_DIGEST + " AS row_digest FROM questions",
+                ps -> ps.setFetchSize(1000),
+                rs -> {
+                    consumer.accept(new ContentRow(rs.getObject("id", UUID.class), rs.getString("text"),
+                            rs.getString("content"), rs.getLong("row_digest")));
+                });
+    }
+
+    /**
+     * XOR of {@link #rowDigest} over every question: changes when a question is added,
+     * removed or edited (its {@code updated_at} moves).
+     */
+    public long contentDigest() {
+        Long digest = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(bit_xor(" + ROW_DIGEST + "), 0) FROM questions", Long.class);
+        return digest != null ? digest : 0L;
+    }
+
+    /**
+     * Same value as {@link #ROW_DIGEST}: the first 8 bytes of
+     * {@code md5("<id>:<epoch millis of updated_at, or created_at>")}.
+     */
+    public static long rowDigest(UUID id, Instant updatedAt) {
+        if (updatedAt == null) {
+            return 0L;
+        }
+        String text = id + ":" + updatedAt.toEpochMilli();
+        try {
+            byte[] md5 = MessageDigest.getInstance("MD5").digest(text.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(md5).getLong();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public void streamTags(BiConsumer<UUID, String> consumer) {
+        jdbcTemplate.query("SELECT question_id, tag FROM question_tags",
+                rs -> {
+                    consumer.accept(rs.getObject("question_id", UUID.class), rs.getString("tag"));
+                });
+    }
+
+    public BankSignature bankSignature() {
+        return jdbcTemplate.queryForObject("""
+                SELECT (SELECT COUNT(*) FROM questions) AS question_count,
+                       (SELECT COUNT(*) FROM question_tags) AS tag_count,
+                       (SELECT COALESCE(SUM(difficulty), 0) FROM questions) AS difficulty_sum
+                """,
+                (rs, rowNum) -> new BankSignature(rs.getLong("question_count"), rs.getLong("tag_count"),
+                        rs.getLong("difficulty_sum")));
+    }
+
+    public record TagRow(UUID questionId, String tag) {}
+
+    public record ContentRow(UUID id, String text, String content, long digest) {}
+
+    public record IndexRow(UUID id, Integer difficulty, boolean canonical) {}
+
+    public record BankSignature(long questionCount, long tagCount, long difficultySum) {}
+}
@@ -27,9 +27,6 @@ public interface QuestionRepository extends JpaRepository<Question, UUID> {
 
     boolean existsByText(String text);
 
-    @Query("SELECT q FROM Question q WHERE LOWER(q.text) = LOWER(:text)")
-    List<Question> findByTextIgnoreCase(@Param("text") String text);
-
     @Query("SELECT COUNT(q) FROM Question q JOIN QuestionTag qt ON qt.question.id = q.id WHERE qt.tag = :tag")
     long countByTag(@Param("tag") String tag);
 
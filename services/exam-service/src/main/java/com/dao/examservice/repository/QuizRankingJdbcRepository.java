@@ -0,0 +1,112 @@
+package com.dao.examservice.repository;
+
+import com.dao.examservice.service.QuizLeaderboard;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * JDBC access for the in-memory ranking engine: loads the best final submission per
+ * student and writes {@code quiz_rankings} rows in batches.
+ *
+ * <p>Rows whose rank or submission changed are upserted one by one with rank, percentile and
+ * total. A new student also moves the percentile of every other row, since the total grows;
+ * those rows are brought up to date by one set-based {@code UPDATE} per exam, computing
+ * {@code percentile = (total - rank + 1) * 100 / total} from the stored rank.</p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class QuizRankingJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Streams the best final submission of every student (ties: earliest submission),
+     * ordered by submission time, together with the rank already stored for it. Rows without
+     * a stored total (written by the rank-only format) report no rank, so they are rewritten once.
+     */
+    public void streamBestSubmissions(UUID quizId, Consumer<BestSubmission> consumer) {
+        jdbcTemplate.query("""
+                SELECT best.id, best.student_id, best.score,
+                       CASE WHEN r.total_submissions IS NOT NULL THEN r.rank END AS rank
+                FROM (
+                    SELECT DISTINCT ON (s.student_id) s.id, s.student_id, s.score, s.submitted_at
+                    FROM quiz_submissions s
+                    WHERE s.quiz_id = ? AND s.is_final = true AND s.score IS NOT NULL
+                    ORDER BY s.student_id, s.score DESC, s.submitted_at ASC
+                ) best
+                LEFT JOIN quiz_rankings r
+                       ON r.quiz_id = ? AND r.student_id = best.student_id AND r.submission_id = best.id
+                ORDER BY best.submitted_at ASC
+                """,
+                ps -> {
+                    ps.setObject(1, quizId);
+                    ps.setObject(2, quizId);
+                },
+                rs -> {
+                    consumer.accept(new BestSubmission(
+                            rs.getObject("id", UUID.class),
+                            rs.getObject("student_id", UUID.class),
+                            rs.getInt("score"),
+                            (Integer) rs.getObject("rank")));
+                });
+    }
+
+    public Map<UUID, Long> countFinalSubmissions(UUID[] quizIds) {
+        Map<UUID, Long> counts = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT quiz_id, COUNT(*) AS submission_count
+                FROM quiz_submissions
+                WHERE quiz_id = ANY (?) AND is_final = true AND score IS NOT NULL
+                GROUP BY quiz_id
+                """,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", quizIds)),
+                rs -> {
+                    counts.put(rs.getObject("quiz_id", UUID.class), rs.getLong("submission_count"));
+                });
+        return counts;
+    }
+
+    /**
+     * Upserts the changed rows, then refreshes {@code percentile} and {@code total_submissions}
+     * of the other rows of the exam if the total moved. All positions carry the same total.
+     */
+    public void upsertRankings(UUID quizId, List<QuizLeaderboard.Position> positions) {
+        if (positions.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO quiz_rankings (id, quiz_id, student_id, submission_id, percentile, rank, total_submissions)
+                VALUES (gen_random_uuid(), ?, ?, ?, ?, ?, ?)
+                ON CONFLICT (quiz_id, student_id) DO UPDATE
+                   SET submission_id = EXCLUDED.submission_id,
+                       percentile = EXCLUDED.percentile,
+                       rank = EXCLUDED.rank,
+                       total_submissions = EXCLUDED.total_submissions
+                """,
+                positions, 1000, (ps, p) -> {
+                    ps.setObject(1, quizId);
+                    ps.setObject(2, p.studentId());
+                    ps.setObject(3, p.submissionId());
+                    ps.setBigDecimal(4, p.percentile());
+                    ps.setInt(5, p.rank());
+                    ps.setInt(6, p.totalSubmissions());
+                });
+        int total = positions.get(0).totalSubmissions();
+        jdbcTemplate.update("""
+                UPDATE quiz_rankings
+                SET total_submissions = ?,
+                    percentile = round((?::numeric - rank + 1) * 100 / ?, 2)
+                WHERE quiz_id = ? AND rank IS NOT NULL AND total_submissions IS DISTINCT FROM ?
+                """,
+                total, total, total, quizId, total);
+    }
+
+    public record BestSubmission(UUID submissionId, UUID studentId, int score, Integer rank) {}
+}
@@ -27,4 +27,9 @@ public interface QuizSubmissionRepository extends JpaRepository<QuizSubmission,
     List<QuizSubmission> findByQuizIdOrderByScoreDesc(@Param("quizId") UUID quizId);
 
     long countByQuizId(UUID quizId);
+
+    @Query("SELECT COUNT(qs) FROM QuizSubmission qs WHERE qs.quizId = :quizId AND qs.studentId = :studentId AND qs.isFinal = true")
+    long countFinalByQuizIdAndStudentId(
+            @Param("quizId") UUID quizId,
+            @Param("studentId") UUID studentId);
 }
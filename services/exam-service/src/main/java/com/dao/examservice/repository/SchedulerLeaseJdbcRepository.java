@@ -0,0 +1,52 @@
+package com.dao.examservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Time-bounded leases in {@code scheduler_leases}, used to elect one replica for
+ * cluster-wide timed work. A lease is held until {@code expires_at}; the holder renews it,
+ * anyone may take it over once it has expired.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SchedulerLeaseJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void createTableIfMissing() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS scheduler_leases (
+                    name       varchar(100) PRIMARY KEY,
+                    owner      varchar(200) NOT NULL,
+                    expires_at timestamptz  NOT NULL
+                )
+                """);
+    }
+
+    /**
+     * Acquires or renews the lease. Uses the database clock so replicas with skewed clocks
+     * agree on expiry.
+     *
+     * @return {@code true} if {@code owner} holds the lease afterwards
+     */
+    public boolean tryAcquire(String name, String owner, Duration ttl) {
+        List<String> holders = jdbcTemplate.queryForList("""
+                INSERT INTO scheduler_leases AS l (name, owner, expires_at)
+                VALUES (?, ?, now() + make_interval(secs => ?))
+                ON CONFLICT (name) DO UPDATE
+                    SET owner = EXCLUDED.owner, expires_at = EXCLUDED.expires_at
+                    WHERE l.owner = EXCLUDED.owner OR l.expires_at < now()
+                RETURNING owner
+                """, String.class, name, owner, ttl.toMillis() / 1000.0);
+        return !holders.isEmpty();
+    }
+
+    public void release(String name, String owner) {
+        jdbcTemplate.update("DELETE FROM scheduler_leases WHERE name = ? AND owner = ?", name, owner);
+    }
+}
@@ -0,0 +1,87 @@
+package com.dao.examservice.repository;
+
+import com.dao.examservice.entity.Exam;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Ranked full-text search over exams and the question bank, backed by the expression
+ * indexes created in {@code SearchIndexRunner}. A row matches when its folded document
+ * contains every query term as a word prefix, or is trigram-similar to the query (typos).
+ *
+ * <p>Results are ordered by {@code (rank DESC, id DESC)} and paged with a keyset cursor on
+ * that pair, so later pages neither skip nor repeat rows. The rank is computed, not indexed:
+ * every page still ranks all matching rows before the cursor filter, so a page costs about
+ * the same as the first one rather than growing with the page number as OFFSET would.</p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class SearchJdbcRepository {
+
+    private static final String EXAM_DOCUMENT = "cs_exam_document(e.title, e.description)";
+    private static final String QUESTION_DOCUMENT = "cs_question_document(q.text, q.content)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param tsQuery prefix query such as {@code "toan:* & hoc:*"} (folded by the database)
+     * @param term    the raw search text, used for trigram matching and ranking
+     * @param after   keyset cursor from the previous page, or {@code null}
+     */
+    public List<Hit> searchExams(String tsQuery, String term, Exam.ExamStatus status, Hit after, int limit) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder filter = new StringBuilder("e.deleted_at IS NULL");
+        if (status != null) {
+            filter.append(" AND e.status = ?");
+            params.add(status.name());
+        }
+        return search("exams e", "e.id", EXAM_DOCUMENT, filter.toString(), params, tsQuery, term, after, limit);
+    }
+
+    public List<Hit> searchQuestions(String tsQuery, String term, Hit after, int limit) {
+        return search("questions q", "q.id", QUESTION_DOCUMENT, "TRUE", new ArrayList<>(), tsQuery, term, after, limit);
+    }
+
+    private List<Hit> search(String table, String idColumn, String document, String filter, List<Object> filterParams,
+                             String tsQuery, String term, Hit after, int limit) {
+        String vector = "to_tsvector('simple'::regconfig, " + document + ")";
+        String sql = """
+                SELECT id, rank FROM (
+                    SELECT %1$s AS id,
+                           (ts_rank_cd(%2$s, to_tsquery('simple', cs_fold(?)))
+                            + word_similarity(cs_fold(?), %3$s))::float8 AS rank
+                    FROM %4$s
+                    WHERE %5$s
+                      AND (%2$s @@ to_tsquery('simple', cs_fold(?)) OR cs_fold(?) <%% %3$s)
+                ) ranked
+                %6$s
+                ORDER BY rank DESC, id DESC
+                LIMIT ?
+                """.formatted(idColumn, vector, document, table, filter,
+                after != null ? "WHERE (rank, id) < (?, ?)" : "");
+
+        List<Object> params = new ArrayList<>();
+        params.add(tsQuery);
+        params.add(term);
+        params.addAll(filterParams);
+        params.add(tsQuery);
+        params.add(term);
+        if (after != null) {
+            params.add(after.rank());
+            params.add(after.id());
+        }
+        params.add(limit);
+
+        return jdbcTemplate.query(sql,
+                (rs, rowNum) -> new Hit(rs.getObject("id", UUID.class), rs.getDouble("rank")),
+                params.toArray());
+    }
+
+    public record Hit(UUID id, double rank) {
+    }
+}
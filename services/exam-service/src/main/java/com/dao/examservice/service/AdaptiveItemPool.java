@@ -0,0 +1,171 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.repository.ExamQuestionJdbcRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Ngân hàng câu của một đề thích ứng, chia nhóm sẵn theo (tag chính, độ khó 1-10) để chọn
+ * câu tiếp theo mà không truy vấn database.
+ *
+ * <p>Chỉ gồm câu chấm tự động có đáp án (trắc nghiệm, đúng/sai): năng lực được cập nhật ngay
+ * sau mỗi câu. Độ khó câu theo thang Rasch là {@code b = (difficulty - 5.5) / 1.5}, tức
+ * độ khó 1..10 ứng với b trong khoảng [-3, 3].</p>
+ *
+ * <p>Đối tượng bất biến, dùng chung giữa các thread; trạng thái của từng lượt làm bài
+ * (câu đã hỏi) do {@link AdaptiveTestingService} giữ.</p>
+ */
+final class AdaptiveItemPool {
+
+    static final int LEVELS = 10;
+    private static final double CENTER = 5.5;
+    private static final double SCALE = 1.5;
+
+    private final CompiledAnswerKey source;
+    private final long builtAtMillis;
+    /** Chỉ số tag chính của mỗi ordinal, -1 nếu câu không thuộc ngân hàng. */
+    private final int[] tagOf;
+    private final double[] itemDifficulty;
+    /** {@code buckets[tag][level]}: các ordinal của tag có độ khó {@code level + 1}. */
+    private final int[][][] buckets;
+    private final int[] tagSizes;
+    private final int size;
+
+    private AdaptiveItemPool(CompiledAnswerKey source, int[] tagOf, double[] itemDifficulty,
+                             int[][][] buckets, int[] tagSizes, int size) {
+        this.source = source;
+        this.builtAtMillis = System.currentTimeMillis();
+        this.tagOf = tagOf;
+        this.itemDifficulty = itemDifficulty;
+        this.buckets = buckets;
+        this.tagSizes = tagSizes;
+        this.size = size;
+    }
+
+    /**
+     * Câu không có tag được gom vào một nhóm chung; câu nhiều tag xếp theo tag đầu tiên (a-z).
+     */
+    static AdaptiveItemPool build(CompiledAnswerKey key, List<ExamQuestionJdbcRepository.PoolItem> items) {
+        int n = key.getQuestionCount();
+        int[] tagOf = new int[n];
+        int[] levelOf = new int[n];
+        double[] itemDifficulty = new double[n];
+        Arrays.fill(tagOf, -1);
+
+        Map<String, Integer> tagIndex = new HashMap<>();
+        List<int[]> counts = new ArrayList<>();
+        int size = 0;
+        for (ExamQuestionJdbcRepository.PoolItem item : items) {
+            int ordinal = key.ordinalOf(item.questionId());
+            if (ordinal < 0 || !key.isAutoGradable(ordinal) || key.getCorrectMask(ordinal) == 0) {
+                continue;
+            }
+            String tag = item.tags().isEmpty() ? "" : item.tags().get(0);
+            int t = tagIndex.computeIfAbsent(tag, k -> {
+                counts.add(new int[LEVELS]);
+                return counts.size() - 1;
+            });
+            int level = item.difficulty() != null ? Math.max(1, Math.min(LEVELS, item.difficulty())) - 1 : LEVELS / 2 - 1;
+            tagOf[ordinal] = t;
+            levelOf[ordinal] = level;
+            itemDifficulty[ordinal] = (level + 1 - CENTER) / SCALE;
+            counts.get(t)[level]++;
+            size++;
+        }
+
+        int tags = counts.size();
+        int[][][] buckets = new int[tags][LEVELS][];
+        int[] tagSizes = new int[tags];
+        int[][] fill = new int[tags][LEVELS];
+        for (int t = 0; t < tags; t++) {
+            for (int level = 0; level < LEVELS; level++) {
+                buckets[t][level] = new int[counts.get(t)[level]];
+                tagSizes[t] += counts.get(t)[level];
+            }
+        }
+        for (int ordinal = 0; ordinal < n; ordinal++) {
+            int t = tagOf[ordinal];
+            if (t >= 0) {
+                buckets[t][levelOf[ordinal]][fill[t][levelOf[ordinal]]++] = ordinal;
+            }
+        }
+        return new AdaptiveItemPool(key, tagOf, itemDifficulty, buckets, tagSizes, size);
+    }
+
+    /**
+     * Chọn câu tiếp theo chưa hỏi: trước hết tag đang thiếu nhiều nhất so với tỉ lệ của nó
+     * trong ngân hàng (cân bằng nội dung), rồi trong tag đó là nhóm độ khó gần {@code ability}
+     * nhất (với mô hình Rasch, câu có b gần năng lực cho nhiều thông tin nhất). Trong một nhóm
+     * câu được bốc ngẫu nhiên để các thí sinh cùng mức không gặp cùng một chuỗi câu.
+     *
+     * @return ordinal của câu, hoặc -1 nếu đã hết câu
+     */
+    int select(BitSet asked, int[] askedPerTag, int askedTotal, double ability, RandomGenerator random) {
+        int target = levelFor(ability);
+        boolean[] exhausted = new boolean[tagSizes.length];
+        for (int round = 0; round < tagSizes.length; round++) {
+            int tag = -1;
+            double bestDeficit = Double.NEGATIVE_INFINITY;
+            for (int t = 0; t < tagSizes.length; t++) {
+                if (exhausted[t] || askedPerTag[t] >= tagSizes[t]) {
+                    continue;
+                }
+                double deficit = (double) tagSizes[t] / size * (askedTotal + 1) - askedPerTag[t];
+                if (deficit > bestDeficit) {
+                    bestDeficit = deficit;
+                    tag = t;
+                }
+            }
+            if (tag < 0) {
+                return -1;
+            }
+            for (int distance = 0; distance < LEVELS; distance++) {
+                int ordinal = pick(buckets[tag], target + distance, asked, random);
+                if (ordinal < 0 && distance > 0) {
+                    ordinal = pick(buckets[tag], target - distance, asked, random);
+                }
+                if (ordinal >= 0) {
+                    return ordinal;
+                }
+            }
+            exhausted[tag] = true;
+        }
+        return -1;
+    }
+
+    private static int pick(int[][] levels, int level, BitSet asked, RandomGenerator random) {
+        if (level < 0 || level >= LEVELS || levels[level].length == 0) {
+            return -1;
+        }
+        int[] bucket = levels[level];
+        int start = random.nextInt(bucket.length);
+        for (int i = 0; i < bucket.length; i++) {
+            int ordinal = bucket[(start + i) % bucket.length];
+            if (!asked.get(ordinal)) {
+                return ordinal;
+            }
+        }
+        return -1;
+    }
+
+    static int levelFor(double ability) {
+        return (int) Math.max(0, Math.min(LEVELS - 1, Math.round(ability * SCALE + CENTER) - 1));
+    }
+
+    boolean contains(int ordinal) {
+        return ordinal >= 0 && ordinal < tagOf.length && tagOf[ordinal] >= 0;
+    }
+
+    int tagOf(int ordinal) { return tagOf[ordinal]; }
+    double itemDifficulty(int ordinal) { return itemDifficulty[ordinal]; }
+    int tagCount() { return tagSizes.length; }
+    int size() { return size; }
+    CompiledAnswerKey source() { return source; }
+    long builtAtMillis() { return builtAtMillis; }
+}
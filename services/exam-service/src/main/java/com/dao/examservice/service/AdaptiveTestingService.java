@@ -0,0 +1,243 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.exception.ValidationException;
+import com.dao.examservice.repository.ExamQuestionJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Thi thích ứng (computerized adaptive testing) theo mô hình Rasch.
+ *
+ * <p>Năng lực thí sinh được ước lượng kiểu EAP trên lưới θ ∈ [-4, 4] với prior N(0, 1):
+ * mỗi câu trả lời cộng log-likelihood của nó vào posterior, không cần giải lặp. Câu tiếp
+ * theo do {@link AdaptiveItemPool} chọn quanh năng lực hiện tại. Bài dừng khi đủ số câu tối
+ * đa, hoặc khi đã qua số câu tối thiểu và sai số chuẩn của ước lượng đủ nhỏ.</p>
+ *
+ * <p>Trạng thái của lượt làm bài (câu đã hỏi, posterior) chỉ nằm trong bộ nhớ và suy ra được
+ * từ các đáp án đã lưu, nên replica khác hoặc lần khởi động sau dựng lại được. Mọi lời gọi
+ * phải giữ khóa trên {@link LiveAttempt} như các thao tác khác của {@link ExamAttemptService}.</p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AdaptiveTestingService {
+
+    private static final double[] GRID = new double[81];
+    private static final double[] LOG_PRIOR = new double[GRID.length];
+
+    static {
+        for (int g = 0; g < GRID.length; g++) {
+            GRID[g] = -4d + g * 0.1d;
+            LOG_PRIOR[g] = -GRID[g] * GRID[g] / 2d;
+        }
+    }
+
+    private final ExamQuestionJdbcRepository examQuestionJdbcRepository;
+
+    @Value("${exam.adaptive.default-max-items:30}")
+    private int defaultMaxItems;
+
+    @Value("${exam.adaptive.min-items:10}")
+    private int minItems;
+
+    @Value("${exam.adaptive.target-standard-error:0.3}")
+    private double targetStandardError;
+
+    /** Ngân hàng được dựng lại sau khoảng này để nhận độ khó vừa hiệu chỉnh. */
+    @Value("${exam.adaptive.pool-refresh-ms:3600000}")
+    private long poolRefreshMillis;
+
+    private final Map<UUID, AdaptiveItemPool> pools = new ConcurrentHashMap<>();
+    private final Map<UUID, AttemptState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Số câu tối đa của một lượt: {@code exams.total_questions} nếu có, không vượt số câu của ngân hàng.
+     */
+    public int testLength(Integer configured, CompiledAnswerKey key) {
+        int poolSize = pool(key).size();
+        if (poolSize == 0) {
+            throw new ValidationException("Adaptive exam has no auto-gradable questions");
+        }
+        int length = configured != null && configured > 0 ? configured : defaultMaxItems;
+        return Math.min(length, poolSize);
+    }
+
+    /**
+     * Câu đang chờ trả lời, hoặc câu mới chọn theo năng lực hiện tại.
+     *
+     * @return ordinal của câu, hoặc -1 khi bài đã đủ điều kiện dừng
+     */
+    public int nextQuestion(LiveAttempt attempt, CompiledAnswerKey key) {
+        AttemptState state = state(attempt, key);
+        if (state.pending >= 0) {
+            return state.pending;
+        }
+        if (isFinished(attempt, state)) {
+            return -1;
+        }
+        int ordinal = state.pool.select(state.asked, state.askedPerTag, state.answered, state.ability(),
+                ThreadLocalRandom.current());
+        if (ordinal >= 0) {
+            state.pending = ordinal;
+        }
+        return ordinal;
+    }
+
+    /**
+     * Ghi nhận đáp án cho câu đang chờ và cập nhật năng lực. Câu đã trả lời không sửa lại được.
+     */
+    public void recordAnswer(LiveAttempt attempt, CompiledAnswerKey key, int ordinal, String value) {
+        AttemptState state = state(attempt, key);
+        if (state.pending != ordinal) {
+            throw new ValidationException(state.asked.get(ordinal)
+                    ? "Adaptive exam answers cannot be changed"
+                    : "Only the current question of an adaptive exam can be answered");
+        }
+        state.pending = -1;
+        state.apply(ordinal, isCorrect(key, ordinal, value));
+    }
+
+    public int answeredCount(LiveAttempt attempt, CompiledAnswerKey key) {
+        return state(attempt, key).answered;
+    }
+
+    /**
+     * Điểm của bài thích ứng theo năng lực ước lượng (0-100), không theo tỉ lệ câu đúng:
+     * hai thí sinh đúng cùng số câu nhưng ở độ khó khác nhau có điểm khác nhau.
+     */
+    public SubmissionGrader.GradeResult grade(LiveAttempt attempt, CompiledAnswerKey key) {
+        AttemptState state = state(attempt, key);
+        SubmissionGrader.GradeResult raw = key.grade(attempt.answerValues());
+        double ability = state.ability();
+        int score = (int) Math.round(100d / (1d + Math.exp(-1.702d * ability)));
+        log.debug("Adaptive attempt {}: ability {} (SE {}) after {} items",
+                attempt.getSubmissionId(), ability, state.standardError(), state.answered);
+        return new SubmissionGrader.GradeResult(score, raw.correctAnswers(), raw.wrongAnswers(),
+                attempt.getTotalQuestions(), raw.outcomes());
+    }
+
+    public void forget(UUID submissionId) {
+        states.remove(submissionId);
+    }
+
+    private boolean isFinished(LiveAttempt attempt, AttemptState state) {
+        if (state.answered >= attempt.getTotalQuestions()) {
+            return true;
+        }
+        return state.answered >= minItems && state.standardError() <= targetStandardError;
+    }
+
+    private AttemptState state(LiveAttempt attempt, CompiledAnswerKey key) {
+        AdaptiveItemPool pool = pool(key);
+        AttemptState state = states.get(attempt.getSubmissionId());
+        // Lượt được nạp lại (từ replica khác) là đối tượng mới: dựng lại từ đáp án của nó
+        if (state == null || state.pool != pool || state.attempt != attempt) {
+            AttemptState rebuilt = new AttemptState(attempt, pool);
+            for (Map.Entry<UUID, String> answer : attempt.answerValues().entrySet()) {
+                int ordinal = key.ordinalOf(answer.getKey());
+                if (pool.contains(ordinal) && answer.getValue() != null) {
+                    rebuilt.apply(ordinal, isCorrect(key, ordinal, answer.getValue()));
+                }
+            }
+            if (state != null && state.attempt == attempt && state.pending >= 0 && pool.contains(state.pending)
+                    && !rebuilt.asked.get(state.pending)) {
+                rebuilt.pending = state.pending;
+            }
+            state = rebuilt;
+            states.put(attempt.getSubmissionId(), state);
+        }
+        return state;
+    }
+
+    private AdaptiveItemPool pool(CompiledAnswerKey key) {
+        AdaptiveItemPool pool = pools.get(key.getExamId());
+        if (pool == null || pool.source() != key
+                || System.currentTimeMillis() - pool.builtAtMillis() > poolRefreshMillis) {
+            pool = AdaptiveItemPool.build(key, examQuestionJdbcRepository.findPoolItems(key.getExamId()));
+            pools.put(key.getExamId(), pool);
+            log.info("Built adaptive item pool for exam {} ({} items, {} tags)",
+                    key.getExamId(), pool.size(), pool.tagCount());
+        }
+        return pool;
+    }
+
+    private static boolean isCorrect(CompiledAnswerKey key, int ordinal, String value) {
+        int selected = key.selectionMask(ordinal, value);
+        return selected != 0 && selected == key.getCorrectMask(ordinal);
+    }
+
+    private static final class AttemptState {
+        final LiveAttempt attempt;
+        final AdaptiveItemPool pool;
+        final BitSet asked = new BitSet();
+        final int[] askedPerTag;
+        final double[] logPosterior = LOG_PRIOR.clone();
+        int answered;
+        int pending = -1;
+
+        AttemptState(LiveAttempt attempt, AdaptiveItemPool pool) {
+            this.attempt = attempt;
+            this.pool = pool;
+            this.askedPerTag = new int[pool.tagCount()];
+        }
+
+        void apply(int ordinal, boolean correct) {
+            if (asked.get(ordinal)) {
+                return;
+            }
+            asked.set(ordinal);
+            askedPerTag[pool.tagOf(ordinal)]++;
+            answered++;
+            double b = pool.itemDifficulty(ordinal);
+            for (int g = 0; g < GRID.length; g++) {
+                double p = 1d / (1d + Math.exp(b - GRID[g]));
+                logPosterior[g] += Math.log(correct ? p : 1d - p);
+            }
+        }
+
+        double ability() {
+            double[] w = weights();
+            double sum = 0d;
+            double mean = 0d;
+            for (int g = 0; g < GRID.length; g++) {
+                sum += w[g];
+                mean += w[g] * GRID[g];
+            }
+            return mean / sum;
+        }
+
+        double standardError() {
+            double[] w = weights();
+            double sum = 0d;
+            double mean = 0d;
+            double square = 0d;
+            for (int g = 0; g < GRID.length; g++) {
+                sum += w[g];
+                mean += w[g] * GRID[g];
+                square += w[g] * GRID[g] * GRID[g];
+            }
+            mean /= sum;
+            return Math.sqrt(Math.max(0d, square / sum - mean * mean));
+        }
+
+        private double[] weights() {
+            double max = Double.NEGATIVE_INFINITY;
+            for (double v : logPosterior) {
+                max = Math.max(max, v);
+            }
+            double[] w = new double[GRID.length];
+            for (int g = 0; g < GRID.length; g++) {
+                w[g] = Math.exp(logPosterior[g] - max);
+            }
+            return w;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.entity.Exam;
+import com.dao.examservice.entity.ExamQuestion;
+import com.dao.examservice.entity.Question;
+import com.dao.examservice.exception.ResourceNotFoundException;
+import com.dao.examservice.repository.ExamQuestionJdbcRepository;
+import com.dao.examservice.repository.ExamRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache đáp án đã biên dịch ({@link CompiledAnswerKey}) theo exam id.
+ *
+ * <p>Mỗi entry ghi nhận {@code MAX(questions.updated_at)}, số câu hỏi và digest thứ tự/điểm
+ * các câu của đề tại thời điểm biên dịch. Entry bị loại khi:</p>
+ * <ul>
+ *   <li>code trong service sửa/xóa câu hỏi hoặc sinh lại đề ({@link #invalidateExam},
+ *       {@link #invalidateQuestions}), sau khi transaction commit để không ai kịp biên dịch
+ *       lại từ dữ liệu cũ;</li>
+ *   <li>job định kỳ thấy dấu phiên bản thay đổi (sửa trực tiếp DB, hoặc sửa từ replica khác).</li>
+ * </ul>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AnswerKeyCache {
+
+    private final ExamRepository examRepository;
+    private final ExamQuestionJdbcRepository examQuestionJdbcRepository;
+    private final ObjectMapper objectMapper;
+
+    private final Map<UUID, CompiledAnswerKey> keys = new ConcurrentHashMap<>();
+
+    /**
+     * Lấy đáp án đã biên dịch; biên dịch lần đầu nếu chưa có. Các request đồng thời cho
+     * cùng một đề chờ một lần biên dịch duy nhất.
+     */
+    public CompiledAnswerKey get(UUID examId) {
+        return keys.computeIfAbsent(examId, this::compile);
+    }
+
+    public void invalidateExam(UUID examId) {
+        afterCommit(() -> {
+            if (keys.remove(examId) != null) {
+                log.debug("Invalidated answer key for exam {}", examId);
+            }
+        });
+    }
+
+    public void invalidateQuestions(Collection<UUID> questionIds) {
+        if (questionIds.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = List.copyOf(questionIds);
+        afterCommit(() -> keys.values().removeIf(key -> key.containsAny(ids)));
+    }
+
+    /**
+     * So sánh dấu phiên bản của các đề đang cache với database bằng một query.
+     */
+    @Scheduled(fixedDelayString = "${exam.answer-key.validate-interval-ms:30000}")
+    public void evictStale() {
+        if (keys.isEmpty()) {
+            return;
+        }
+        UUID[] examIds = keys.keySet().toArray(new UUID[0]);
+        Map<UUID, ExamQuestionJdbcRepository.ContentVersion> current = examQuestionJdbcRepository.loadVersions(examIds);
+
+        for (UUID examId : examIds) {
+            CompiledAnswerKey key = keys.get(examId);
+            ExamQuestionJdbcRepository.ContentVersion version = current.get(examId);
+            if (key == null) {
+                continue;
+            }
+            boolean stale = version == null
+                    ? key.getQuestionCount() > 0
+                    : version.questionCount() != key.getQuestionCount()
+                        || version.maxUpdatedAtMillis() != key.getMaxUpdatedAtMillis()
+                        || version.layoutDigest() != key.getLayoutDigest();
+            if (stale) {
+                keys.remove(examId, key);
+                log.info("Answer key for exam {} is stale, evicted", examId);
+            }
+        }
+    }
+
+    private CompiledAnswerKey compile(UUID examId) {
+        Exam exam = examRepository.findByIdWithQuestions(examId)
+                .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+
+        List<ExamQuestion> examQuestions = new ArrayList<>(exam.getExamQuestions());
+        examQuestions.sort(Comparator.comparing(ExamQuestion::getDisplayOrder,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+
+        int n = examQuestions.size();
+        UUID[] questionIds = new UUID[n];
+        int[] correctMasks = new int[n];
+        int[] points = new int[n];
+        boolean[] autoGradable = new boolean[n];
+        String[][] optionTexts = new String[n][];
+        String[] questionTexts = new String[n];
+        Question.QuestionType[] types = new Question.QuestionType[n];
+        long maxUpdatedAt = 0L;
+        long layoutDigest = 0L;
+
+        for (int i = 0; i < n; i++) {
+            ExamQuestion eq = examQuestions.get(i);
+            layoutDigest ^= ExamQuestionJdbcRepository.ContentVersion.placementDigest(
+                    eq.getQuestion().getId(), eq.getDisplayOrder(), eq.getScore());
+            Question question = eq.getQuestion();
+            JsonNode content = readContent(question);
+
+            questionIds[i] = question.getId();
+            points[i] = eq.getScore() != null ? eq.getScore()
+                    : question.getScore() != null ? question.getScore() : 1;
+            autoGradable[i] = question.getType() == Question.QuestionType.MULTIPLE_CHOICE
+                    || question.getType() == Question.QuestionType.TRUE_FALSE;
+            optionTexts[i] = readOptions(content);
+            questionTexts[i] = question.getText() != null ? question.getText() : content.path("question").asText("");
+            types[i] = question.getType();
+            correctMasks[i] = readCorrectMask(content);
+
+            Instant updatedAt = question.getUpdatedAt() != null ? question.getUpdatedAt() : question.getCreatedAt();
+            if (updatedAt != null) {
+                maxUpdatedAt = Math.max(maxUpdatedAt, updatedAt.toEpochMilli());
+            }
+        }
+
+        log.debug("Compiled answer key for exam {} ({} questions)", examId, n);
+        return new CompiledAnswerKey(examId, questionIds, correctMasks, points, autoGradable, optionTexts,
+                questionTexts, types, Boolean.TRUE.equals(exam.getPartialScoringEnabled()),
+                Boolean.TRUE.equals(exam.getRandomizeQuestionOrder()),
+                Boolean.TRUE.equals(exam.getRandomizeOptionOrder()), Boolean.TRUE.equals(exam.getAdaptive()),
+                maxUpdatedAt, layoutDigest);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private JsonNode readContent(Question question) {
+        if (question.getContent() == null) {
+            return objectMapper.createObjectNode();
+        }
+        try {
+            return objectMapper.readTree(question.getContent());
+        } catch (JsonProcessingException ex) {
+            log.warn("Could not parse content of question {}: {}", question.getId(), ex.getMessage());
+            return objectMapper.createObjectNode();
+        }
+    }
+
+    private String[] readOptions(JsonNode content) {
+        JsonNode optionsNode = content.path("options");
+        if (!optionsNode.isArray()) {
+            return new String[0];
+        }
+        String[] options = new String[optionsNode.size()];
+        for (int i = 0; i < options.length; i++) {
+            options[i] = optionsNode.get(i).asText("").trim();
+        }
+        return options;
+    }
+
+    private int readCorrectMask(JsonNode content) {
+        JsonNode correctNode = content.path("correctAnswer");
+        int mask = 0;
+        if (correctNode.isInt()) {
+            mask = CompiledAnswerKey.bit(correctNode.asInt());
+        } else if (correctNode.isArray()) {
+            for (JsonNode index : correctNode) {
+                if (index.isInt()) {
+                    mask |= CompiledAnswerKey.bit(index.asInt());
+                }
+            }
+        }
+        return mask;
+    }
+}
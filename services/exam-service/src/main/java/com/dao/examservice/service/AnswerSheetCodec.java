@@ -0,0 +1,159 @@
+package com.dao.examservice.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Định dạng nhị phân gọn của bài làm đã nộp ({@code quiz_submissions.answer_sheet}).
+ *
+ * <pre>
+ * byte    version (1)
+ * int64   layout id: đề gồm những câu nào theo thứ tự nào (bảng answer_sheet_layouts)
+ * varint  số câu trả lời
+ * lặp lại, theo ordinal tăng dần:
+ *   varint  khoảng cách ordinal so với câu trước (câu đầu: ordinal)
+ *   varint  (payload &lt;&lt; 2) | (đúng ? 2 : 0) | (văn bản ? 1 : 0)
+ *           trắc nghiệm: payload là bitmask phương án chọn (chỉ số gốc)
+ *           văn bản (tự luận): payload là số byte UTF-8, theo sau là nội dung
+ * </pre>
+ *
+ * <p>Một bài 50 câu trắc nghiệm chiếm khoảng 110 byte, thay cho 50 dòng {@code answers}
+ * (UUID, văn bản, timestamp, index) và bản JSON của cả bài.</p>
+ */
+public final class AnswerSheetCodec {
+
+    static final byte VERSION = 1;
+
+    private AnswerSheetCodec() {
+    }
+
+    /**
+     * Định danh 64-bit của một đề theo thứ tự câu; đổi câu hoặc thứ tự thì đổi định danh.
+     */
+    public static long layoutId(UUID examId, UUID[] questionIds) {
+        long h = mix(examId.getMostSignificantBits() ^ mix(examId.getLeastSignificantBits()));
+        for (UUID id : questionIds) {
+            h = mix(h * 31 + id.getMostSignificantBits());
+            h = mix(h * 31 + id.getLeastSignificantBits());
+        }
+        return h;
+    }
+
+    public static byte[] encode(long layoutId, List<Entry> entries) {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingInt(Entry::ordinal));
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + sorted.size() * 3);
+        out.write(VERSION);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (layoutId >>> shift));
+        }
+        writeVarLong(out, sorted.size());
+        int previous = -1;
+        for (Entry entry : sorted) {
+            if (entry.ordinal() <= previous) {
+                throw new IllegalArgumentException("Duplicate answer for ordinal " + entry.ordinal());
+            }
+            writeVarLong(out, entry.ordinal() - previous - 1);
+            previous = entry.ordinal();
+            if (entry.isText()) {
+                byte[] text = entry.text().getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, ((long) text.length << 2) | 1);
+                out.write(text, 0, text.length);
+            } else {
+                writeVarLong(out, (Integer.toUnsignedLong(entry.mask()) << 2) | (entry.correct() ? 2 : 0));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Layout id của sheet, không giải mã phần còn lại.
+     */
+    public static long layoutIdOf(byte[] data) {
+        if (data.length < 9 || data[0] != VERSION) {
+            throw new IllegalArgumentException("Malformed answer sheet");
+        }
+        return ByteBuffer.wrap(data, 1, 8).getLong();
+    }
+
+    public static Sheet decode(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        try {
+            byte version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported answer sheet version " + version);
+            }
+            long layoutId = in.getLong();
+            int count = (int) readVarLong(in);
+            List<Entry> entries = new ArrayList<>(Math.min(count, data.length));
+            int ordinal = -1;
+            for (int i = 0; i < count; i++) {
+                ordinal += (int) readVarLong(in) + 1;
+                long header = readVarLong(in);
+                if ((header & 1) != 0) {
+                    int length = (int) (header >>> 2);
+                    String text = new String(data, in.position(), length, StandardCharsets.UTF_8);
+                    in.position(in.position() + length);
+                    entries.add(Entry.text(ordinal, text));
+                } else {
+                    entries.add(Entry.choice(ordinal, (int) (header >>> 2), (header & 2) != 0));
+                }
+            }
+            return new Sheet(layoutId, entries);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("Malformed answer sheet", ex);
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed answer sheet: varint too long");
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Câu trả lời cho câu {@code ordinal} của layout: bitmask (trắc nghiệm) hoặc văn bản.
+     */
+    public record Entry(int ordinal, int mask, boolean correct, String text) {
+
+        public static Entry choice(int ordinal, int mask, boolean correct) {
+            return new Entry(ordinal, mask, correct, null);
+        }
+
+        public static Entry text(int ordinal, String text) {
+            return new Entry(ordinal, 0, false, text);
+        }
+
+        public boolean isText() {
+            return text != null;
+        }
+    }
+
+    public record Sheet(long layoutId, List<Entry> entries) {}
+}
@@ -0,0 +1,286 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.repository.AnswerSheetJdbcRepository;
+import com.dao.examservice.repository.SchedulerLeaseJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bài làm đã nộp ở dạng nhị phân gọn ({@link AnswerSheetCodec}).
+ *
+ * <p>Khi nộp bài, cả bài được mã hóa vào {@code quiz_submissions.answer_sheet} cùng transaction
+ * ghi điểm; các đường đọc nóng (thống kê câu hỏi, xuất kết quả) đọc vài trăm byte này thay vì
+ * từng dòng {@code answers}. Sheet chỉ là thêm một đường đọc: dòng {@code answers} và JSON
+ * {@code quiz_submissions.answers} vẫn được ghi đầy đủ, vì online_exam_service dùng chung
+ * {@code exam_db} và còn đọc chúng.</p>
+ *
+ * <p>Job định kỳ (một replica, qua lease): mã hóa bài nộp cũ chưa có sheet. Xóa các dòng trắc
+ * nghiệm đã có trong sheet là tùy chọn ({@code exam.answer-sheet.compact-after-ms} không âm),
+ * không hoàn tác được; chỉ bật khi không còn service nào đọc các dòng đó.</p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnswerSheetService {
+
+    private static final String LEASE_NAME = "answer-sheet";
+
+    private final AnswerSheetJdbcRepository sheetRepository;
+    private final SchedulerLeaseJdbcRepository leaseRepository;
+    private final AnswerKeyCache answerKeyCache;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${exam.answer-sheet.backfill-batch-size:500}")
+    private int backfillBatchSize;
+
+    @Value("${exam.answer-sheet.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    /** Giữ dòng trắc nghiệm bao lâu sau khi nộp; âm (mặc định) thì không xóa. */
+    @Value("${exam.answer-sheet.compact-after-ms:-1}")
+    private long compactAfterMillis;
+
+    @Value("${exam.answer-sheet.compact-batch-rows:10000}")
+    private int compactBatchRows;
+
+    @Value("${exam.answer-sheet.lease-ttl-ms:600000}")
+    private long leaseTtlMillis;
+
+    private final String owner = UUID.randomUUID().toString();
+    /** Layout đã có trong database, theo layout id. */
+    private final Map<Long, UUID[]> layouts = new ConcurrentHashMap<>();
+    private volatile UUID backfillCursor;
+    private volatile boolean backfillDone;
+
+    @PostConstruct
+    void createTables() {
+        try {
+            leaseRepository.createTableIfMissing();
+            sheetRepository.createTablesIfMissing();
+        } catch (DataAccessException ex) {
+            log.warn("Could not create answer sheet tables: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Mã hóa bài làm theo đáp án của đề. Câu chấm tự động lưu bitmask và kết quả chấm,
+     * câu khác lưu nguyên văn.
+     *
+     * @return null nếu bài có câu không còn trong đề hiện tại hoặc câu chấm tự động thiếu kết
+     *         quả chấm (đề bị sửa sau khi chấm); khi đó bài giữ dạng dòng, như {@link #encodeStored}
+     */
+    public byte[] encode(CompiledAnswerKey key, Map<UUID, String> answers,
+                         Map<UUID, SubmissionGrader.QuestionOutcome> outcomes) {
+        List<AnswerSheetCodec.Entry> entries = new ArrayList<>(answers.size());
+        for (Map.Entry<UUID, String> answer : answers.entrySet()) {
+            if (answer.getValue() == null) {
+                continue;
+            }
+            int ordinal = key.ordinalOf(answer.getKey());
+            if (ordinal < 0) {
+                return null;
+            }
+            if (key.isAutoGradable(ordinal)) {
+                SubmissionGrader.QuestionOutcome outcome = outcomes.get(answer.getKey());
+                if (outcome == null) {
+                    return null;
+                }
+                entries.add(AnswerSheetCodec.Entry.choice(ordinal, key.selectionMask(ordinal, answer.getValue()),
+                        outcome.correct()));
+            } else {
+                entries.add(AnswerSheetCodec.Entry.text(ordinal, answer.getValue()));
+            }
+        }
+        return AnswerSheetCodec.encode(key.getLayoutId(), entries);
+    }
+
+    /**
+     * Ghi layout của đề nếu chưa có; gọi trong transaction ghi các sheet dùng layout đó.
+     */
+    public void ensureLayout(CompiledAnswerKey key) {
+        long layoutId = key.getLayoutId();
+        if (layouts.containsKey(layoutId)) {
+            return;
+        }
+        UUID[] questionIds = key.questionIds();
+        sheetRepository.saveLayout(layoutId, key.getExamId(), questionIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    layouts.putIfAbsent(layoutId, questionIds);
+                }
+            });
+        } else {
+            layouts.putIfAbsent(layoutId, questionIds);
+        }
+    }
+
+    /**
+     * Giải mã sheet thành câu trả lời theo id câu hỏi.
+     *
+     * @return rỗng nếu không tìm thấy layout của sheet
+     */
+    public List<DecodedAnswer> decode(byte[] sheet) {
+        AnswerSheetCodec.Sheet decoded = AnswerSheetCodec.decode(sheet);
+        UUID[] questionIds = layout(decoded.layoutId());
+        if (questionIds == null) {
+            log.warn("Answer sheet refers to unknown layout {}", decoded.layoutId());
+            return List.of();
+        }
+        List<DecodedAnswer> answers = new ArrayList<>(decoded.entries().size());
+        for (AnswerSheetCodec.Entry entry : decoded.entries()) {
+            if (entry.ordinal() < questionIds.length) {
+                answers.add(new DecodedAnswer(questionIds[entry.ordinal()], entry.ordinal(), entry.mask(),
+                        entry.correct(), entry.text()));
+            }
+        }
+        return answers;
+    }
+
+    /**
+     * Mã hóa bài nộp cũ; nếu bật thì xóa các dòng trắc nghiệm đã có trong sheet.
+     */
+    @Scheduled(fixedDelayString = "${exam.answer-sheet.migrate-interval-ms:300000}",
+            initialDelayString = "${exam.answer-sheet.migrate-interval-ms:300000}")
+    public void migrate() {
+        try {
+            if (!leaseRepository.tryAcquire(LEASE_NAME, owner, Duration.ofMillis(leaseTtlMillis))) {
+                return;
+            }
+            if (!backfillDone) {
+                backfill();
+            }
+            if (compactAfterMillis >= 0) {
+                compact();
+            }
+        } catch (DataAccessException ex) {
+            log.warn("Answer sheet migration failed, will retry: {}", ex.getMessage());
+        }
+    }
+
+    private void backfill() {
+        long encoded = 0;
+        long skipped = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<AnswerSheetJdbcRepository.Unencoded> submissions =
+                    sheetRepository.findUnencoded(backfillCursor, backfillBatchSize);
+            if (submissions.isEmpty()) {
+                backfillDone = true;
+                log.info("Answer sheet backfill finished");
+                break;
+            }
+            UUID[] ids = new UUID[submissions.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = submissions.get(i).submissionId();
+            }
+            Map<UUID, List<AnswerSheetJdbcRepository.StoredAnswer>> answers = new HashMap<>();
+            sheetRepository.streamAnswers(ids, a -> answers.computeIfAbsent(a.submissionId(), id -> new ArrayList<>()).add(a));
+
+            Map<UUID, CompiledAnswerKey> keys = new HashMap<>();
+            List<AnswerSheetJdbcRepository.SheetWrite> writes = new ArrayList<>(submissions.size());
+            for (AnswerSheetJdbcRepository.Unencoded submission : submissions) {
+                CompiledAnswerKey key = keys.computeIfAbsent(submission.examId(), this::keyOrNull);
+                byte[] sheet = key != null ? encodeStored(key, answers.getOrDefault(submission.submissionId(), List.of())) : null;
+                if (sheet != null) {
+                    writes.add(new AnswerSheetJdbcRepository.SheetWrite(submission.submissionId(), sheet));
+                } else {
+                    skipped++;
+                }
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                keys.values().forEach(this::ensureLayout);
+                sheetRepository.writeSheets(writes);
+            });
+            encoded += writes.size();
+            backfillCursor = ids[ids.length - 1];
+        }
+        if (encoded > 0 || skipped > 0) {
+            log.info("Answer sheet backfill: {} submissions encoded, {} left as rows (exam changed since)",
+                    encoded, skipped);
+        }
+    }
+
+    /**
+     * Mã hóa từ các dòng {@code answers}; null nếu đề đã đổi câu so với lúc làm bài, khi đó
+     * bài giữ nguyên dạng dòng.
+     */
+    private static byte[] encodeStored(CompiledAnswerKey key, List<AnswerSheetJdbcRepository.StoredAnswer> answers) {
+        List<AnswerSheetCodec.Entry> entries = new ArrayList<>(answers.size());
+        for (AnswerSheetJdbcRepository.StoredAnswer answer : answers) {
+            int ordinal = key.ordinalOf(answer.questionId());
+            if (ordinal < 0) {
+                return null;
+            }
+            if (answer.correct() != null) {
+                if (!key.isAutoGradable(ordinal)) {
+                    return null;
+                }
+                String value = answer.selectedAnswer();
+                int mask = value == null || value.isEmpty() ? 0 : key.selectionMask(ordinal, value);
+                entries.add(AnswerSheetCodec.Entry.choice(ordinal, mask, answer.correct()));
+            } else if (answer.selectedAnswer() != null) {
+                entries.add(AnswerSheetCodec.Entry.text(ordinal, answer.selectedAnswer()));
+            }
+        }
+        return AnswerSheetCodec.encode(key.getLayoutId(), entries);
+    }
+
+    private void compact() {
+        Instant before = Instant.now().minusMillis(compactAfterMillis);
+        long deleted = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            int rows = sheetRepository.deleteEncodedChoiceAnswers(before, compactBatchRows);
+            deleted += rows;
+            if (rows < compactBatchRows) {
+                break;
+            }
+        }
+        if (deleted > 0) {
+            log.info("Compacted {} answer rows already held in answer sheets", deleted);
+        }
+    }
+
+    private CompiledAnswerKey keyOrNull(UUID examId) {
+        try {
+            return answerKeyCache.get(examId);
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private UUID[] layout(long layoutId) {
+        UUID[] questionIds = layouts.get(layoutId);
+        if (questionIds == null) {
+            questionIds = sheetRepository.findLayout(layoutId).orElse(null);
+            if (questionIds != null) {
+                layouts.put(layoutId, questionIds);
+            }
+        }
+        return questionIds;
+    }
+
+    public record DecodedAnswer(UUID questionId, int ordinal, int mask, boolean correct, String text) {
+
+        public boolean isText() {
+            return text != null;
+        }
+    }
+}
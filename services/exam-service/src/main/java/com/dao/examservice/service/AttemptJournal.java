@@ -0,0 +1,220 @@
+package com.dao.examservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Append-only local journal for attempt state that has been acknowledged to the
+ * candidate but not yet flushed to PostgreSQL.
+ *
+ * <p>The journal is split into segments. Before every flush the current segment is
+ * sealed with {@link #rotate()}; once the flush commits, the sealed segments are
+ * deleted with {@link #discard(List)}. After a crash, {@link #readAll()} returns
+ * everything written since the last successful flush, in order.</p>
+ */
+@Component
+@Slf4j
+public class AttemptJournal {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+
+    private BufferedWriter writer;
+    private long nextSequence;
+
+    public AttemptJournal(ObjectMapper objectMapper,
+                          @Value("${exam.attempt.journal-dir:./data/attempt-journal}") String directory) {
+        this.objectMapper = objectMapper;
+        this.directory = Paths.get(directory);
+        try {
+            Files.createDirectories(this.directory);
+            this.nextSequence = listSegments().stream()
+                    .mapToLong(AttemptJournal::sequenceOf)
+                    .max()
+                    .orElse(0L) + 1;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot initialise attempt journal in " + directory, ex);
+        }
+    }
+
+    public synchronized void append(Entry entry) {
+        try {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(segmentPath(nextSequence++), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+            writer.write(objectMapper.writeValueAsString(entry));
+            writer.newLine();
+            // Survives a process crash; an OS crash may still lose the page cache.
+            writer.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to append to attempt journal", ex);
+        }
+    }
+
+    /**
+     * Seals the current segment so that new entries go to a fresh one, and returns
+     * every sealed segment still on disk (including leftovers of failed flushes).
+     */
+    public synchronized List<Path> rotate() {
+        closeWriter();
+        try {
+            return listSegments();
+        } catch (IOException ex) {
+            log.warn("Could not list attempt journal segments: {}", ex.getMessage());
+            return List.of();
+        }
+    }
+
+    public void discard(List<Path> segments) {
+        for (Path segment : segments) {
+            try {
+                Files.deleteIfExists(segment);
+            } catch (IOException ex) {
+                log.warn("Could not delete attempt journal segment {}: {}", segment, ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads all entries from every segment on disk, oldest first. Used on start-up
+     * before any new entry is appended.
+     */
+    public synchronized List<Entry> readAll() {
+        List<Entry> entries = new ArrayList<>();
+        try {
+            for (Path segment : listSegments()) {
+                try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.isBlank()) {
+                            continue;
+                        }
+                        try {
+                            entries.add(objectMapper.readValue(line, Entry.class));
+                        } catch (IOException ex) {
+                            // A torn last line after a crash is expected; skip it.
+                            log.warn("Skipping unreadable journal line in {}: {}", segment.getFileName(), ex.getMessage());
+                        }
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read attempt journal", ex);
+        }
+        return entries;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        closeWriter();
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException ex) {
+            log.warn("Could not close attempt journal segment: {}", ex.getMessage());
+        } finally {
+            writer = null;
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)))
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%012d", sequence) + SEGMENT_SUFFIX);
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return 0L;
+        }
+    }
+
+    public enum EntryType { START, ANSWER, SUBMIT }
+
+    static final String AUTO_CLOSED = "AUTO_CLOSED";
+
+    /**
+     * One journal line. Only the fields relevant to {@link #type} are set.
+     */
+    public record Entry(EntryType type,
+                        UUID submissionId,
+                        UUID sessionId,
+                        UUID examId,
+                        UUID userId,
+                        UUID answerId,
+                        UUID questionId,
+                        String value,
+                        Instant at,
+                        Instant deadline,
+                        String ipAddress,
+                        String userAgent,
+                        Integer totalQuestions) {
+
+        public static Entry start(LiveAttempt attempt) {
+            return new Entry(EntryType.START, attempt.getSubmissionId(), attempt.getSessionId(),
+                    attempt.getExamId(), attempt.getUserId(), null, null, null,
+                    attempt.getStartedAt(), attempt.getDeadline(), attempt.getIpAddress(),
+                    attempt.getUserAgent(), attempt.getTotalQuestions());
+        }
+
+        public static Entry answer(UUID submissionId, UUID answerId, UUID questionId, String value, Instant at) {
+            return new Entry(EntryType.ANSWER, submissionId, null, null, null, answerId, questionId, value,
+                    at, null, null, null, null);
+        }
+
+        public static Entry submit(UUID submissionId, Instant at) {
+            return new Entry(EntryType.SUBMIT, submissionId, null, null, null, null, null, null,
+                    at, null, null, null, null);
+        }
+
+        /** Nộp tự động khi hết giờ; {@link #value} đánh dấu để phát lại đúng cờ auto-close. */
+        public static Entry autoSubmit(UUID submissionId, Instant at) {
+            return new Entry(EntryType.SUBMIT, submissionId, null, null, null, null, null, AUTO_CLOSED,
+                    at, null, null, null, null);
+        }
+
+        public boolean autoClosed() {
+            return AUTO_CLOSED.equals(value);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.entity.Question;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Đáp án của một đề thi đã được "biên dịch" sẵn thành mảng nguyên thủy.
+ *
+ * <p>Thứ tự phần tử trong các mảng là thứ tự câu hỏi trong đề ({@code display_order}).
+ * Mỗi phương án là một bit: bit {@code i} của {@code correctMasks[q]} bật khi phương án
+ * {@code i} của câu {@code q} là đáp án đúng. Chấm một bài chỉ còn là vòng lặp so sánh
+ * bitmask, không phải parse JSON.</p>
+ *
+ * <p>Đáp án luôn ở chỉ số gốc của phương án. Khi đề bật đảo phương án, đáp án thí sinh gửi
+ * theo thứ tự hiển thị được đổi về chỉ số gốc qua hoán vị của {@link PaperShuffler}.</p>
+ *
+ * <p>Đối tượng bất biến, dùng chung giữa các thread.</p>
+ */
+public final class CompiledAnswerKey {
+
+    private final UUID examId;
+    private final UUID[] questionIds;
+    private final Map<UUID, Integer> ordinals;
+    private final int[] correctMasks;
+    private final int[] points;
+    /** Điểm cho mỗi phương án đúng được chọn (chỉ dùng khi bật chấm điểm từng phần). */
+    private final double[] partialWeights;
+    private final boolean[] autoGradable;
+    /** Nội dung phương án (đã trim), để khớp đáp án gửi dạng văn bản. */
+    private final String[][] optionTexts;
+    private final String[] questionTexts;
+    private final Question.QuestionType[] types;
+    private final boolean partialScoring;
+    private final boolean randomizeQuestionOrder;
+    private final boolean randomizeOptionOrder;
+    private final boolean adaptive;
+    private final int totalPoints;
+    private final long maxUpdatedAtMillis;
+    private final long layoutDigest;
+    /** Định danh thứ tự câu của đề, dùng trong {@link AnswerSheetCodec}. */
+    private final long layoutId;
+
+    CompiledAnswerKey(UUID examId, UUID[] questionIds, int[] correctMasks, int[] points,
+                      boolean[] autoGradable, String[][] optionTexts, String[] questionTexts,
+                      Question.QuestionType[] types, boolean partialScoring, boolean randomizeQuestionOrder,
+                      boolean randomizeOptionOrder, boolean adaptive, long maxUpdatedAtMillis,
+                      long layoutDigest) {
+        this.examId = examId;
+        this.questionIds = questionIds;
+        this.correctMasks = correctMasks;
+        this.points = points;
+        this.autoGradable = autoGradable;
+        this.optionTexts = optionTexts;
+        this.questionTexts = questionTexts;
+        this.types = types;
+        this.partialScoring = partialScoring;
+        this.randomizeQuestionOrder = randomizeQuestionOrder;
+        this.randomizeOptionOrder = randomizeOptionOrder;
+        this.adaptive = adaptive;
+        this.maxUpdatedAtMillis = maxUpdatedAtMillis;
+        this.layoutDigest = layoutDigest;
+        this.layoutId = AnswerSheetCodec.layoutId(examId, questionIds);
+
+        this.ordinals = new HashMap<>(questionIds.length * 2);
+        this.partialWeights = new double[questionIds.length];
+        int total = 0;
+        for (int i = 0; i < questionIds.length; i++) {
+            ordinals.put(questionIds[i], i);
+            total += points[i];
+            int correctCount = Integer.bitCount(correctMasks[i]);
+            partialWeights[i] = partialScoring && correctCount > 1 ? (double) points[i] / correctCount : 0d;
+        }
+        this.totalPoints = total;
+    }
+
+    /**
+     * @return vị trí câu hỏi trong đề, hoặc -1 nếu câu hỏi không thuộc đề
+     */
+    public int ordinalOf(UUID questionId) {
+        Integer ordinal = ordinals.get(questionId);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * Điểm nhận được cho câu {@code ordinal} khi thí sinh chọn các phương án {@code selectedMask}.
+     * Khi bật chấm từng phần, câu nhiều đáp án được tính (đúng - sai) x trọng số, không âm.
+     */
+    public double award(int ordinal, int selectedMask) {
+        int expected = correctMasks[ordinal];
+        if (expected == 0 || selectedMask == 0) {
+            return 0d;
+        }
+        if (selectedMask == expected) {
+            return points[ordinal];
+        }
+        double weight = partialWeights[ordinal];
+        if (weight == 0d) {
+            return 0d;
+        }
+        int hits = Integer.bitCount(selectedMask & expected);
+        int misses = Integer.bitCount(selectedMask & ~expected);
+        return Math.max(0, hits - misses) * weight;
+    }
+
+    public SubmissionGrader.GradeResult grade(Map<UUID, String> answers) {
+        Map<UUID, SubmissionGrader.QuestionOutcome> outcomes = new HashMap<>(answers.size() * 2);
+        double earned = 0d;
+        int correct = 0;
+        int wrong = 0;
+
+        for (Map.Entry<UUID, String> entry : answers.entrySet()) {
+            int ordinal = ordinalOf(entry.getKey());
+            if (ordinal < 0 || !autoGradable[ordinal] || entry.getValue() == null) {
+                continue;
+            }
+            int selected = selectionMask(ordinal, entry.getValue());
+            double awarded = award(ordinal, selected);
+            boolean isCorrect = selected != 0 && selected == correctMasks[ordinal];
+
+            earned += awarded;
+            if (isCorrect) {
+                correct++;
+            } else {
+                wrong++;
+            }
+            outcomes.put(entry.getKey(), new SubmissionGrader.QuestionOutcome(entry.getKey(), isCorrect,
+                    BigDecimal.valueOf(awarded).setScale(2, RoundingMode.HALF_UP)));
+        }
+        return new SubmissionGrader.GradeResult(percent(earned), correct, wrong, questionIds.length, outcomes);
+    }
+
+    /**
+     * Chấm bài đã ở dạng bitmask theo thứ tự câu hỏi; không cấp phát bộ nhớ.
+     *
+     * @return điểm phần trăm (0-100)
+     */
+    public int scoreMasks(int[] selectedMasks) {
+        double earned = 0d;
+        int n = Math.min(selectedMasks.length, correctMasks.length);
+        for (int i = 0; i < n; i++) {
+            if (autoGradable[i]) {
+                earned += award(i, selectedMasks[i]);
+            }
+        }
+        return percent(earned);
+    }
+
+    /**
+     * Chuyển đáp án thô ("0", "A", "0,2" hoặc nguyên văn phương án) thành bitmask.
+     */
+    public int selectionMask(int ordinal, String raw) {
+        return selectionMask(ordinal, raw, null);
+    }
+
+    /**
+     * Như {@link #selectionMask(int, String)} nhưng chỉ số / chữ cái trong đáp án là vị trí
+     * hiển thị: phương án hiển thị {@code d} là phương án gốc {@code optionOrder[d]}.
+     * Kết quả luôn theo chỉ số gốc.
+     */
+    public int selectionMask(int ordinal, String raw, int[] optionOrder) {
+        String[] options = optionTexts[ordinal];
+        String whole = raw.trim();
+        if (whole.length() > 2) {
+            for (int i = 0; i < options.length; i++) {
+                if (options[i].equalsIgnoreCase(whole)) {
+                    return bit(i);
+                }
+            }
+        }
+
+        int mask = 0;
+        int start = 0;
+        int len = raw.length();
+        while (start <= len) {
+            int end = raw.indexOf(',', start);
+            if (end < 0) {
+                end = len;
+            }
+            mask |= tokenMask(raw, start, end, options, optionOrder);
+            start = end + 1;
+        }
+        return mask;
+    }
+
+    private static int tokenMask(String raw, int from, int to, String[] options, int[] optionOrder) {
+        while (from < to && Character.isWhitespace(raw.charAt(from))) {
+            from++;
+        }
+        while (to > from && Character.isWhitespace(raw.charAt(to - 1))) {
+            to--;
+        }
+        int length = to - from;
+        if (length == 0) {
+            return 0;
+        }
+        char first = raw.charAt(from);
+        if (length <= 2 && Character.isDigit(first) && (length == 1 || Character.isDigit(raw.charAt(from + 1)))) {
+            int index = first - '0';
+            if (length == 2) {
+                index = index * 10 + (raw.charAt(from + 1) - '0');
+            }
+            return bit(canonicalIndex(index, optionOrder));
+        }
+        if (length == 1 && Character.isLetter(first)) {
+            return bit(canonicalIndex(Character.toUpperCase(first) - 'A', optionOrder));
+        }
+        for (int i = 0; i < options.length; i++) {
+            if (options[i].length() == length && options[i].regionMatches(true, 0, raw, from, length)) {
+                return bit(i);
+            }
+        }
+        return 0;
+    }
+
+    private static int canonicalIndex(int displayed, int[] optionOrder) {
+        if (optionOrder == null) {
+            return displayed;
+        }
+        return displayed >= 0 && displayed < optionOrder.length ? optionOrder[displayed] : -1;
+    }
+
+    /**
+     * Đổi bitmask theo chỉ số gốc sang bitmask theo vị trí hiển thị.
+     */
+    static int toDisplayMask(int canonicalMask, int[] optionOrder) {
+        int mask = 0;
+        for (int d = 0; d < optionOrder.length; d++) {
+            if ((canonicalMask & bit(optionOrder[d])) != 0) {
+                mask |= bit(d);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Bitmask thành danh sách chỉ số tăng dần, ví dụ {@code 0b101 -> "0,2"}.
+     */
+    static String indexList(int mask) {
+        StringBuilder sb = new StringBuilder();
+        for (int rest = mask; rest != 0; rest &= rest - 1) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(Integer.numberOfTrailingZeros(rest));
+        }
+        return sb.toString();
+    }
+
+    private int percent(double earned) {
+        if (totalPoints == 0) {
+            return 0;
+        }
+        return (int) Math.round(earned * 100d / totalPoints);
+    }
+
+    static int bit(int index) {
+        return index >= 0 && index < Integer.SIZE ? 1 << index : 0;
+    }
+
+    boolean containsAny(Iterable<UUID> questionIds) {
+        for (UUID id : questionIds) {
+            if (ordinals.containsKey(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public UUID getExamId() { return examId; }
+    public int getQuestionCount() { return questionIds.length; }
+    public UUID getQuestionId(int ordinal) { return questionIds[ordinal]; }
+    public int getCorrectMask(int ordinal) { return correctMasks[ordinal]; }
+    public int getPoints(int ordinal) { return points[ordinal]; }
+    public int getOptionCount(int ordinal) { return optionTexts[ordinal].length; }
+    public String getOptionText(int ordinal, int option) { return optionTexts[ordinal][option]; }
+    public String getQuestionText(int ordinal) { return questionTexts[ordinal]; }
+    public Question.QuestionType getType(int ordinal) { return types[ordinal]; }
+    public boolean isAutoGradable(int ordinal) { return autoGradable[ordinal]; }
+    public boolean isPartialScoring() { return partialScoring; }
+    public boolean isRandomizeQuestionOrder() { return randomizeQuestionOrder; }
+    public boolean isRandomizeOptionOrder() { return randomizeOptionOrder; }
+    public boolean isAdaptive() { return adaptive; }
+    public int getTotalPoints() { return totalPoints; }
+    public long getMaxUpdatedAtMillis() { return maxUpdatedAtMillis; }
+    public long getLayoutDigest() { return layoutDigest; }
+    public long getLayoutId() { return layoutId; }
+
+    UUID[] questionIds() {
+        return questionIds.clone();
+    }
+}
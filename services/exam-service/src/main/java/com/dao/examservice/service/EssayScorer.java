@@ -0,0 +1,18 @@
+package com.dao.examservice.service;
+
+/**
+ * Mô hình chấm câu tự luận dùng bởi {@link EssayScoringPipeline}. Chọn bằng
+ * {@code exam.essay.scorer} theo {@link #name()}: {@code ai} (LLM qua Spring AI) hoặc
+ * {@code stub} (chấm cục bộ, dùng để chạy thử tải không cần mạng).
+ */
+public interface EssayScorer {
+
+    String name();
+
+    /**
+     * Chấm một câu trả lời. Lỗi tạm thời (mạng, rate limit của nhà cung cấp) được ném ra
+     * để pipeline thử lại.
+     */
+    EssayScoringService.EssayScoreResult score(String questionContent, String studentAnswer,
+                                               int maxScore, String gradingCriteria);
+}
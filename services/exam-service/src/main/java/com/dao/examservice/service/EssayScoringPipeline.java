@@ -0,0 +1,316 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.repository.EssayScoringJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chấm câu tự luận bất đồng bộ: câu trả lời vào hàng đợi, một dispatcher phát cho các
+ * virtual thread (tối đa {@code max-concurrency} lời gọi model cùng lúc, không quá
+ * {@code rate-per-second} lời gọi mỗi giây), lỗi được thử lại với backoff tăng dần.
+ *
+ * <p>Kết quả được cache theo hash của (câu hỏi, câu trả lời đã chuẩn hóa, tiêu chí, điểm tối đa),
+ * nên các câu trả lời giống hệt nhau chỉ gọi model một lần, kể cả khi đang chấm song song.
+ * Điểm và nhận xét được ghi vào {@code answers.score} / {@code instructor_comment} theo lô.
+ * Câu chấm thất bại giữ {@code score = NULL} để giáo viên chấm tay hoặc chấm lại sau.</p>
+ */
+@Service
+@Slf4j
+public class EssayScoringPipeline {
+
+    private static final int WRITE_CHUNK = 500;
+
+    private final EssayScoringJdbcRepository essayRepository;
+    private final List<EssayScorer> scorers;
+
+    @Value("${exam.essay.scorer:ai}")
+    private String scorerName;
+
+    @Value("${exam.essay.max-concurrency:8}")
+    private int maxConcurrency;
+
+    @Value("${exam.essay.rate-per-second:5}")
+    private double ratePerSecond;
+
+    @Value("${exam.essay.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${exam.essay.retry-backoff-ms:1000}")
+    private long retryBackoffMillis;
+
+    @Value("${exam.essay.queue-capacity:20000}")
+    private int queueCapacity;
+
+    @Value("${exam.essay.cache-size:10000}")
+    private int cacheSize;
+
+    private EssayScorer scorer;
+    private BlockingQueue<EssayScoringJdbcRepository.EssayAnswer> queue;
+    private Semaphore permits;
+    private ExecutorService workers;
+    private Thread dispatcher;
+    private long intervalNanos;
+    private final AtomicLong nextCallNanos = new AtomicLong(System.nanoTime());
+
+    private final Set<UUID> queuedAnswers = ConcurrentHashMap.newKeySet();
+    private final Map<String, CompletableFuture<EssayScoringService.EssayScoreResult>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<EssayScoringJdbcRepository.ScoredAnswer> results = new ConcurrentLinkedQueue<>();
+    private Map<String, EssayScoringService.EssayScoreResult> cache;
+
+    public EssayScoringPipeline(EssayScoringJdbcRepository essayRepository, List<EssayScorer> scorers) {
+        this.essayRepository = essayRepository;
+        this.scorers = scorers;
+    }
+
+    @PostConstruct
+    void start() {
+        scorer = scorers.stream().filter(s -> s.name().equals(scorerName)).findFirst().orElse(null);
+        if (scorer == null) {
+            log.warn("Essay scorer '{}' is not available, essay scoring is disabled", scorerName);
+            return;
+        }
+        int capacity = cacheSize;
+        cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EssayScoringService.EssayScoreResult> eldest) {
+                return size() > capacity;
+            }
+        });
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        permits = new Semaphore(Math.max(1, maxConcurrency));
+        intervalNanos = ratePerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond) : 0L;
+        workers = Executors.newVirtualThreadPerTaskExecutor();
+        dispatcher = Thread.ofVirtual().name("essay-scoring-dispatcher").start(this::dispatch);
+        log.info("Essay scoring pipeline started with scorer '{}' (concurrency {}, {} calls/s)",
+                scorer.name(), maxConcurrency, ratePerSecond);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+            workers.shutdownNow();
+        }
+        writeResults();
+    }
+
+    public boolean isEnabled() {
+        return scorer != null;
+    }
+
+    public String getScorerName() {
+        return scorer != null ? scorer.name() : null;
+    }
+
+    /**
+     * Đưa các câu tự luận chưa chấm của những bài vừa nộp vào hàng đợi.
+     */
+    public int enqueueSubmissions(Collection<UUID> submissionIds) {
+        if (!isEnabled() || submissionIds.isEmpty()) {
+            return 0;
+        }
+        return enqueue(essayRepository.findUnscoredBySubmissions(submissionIds.toArray(new UUID[0])));
+    }
+
+    /**
+     * Đưa mọi câu tự luận chưa chấm của kỳ thi vào hàng đợi (chấm lại phần còn thiếu).
+     */
+    public int enqueueExam(UUID examId) {
+        if (!isEnabled()) {
+            return 0;
+        }
+        return enqueue(essayRepository.findUnscoredByExam(examId));
+    }
+
+    private int enqueue(List<EssayScoringJdbcRepository.EssayAnswer> answers) {
+        int queued = 0;
+        for (EssayScoringJdbcRepository.EssayAnswer answer : answers) {
+            if (!queuedAnswers.add(answer.answerId())) {
+                continue;
+            }
+            if (!queue.offer(answer)) {
+                queuedAnswers.remove(answer.answerId());
+                log.warn("Essay scoring queue is full, {} answers left for a later run", answers.size() - queued);
+                break;
+            }
+            queued++;
+        }
+        return queued;
+    }
+
+    private void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            EssayScoringJdbcRepository.EssayAnswer answer;
+            try {
+                answer = queue.take();
+                permits.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            workers.execute(() -> {
+                try {
+                    process(answer);
+                } finally {
+                    queuedAnswers.remove(answer.answerId());
+                    permits.release();
+                }
+            });
+        }
+    }
+
+    private void process(EssayScoringJdbcRepository.EssayAnswer answer) {
+        String key = cacheKey(answer);
+        EssayScoringService.EssayScoreResult result = cache.get(key);
+        if (result == null) {
+            CompletableFuture<EssayScoringService.EssayScoreResult> mine = new CompletableFuture<>();
+            CompletableFuture<EssayScoringService.EssayScoreResult> running = inFlight.putIfAbsent(key, mine);
+            if (running == null) {
+                try {
+                    result = scoreWithRetry(answer);
+                    if (result != null) {
+                        cache.put(key, result);
+                    }
+                } finally {
+                    mine.complete(result);
+                    inFlight.remove(key, mine);
+                }
+            } else {
+                result = running.join();
+            }
+        }
+        if (result != null) {
+            results.add(new EssayScoringJdbcRepository.ScoredAnswer(answer.answerId(),
+                    BigDecimal.valueOf(result.score()).setScale(2, RoundingMode.HALF_UP), comment(result)));
+        }
+    }
+
+    private EssayScoringService.EssayScoreResult scoreWithRetry(EssayScoringJdbcRepository.EssayAnswer answer) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                awaitRateSlot();
+                return scorer.score(answer.questionText(), answer.answer(), answer.maxScore(), answer.criteria());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (IllegalArgumentException e) {
+                log.warn("Essay answer {} cannot be scored automatically: {}", answer.answerId(), e.getMessage());
+                return null;
+            } catch (RuntimeException e) {
+                if (attempt >= maxRetries) {
+                    log.error("Giving up scoring essay answer {} after {} attempts: {}",
+                            answer.answerId(), attempt + 1, e.getMessage());
+                    return null;
+                }
+                long backoff = retryBackoffMillis << Math.min(attempt, 10);
+                long jitter = ThreadLocalRandom.current().nextLong(retryBackoffMillis + 1);
+                log.debug("Scoring essay answer {} failed (attempt {}), retrying in {} ms: {}",
+                        answer.answerId(), attempt + 1, backoff + jitter, e.getMessage());
+                try {
+                    Thread.sleep(backoff + jitter);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Giới hạn tốc độ gọi model trên toàn pipeline: mỗi lời gọi (kể cả thử lại) nhận một suất
+     * cách nhau {@code 1/rate} giây.
+     */
+    private void awaitRateSlot() throws InterruptedException {
+        if (intervalNanos <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long slot = Math.max(now, nextCallNanos.getAndAccumulate(intervalNanos,
+                (next, interval) -> Math.max(next, now) + interval));
+        long wait = slot - now;
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${exam.essay.write-interval-ms:2000}")
+    public void writeResults() {
+        List<EssayScoringJdbcRepository.ScoredAnswer> batch = new ArrayList<>();
+        EssayScoringJdbcRepository.ScoredAnswer scored;
+        while ((scored = results.poll()) != null) {
+            batch.add(scored);
+        }
+        for (int from = 0; from < batch.size(); from += WRITE_CHUNK) {
+            List<EssayScoringJdbcRepository.ScoredAnswer> chunk = batch.subList(from, Math.min(batch.size(), from + WRITE_CHUNK));
+            try {
+                essayRepository.updateScores(chunk);
+            } catch (DataAccessException ex) {
+                log.warn("Could not write {} essay scores, will retry: {}", chunk.size(), ex.getMessage());
+                results.addAll(chunk);
+            }
+        }
+        if (!batch.isEmpty()) {
+            log.debug("Wrote {} essay scores", batch.size());
+        }
+    }
+
+    private String cacheKey(EssayScoringJdbcRepository.EssayAnswer answer) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[]{scorer.name(), String.valueOf(answer.maxScore()),
+                    answer.questionText(), answer.criteria(), normalize(answer.answer())}) {
+                byte[] bytes = part != null ? part.getBytes(StandardCharsets.UTF_8) : new byte[0];
+                digest.update(bytes);
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String normalize(String answer) {
+        return answer == null ? "" : answer.strip().replaceAll("\\s+", " ");
+    }
+
+    private static String comment(EssayScoringService.EssayScoreResult result) {
+        StringBuilder comment = new StringBuilder(result.feedback() != null ? result.feedback() : "");
+        if (result.strengths() != null && !result.strengths().isBlank()) {
+            comment.append("\nĐiểm mạnh: ").append(result.strengths());
+        }
+        if (result.improvements() != null && !result.improvements().isBlank()) {
+            comment.append("\nCần cải thiện: ").append(result.improvements());
+        }
+        return comment.toString();
+    }
+}
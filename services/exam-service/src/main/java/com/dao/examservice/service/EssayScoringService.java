@@ -14,7 +14,7 @@ import java.util.regex.Pattern;
  */
 @Service
 @ConditionalOnProperty(name = "spring.ai.openai.api-key")
-public class EssayScoringService {
+public class EssayScoringService implements EssayScorer {
 
     private static final Logger log = LoggerFactory.getLogger(EssayScoringService.class);
 
@@ -32,6 +32,11 @@ public class EssayScoringService {
         this.chatClient = chatClientBuilder.build();
     }
 
+    @Override
+    public String name() {
+        return "ai";
+    }
+
     /**
      * Chấm điểm câu trả lời ESSAY tự động bằng AI.
      */
@@ -40,6 +45,28 @@ public class EssayScoringService {
             String studentAnswer,
             int maxScore,
             String gradingCriteria) {
+        try {
+            return score(questionContent, studentAnswer, maxScore, gradingCriteria);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error scoring essay with AI: {}", e.getMessage(), e);
+            return new EssayScoreResult(0,
+                "Không thể chấm điểm tự động do lỗi hệ thống. Vui lòng chấm thủ công.",
+                "",
+                "");
+        }
+    }
+
+    /**
+     * Như {@link #scoreEssay} nhưng ném lỗi gọi model ra ngoài (để pipeline thử lại).
+     */
+    @Override
+    public EssayScoreResult score(
+            String questionContent,
+            String studentAnswer,
+            int maxScore,
+            String gradingCriteria) {
 
         // Sanitize inputs
         String sanitizedQuestion = sanitizeInput(questionContent, MAX_QUESTION_LENGTH);
@@ -84,20 +111,12 @@ public class EssayScoringService {
             sanitizedCriteria != null ? "Tiêu chí chấm điểm bổ sung: " + sanitizedCriteria : ""
         );
 
-        try {
-            String result = chatClient.prompt()
-                    .system(systemMessage.replace("{maxScore}", String.valueOf(maxScore)))
-                    .user(userMessage)
-                    .call()
-                    .content();
-            return parseScoreResult(result, maxScore);
-        } catch (Exception e) {
-            log.error("Error scoring essay with AI: {}", e.getMessage(), e);
-            return new EssayScoreResult(0,
-                "Không thể chấm điểm tự động do lỗi hệ thống. Vui lòng chấm thủ công.",
-                "",
-                "");
-        }
+        String result = chatClient.prompt()
+                .system(systemMessage.replace("{maxScore}", String.valueOf(maxScore)))
+                .user(userMessage)
+                .call()
+                .content();
+        return parseScoreResult(result, maxScore);
     }
 
     /**
@@ -145,55 +164,47 @@ public class EssayScoringService {
 
     /**
      * Parse kết quả từ AI response.
+     *
+     * @throws IllegalStateException nếu response rỗng hoặc không có điểm hợp lệ; pipeline thử lại
+     *         và câu trả lời giữ {@code score = NULL} thay vì bị chấm 0
      */
-    private EssayScoreResult parseScoreResult(String aiResponse, int maxScore) {
+    static EssayScoreResult parseScoreResult(String aiResponse, int maxScore) {
         if (aiResponse == null || aiResponse.isBlank()) {
-            return new EssayScoreResult(0,
-                "Không thể chấm điểm tự động. Vui lòng chấm thủ công.",
-                "",
-                "");
+            throw new IllegalStateException("Empty response from the scoring model");
         }
 
-        try {
-            // Simple JSON parsing
-            int scoreStart = aiResponse.indexOf("\"score\"");
-            if (scoreStart == -1) {
-                return new EssayScoreResult(0,
-                    "Không thể chấm điểm tự động. Vui lòng chấm thủ công.",
-                    "",
-                    "");
-            }
-            
-            int scoreEnd = aiResponse.indexOf(",", scoreStart);
-            if (scoreEnd == -1) {
-                scoreEnd = aiResponse.indexOf("}", scoreStart);
-            }
-            
-            String scoreStr = aiResponse.substring(scoreStart + 7, scoreEnd).replaceAll("[^0-9-]", "");
-            int score;
-            try {
-                score = Integer.parseInt(scoreStr.trim());
-            } catch (NumberFormatException e) {
-                score = 0;
-            }
-            score = Math.min(Math.max(score, 0), maxScore);
+        // Simple JSON parsing
+        int scoreStart = aiResponse.indexOf("\"score\"");
+        if (scoreStart == -1) {
+            throw new IllegalStateException("No score in the response of the scoring model");
+        }
 
-            // Extract feedback
-            String feedback = extractJsonField(aiResponse, "feedback");
-            String strengths = extractJsonField(aiResponse, "strengths");
-            String improvements = extractJsonField(aiResponse, "improvements");
+        int scoreEnd = aiResponse.indexOf(",", scoreStart);
+        if (scoreEnd == -1) {
+            scoreEnd = aiResponse.indexOf("}", scoreStart);
+        }
+        if (scoreEnd == -1) {
+            throw new IllegalStateException("Malformed response from the scoring model");
+        }
 
-            return new EssayScoreResult(score, feedback, strengths, improvements);
-        } catch (Exception e) {
-            log.error("Error parsing AI score result: {}", e.getMessage());
-            return new EssayScoreResult(0,
-                "Không thể chấm điểm tự động. Vui lòng chấm thủ công.",
-                "",
-                "");
+        String scoreStr = aiResponse.substring(scoreStart + 7, scoreEnd).replaceAll("[^0-9-]", "");
+        int score;
+        try {
+            score = Integer.parseInt(scoreStr.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Unparseable score in the response of the scoring model", e);
         }
+        score = Math.min(Math.max(score, 0), maxScore);
+
+        // Extract feedback
+        String feedback = extractJsonField(aiResponse, "feedback");
+        String strengths = extractJsonField(aiResponse, "strengths");
+        String improvements = extractJsonField(aiResponse, "improvements");
+
+        return new EssayScoreResult(score, feedback, strengths, improvements);
     }
 
-    private String extractJsonField(String json, String field) {
+    private static String extractJsonField(String json, String field) {
         try {
             int fieldStart = json.indexOf("\"" + field + "\"");
             if (fieldStart == -1) return "";
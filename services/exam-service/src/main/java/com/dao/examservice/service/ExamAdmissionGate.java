@@ -0,0 +1,59 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hàng đợi vào phòng thi: giới hạn số lượt bắt đầu làm bài mỗi giây trên node này.
+ *
+ * <p>Mỗi thí sinh nhận một "suất" kế tiếp theo thứ tự đến (cách nhau {@code 1/rate} giây,
+ * cho phép dồn tối đa {@code burst} suất khi hệ thống rảnh). Suất trong vòng
+ * {@code max-wait-ms} thì chờ tới lượt rồi vào; xa hơn thì trả 429 kèm {@code Retry-After}
+ * để client tự thử lại, không giữ thread.</p>
+ */
+@Component
+public class ExamAdmissionGate {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final long maxWaitNanos;
+    private final AtomicLong nextSlot;
+
+    public ExamAdmissionGate(@Value("${exam.admission.rate-per-second:200}") int ratePerSecond,
+                             @Value("${exam.admission.burst:200}") int burst,
+                             @Value("${exam.admission.max-wait-ms:2000}") long maxWaitMillis) {
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, ratePerSecond);
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.nextSlot = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Chờ tới lượt vào, hoặc ném {@link TooManyRequestsException} nếu hàng đợi quá dài.
+     */
+    public void admit() {
+        while (true) {
+            long now = System.nanoTime();
+            long next = nextSlot.get();
+            long earliest = now - burstNanos;
+            long slot = next - earliest > 0 ? next : earliest;
+            long wait = slot - now;
+            if (wait > maxWaitNanos) {
+                long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait - maxWaitNanos) + 1);
+                throw new TooManyRequestsException("Too many candidates are entering, please retry", retryAfter);
+            }
+            if (nextSlot.compareAndSet(next, slot + intervalNanos)) {
+                long deadline = now + wait;
+                for (long remaining = wait; remaining > 0; remaining = deadline - System.nanoTime()) {
+                    LockSupport.parkNanos(remaining);
+                }
+                return;
+            }
+        }
+    }
+}
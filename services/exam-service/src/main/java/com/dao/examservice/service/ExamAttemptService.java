@@ -0,0 +1,809 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.dto.response.AdaptiveQuestionResponse;
+import com.dao.examservice.dto.response.AttemptPaperResponse;
+import com.dao.examservice.dto.response.BundleKeyResponse;
+import com.dao.examservice.entity.Exam;
+import com.dao.examservice.entity.Question;
+import com.dao.examservice.exception.ForbiddenException;
+import com.dao.examservice.exception.ResourceNotFoundException;
+import com.dao.examservice.exception.ValidationException;
+import com.dao.examservice.repository.ExamAttemptJdbcRepository;
+import com.dao.examservice.repository.ExamQuestionRepository;
+import com.dao.examservice.repository.ExamRegistrationJdbcRepository;
+import com.dao.examservice.repository.ExamRepository;
+import com.dao.examservice.repository.QuizSubmissionRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Engine chạy một lượt làm bài: bắt đầu, lưu đáp án, nộp bài và chấm điểm.
+ *
+ * <p>Trạng thái lượt làm bài được giữ trong bộ nhớ; mỗi lần lưu đáp án chỉ ghi đè giá trị
+ * trong bộ nhớ và ghi một dòng vào {@link AttemptJournal}. Định kỳ, mọi thay đổi được gộp
+ * lại và ghi xuống {@code quiz_submissions}, {@code exam_sessions} và {@code answers}
+ * bằng JDBC batch trong một transaction. Khi khởi động lại, journal được phát lại để
+ * khôi phục phần chưa kịp ghi.</p>
+ *
+ * <p>Hạn nộp của các lượt đang giữ trong bộ nhớ nằm trong một {@link TimingWheel}; lượt hết giờ
+ * được chấm và đóng tự động, rồi ghi xuống cùng lô flush tiếp theo. Lượt không replica nào
+ * giữ (replica chết) do {@link ExamTimerService} quét và gọi {@link #expire}.</p>
+ *
+ * <p>Ngoài chu kỳ định kỳ, flush được kích hoạt sớm (trên thread riêng, gộp các yêu cầu
+ * trùng nhau) khi có bài nộp, hoặc khi số lần lưu chưa ghi vượt {@code exam.attempt.flush-threshold}.</p>
+ *
+ * <p>Đề thích ứng ({@code exams.adaptive}) không giao cả đề: thí sinh lấy từng câu qua
+ * {@link #nextQuestion}, câu do {@link AdaptiveTestingService} chọn theo năng lực hiện tại.</p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExamAttemptService implements ApplicationRunner {
+
+    private static final long EXPIRY_TICK_MS = 1000L;
+
+    private final ExamRepository examRepository;
+    private final ExamQuestionRepository examQuestionRepository;
+    private final QuizSubmissionRepository submissionRepository;
+    private final ExamRegistrationJdbcRepository registrationJdbcRepository;
+    private final ExamAttemptJdbcRepository attemptJdbcRepository;
+    private final AttemptJournal journal;
+    private final SubmissionGrader grader;
+    private final AnswerKeyCache answerKeyCache;
+    private final ExamAdmissionGate admissionGate;
+    private final ExamBundleService bundleService;
+    private final ExamService examService;
+    private final RankingService rankingService;
+    private final EssayScoringPipeline essayScoringPipeline;
+    private final AdaptiveTestingService adaptiveTestingService;
+    private final AnswerSheetService answerSheetService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    private final Map<UUID, LiveAttempt> attempts = new ConcurrentHashMap<>();
+    private final Map<String, UUID> openByCandidate = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final TimingWheel<UUID> expiryWheel = new TimingWheel<>(EXPIRY_TICK_MS, Instant.now());
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicInteger savesSinceFlush = new AtomicInteger();
+
+    @Value("${exam.attempt.flush-threshold:20000}")
+    private int flushThreshold;
+
+    /**
+     * Thời gian ân hạn sau hạn nộp (mạng chậm, bấm nộp sát giờ): vẫn nhận câu trả lời, tự
+     * động nộp khi hết ân hạn. Được ghi vào {@code exam_sessions.grace_period_minutes} để
+     * job quét phiên quá hạn dùng cùng mốc.
+     */
+    @Value("${exam.attempt.grace-period-minutes:0}")
+    private int gracePeriodMinutes;
+
+    private ExecutorService flushExecutor;
+
+    @PostConstruct
+    void startFlushExecutor() {
+        flushExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "attempt-flush");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Ghi nốt phần còn trong bộ nhớ khi tắt ứng dụng, để lần chạy sau không phải phát lại journal.
+     */
+    @PreDestroy
+    void stopFlushExecutor() {
+        flushExecutor.shutdownNow();
+        flushLock.lock();
+        try {
+            flushPending();
+        } catch (RuntimeException ex) {
+            log.warn("Final attempt flush failed, journal will be replayed on restart: {}", ex.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public LiveAttempt start(UUID examId, UUID userId, String ipAddress, String userAgent) {
+        String candidateKey = candidateKey(examId, userId);
+
+        LiveAttempt existing = findOpenAttempt(candidateKey, examId, userId);
+        if (existing != null) {
+            return existing;
+        }
+        // Thí sinh không có đăng ký bị từ chối trước khi chiếm chỗ trong hàng đợi vào thi.
+        if (!registrationJdbcRepository.hasActiveRegistration(examId, userId)) {
+            throw new ForbiddenException("User " + userId + " is not registered for exam " + examId);
+        }
+        // Chỉ lượt mới phải xếp hàng; thí sinh vào lại lượt đang mở thì đi thẳng.
+        admissionGate.admit();
+
+        Exam exam = examRepository.findActiveById(examId)
+                .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+        Instant now = Instant.now();
+        validateCanStart(exam, userId, now);
+
+        int totalQuestions = Math.toIntExact(examQuestionRepository.countByExamId(examId));
+        if (totalQuestions == 0) {
+            throw new ValidationException("Exam has no questions");
+        }
+        if (Boolean.TRUE.equals(exam.getAdaptive())) {
+            totalQuestions = adaptiveTestingService.testLength(exam.getTotalQuestions(), answerKeyCache.get(examId));
+        }
+
+        LiveAttempt attempt = new LiveAttempt(UUID.randomUUID(), UUID.randomUUID(), examId, userId,
+                now, computeDeadline(exam, now), ipAddress, userAgent, totalQuestions);
+
+        // Kiểm tra và đăng ký lượt mới nguyên tử theo thí sinh: hai request đồng thời chỉ tạo một lượt.
+        LiveAttempt[] open = {attempt};
+        openByCandidate.compute(candidateKey, (key, current) -> {
+            LiveAttempt raced = current != null ? attempts.get(current) : null;
+            if (raced != null && raced.getState() == LiveAttempt.State.ACTIVE) {
+                open[0] = raced;
+                return current;
+            }
+            attempts.put(attempt.getSubmissionId(), attempt);
+            return attempt.getSubmissionId();
+        });
+        if (open[0] != attempt) {
+            return open[0];
+        }
+        journal.append(AttemptJournal.Entry.start(attempt));
+        scheduleExpiry(attempt);
+
+        log.info("Started attempt {} for user {} on exam {}", attempt.getSubmissionId(), userId, examId);
+        return attempt;
+    }
+
+    public void saveAnswer(UUID submissionId, UUID userId, UUID questionId, String selectedAnswer) {
+        if (questionId == null || selectedAnswer == null) {
+            throw new ValidationException("questionId and selectedAnswer are required");
+        }
+        LiveAttempt attempt = requireAttempt(submissionId, userId);
+        CompiledAnswerKey key = answerKeyCache.get(attempt.getExamId());
+        int ordinal = key.ordinalOf(questionId);
+        if (ordinal < 0) {
+            throw new ValidationException("Question " + questionId + " does not belong to this exam");
+        }
+        String value = toCanonicalAnswer(key, ordinal, attempt, selectedAnswer);
+        Instant now = Instant.now();
+
+        synchronized (attempt) {
+            if (attempt.getState() != LiveAttempt.State.ACTIVE) {
+                throw new ValidationException("Attempt has already been submitted");
+            }
+            if (attempt.getDeadline() != null && now.isAfter(closesAt(attempt.getDeadline()))) {
+                throw new ValidationException("Time is up for this attempt");
+            }
+            if (key.isAdaptive()) {
+                adaptiveTestingService.recordAnswer(attempt, key, ordinal, value);
+            }
+            LiveAttempt.LiveAnswer answer = attempt.putAnswer(null, questionId, value, now);
+            journal.append(AttemptJournal.Entry.answer(submissionId, answer.id, questionId, value, now));
+        }
+        if (savesSinceFlush.incrementAndGet() >= flushThreshold) {
+            requestFlush();
+        }
+    }
+
+    public SubmissionGrader.GradeResult submit(UUID submissionId, UUID userId) {
+        LiveAttempt attempt = requireAttempt(submissionId, userId);
+        Instant now = Instant.now();
+
+        SubmissionGrader.GradeResult result;
+        synchronized (attempt) {
+            if (attempt.getState() == LiveAttempt.State.SUBMITTED) {
+                return attempt.getResult();
+            }
+            result = grade(attempt);
+            attempt.markSubmitted(now, result);
+            journal.append(AttemptJournal.Entry.submit(submissionId, now));
+            openByCandidate.remove(candidateKey(attempt.getExamId(), attempt.getUserId()), submissionId);
+            expiryWheel.cancel(submissionId);
+            log.info("Attempt {} submitted with score {}", submissionId, result.score());
+        }
+        // Bài nộp được ghi xuống ngay, không đợi chu kỳ flush.
+        requestFlush();
+        return result;
+    }
+
+    /**
+     * Đóng các lượt làm bài đã hết giờ trên node này.
+     */
+    @Scheduled(fixedDelayString = "${exam.timer.tick-ms:1000}")
+    public void expireDue() {
+        List<UUID> due = expiryWheel.advance(Instant.now());
+        for (UUID submissionId : due) {
+            try {
+                expire(submissionId);
+            } catch (RuntimeException ex) {
+                log.error("Could not auto-close attempt {}: {}", submissionId, ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Chấm và nộp tự động lượt làm bài đã quá hạn; bài được ghi xuống ở lần flush kế tiếp.
+     *
+     * @return {@code false} nếu lượt làm bài không còn mở hoặc chưa hết giờ
+     */
+    public boolean expire(UUID submissionId) {
+        LiveAttempt attempt = attempts.get(submissionId);
+        if (attempt == null) {
+            attempt = hydrate(submissionId).orElse(null);
+        }
+        if (attempt == null) {
+            return false;
+        }
+        Instant now = Instant.now();
+
+        synchronized (attempt) {
+            Instant deadline = attempt.getDeadline();
+            if (attempt.getState() != LiveAttempt.State.ACTIVE || deadline == null || now.isBefore(closesAt(deadline))) {
+                return false;
+            }
+            SubmissionGrader.GradeResult result = autoClose(attempt, deadline);
+            log.info("Attempt {} auto-closed at deadline with score {}", submissionId, result.score());
+            return true;
+        }
+    }
+
+    /**
+     * Chấm và đóng ngay lượt làm bài đang mở (vd. vi phạm giám sát vượt ngưỡng).
+     *
+     * @return {@code false} nếu lượt làm bài không còn mở
+     */
+    public boolean terminate(UUID submissionId) {
+        LiveAttempt attempt = attempts.get(submissionId);
+        if (attempt == null) {
+            attempt = hydrate(submissionId).orElse(null);
+        }
+        if (attempt == null) {
+            return false;
+        }
+        synchronized (attempt) {
+            if (attempt.getState() != LiveAttempt.State.ACTIVE) {
+                return false;
+            }
+            SubmissionGrader.GradeResult result = autoClose(attempt, Instant.now());
+            log.info("Attempt {} terminated with score {}", submissionId, result.score());
+            return true;
+        }
+    }
+
+    private SubmissionGrader.GradeResult autoClose(LiveAttempt attempt, Instant at) {
+        SubmissionGrader.GradeResult result = grade(attempt);
+        attempt.markSubmitted(at, result);
+        attempt.markAutoClosed();
+        journal.append(AttemptJournal.Entry.autoSubmit(attempt.getSubmissionId(), at));
+        openByCandidate.remove(candidateKey(attempt.getExamId(), attempt.getUserId()), attempt.getSubmissionId());
+        expiryWheel.cancel(attempt.getSubmissionId());
+        requestFlush();
+        return result;
+    }
+
+    /**
+     * Đề thích ứng chấm theo năng lực ước lượng; đề thường chấm theo đáp án.
+     */
+    private SubmissionGrader.GradeResult grade(LiveAttempt attempt) {
+        CompiledAnswerKey key = answerKeyCache.get(attempt.getExamId());
+        if (key.isAdaptive()) {
+            return adaptiveTestingService.grade(attempt, key);
+        }
+        return grader.grade(attempt.getExamId(), attempt.answerValues());
+    }
+
+    public LiveAttempt get(UUID submissionId, UUID userId) {
+        return requireAttempt(submissionId, userId);
+    }
+
+    /**
+     * Đề của lượt làm bài: thứ tự câu hỏi / phương án được tính lại từ
+     * (examId, userId, submissionId) mỗi lần gọi, không lưu hoán vị.
+     */
+    public AttemptPaperResponse getPaper(UUID submissionId, UUID userId) {
+        LiveAttempt attempt = requireAttempt(submissionId, userId);
+        CompiledAnswerKey key = answerKeyCache.get(attempt.getExamId());
+        requireFixedPaper(key);
+        PaperShuffler shuffler = shufflerFor(attempt);
+
+        int n = key.getQuestionCount();
+        int[] order = key.isRandomizeQuestionOrder() ? shuffler.questionOrder(n) : PaperShuffler.identity(n);
+        List<AttemptPaperResponse.PaperQuestion> questions = new ArrayList<>(n);
+        for (int position = 0; position < n; position++) {
+            questions.add(toPaperQuestion(key, shuffler, order[position], position + 1));
+        }
+
+        AttemptPaperResponse paper = new AttemptPaperResponse();
+        paper.submissionId = attempt.getSubmissionId();
+        paper.examId = attempt.getExamId();
+        paper.questions = questions;
+        return paper;
+    }
+
+    /**
+     * Khóa mở gói đề tải trước ({@link ExamBundleService}) và thứ tự câu / phương án của lượt
+     * làm bài, để client dựng lại đúng đề như {@link #getPaper}.
+     */
+    public BundleKeyResponse getBundleKey(UUID submissionId, UUID userId) {
+        LiveAttempt attempt = requireAttempt(submissionId, userId);
+        CompiledAnswerKey key = answerKeyCache.get(attempt.getExamId());
+        requireFixedPaper(key);
+        PaperShuffler shuffler = shufflerFor(attempt);
+
+        int n = key.getQuestionCount();
+        int[] order = key.isRandomizeQuestionOrder() ? shuffler.questionOrder(n) : PaperShuffler.identity(n);
+        List<UUID> questionOrder = new ArrayList<>(n);
+        Map<UUID, int[]> optionOrders = new LinkedHashMap<>();
+        for (int ordinal : order) {
+            UUID questionId = key.getQuestionId(ordinal);
+            questionOrder.add(questionId);
+            if (shufflesOptions(key, ordinal)) {
+                optionOrders.put(questionId, shuffler.optionOrder(ordinal, key.getOptionCount(ordinal)));
+            }
+        }
+
+        BundleKeyResponse response = new BundleKeyResponse();
+        response.submissionId = attempt.getSubmissionId();
+        response.examId = attempt.getExamId();
+        response.algorithm = ExamBundleService.ALGORITHM;
+        response.key = Base64.getEncoder().encodeToString(bundleService.keyFor(key));
+        response.bundleEtag = bundleService.current(key).etag();
+        response.questionOrder = questionOrder;
+        response.optionOrders = optionOrders;
+        return response;
+    }
+
+    /**
+     * Câu tiếp theo của lượt thi thích ứng. Gọi lại khi chưa trả lời thì nhận lại đúng câu đó.
+     */
+    public AdaptiveQuestionResponse nextQuestion(UUID submissionId, UUID userId) {
+        LiveAttempt attempt = requireAttempt(submissionId, userId);
+        CompiledAnswerKey key = answerKeyCache.get(attempt.getExamId());
+        if (!key.isAdaptive()) {
+            throw new ValidationException("Exam is not adaptive");
+        }
+        AdaptiveQuestionResponse response = new AdaptiveQuestionResponse();
+        response.submissionId = submissionId;
+        response.maxQuestions = attempt.getTotalQuestions();
+        synchronized (attempt) {
+            if (attempt.getState() != LiveAttempt.State.ACTIVE) {
+                throw new ValidationException("Attempt has already been submitted");
+            }
+            int ordinal = adaptiveTestingService.nextQuestion(attempt, key);
+            response.answered = adaptiveTestingService.answeredCount(attempt, key);
+            response.finished = ordinal < 0;
+            if (ordinal >= 0) {
+                response.question = toPaperQuestion(key, shufflerFor(attempt), ordinal, response.answered + 1);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Đáp án đã lưu của lượt làm bài, đổi về chỉ số phương án theo thứ tự thí sinh nhìn thấy.
+     */
+    public Map<UUID, String> displayedAnswers(LiveAttempt attempt) {
+        Map<UUID, String> values;
+        synchronized (attempt) {
+            values = attempt.answerValues();
+        }
+        CompiledAnswerKey key = answerKeyCache.get(attempt.getExamId());
+        if (!key.isRandomizeOptionOrder() || values.isEmpty()) {
+            return values;
+        }
+        PaperShuffler shuffler = shufflerFor(attempt);
+        for (Map.Entry<UUID, String> entry : values.entrySet()) {
+            int ordinal = key.ordinalOf(entry.getKey());
+            if (ordinal < 0 || !shufflesOptions(key, ordinal) || entry.getValue() == null) {
+                continue;
+            }
+            int canonical = key.selectionMask(ordinal, entry.getValue());
+            if (canonical != 0) {
+                int[] optionOrder = shuffler.optionOrder(ordinal, key.getOptionCount(ordinal));
+                entry.setValue(CompiledAnswerKey.indexList(CompiledAnswerKey.toDisplayMask(canonical, optionOrder)));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Ghi toàn bộ thay đổi đang chờ xuống database trong một transaction.
+     */
+    @Scheduled(fixedDelayString = "${exam.attempt.flush-interval-ms:2000}")
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flush sớm, không chặn thread gọi. Các yêu cầu tới trong lúc đang chờ được gộp làm một;
+     * yêu cầu tới khi flush đang chạy sẽ kích hoạt thêm một lần nữa ngay sau đó.
+     */
+    private void requestFlush() {
+        if (flushExecutor == null || !flushRequested.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flushExecutor.execute(() -> {
+                flushRequested.set(false);
+                flushLock.lock();
+                try {
+                    flushPending();
+                } catch (RuntimeException ex) {
+                    log.error("Early attempt flush failed: {}", ex.getMessage());
+                } finally {
+                    flushLock.unlock();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            flushRequested.set(false);
+        }
+    }
+
+    private void flushPending() {
+        int saves = savesSinceFlush.getAndSet(0);
+        // Seal the journal first: everything mutated before this point is drained below.
+        List<Path> sealedSegments = journal.rotate();
+
+        List<LiveAttempt.Snapshot> snapshots = new ArrayList<>();
+        for (LiveAttempt attempt : attempts.values()) {
+            synchronized (attempt) {
+                if (attempt.hasPendingWrites()) {
+                    snapshots.add(attempt.drain());
+                }
+            }
+        }
+        if (snapshots.isEmpty()) {
+            journal.discard(sealedSegments);
+            return;
+        }
+
+        List<LiveAttempt> inserts = new ArrayList<>();
+        List<ExamAttemptJdbcRepository.AnswerWrite> answerWrites = new ArrayList<>();
+        List<ExamAttemptJdbcRepository.SubmissionResult> results = new ArrayList<>();
+        List<LiveAttempt> completed = new ArrayList<>();
+        Map<UUID, CompiledAnswerKey> layouts = new HashMap<>();
+
+        try {
+            for (LiveAttempt.Snapshot snapshot : snapshots) {
+                LiveAttempt attempt = snapshot.attempt();
+                if (snapshot.insert()) {
+                    inserts.add(attempt);
+                }
+                for (LiveAttempt.AnswerRow row : snapshot.answers()) {
+                    answerWrites.add(new ExamAttemptJdbcRepository.AnswerWrite(attempt.getSubmissionId(), row));
+                }
+                if (snapshot.complete()) {
+                    // Nạp đáp án có thể lỗi (đề bị xóa, DB chậm): snapshot phải được trả lại như lỗi ghi.
+                    CompiledAnswerKey key = answerKeyCache.get(attempt.getExamId());
+                    byte[] answerSheet = answerSheetService.encode(key, attempt.answerValues(),
+                            attempt.getResult().outcomes());
+                    if (answerSheet != null) {
+                        layouts.putIfAbsent(key.getExamId(), key);
+                    }
+                    results.add(toSubmissionResult(attempt, answerSheet));
+                    completed.add(attempt);
+                }
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                attemptJdbcRepository.insertSubmissions(inserts);
+                attemptJdbcRepository.insertSessions(inserts, Math.max(0, gracePeriodMinutes));
+                attemptJdbcRepository.upsertAnswers(answerWrites);
+                layouts.values().forEach(answerSheetService::ensureLayout);
+                attemptJdbcRepository.finalizeSubmissions(results);
+            });
+        } catch (RuntimeException ex) {
+            log.error("Attempt flush failed ({} attempts, {} answers), will retry: {}",
+                    snapshots.size(), answerWrites.size(), ex.getMessage());
+            for (LiveAttempt.Snapshot snapshot : snapshots) {
+                synchronized (snapshot.attempt()) {
+                    snapshot.attempt().restore(snapshot);
+                }
+            }
+            return;
+        }
+
+        journal.discard(sealedSegments);
+        log.debug("Flushed {} attempts ({} new, {} answer rows for {} saves, {} submitted)",
+                snapshots.size(), inserts.size(), answerWrites.size(), saves, results.size());
+
+        List<UUID> essaySubmissions = new ArrayList<>();
+        for (LiveAttempt attempt : completed) {
+            synchronized (attempt) {
+                if (!attempt.hasPendingWrites()) {
+                    attempts.remove(attempt.getSubmissionId(), attempt);
+                    adaptiveTestingService.forget(attempt.getSubmissionId());
+                }
+            }
+            rankingService.recordFinalSubmission(attempt.getExamId(), attempt.getUserId(),
+                    attempt.getSubmissionId(), attempt.getResult().score());
+            notifyCompleted(attempt);
+            if (hasEssayAnswers(attempt)) {
+                essaySubmissions.add(attempt.getSubmissionId());
+            }
+        }
+        if (!essaySubmissions.isEmpty() && essayScoringPipeline.isEnabled()) {
+            try {
+                essayScoringPipeline.enqueueSubmissions(essaySubmissions);
+            } catch (RuntimeException ex) {
+                log.warn("Could not queue essay scoring for {} submissions: {}", essaySubmissions.size(), ex.getMessage());
+            }
+        }
+    }
+
+    private boolean hasEssayAnswers(LiveAttempt attempt) {
+        CompiledAnswerKey key = answerKeyCache.get(attempt.getExamId());
+        Map<UUID, String> values;
+        synchronized (attempt) {
+            values = attempt.answerValues();
+        }
+        for (UUID questionId : values.keySet()) {
+            int ordinal = key.ordinalOf(questionId);
+            if (ordinal >= 0 && key.getType(ordinal) == Question.QuestionType.ESSAY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Phát lại journal còn sót lại từ lần chạy trước rồi ghi ngay xuống database.
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        List<AttemptJournal.Entry> entries = journal.readAll();
+        if (entries.isEmpty()) {
+            return;
+        }
+        log.info("Replaying {} attempt journal entries from previous run", entries.size());
+
+        for (AttemptJournal.Entry entry : entries) {
+            try {
+                replay(entry);
+            } catch (RuntimeException ex) {
+                log.error("Could not replay journal entry {} for attempt {}: {}",
+                        entry.type(), entry.submissionId(), ex.getMessage());
+            }
+        }
+        flush();
+    }
+
+    private void replay(AttemptJournal.Entry entry) {
+        switch (entry.type()) {
+            case START -> {
+                LiveAttempt attempt = new LiveAttempt(entry.submissionId(), entry.sessionId(), entry.examId(),
+                        entry.userId(), entry.at(), entry.deadline(), entry.ipAddress(), entry.userAgent(),
+                        entry.totalQuestions() != null ? entry.totalQuestions() : 0);
+                attempts.put(attempt.getSubmissionId(), attempt);
+                openByCandidate.put(candidateKey(attempt.getExamId(), attempt.getUserId()), attempt.getSubmissionId());
+                scheduleExpiry(attempt);
+            }
+            case ANSWER -> {
+                LiveAttempt attempt = attempts.get(entry.submissionId());
+                if (attempt == null) {
+                    attempt = hydrate(entry.submissionId()).orElse(null);
+                }
+                if (attempt != null && attempt.getState() == LiveAttempt.State.ACTIVE) {
+                    attempt.putAnswer(entry.answerId(), entry.questionId(), entry.value(), entry.at());
+                }
+            }
+            case SUBMIT -> {
+                LiveAttempt attempt = attempts.get(entry.submissionId());
+                if (attempt == null) {
+                    attempt = hydrate(entry.submissionId()).orElse(null);
+                }
+                if (attempt != null && attempt.getState() == LiveAttempt.State.ACTIVE) {
+                    attempt.markSubmitted(entry.at(), grade(attempt));
+                    if (entry.autoClosed()) {
+                        attempt.markAutoClosed();
+                    }
+                    expiryWheel.cancel(attempt.getSubmissionId());
+                    openByCandidate.remove(candidateKey(attempt.getExamId(), attempt.getUserId()),
+                            attempt.getSubmissionId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Đổi đáp án theo thứ tự hiển thị về chỉ số gốc; đáp án không nhận diện được giữ nguyên.
+     */
+    private String toCanonicalAnswer(CompiledAnswerKey key, int ordinal, LiveAttempt attempt, String selectedAnswer) {
+        if (!shufflesOptions(key, ordinal)) {
+            return selectedAnswer;
+        }
+        int[] optionOrder = shufflerFor(attempt).optionOrder(ordinal, key.getOptionCount(ordinal));
+        int mask = key.selectionMask(ordinal, selectedAnswer, optionOrder);
+        return mask != 0 ? CompiledAnswerKey.indexList(mask) : selectedAnswer;
+    }
+
+    private static AttemptPaperResponse.PaperQuestion toPaperQuestion(CompiledAnswerKey key, PaperShuffler shuffler,
+                                                                      int ordinal, int position) {
+        int[] optionOrder = optionOrder(key, shuffler, ordinal);
+        AttemptPaperResponse.PaperQuestion q = new AttemptPaperResponse.PaperQuestion();
+        q.questionId = key.getQuestionId(ordinal);
+        q.position = position;
+        q.type = key.getType(ordinal) != null ? key.getType(ordinal).name() : null;
+        q.text = key.getQuestionText(ordinal);
+        q.options = new ArrayList<>(optionOrder.length);
+        for (int option : optionOrder) {
+            q.options.add(key.getOptionText(ordinal, option));
+        }
+        q.score = key.getPoints(ordinal);
+        return q;
+    }
+
+    /** Đề thích ứng không lộ cả ngân hàng câu cho thí sinh. */
+    private static void requireFixedPaper(CompiledAnswerKey key) {
+        if (key.isAdaptive()) {
+            throw new ValidationException("Adaptive exams are delivered one question at a time");
+        }
+    }
+
+    private static int[] optionOrder(CompiledAnswerKey key, PaperShuffler shuffler, int ordinal) {
+        int optionCount = key.getOptionCount(ordinal);
+        return shufflesOptions(key, ordinal)
+                ? shuffler.optionOrder(ordinal, optionCount)
+                : PaperShuffler.identity(optionCount);
+    }
+
+    /** Câu đúng/sai giữ nguyên thứ tự phương án. */
+    private static boolean shufflesOptions(CompiledAnswerKey key, int ordinal) {
+        return key.isRandomizeOptionOrder() && key.getType(ordinal) == Question.QuestionType.MULTIPLE_CHOICE;
+    }
+
+    private static PaperShuffler shufflerFor(LiveAttempt attempt) {
+        return new PaperShuffler(attempt.getExamId(), attempt.getUserId(), attempt.getSubmissionId());
+    }
+
+    private LiveAttempt requireAttempt(UUID submissionId, UUID userId) {
+        LiveAttempt attempt = attempts.get(submissionId);
+        if (attempt == null) {
+            attempt = hydrate(submissionId).orElse(null);
+        }
+        if (attempt == null || !attempt.getUserId().equals(userId)) {
+            throw new ResourceNotFoundException("Attempt not found with id: " + submissionId);
+        }
+        return attempt;
+    }
+
+    private LiveAttempt findOpenAttempt(String candidateKey, UUID examId, UUID userId) {
+        UUID submissionId = openByCandidate.get(candidateKey);
+        if (submissionId != null) {
+            LiveAttempt attempt = attempts.get(submissionId);
+            if (attempt != null && attempt.getState() == LiveAttempt.State.ACTIVE) {
+                return attempt;
+            }
+        }
+        return attemptJdbcRepository.findOpenSubmissionId(examId, userId)
+                .flatMap(this::hydrate)
+                .orElse(null);
+    }
+
+    /**
+     * Nạp lượt làm bài chưa nộp từ database (do replica khác bắt đầu, hoặc đã bị giải phóng).
+     */
+    private Optional<LiveAttempt> hydrate(UUID submissionId) {
+        return attemptJdbcRepository.findOpenAttempt(submissionId).map(loaded -> {
+            LiveAttempt attempt = new LiveAttempt(loaded.submissionId(), loaded.sessionId(), loaded.examId(),
+                    loaded.userId(), loaded.startedAt(), loaded.deadline(), loaded.ipAddress(),
+                    loaded.userAgent(), loaded.totalQuestions());
+            attempt.markPersisted();
+            loaded.answers().forEach(attempt::loadAnswer);
+
+            LiveAttempt raced = attempts.putIfAbsent(attempt.getSubmissionId(), attempt);
+            if (raced != null) {
+                return raced;
+            }
+            openByCandidate.putIfAbsent(candidateKey(attempt.getExamId(), attempt.getUserId()),
+                    attempt.getSubmissionId());
+            scheduleExpiry(attempt);
+            return attempt;
+        });
+    }
+
+    private void validateCanStart(Exam exam, UUID userId, Instant now) {
+        if (exam.getStatus() != Exam.ExamStatus.OPEN) {
+            throw new ValidationException("Exam is not open");
+        }
+        if (exam.getStartAt() != null && now.isBefore(exam.getStartAt())) {
+            throw new ValidationException("Exam has not started yet");
+        }
+        if (exam.getEndAt() != null && !now.isBefore(exam.getEndAt())) {
+            throw new ValidationException("Exam has already ended");
+        }
+        if (exam.getMaxAttempts() != null
+                && submissionRepository.countFinalByQuizIdAndStudentId(exam.getId(), userId) >= exam.getMaxAttempts()) {
+            throw new ValidationException("Maximum number of attempts reached");
+        }
+    }
+
+    private Instant computeDeadline(Exam exam, Instant startedAt) {
+        Instant deadline = exam.getDurationMinutes() != null
+                ? startedAt.plus(Duration.ofMinutes(exam.getDurationMinutes()))
+                : null;
+        if (exam.getEndAt() != null && (deadline == null || exam.getEndAt().isBefore(deadline))) {
+            deadline = exam.getEndAt();
+        }
+        return deadline;
+    }
+
+    /**
+     * JSON {@code answers} luôn được ghi (online_exam_service còn đọc), sheet là bản đọc nhanh thêm.
+     *
+     * @param answerSheet null nếu bài không mã hóa được theo đáp án hiện tại (đề đã đổi câu)
+     */
+    private ExamAttemptJdbcRepository.SubmissionResult toSubmissionResult(LiveAttempt attempt, byte[] answerSheet) {
+        SubmissionGrader.GradeResult result = attempt.getResult();
+        String answersJson = null;
+        try {
+            answersJson = objectMapper.writeValueAsString(attempt.answerValues());
+        } catch (JsonProcessingException ex) {
+            log.warn("Could not serialize answers of attempt {}: {}", attempt.getSubmissionId(), ex.getMessage());
+        }
+        int timeSpent = (int) Duration.between(attempt.getStartedAt(), attempt.getSubmittedAt()).getSeconds();
+        return new ExamAttemptJdbcRepository.SubmissionResult(attempt.getSubmissionId(), attempt.getSessionId(),
+                result.score(), result.correctAnswers(), result.wrongAnswers(), result.totalQuestions(),
+                Math.max(timeSpent, 0), attempt.getSubmittedAt(), answerSheet, answersJson, attempt.isAutoClosed());
+    }
+
+    private void notifyCompleted(LiveAttempt attempt) {
+        try {
+            examService.onExamCompleted(attempt.getExamId(), attempt.getUserId(), attempt.getResult().score());
+        } catch (Exception e) {
+            log.warn("Failed to run completion hooks for attempt {}: {}", attempt.getSubmissionId(), e.getMessage());
+        }
+    }
+
+    private void scheduleExpiry(LiveAttempt attempt) {
+        if (attempt.getDeadline() != null) {
+            expiryWheel.schedule(attempt.getSubmissionId(), closesAt(attempt.getDeadline()));
+        }
+    }
+
+    /** Hạn nộp cộng thời gian ân hạn. */
+    private Instant closesAt(Instant deadline) {
+        return deadline.plus(Duration.ofMinutes(Math.max(0, gracePeriodMinutes)));
+    }
+
+    private static String candidateKey(UUID examId, UUID userId) {
+        return examId + ":" + userId;
+    }
+}
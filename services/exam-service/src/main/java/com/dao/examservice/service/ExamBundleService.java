@@ -0,0 +1,246 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.dto.response.AttemptPaperResponse;
+import com.dao.examservice.entity.Exam;
+import com.dao.examservice.exception.ResourceNotFoundException;
+import com.dao.examservice.exception.ValidationException;
+import com.dao.examservice.repository.ExamRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gói đề mã hóa phát trước giờ thi: thí sinh tải gói từ {@code download-lead-ms} trước
+ * {@code startAt}, tới giờ thi chỉ cần nhận khóa 32 byte (kèm thứ tự câu / phương án riêng
+ * của lượt làm bài) thay vì tải cả đề.
+ *
+ * <p>Nội dung gói là đề theo thứ tự gốc, không kèm đáp án (lấy từ {@link CompiledAnswerKey}).
+ * Khóa AES-256 của mỗi đề được suy ra bằng HMAC từ {@code exam.bundle.secret}, id kỳ thi và
+ * SHA-256 của chính bản rõ, nên mọi replica cho ra cùng khóa và cùng gói, và một khóa (cùng
+ * IV suy ra từ nó) không bao giờ mã hóa hai nội dung khác nhau. Định dạng gói:
+ * {@code "CSB1" | iv (12 byte) | AES-GCM(ciphertext + tag)}.</p>
+ *
+ * <p>Tắt mặc định; bật ({@code exam.bundle.enabled}) thì bắt buộc có {@code exam.bundle.secret}
+ * chung cho mọi replica, thiếu thì service không khởi động.</p>
+ */
+@Service
+@Slf4j
+public class ExamBundleService {
+
+    public static final String ALGORITHM = "AES-256-GCM";
+
+    private static final byte[] MAGIC = "CSB1".getBytes(StandardCharsets.US_ASCII);
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    private final ExamRepository examRepository;
+    private final AnswerKeyCache answerKeyCache;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final byte[] secret;
+    private final long downloadLeadMillis;
+
+    private final Map<UUID, Bundle> bundles = new ConcurrentHashMap<>();
+
+    public ExamBundleService(ExamRepository examRepository,
+                             AnswerKeyCache answerKeyCache,
+                             ObjectMapper objectMapper,
+                             @Value("${exam.bundle.enabled:false}") boolean enabled,
+                             @Value("${exam.bundle.secret:}") String secret,
+                             @Value("${exam.bundle.download-lead-ms:900000}") long downloadLeadMillis) {
+        this.examRepository = examRepository;
+        this.answerKeyCache = answerKeyCache;
+        this.objectMapper = objectMapper;
+        this.downloadLeadMillis = downloadLeadMillis;
+        this.enabled = enabled;
+        if (enabled && (secret == null || secret.isBlank())) {
+            throw new IllegalStateException("exam.bundle.enabled is true but exam.bundle.secret is not set; "
+                    + "every replica must share the same secret");
+        }
+        this.secret = enabled ? secret.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Gói đề đã mã hóa, chỉ tải được khi kỳ thi đã lên lịch và sắp (hoặc đã) bắt đầu.
+     */
+    public Bundle getBundle(UUID examId) {
+        requireEnabled();
+        CompiledAnswerKey key = answerKeyCache.get(examId);
+        if (key.isAdaptive()) {
+            // Gói đề chứa cả ngân hàng câu của đề thích ứng: không phát trước
+            throw new ValidationException("Adaptive exams are delivered one question at a time");
+        }
+        Bundle bundle = current(key);
+        if (Instant.now().isBefore(bundle.availableFrom)) {
+            throw new ValidationException("Exam bundle is not available before " + bundle.availableFrom);
+        }
+        return bundle;
+    }
+
+    /**
+     * Gói ứng với đúng phiên bản đáp án đang dùng để chấm (dựng nếu chưa có).
+     */
+    public Bundle current(CompiledAnswerKey key) {
+        requireEnabled();
+        Bundle bundle = bundles.get(key.getExamId());
+        if (bundle == null || bundle.source != key) {
+            bundle = build(key.getExamId(), key);
+            bundles.put(key.getExamId(), bundle);
+        }
+        return bundle;
+    }
+
+    /**
+     * Khóa giải mã gói. Chỉ trả cho thí sinh đã có lượt làm bài (tức kỳ thi đã mở).
+     */
+    public byte[] keyFor(CompiledAnswerKey key) {
+        return current(key).key.clone();
+    }
+
+    @TransactionalEventListener
+    public void onTimelineChanged(ExamTimelineChangedEvent event) {
+        bundles.remove(event.examId());
+    }
+
+    private Bundle build(UUID examId, CompiledAnswerKey key) {
+        Exam exam = examRepository.findActiveById(examId)
+                .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+        if (exam.getStartAt() == null
+                || (exam.getStatus() != Exam.ExamStatus.SCHEDULED && exam.getStatus() != Exam.ExamStatus.OPEN)) {
+            throw new ValidationException("Exam is not scheduled");
+        }
+
+        byte[] plaintext;
+        try {
+            plaintext = objectMapper.writeValueAsBytes(canonicalPaper(key));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize bundle of exam " + examId, ex);
+        }
+
+        byte[] keyBytes = deriveKey(examId, plaintext);
+        // IV suy ra từ khóa: khóa gắn với digest bản rõ nên cặp (khóa, IV) không bị dùng lại
+        // cho hai bản rõ khác nhau, và các replica sinh ra gói giống hệt nhau.
+        byte[] iv = Arrays.copyOf(hmac(keyBytes, "iv".getBytes(StandardCharsets.US_ASCII)), IV_LENGTH);
+        byte[] ciphertext;
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(keyBytes, "AES"), new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(MAGIC);
+            ciphertext = cipher.doFinal(plaintext);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Could not encrypt bundle of exam " + examId, ex);
+        }
+
+        byte[] body = ByteBuffer.allocate(MAGIC.length + IV_LENGTH + ciphertext.length)
+                .put(MAGIC).put(iv).put(ciphertext)
+                .array();
+        log.info("Built bundle for exam {} ({} questions, {} bytes)", examId, key.getQuestionCount(), body.length);
+        return new Bundle(key, keyBytes, body, etagOf(body), exam.getStartAt().minusMillis(downloadLeadMillis));
+    }
+
+    private byte[] deriveKey(UUID examId, byte[] plaintext) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(plaintext);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+        ByteBuffer info = ByteBuffer.allocate(16 + digest.length)
+                .putLong(examId.getMostSignificantBits())
+                .putLong(examId.getLeastSignificantBits())
+                .put(digest);
+        return hmac(secret, info.array());
+    }
+
+    private void requireEnabled() {
+        if (!enabled) {
+            throw new ValidationException("Exam bundles are disabled");
+        }
+    }
+
+    private static AttemptPaperResponse canonicalPaper(CompiledAnswerKey key) {
+        int n = key.getQuestionCount();
+        List<AttemptPaperResponse.PaperQuestion> questions = new ArrayList<>(n);
+        for (int ordinal = 0; ordinal < n; ordinal++) {
+            AttemptPaperResponse.PaperQuestion q = new AttemptPaperResponse.PaperQuestion();
+            q.questionId = key.getQuestionId(ordinal);
+            q.position = ordinal + 1;
+            q.type = key.getType(ordinal) != null ? key.getType(ordinal).name() : null;
+            q.text = key.getQuestionText(ordinal);
+            int optionCount = key.getOptionCount(ordinal);
+            q.options = new ArrayList<>(optionCount);
+            for (int option = 0; option < optionCount; option++) {
+                q.options.add(key.getOptionText(ordinal, option));
+            }
+            q.score = key.getPoints(ordinal);
+            questions.add(q);
+        }
+        AttemptPaperResponse paper = new AttemptPaperResponse();
+        paper.examId = key.getExamId();
+        paper.questions = questions;
+        return paper;
+    }
+
+    private static byte[] hmac(byte[] key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String etagOf(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public static final class Bundle {
+        private final CompiledAnswerKey source;
+        private final byte[] key;
+        private final byte[] body;
+        private final String etag;
+        private final Instant availableFrom;
+
+        private Bundle(CompiledAnswerKey source, byte[] key, byte[] body, String etag, Instant availableFrom) {
+            this.source = source;
+            this.key = key;
+            this.body = body;
+            this.etag = etag;
+            this.availableFrom = availableFrom;
+        }
+
+        public byte[] body() { return body; }
+        public String etag() { return etag; }
+        public Instant availableFrom() { return availableFrom; }
+
+        public boolean matches(String ifNoneMatch) {
+            return ExamPaperCache.etagMatches(etag, ifNoneMatch);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.dao.examservice.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Một sự kiện cho cả nhóm thí sinh của một kỳ thi, thay cho một thông báo mỗi thí sinh.
+ * Được {@link ExamCohortNotifier} mở rộng thành thông báo từng người sau khi transaction commit.
+ *
+ * @param recipients danh sách người nhận cụ thể; {@code null} nghĩa là mọi thí sinh đã đăng ký
+ */
+public record ExamCohortEvent(UUID examId, Kind kind, String examTitle, Instant startAt, List<UUID> recipients) {
+
+    public enum Kind {
+        SCHEDULED,
+        OPENED,
+        CANCELLED
+    }
+
+    public static ExamCohortEvent wholeCohort(UUID examId, Kind kind, String examTitle, Instant startAt) {
+        return new ExamCohortEvent(examId, kind, examTitle, startAt, null);
+    }
+}
@@ -0,0 +1,184 @@
+package com.dao.examservice.service;
+
+import com.dao.common.notification.NotificationMessage;
+import com.dao.common.notification.NotificationProducerService;
+import com.dao.examservice.repository.ExamCohortOutboxJdbcRepository;
+import com.dao.examservice.repository.ExamRegistrationJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mở rộng {@link ExamCohortEvent} thành thông báo cho từng thí sinh.
+ *
+ * <p>Sự kiện được ghi vào outbox ({@link ExamCohortOutboxJdbcRepository}) ngay trong transaction
+ * phát ra nó: rollback thì không có thông báo, commit thì thông báo không mất dù hàng đợi đầy
+ * hay service khởi động lại. Sau commit, một worker riêng được đánh thức để gửi ngay (request
+ * đổi trạng thái / lên lịch trả về ngay, không phụ thuộc số thí sinh); ngoài ra outbox được
+ * quét định kỳ trên mọi replica. Worker đọc danh sách thí sinh bằng một query và gửi qua Kafka,
+ * rồi xóa dòng outbox. Gửi ít nhất một lần: replica dừng giữa chừng thì cả nhóm được gửi lại.</p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExamCohortNotifier {
+
+    private final ExamRegistrationJdbcRepository registrationJdbcRepository;
+    private final ExamCohortOutboxJdbcRepository outboxRepository;
+    private final NotificationProducerService notificationProducerService;
+
+    /** Thời gian một replica giữ dòng outbox; phải dài hơn thời gian gửi cho cohort lớn nhất. */
+    @Value("${exam.notification.cohort-claim-ttl-ms:900000}")
+    private long claimTtlMillis;
+
+    @Value("${exam.notification.cohort-max-attempts:5}")
+    private int maxAttempts;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        try {
+            outboxRepository.createTableIfMissing();
+        } catch (DataAccessException ex) {
+            log.warn("Could not create cohort outbox table: {}", ex.getMessage());
+        }
+        // Chỉ là tín hiệu đánh thức: đã có một tín hiệu chờ thì bỏ tín hiệu mới, sự kiện nằm trong outbox
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+                r -> {
+                    Thread t = new Thread(r, "exam-cohort-notify");
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * Ghi sự kiện vào outbox trong transaction đang phát nó.
+     */
+    @EventListener
+    public void record(ExamCohortEvent event) {
+        outboxRepository.insert(event.examId(), event.kind().name(), event.examTitle(), event.startAt(),
+                event.recipients());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCommitted(ExamCohortEvent event) {
+        executor.execute(this::drain);
+    }
+
+    /**
+     * Gửi mọi sự kiện đang chờ trong outbox. Một lần gọi trùng lúc lần khác đang chạy chỉ
+     * đánh dấu để lần đang chạy quét thêm một vòng.
+     */
+    @Scheduled(fixedDelayString = "${exam.notification.cohort-poll-interval-ms:10000}")
+    public void drain() {
+        drainRequested.set(true);
+        while (drainRequested.get() && draining.compareAndSet(false, true)) {
+            try {
+                drainRequested.set(false);
+                Optional<ExamCohortOutboxJdbcRepository.Entry> entry;
+                while ((entry = outboxRepository.claimNext(Duration.ofMillis(claimTtlMillis), maxAttempts))
+                        .isPresent()) {
+                    deliver(entry.get());
+                }
+            } catch (DataAccessException ex) {
+                log.warn("Could not read cohort outbox: {}", ex.getMessage());
+            } finally {
+                draining.set(false);
+            }
+        }
+    }
+
+    private void deliver(ExamCohortOutboxJdbcRepository.Entry entry) {
+        ExamCohortEvent event = new ExamCohortEvent(entry.examId(), ExamCohortEvent.Kind.valueOf(entry.kind()),
+                entry.examTitle(), entry.startAt(), entry.recipients());
+        try {
+            fanOut(event);
+            outboxRepository.delete(entry.id());
+        } catch (RuntimeException ex) {
+            if (entry.attempts() >= maxAttempts) {
+                log.error("Giving up {} notification for exam {} after {} attempts: {}",
+                        event.kind(), event.examId(), entry.attempts(), ex.getMessage());
+            } else {
+                log.warn("{} notification for exam {} failed, will retry after the claim expires: {}",
+                        event.kind(), event.examId(), ex.getMessage());
+            }
+        }
+    }
+
+    private void fanOut(ExamCohortEvent event) {
+        int[] sent = new int[1];
+        if (event.recipients() != null) {
+            event.recipients().forEach(userId -> send(event, userId, sent));
+        } else {
+            registrationJdbcRepository.streamUserIds(event.examId(), userId -> send(event, userId, sent));
+        }
+        log.info("Sent {} {} notifications for exam {}", sent[0], event.kind(), event.examId());
+    }
+
+    private void send(ExamCohortEvent event, UUID userId, int[] sent) {
+        try {
+            notificationProducerService.sendNotification(toMessage(event, userId));
+            sent[0]++;
+        } catch (Exception e) {
+            log.error("Failed to send {} notification to user {}: {}", event.kind(), userId, e.getMessage());
+        }
+    }
+
+    private NotificationMessage toMessage(ExamCohortEvent event, UUID userId) {
+        NotificationMessage msg = new NotificationMessage();
+        msg.setRecipientUserId(userId.toString());
+        switch (event.kind()) {
+            case SCHEDULED -> {
+                String startTime = event.startAt() != null ? event.startAt().toString() : "N/A";
+                msg.setTitle("Exam Scheduled");
+                msg.setContent("Bạn đã được đăng ký thi. '" + event.examTitle() + "'. Thời gian bắt đầu: " + startTime);
+                msg.setType("INFO");
+                msg.setSeverity("Trung bình");
+            }
+            case OPENED -> {
+                msg.setTitle("Exam Opened");
+                msg.setContent("Exam '" + event.examTitle() + "' is now open. You can start your exam.");
+                msg.setType("INFO");
+                msg.setSeverity("high");
+            }
+            case CANCELLED -> {
+                msg.setTitle("Exam Cancelled");
+                msg.setContent("Exam '" + event.examTitle() + "' has been cancelled.");
+                msg.setType("ERROR");
+                msg.setSeverity("high");
+            }
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("examId", event.examId().toString());
+        data.put("event", event.kind().name());
+        msg.setData(data);
+        return msg;
+    }
+}
@@ -0,0 +1,275 @@
+package com.dao.examservice.service;
+
+import com.dao.common.dto.ApiResponse;
+import com.dao.examservice.dto.response.QuestionResponse;
+import com.dao.examservice.entity.Exam;
+import com.dao.examservice.entity.ExamQuestion;
+import com.dao.examservice.entity.Question;
+import com.dao.examservice.exception.ForbiddenException;
+import com.dao.examservice.exception.ResourceNotFoundException;
+import com.dao.examservice.repository.ExamQuestionJdbcRepository;
+import com.dao.examservice.repository.ExamRepository;
+import com.dao.examservice.repository.ExamTimelineJdbcRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Đề thi ({@code GET /api/v1/exams/{id}/questions}) đã serialize sẵn thành mảng byte bất biến
+ * kèm ETag, phục vụ thẳng từ bộ nhớ.
+ *
+ * <p>Mỗi đề chỉ được dựng một lần (một query fetch join) dù nhiều request tới cùng lúc.
+ * Invalidate chạy sau khi transaction commit.
+ * Job định kỳ dựng sẵn đề và đáp án cho các kỳ thi sắp bắt đầu, loại bản đã cũ (so sánh
+ * cùng dấu phiên bản với {@link AnswerKeyCache}) và bỏ đề lâu không ai đọc.</p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExamPaperCache {
+
+    private final ExamRepository examRepository;
+    private final ExamQuestionJdbcRepository examQuestionJdbcRepository;
+    private final ExamTimelineJdbcRepository timelineRepository;
+    private final AnswerKeyCache answerKeyCache;
+    private final ObjectMapper objectMapper;
+
+    @Value("${exam.paper.prewarm-lead-ms:600000}")
+    private long prewarmLeadMillis;
+
+    @Value("${exam.paper.idle-eviction-ms:1800000}")
+    private long idleEvictionMillis;
+
+    private final Map<UUID, Paper> papers = new ConcurrentHashMap<>();
+
+    public Paper get(UUID examId) {
+        Paper paper = papers.computeIfAbsent(examId, this::build);
+        paper.lastAccessMillis = System.currentTimeMillis();
+        return paper;
+    }
+
+    /**
+     * Đề cho {@code GET /exams/{id}/questions}. Đề của kỳ thi thích ứng là cả ngân hàng câu mà
+     * thí sinh chỉ được thấy từng câu khi làm bài, nên chỉ {@code staff} mới được xem.
+     */
+    public Paper getForViewer(UUID examId, boolean staff) {
+        Paper paper = get(examId);
+        if (paper.adaptive() && !staff) {
+            throw new ForbiddenException("Questions of adaptive exam " + examId + " are only available to staff");
+        }
+        return paper;
+    }
+
+    public void invalidateExam(UUID examId) {
+        afterCommit(() -> papers.remove(examId));
+    }
+
+    public void invalidateQuestions(Collection<UUID> questionIds) {
+        if (questionIds.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = List.copyOf(questionIds);
+        afterCommit(() -> papers.values().removeIf(paper -> paper.containsAny(ids)));
+    }
+
+    /**
+     * Dựng sẵn đề và đáp án cho các kỳ thi bắt đầu trong khoảng {@code prewarm-lead-ms} tới.
+     */
+    @Scheduled(fixedDelayString = "${exam.paper.prewarm-interval-ms:60000}")
+    public void prewarm() {
+        Instant now = Instant.now();
+        List<UUID> starting;
+        try {
+            starting = timelineRepository.findStartingBetween(now.minusMillis(prewarmLeadMillis),
+                    now.plusMillis(prewarmLeadMillis));
+        } catch (DataAccessException ex) {
+            log.warn("Could not load upcoming exams for pre-warming: {}", ex.getMessage());
+            return;
+        }
+        for (UUID examId : starting) {
+            try {
+                if (!papers.containsKey(examId)) {
+                    get(examId);
+                    log.info("Pre-warmed paper for exam {}", examId);
+                }
+                answerKeyCache.get(examId);
+            } catch (RuntimeException ex) {
+                log.warn("Could not pre-warm exam {}: {}", examId, ex.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${exam.answer-key.validate-interval-ms:30000}")
+    public void evictStale() {
+        if (papers.isEmpty()) {
+            return;
+        }
+        long idleBefore = System.currentTimeMillis() - idleEvictionMillis;
+        papers.values().removeIf(paper -> paper.lastAccessMillis < idleBefore);
+
+        UUID[] examIds = papers.keySet().toArray(new UUID[0]);
+        Map<UUID, ExamQuestionJdbcRepository.ContentVersion> current = examQuestionJdbcRepository.loadVersions(examIds);
+        for (UUID examId : examIds) {
+            Paper paper = papers.get(examId);
+            if (paper != null && !paper.version.equals(current.getOrDefault(examId, EMPTY_VERSION))) {
+                papers.remove(examId, paper);
+                log.info("Paper for exam {} is stale, evicted", examId);
+            }
+        }
+    }
+
+    private static final ExamQuestionJdbcRepository.ContentVersion EMPTY_VERSION =
+            new ExamQuestionJdbcRepository.ContentVersion(0, 0L, 0L);
+
+    private Paper build(UUID examId) {
+        Exam exam = examRepository.findByIdWithQuestions(examId)
+                .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+
+        List<ExamQuestion> examQuestions = new ArrayList<>(exam.getExamQuestions());
+        examQuestions.sort(Comparator.comparing(ExamQuestion::getDisplayOrder,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+
+        List<QuestionResponse> questions = new ArrayList<>(examQuestions.size());
+        UUID[] questionIds = new UUID[examQuestions.size()];
+        long maxUpdatedAt = 0L;
+        long layoutDigest = 0L;
+        for (int i = 0; i < examQuestions.size(); i++) {
+            ExamQuestion eq = examQuestions.get(i);
+            Question q = eq.getQuestion();
+            layoutDigest ^= ExamQuestionJdbcRepository.ContentVersion.placementDigest(
+                    q.getId(), eq.getDisplayOrder(), eq.getScore());
+            questions.add(toQuestionResponse(q));
+            questionIds[i] = q.getId();
+            Instant updatedAt = q.getUpdatedAt() != null ? q.getUpdatedAt() : q.getCreatedAt();
+            if (updatedAt != null) {
+                maxUpdatedAt = Math.max(maxUpdatedAt, updatedAt.toEpochMilli());
+            }
+        }
+
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(ApiResponse.success(questions));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize paper of exam " + examId, ex);
+        }
+        log.debug("Built paper for exam {} ({} questions, {} bytes)", examId, questions.size(), body.length);
+        return new Paper(examId, body, etagOf(body), questionIds, Boolean.TRUE.equals(exam.getAdaptive()),
+                new ExamQuestionJdbcRepository.ContentVersion(questionIds.length, maxUpdatedAt, layoutDigest));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+
+    private static QuestionResponse toQuestionResponse(Question q) {
+        QuestionResponse r = new QuestionResponse();
+        r.id = q.getId();
+        r.type = q.getType();
+        r.content = q.getContent();
+        r.difficulty = q.getDifficulty();
+        r.explanation = q.getExplanation();
+        r.score = q.getScore();
+        r.text = q.getText();
+        r.createdAt = q.getCreatedAt();
+        r.updatedAt = q.getUpdatedAt();
+        return r;
+    }
+
+    /**
+     * {@code If-None-Match} khớp ETag: danh sách nhiều tag, tag yếu ({@code W/}) hoặc {@code *}.
+     */
+    static boolean etagMatches(String etag, String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.strip();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String etagOf(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Đề đã serialize. {@link #body()} không được sửa (dùng chung giữa các request).
+     */
+    public static final class Paper {
+        private final UUID examId;
+        private final byte[] body;
+        private final String etag;
+        private final UUID[] questionIds;
+        private final boolean adaptive;
+        private final ExamQuestionJdbcRepository.ContentVersion version;
+        private volatile long lastAccessMillis = System.currentTimeMillis();
+
+        private Paper(UUID examId, byte[] body, String etag, UUID[] questionIds, boolean adaptive,
+                      ExamQuestionJdbcRepository.ContentVersion version) {
+            this.examId = examId;
+            this.body = body;
+            this.etag = etag;
+            this.questionIds = questionIds;
+            this.adaptive = adaptive;
+            this.version = version;
+        }
+
+        public UUID examId() { return examId; }
+        public byte[] body() { return body; }
+        public String etag() { return etag; }
+        public boolean adaptive() { return adaptive; }
+
+        public boolean matches(String ifNoneMatch) {
+            return etagMatches(etag, ifNoneMatch);
+        }
+
+        private boolean containsAny(Collection<UUID> ids) {
+            for (UUID id : questionIds) {
+                if (ids.contains(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
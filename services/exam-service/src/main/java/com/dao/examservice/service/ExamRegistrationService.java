@@ -0,0 +1,190 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.dto.response.BulkRegistrationResponse;
+import com.dao.examservice.entity.Exam;
+import com.dao.examservice.exception.ResourceNotFoundException;
+import com.dao.examservice.exception.ValidationException;
+import com.dao.examservice.repository.ExamRegistrationJdbcRepository;
+import com.dao.examservice.repository.ExamRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Đăng ký thí sinh hàng loạt cho một kỳ thi.
+ *
+ * <p>Id trùng trong request được loại trong bộ nhớ; id đã có đăng ký còn hiệu lực được loại
+ * ngay trong câu lệnh ghi (một câu lệnh cho mỗi lô vài nghìn id), không cần nạp entity. Thí
+ * sinh có đăng ký đã hủy được đăng ký lại trên chính dòng đó. Mỗi thí sinh nhận một kết quả
+ * riêng theo đúng thứ tự gửi lên.</p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExamRegistrationService {
+
+    private static final Pattern CSV_SEPARATOR = Pattern.compile("[,;\\s]+");
+
+    private final ExamRepository examRepository;
+    private final ExamRegistrationJdbcRepository registrationJdbcRepository;
+    private final ScheduleConflictService scheduleConflictService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${exam.registration.max-bulk-size:100000}")
+    private int maxBulkSize;
+
+    /**
+     * Đăng ký theo danh sách id. Trừ khi {@code allowConflicts}, cả lô bị từ chối nếu có thí
+     * sinh trùng giờ với kỳ thi khác đã đăng ký, giống như khi xếp lịch kỳ thi.
+     */
+    @Transactional
+    public BulkRegistrationResponse registerBulk(UUID examId, List<String> candidateIds, boolean notify,
+                                                 boolean allowConflicts) {
+        if (candidateIds == null || candidateIds.isEmpty()) {
+            throw new ValidationException("candidateIds must not be empty");
+        }
+        if (candidateIds.size() > maxBulkSize) {
+            throw new ValidationException("Too many candidates in one request (max " + maxBulkSize + ")");
+        }
+        Exam exam = examRepository.findActiveById(examId)
+                .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+
+        UUID[] parsed = new UUID[candidateIds.size()];
+        Set<UUID> unique = new LinkedHashSet<>();
+        for (int i = 0; i < parsed.length; i++) {
+            parsed[i] = parseId(candidateIds.get(i));
+            if (parsed[i] != null) {
+                unique.add(parsed[i]);
+            }
+        }
+
+        if (!allowConflicts && !unique.isEmpty()) {
+            scheduleConflictService.requireNoConflicts(exam, unique, false);
+        }
+        Set<UUID> inserted = new HashSet<>(registerAll(exam, unique, notify));
+
+        BulkRegistrationResponse response = new BulkRegistrationResponse();
+        response.examId = examId;
+        response.requested = parsed.length;
+        response.outcomes = new ArrayList<>(parsed.length);
+        Set<UUID> seen = new HashSet<>();
+        for (int i = 0; i < parsed.length; i++) {
+            UUID id = parsed[i];
+            String status;
+            if (id == null) {
+                status = "INVALID";
+                response.invalid++;
+            } else if (!seen.add(id)) {
+                status = "DUPLICATE";
+                response.duplicates++;
+            } else if (inserted.contains(id)) {
+                status = "REGISTERED";
+                response.registered++;
+            } else {
+                status = "ALREADY_REGISTERED";
+                response.alreadyRegistered++;
+            }
+            response.outcomes.add(new BulkRegistrationResponse.Outcome(candidateIds.get(i), status));
+        }
+
+        log.info("Bulk registration for exam {}: {} requested, {} registered, {} already registered, {} invalid",
+                examId, response.requested, response.registered, response.alreadyRegistered, response.invalid);
+        return response;
+    }
+
+    /**
+     * Đọc id thí sinh từ file CSV (phân tách bằng dấu phẩy, chấm phẩy hoặc xuống dòng).
+     * Dòng tiêu đề được bỏ qua nếu không chứa id hợp lệ.
+     */
+    @Transactional
+    public BulkRegistrationResponse registerFromCsv(UUID examId, InputStream csv, boolean notify,
+                                                    boolean allowConflicts) throws IOException {
+        List<String> candidateIds = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            String line;
+            boolean first = true;
+            while ((line = reader.readLine()) != null) {
+                List<String> tokens = new ArrayList<>();
+                for (String token : CSV_SEPARATOR.split(line.strip())) {
+                    String value = stripQuotes(token);
+                    if (!value.isEmpty()) {
+                        tokens.add(value);
+                    }
+                }
+                if (first && !tokens.isEmpty() && tokens.stream().allMatch(t -> parseId(t) == null)) {
+                    first = false;
+                    continue;
+                }
+                first = false;
+                candidateIds.addAll(tokens);
+                if (candidateIds.size() > maxBulkSize) {
+                    throw new ValidationException("Too many candidates in one file (max " + maxBulkSize + ")");
+                }
+            }
+        }
+        return registerBulk(examId, candidateIds, notify, allowConflicts);
+    }
+
+    /**
+     * Đăng ký các thí sinh chưa có đăng ký còn hiệu lực trong kỳ thi (kể cả người đã hủy), trong
+     * transaction của caller. Thông báo "Exam Scheduled" chỉ gửi cho người vừa được đăng ký, sau
+     * khi commit.
+     *
+     * @return các thí sinh thực sự được đăng ký mới hoặc đăng ký lại
+     */
+    @Transactional
+    public List<UUID> registerAll(Exam exam, Collection<UUID> candidateIds, boolean notify) {
+        if (candidateIds.isEmpty()) {
+            return List.of();
+        }
+        List<UUID> distinct = new ArrayList<>(new LinkedHashSet<>(candidateIds));
+        registrationJdbcRepository.lockExam(exam.getId());
+        List<UUID> inserted = registrationJdbcRepository.insertMissing(exam.getId(), distinct);
+
+        if (notify && !inserted.isEmpty() && exam.getCourseId() != null) {
+            eventPublisher.publishEvent(new ExamCohortEvent(exam.getId(), ExamCohortEvent.Kind.SCHEDULED,
+                    exam.getTitle(), exam.getStartAt(), List.copyOf(inserted)));
+        }
+        return inserted;
+    }
+
+    private static UUID parseId(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        String value = raw.strip();
+        if (value.length() != 36) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String stripQuotes(String token) {
+        String value = token.strip();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1).strip();
+        }
+        return value;
+    }
+}
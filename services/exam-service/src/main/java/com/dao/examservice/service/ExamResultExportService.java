@@ -0,0 +1,371 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.exception.ResourceNotFoundException;
+import com.dao.examservice.exception.ValidationException;
+import com.dao.examservice.repository.ExamExportJdbcRepository;
+import com.dao.examservice.repository.ExamRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Xuất toàn bộ bài nộp và đáp án của một đề ra CSV hoặc XLSX.
+ *
+ * <p>Dòng được đọc bằng cursor một chiều ({@link ExamExportJdbcRepository}) và ghi ngay ra
+ * output stream của response, không dựng danh sách trong bộ nhớ: heap giữ nguyên dù đề có
+ * hàng chục nghìn thí sinh. CSV bắt đầu gửi byte ngay; XLSX dùng SXSSF, chỉ giữ một cửa sổ
+ * dòng trong heap, phần còn lại nằm ở file tạm (nén) cho tới khi ghi workbook.</p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExamResultExportService {
+
+    private static final String[] HEADERS = {
+            "submission_id", "student_id", "started_at", "submitted_at", "time_spent_seconds",
+            "score", "correct_answers", "wrong_answers", "total_questions", "is_final",
+            "question_order", "question_id", "selected_answer", "is_correct", "answer_score",
+            "instructor_comment"
+    };
+    private static final int CSV_BUFFER_SIZE = 64 * 1024;
+    private static final int XLSX_WINDOW_ROWS = 200;
+    private static final int XLSX_MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    private final ExamRepository examRepository;
+    private final ExamExportJdbcRepository exportRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final AnswerSheetService answerSheetService;
+    private final AnswerKeyCache answerKeyCache;
+
+    public enum Format {
+        CSV("text/csv; charset=UTF-8", "csv"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw new ValidationException("Unsupported export format: " + value + " (expected csv or xlsx)");
+            }
+        }
+    }
+
+    /**
+     * Kiểm tra đề tồn tại trước khi response bắt đầu ghi (sau đó không đổi được status).
+     *
+     * @return tên file gợi ý cho Content-Disposition
+     */
+    public String prepare(UUID examId, Format format) {
+        if (!examRepository.existsById(examId)) {
+            throw new ResourceNotFoundException("Exam not found with id: " + examId);
+        }
+        return "exam-" + examId + "-results." + format.extension;
+    }
+
+    public void export(UUID examId, Format format, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        long[] rows = new long[1];
+        try {
+            readOnly.executeWithoutResult(status -> {
+                try {
+                    rows[0] = format == Format.CSV ? writeCsv(examId, out) : writeXlsx(examId, out);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        log.info("Exported {} result rows of exam {} as {} in {} ms",
+                rows[0], examId, format, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private long writeCsv(UUID examId, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), CSV_BUFFER_SIZE);
+        // BOM để Excel nhận đúng UTF-8 (tiếng Việt trong nhận xét)
+        writer.write('\uFEFF');
+        writeCsvLine(writer, HEADERS);
+        long[] rows = new long[1];
+        String[] fields = new String[HEADERS.length];
+        exportRepository.streamResults(examId, new SheetExpander(examId, row -> {
+            fields[0] = text(row.submissionId());
+            fields[1] = text(row.studentId());
+            fields[2] = text(row.startedAt());
+            fields[3] = text(row.submittedAt());
+            fields[4] = text(row.timeSpentSeconds());
+            fields[5] = text(row.score());
+            fields[6] = text(row.correctAnswers());
+            fields[7] = text(row.wrongAnswers());
+            fields[8] = text(row.totalQuestions());
+            fields[9] = Boolean.toString(row.isFinal());
+            fields[10] = text(row.displayOrder());
+            fields[11] = text(row.questionId());
+            fields[12] = row.selectedAnswer();
+            fields[13] = text(row.isCorrect());
+            fields[14] = row.answerScore() != null ? row.answerScore().toPlainString() : null;
+            fields[15] = row.instructorComment();
+            try {
+                writeCsvLine(writer, fields);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            rows[0]++;
+        }));
+        writer.flush();
+        return rows[0];
+    }
+
+    private long writeXlsx(UUID examId, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(XLSX_WINDOW_ROWS);
+        workbook.setCompressTempFiles(true);
+        try {
+            CellStyle headerStyle = workbook.createCellStyle();
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            headerStyle.setFont(bold);
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+
+            XlsxSheets sheets = new XlsxSheets(workbook, headerStyle);
+            exportRepository.streamResults(examId, new SheetExpander(examId, row -> {
+                Row r = sheets.nextRow();
+                setCell(r, 0, text(row.submissionId()));
+                setCell(r, 1, text(row.studentId()));
+                setDate(r, 2, row.startedAt(), dateStyle);
+                setDate(r, 3, row.submittedAt(), dateStyle);
+                setNumber(r, 4, row.timeSpentSeconds());
+                setNumber(r, 5, row.score());
+                setNumber(r, 6, row.correctAnswers());
+                setNumber(r, 7, row.wrongAnswers());
+                setNumber(r, 8, row.totalQuestions());
+                r.createCell(9).setCellValue(row.isFinal());
+                setNumber(r, 10, row.displayOrder());
+                setCell(r, 11, text(row.questionId()));
+                setCell(r, 12, row.selectedAnswer());
+                if (row.isCorrect() != null) {
+                    r.createCell(13).setCellValue(row.isCorrect());
+                }
+                setNumber(r, 14, row.answerScore());
+                setCell(r, 15, row.instructorComment());
+            }));
+            workbook.write(out);
+            out.flush();
+            return sheets.rows;
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * Bung answer sheet của mỗi bài nộp đã gộp dòng thành các dòng trắc nghiệm (thứ tự câu =
+     * ordinal + 1, như {@code display_order}), trước các dòng tự luận đọc từ bảng {@code answers}.
+     * Sheet không lưu điểm câu: điểm chỉ được tính lại theo đáp án hiện tại khi đề chưa đổi câu,
+     * đáp án không sửa sau lúc nộp và kết quả đúng/sai tính lại khớp kết quả đã lưu; nếu không
+     * thì để trống.
+     */
+    private final class SheetExpander implements Consumer<ExamExportJdbcRepository.ResultRow> {
+        private final UUID examId;
+        private final Consumer<ExamExportJdbcRepository.ResultRow> sink;
+        private UUID currentSubmission;
+        private boolean expanded;
+        private CompiledAnswerKey key;
+        private boolean keyLoaded;
+
+        SheetExpander(UUID examId, Consumer<ExamExportJdbcRepository.ResultRow> sink) {
+            this.examId = examId;
+            this.sink = sink;
+        }
+
+        @Override
+        public void accept(ExamExportJdbcRepository.ResultRow row) {
+            if (!row.submissionId().equals(currentSubmission)) {
+                currentSubmission = row.submissionId();
+                expanded = row.answerSheet() != null && expand(row);
+            }
+            if (row.questionId() != null || !expanded) {
+                sink.accept(row);
+            }
+        }
+
+        private boolean expand(ExamExportJdbcRepository.ResultRow row) {
+            List<AnswerSheetService.DecodedAnswer> answers;
+            try {
+                answers = answerSheetService.decode(row.answerSheet());
+            } catch (IllegalArgumentException ex) {
+                log.warn("Unreadable answer sheet of submission {}: {}", row.submissionId(), ex.getMessage());
+                return false;
+            }
+            CompiledAnswerKey current = key();
+            boolean keyUnchanged = current != null
+                    && AnswerSheetCodec.layoutIdOf(row.answerSheet()) == current.getLayoutId()
+                    && row.submittedAt() != null
+                    && current.getMaxUpdatedAtMillis() <= row.submittedAt().toEpochMilli();
+            int emitted = 0;
+            for (AnswerSheetService.DecodedAnswer answer : answers) {
+                if (answer.isText()) {
+                    continue;
+                }
+                BigDecimal points = keyUnchanged && gradesAlike(current, answer)
+                        ? BigDecimal.valueOf(current.award(answer.ordinal(), answer.mask())).setScale(2, RoundingMode.HALF_UP)
+                        : null;
+                sink.accept(new ExamExportJdbcRepository.ResultRow(row.submissionId(), row.studentId(),
+                        row.startedAt(), row.submittedAt(), row.timeSpentSeconds(), row.score(),
+                        row.correctAnswers(), row.wrongAnswers(), row.totalQuestions(), row.isFinal(),
+                        answer.ordinal() + 1, answer.questionId(), CompiledAnswerKey.indexList(answer.mask()),
+                        answer.correct(), points, null, null));
+                emitted++;
+            }
+            return emitted > 0;
+        }
+
+        private CompiledAnswerKey key() {
+            if (!keyLoaded) {
+                keyLoaded = true;
+                try {
+                    key = answerKeyCache.get(examId);
+                } catch (RuntimeException ex) {
+                    key = null;
+                }
+            }
+            return key;
+        }
+    }
+
+    /**
+     * Đáp án hiện tại chấm câu này đúng/sai giống như lúc nộp.
+     */
+    private static boolean gradesAlike(CompiledAnswerKey key, AnswerSheetService.DecodedAnswer answer) {
+        boolean correct = answer.mask() != 0 && answer.mask() == key.getCorrectMask(answer.ordinal());
+        return correct == answer.correct();
+    }
+
+    /**
+     * Sang sheet mới khi chạm giới hạn dòng của Excel (đề lớn có thể vượt một triệu câu trả lời).
+     */
+    private static final class XlsxSheets {
+        private final SXSSFWorkbook workbook;
+        private final CellStyle headerStyle;
+        private SXSSFSheet sheet;
+        private int rowIndex;
+        private long rows;
+
+        XlsxSheets(SXSSFWorkbook workbook, CellStyle headerStyle) {
+            this.workbook = workbook;
+            this.headerStyle = headerStyle;
+            newSheet();
+        }
+
+        Row nextRow() {
+            if (rowIndex >= XLSX_MAX_ROWS) {
+                newSheet();
+            }
+            rows++;
+            return sheet.createRow(rowIndex++);
+        }
+
+        private void newSheet() {
+            int number = workbook.getNumberOfSheets() + 1;
+            sheet = workbook.createSheet(number == 1 ? "Results" : "Results " + number);
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < HEADERS.length; i++) {
+                header.createCell(i).setCellValue(HEADERS[i]);
+                header.getCell(i).setCellStyle(headerStyle);
+            }
+            sheet.createFreezePane(0, 1);
+            rowIndex = 1;
+        }
+    }
+
+    private static void writeCsvLine(Writer writer, String[] fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = fields[i];
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            // Chặn CSV injection: ô bắt đầu bằng ký tự công thức được Excel coi là công thức
+            char first = value.charAt(0);
+            boolean formula = first == '=' || first == '+' || first == '-' || first == '@';
+            if (formula || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                if (formula) {
+                    writer.write('\'');
+                }
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private static void setCell(Row row, int column, String value) {
+        if (value != null) {
+            row.createCell(column).setCellValue(value);
+        }
+    }
+
+    private static void setNumber(Row row, int column, Integer value) {
+        if (value != null) {
+            row.createCell(column).setCellValue(value);
+        }
+    }
+
+    private static void setNumber(Row row, int column, BigDecimal value) {
+        if (value != null) {
+            row.createCell(column).setCellValue(value.doubleValue());
+        }
+    }
+
+    private static void setDate(Row row, int column, Instant value, CellStyle style) {
+        if (value != null) {
+            row.createCell(column).setCellValue(Date.from(value));
+            row.getCell(column).setCellStyle(style);
+        }
+    }
+
+    private static String text(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
@@ -3,6 +3,7 @@ package com.dao.examservice.service;
 import com.dao.common.notification.NotificationMessage;
 import com.dao.common.notification.NotificationProducerService;
 import com.dao.examservice.client.CourseServiceClient;
+import com.dao.examservice.dto.request.ExamBlueprintRequest;
 import com.dao.examservice.dto.request.ExamConfigRequest;
 import com.dao.examservice.dto.request.ExamCreationRequest;
 import com.dao.examservice.dto.request.ExamScheduleRequest;
@@ -12,13 +13,12 @@ import com.dao.examservice.dto.request.UpdateProgressRequest;
 import com.dao.examservice.dto.response.EnumOptionResponse;
 import com.dao.examservice.entity.Exam;
 import com.dao.examservice.entity.ExamQuestion;
-import com.dao.examservice.entity.ExamRegistration;
-import com.dao.examservice.entity.Question;
 import com.dao.examservice.exception.ResourceNotFoundException;
 import com.dao.examservice.exception.ValidationException;
 import com.dao.examservice.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -27,6 +27,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
 
 @Service
@@ -35,13 +36,18 @@ import java.util.UUID;
 public class ExamService {
 
     private final ExamRepository examRepository;
-    private final ExamRegistrationRepository registrationRepository;
     private final ExamQuestionRepository examQuestionRepository;
-    private final QuestionRepository questionRepository;
     private final QuestionService questionService;
     private final CourseServiceClient courseServiceClient;
     private final NotificationService notificationService;
     private final NotificationProducerService notificationProducerService;
+    private final AnswerKeyCache answerKeyCache;
+    private final ExamPaperCache paperCache;
+    private final QuestionBankIndex questionBankIndex;
+    private final ExamQuestionJdbcRepository examQuestionJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExamRegistrationService registrationService;
+    private final ScheduleConflictService scheduleConflictService;
 
     @Transactional
     public Exam createExam(ExamCreationRequest request) {
@@ -75,9 +81,13 @@ public class ExamService {
         if (request.partialScoringEnabled != null) {
             exam.setPartialScoringEnabled(request.partialScoringEnabled);
         }
+        if (request.adaptive != null) {
+            exam.setAdaptive(request.adaptive);
+        }
 
         Exam savExam = examRepository.save(exam);
         log.info("Successfully created exam with ID: {}", savExam.getId());
+        eventPublisher.publishEvent(ExamTimelineChangedEvent.of(savExam));
 
         NotificationMessage msg = new NotificationMessage();
         msg.setRecipientUserId(request.createdBy.toString());
@@ -97,8 +107,10 @@ public class ExamService {
         Exam exam = examRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + id));
 
+        boolean timingChanged = false;
         if (request.durationMinutes != null) {
             validateDuration(request.durationMinutes);
+            timingChanged = !request.durationMinutes.equals(exam.getDurationMinutes());
             exam.setDurationMinutes(request.durationMinutes);
         }
         if (request.passScore != null) {
@@ -111,7 +123,11 @@ public class ExamService {
         }
 
         exam.setUpdatedAt(Instant.now());
-        return examRepository.save(exam);
+        Exam savedExam = examRepository.save(exam);
+        if (timingChanged) {
+            eventPublisher.publishEvent(ExamTimelineChangedEvent.of(savedExam));
+        }
+        return savedExam;
     }
 
     @Transactional
@@ -154,7 +170,9 @@ public class ExamService {
         }
 
         exam.setUpdatedAt(Instant.now());
-        return examRepository.save(exam);
+        Exam savedExam = examRepository.save(exam);
+        eventPublisher.publishEvent(ExamTimelineChangedEvent.of(savedExam));
+        return savedExam;
     }
 
     @Transactional(readOnly = true)
@@ -179,6 +197,8 @@ public class ExamService {
     public Exam scheduleAndRegister(UUID examId, ExamScheduleRequest request) {
         Exam exam = examRepository.findById(examId)
                 .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+        Instant previousStart = exam.getStartAt();
+        Instant previousEnd = exam.getEndAt();
 
         if (request.startAt != null && request.endAt != null) {
             validateExamDates(request.startAt, request.endAt);
@@ -190,32 +210,25 @@ public class ExamService {
             exam.setEndAt(request.endAt);
         }
 
+        // Đổi giờ thì kiểm tra cả cohort; không đổi thì chỉ kiểm tra thí sinh mới.
+        boolean windowChanged = !Objects.equals(previousStart, exam.getStartAt())
+                || !Objects.equals(previousEnd, exam.getEndAt());
+        List<UUID> candidateIds = request.candidateIds != null ? request.candidateIds : List.of();
+        if (!Boolean.TRUE.equals(request.allowConflicts) && (windowChanged || !candidateIds.isEmpty())) {
+            scheduleConflictService.requireNoConflicts(exam, candidateIds, windowChanged);
+        }
+
         if (request.candidateIds != null && !request.candidateIds.isEmpty()) {
-            List<ExamRegistration> registrations = new ArrayList<>();
-            for (UUID candidateId : request.candidateIds) {
-                ExamRegistration reg = new ExamRegistration();
-                reg.setExam(exam);
-                reg.setUserId(candidateId);
-                registrations.add(reg);
-
-                if (exam.getCourseId() != null) {
-                    NotificationMessage msg = new NotificationMessage();
-                    msg.setRecipientUserId(candidateId.toString());
-                    msg.setTitle("Exam Scheduled");
-                    String startTime = exam.getStartAt() != null ? exam.getStartAt().toString() : "N/A";
-                    msg.setContent("Bạn đã được đăng ký thi. '" + exam.getTitle() + "'. Thời gian bắt đầu: " + startTime);
-                    msg.setType("INFO");
-                    msg.setSeverity("Trung bình");
-                    notificationProducerService.sendNotification(msg);
-                }
-            }
-            registrationRepository.saveAll(registrations);
+            List<UUID> registered = registrationService.registerAll(exam, request.candidateIds, true);
+            log.info("Registered {} new candidates ({} requested) for exam {}",
+                    registered.size(), request.candidateIds.size(), examId);
         }
 
         exam.setUpdatedAt(Instant.now());
         
         Exam savedExam = examRepository.saveAndFlush(exam);
         log.info("Đã lên lịch và cập nhật thành công kỳ thi với ID: {}", savedExam.getId());
+        eventPublisher.publishEvent(ExamTimelineChangedEvent.of(savedExam));
         
         return savedExam;
     }
@@ -255,13 +268,22 @@ public class ExamService {
     public void delete(UUID id) {
         Exam exam = examRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + id));
+        boolean announced = exam.getStatus() == Exam.ExamStatus.SCHEDULED || exam.getStatus() == Exam.ExamStatus.OPEN;
         exam.softDelete();
         examRepository.save(exam);
+        eventPublisher.publishEvent(ExamTimelineChangedEvent.removed(id));
+        if (announced) {
+            // Thí sinh đã được báo lịch thi thì được báo hủy (gửi sau commit).
+            eventPublisher.publishEvent(ExamCohortEvent.wholeCohort(id, ExamCohortEvent.Kind.CANCELLED,
+                    exam.getTitle(), exam.getStartAt()));
+        }
     }
 
     @Transactional
     public void hardDelete(UUID id) {
         examRepository.deleteById(id);
+        answerKeyCache.invalidateExam(id);
+        paperCache.invalidateExam(id);
     }
 
     @Transactional
@@ -269,7 +291,9 @@ public class ExamService {
         Exam exam = examRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + id));
         exam.restore();
-        return examRepository.save(exam);
+        Exam savedExam = examRepository.save(exam);
+        eventPublisher.publishEvent(ExamTimelineChangedEvent.of(savedExam));
+        return savedExam;
     }
 
     @Transactional
@@ -295,34 +319,13 @@ public class ExamService {
 
             Exam savedExam = examRepository.saveAndFlush(exam);
             log.info("Successfully updated exam status to {} for id: {}", newStatus, savedExam.getId());
+            eventPublisher.publishEvent(ExamTimelineChangedEvent.of(savedExam));
 
             if (newStatus == Exam.ExamStatus.OPEN || newStatus == Exam.ExamStatus.CANCELLED) {
-
-                List<ExamRegistration> registrations = registrationRepository.findByExamId(savedExam.getId());
-
-                for (ExamRegistration reg : registrations) {
-                    try {
-                        NotificationMessage msg = new NotificationMessage();
-                        msg.setRecipientUserId(reg.getUserId().toString());
-                        
-                        if (newStatus == Exam.ExamStatus.OPEN) {
-                            msg.setTitle("Exam Opened");
-                            msg.setContent("Exam '" + savedExam.getTitle() + "' is now open. You can start your exam.");
-                            msg.setType("INFO"); 
-                            msg.setSeverity("high");
-                        } else {
-                            msg.setTitle("Exam Cancelled");
-                            msg.setContent("Exam '" + savedExam.getTitle() + "' has been cancelled.");
-                            msg.setType("ERROR");
-                            msg.setSeverity("high");
-                        }
-                        
-                        notificationProducerService.sendNotification(msg);
-                    } catch (Exception e) {
-
-                        log.error("Failed to send status update notification to user {}: {}", reg.getUserId(), e.getMessage());
-                    }
-                }
+                // Một sự kiện cho cả cohort; thông báo từng thí sinh được gửi sau commit.
+                eventPublisher.publishEvent(ExamCohortEvent.wholeCohort(savedExam.getId(),
+                        newStatus == Exam.ExamStatus.OPEN ? ExamCohortEvent.Kind.OPENED : ExamCohortEvent.Kind.CANCELLED,
+                        savedExam.getTitle(), savedExam.getStartAt()));
             }
             return savedExam;            
         } catch (IllegalArgumentException e) {
@@ -344,24 +347,72 @@ public class ExamService {
             );
         }
 
-        examQuestionRepository.deleteByExamId(examId);
-
-        List<ExamQuestion> examQuestions = new ArrayList<>();
+        List<ExamQuestionJdbcRepository.Placement> placements = new ArrayList<>(questionIds.size());
         for (int i = 0; i < questionIds.size(); i++) {
-            UUID questionId = questionIds.get(i);
-            Question question = questionRepository.findById(questionId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Question not found with id: " + questionId));
+            placements.add(new ExamQuestionJdbcRepository.Placement(questionIds.get(i), i + 1, null));
+        }
+        replaceExamQuestions(exam, placements);
+        notifyQuestionsGenerated(exam, questionIds.size());
 
-            ExamQuestion examQuestion = new ExamQuestion(exam, question, i + 1);
-            examQuestions.add(examQuestion);
+        return questionIds;
+    }
+
+    /**
+     * Sinh đề theo ma trận (blueprint): bốc phân tầng từng section trên {@link QuestionBankIndex}
+     * rồi ghi toàn bộ {@code exam_questions} bằng một JDBC batch, không nạp entity câu hỏi.
+     * Thứ tự câu trong đề theo thứ tự section.
+     */
+    @Transactional
+    public List<UUID> generateFromBlueprint(UUID examId, ExamBlueprintRequest request) {
+        Exam exam = examRepository.findById(examId)
+                .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+        if (request.sections == null || request.sections.isEmpty()) {
+            throw new ValidationException("Blueprint must have at least one section");
         }
 
-        examQuestionRepository.saveAll(examQuestions);
+        List<QuestionBankIndex.Stratum> strata = new ArrayList<>(request.sections.size());
+        for (int i = 0; i < request.sections.size(); i++) {
+            ExamBlueprintRequest.Section section = request.sections.get(i);
+            String label = section.label != null ? section.label : "#" + (i + 1);
+            strata.add(new QuestionBankIndex.Stratum(label, section.tags,
+                    section.minDifficulty, section.maxDifficulty, section.count));
+        }
 
-        exam.setTotalQuestions(questionIds.size());
+        List<List<UUID>> picked;
+        try {
+            picked = questionBankIndex.sampleStrata(strata);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException(e.getMessage());
+        }
+
+        List<UUID> questionIds = new ArrayList<>();
+        List<ExamQuestionJdbcRepository.Placement> placements = new ArrayList<>();
+        for (int i = 0; i < picked.size(); i++) {
+            Integer score = request.sections.get(i).score;
+            for (UUID questionId : picked.get(i)) {
+                questionIds.add(questionId);
+                placements.add(new ExamQuestionJdbcRepository.Placement(questionId, placements.size() + 1, score));
+            }
+        }
+        replaceExamQuestions(exam, placements);
+        notifyQuestionsGenerated(exam, questionIds.size());
+
+        log.info("Generated {} questions for exam {} from blueprint with {} sections",
+                questionIds.size(), examId, strata.size());
+        return questionIds;
+    }
+
+    private void replaceExamQuestions(Exam exam, List<ExamQuestionJdbcRepository.Placement> placements) {
+        examQuestionJdbcRepository.replaceExamQuestions(exam.getId(), placements);
+        answerKeyCache.invalidateExam(exam.getId());
+        paperCache.invalidateExam(exam.getId());
+
+        exam.setTotalQuestions(placements.size());
         exam.setUpdatedAt(Instant.now());
         examRepository.save(exam);
+    }
 
+    private void notifyQuestionsGenerated(Exam exam, int questionCount) {
         try {
             NotificationMessage msg = new NotificationMessage();
             
@@ -378,7 +429,7 @@ public class ExamService {
             }
             
             msg.setTitle("Tạo Đề Tự Động Thành Công");
-            msg.setContent("Hệ thống đã chọn ngẫu nhiên thành công " + questionIds.size() + " câu hỏi cho đề thi '" + exam.getTitle() + "'.");
+            msg.setContent("Hệ thống đã chọn ngẫu nhiên thành công " + questionCount + " câu hỏi cho đề thi '" + exam.getTitle() + "'.");
             msg.setType("SUCCESS");
             msg.setSeverity("low");
             
@@ -387,8 +438,6 @@ public class ExamService {
         } catch (Exception e) {
             log.error("Lỗi khi gửi thông báo generate questions: {}", e.getMessage());
         }
-
-        return questionIds;
     }
 
     @Transactional(readOnly = true)
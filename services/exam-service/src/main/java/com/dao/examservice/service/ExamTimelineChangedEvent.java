@@ -0,0 +1,22 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.entity.Exam;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Trạng thái hoặc mốc thời gian của kỳ thi vừa thay đổi; {@link ExamTimerService} đặt lại
+ * hẹn giờ mở / đóng đề sau khi transaction commit.
+ */
+public record ExamTimelineChangedEvent(UUID examId, Exam.ExamStatus status, Instant startAt, Instant endAt) {
+
+    public static ExamTimelineChangedEvent of(Exam exam) {
+        return new ExamTimelineChangedEvent(exam.getId(), exam.getStatus(), exam.getStartAt(), exam.getEndAt());
+    }
+
+    /** Kỳ thi đã bị xóa: hủy mọi hẹn giờ, không đặt lại. */
+    public static ExamTimelineChangedEvent removed(UUID examId) {
+        return new ExamTimelineChangedEvent(examId, null, null, null);
+    }
+}
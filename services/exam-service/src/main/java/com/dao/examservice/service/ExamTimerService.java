@@ -0,0 +1,219 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.entity.Exam;
+import com.dao.examservice.repository.ExamTimelineJdbcRepository;
+import com.dao.examservice.repository.SchedulerLeaseJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tự động chuyển trạng thái kỳ thi (SCHEDULED → OPEN tại {@code startAt}, OPEN → CLOSED tại
+ * {@code endAt}) và đóng các phiên thi quá hạn mà không replica nào còn giữ.
+ *
+ * <p>Chỉ một replica làm việc này tại một thời điểm: replica giữ lease {@code exam-timer}
+ * trong {@code scheduler_leases}. Định kỳ, replica giữ lease gia hạn lease, nạp các mốc sắp
+ * tới (trong {@code horizon}) vào {@link TimingWheel} và quét phiên quá hạn; mỗi tick chỉ tiến
+ * wheel, không truy vấn database. Các mốc đến hạn cùng tick được xử lý bằng một câu UPDATE.</p>
+ *
+ * <p>Hết giờ của lượt làm bài đang chạy do chính replica giữ lượt đó xử lý
+ * ({@link ExamAttemptService#expireDue}).</p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExamTimerService implements ApplicationRunner {
+
+    private static final String LEASE_NAME = "exam-timer";
+    private static final int SESSION_SWEEP_BATCH = 500;
+
+    private final SchedulerLeaseJdbcRepository leaseRepository;
+    private final ExamTimelineJdbcRepository timelineRepository;
+    private final ExamAttemptService attemptService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${exam.timer.tick-ms:1000}")
+    private long tickMillis;
+
+    @Value("${exam.timer.lease-ttl-ms:90000}")
+    private long leaseTtlMillis;
+
+    @Value("${exam.timer.horizon-ms:600000}")
+    private long horizonMillis;
+
+    /** Phiên quá hạn lâu hơn khoảng này mới bị quét, để replica đang giữ lượt làm bài tự đóng trước. */
+    @Value("${exam.timer.session-sweep-margin-ms:60000}")
+    private long sweepMarginMillis;
+
+    private final String owner = UUID.randomUUID().toString();
+    private volatile TimingWheel<ExamTimer> wheel;
+    private volatile boolean leader;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        wheel = new TimingWheel<>(tickMillis, Instant.now());
+        try {
+            leaseRepository.createTableIfMissing();
+        } catch (DataAccessException ex) {
+            log.warn("Could not create scheduler_leases table: {}", ex.getMessage());
+        }
+        renewAndReload();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (leader) {
+            try {
+                leaseRepository.release(LEASE_NAME, owner);
+            } catch (DataAccessException ex) {
+                log.debug("Could not release exam timer lease: {}", ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gia hạn lease; nếu đang giữ lease thì nạp lại các mốc sắp tới và quét phiên quá hạn.
+     */
+    @Scheduled(fixedDelayString = "${exam.timer.reload-interval-ms:30000}",
+            initialDelayString = "${exam.timer.reload-interval-ms:30000}")
+    public void renewAndReload() {
+        if (wheel == null) {
+            return;
+        }
+        boolean acquired;
+        try {
+            acquired = leaseRepository.tryAcquire(LEASE_NAME, owner, Duration.ofMillis(leaseTtlMillis));
+        } catch (DataAccessException ex) {
+            log.warn("Could not renew exam timer lease: {}", ex.getMessage());
+            acquired = false;
+        }
+        if (acquired != leader) {
+            log.info(acquired ? "Acquired exam timer lease" : "Lost exam timer lease");
+        }
+        leader = acquired;
+        if (!leader) {
+            wheel.clear();
+            return;
+        }
+
+        try {
+            Instant now = Instant.now();
+            for (ExamTimelineJdbcRepository.Transition t : timelineRepository.findTransitionsBefore(now.plusMillis(horizonMillis))) {
+                wheel.schedule(new ExamTimer(t.examId(), t.open()), t.dueAt());
+            }
+            sweepExpiredSessions(now.minusMillis(sweepMarginMillis));
+        } catch (DataAccessException ex) {
+            log.warn("Could not reload exam timers: {}", ex.getMessage());
+        }
+    }
+
+    @Scheduled(fixedRateString = "${exam.timer.tick-ms:1000}")
+    public void tick() {
+        if (!leader || wheel == null) {
+            return;
+        }
+        List<ExamTimer> due = wheel.advance(Instant.now());
+        if (due.isEmpty()) {
+            return;
+        }
+        List<UUID> opens = new ArrayList<>();
+        List<UUID> closes = new ArrayList<>();
+        for (ExamTimer timer : due) {
+            (timer.open() ? opens : closes).add(timer.examId());
+        }
+        try {
+            fire(opens, closes);
+        } catch (DataAccessException ex) {
+            log.error("Exam transitions failed ({} open, {} close), will retry on reload: {}",
+                    opens.size(), closes.size(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Đặt lại hẹn giờ cho kỳ thi vừa sửa. Replica không giữ lease bỏ qua; replica giữ lease
+     * sẽ thấy thay đổi ở lần nạp lại kế tiếp.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTimelineChanged(ExamTimelineChangedEvent event) {
+        if (!leader || wheel == null) {
+            return;
+        }
+        ExamTimer open = new ExamTimer(event.examId(), true);
+        ExamTimer close = new ExamTimer(event.examId(), false);
+        wheel.cancel(open);
+        wheel.cancel(close);
+        Instant horizon = Instant.now().plusMillis(horizonMillis);
+        if (event.status() == Exam.ExamStatus.SCHEDULED && event.startAt() != null && event.startAt().isBefore(horizon)) {
+            wheel.schedule(open, event.startAt());
+        } else if (event.status() == Exam.ExamStatus.OPEN && event.endAt() != null && event.endAt().isBefore(horizon)) {
+            wheel.schedule(close, event.endAt());
+        }
+    }
+
+    private void fire(List<UUID> opens, List<UUID> closes) {
+        List<ExamTimelineJdbcRepository.OpenedExam> opened = new ArrayList<>();
+        int closed = transactionTemplate.execute(status -> {
+            if (!opens.isEmpty()) {
+                opened.addAll(timelineRepository.openDue(opens.toArray(new UUID[0])));
+                // Thông báo mở đề được gửi sau commit (ExamCohortNotifier).
+                for (ExamTimelineJdbcRepository.OpenedExam exam : opened) {
+                    eventPublisher.publishEvent(ExamCohortEvent.wholeCohort(exam.id(), ExamCohortEvent.Kind.OPENED,
+                            exam.title(), exam.startAt()));
+                }
+            }
+            return closes.isEmpty() ? 0 : timelineRepository.closeDue(closes.toArray(new UUID[0]));
+        });
+
+        Instant horizon = Instant.now().plusMillis(horizonMillis);
+        for (ExamTimelineJdbcRepository.OpenedExam exam : opened) {
+            if (exam.endAt() != null && exam.endAt().isBefore(horizon)) {
+                wheel.schedule(new ExamTimer(exam.id(), false), exam.endAt());
+            }
+        }
+        log.info("Exam timer fired: {} opened, {} closed", opened.size(), closed);
+    }
+
+    /**
+     * Đóng phiên thi quá hạn (cộng thời gian ân hạn) mà không replica nào đóng: lượt làm bài
+     * được chấm qua {@link ExamAttemptService#expire}, phiên không có bài làm được đóng bằng
+     * một câu UPDATE.
+     */
+    private void sweepExpiredSessions(Instant cutoff) {
+        List<UUID> overdue = timelineRepository.findOverdueSubmissions(cutoff, SESSION_SWEEP_BATCH);
+        int expired = 0;
+        for (UUID submissionId : overdue) {
+            try {
+                if (attemptService.expire(submissionId)) {
+                    expired++;
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Could not auto-close attempt {}: {}", submissionId, ex.getMessage());
+            }
+        }
+        int orphanSessions = timelineRepository.closeOverdueSessionsWithoutSubmission(cutoff);
+        if (expired > 0 || orphanSessions > 0) {
+            log.info("Session sweep: auto-closed {} attempts and {} sessions without submission",
+                    expired, orphanSessions);
+        }
+    }
+
+    record ExamTimer(UUID examId, boolean open) {
+    }
+}
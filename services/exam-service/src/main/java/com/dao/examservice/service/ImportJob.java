@@ -0,0 +1,113 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.repository.ImportJobJdbcRepository;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Trạng thái một job import câu hỏi chạy nền. Worker cập nhật, request poll/SSE đọc; mỗi thay
+ * đổi được lưu qua {@link ImportJobJdbcRepository} để replica khác và lần khởi động sau đọc được.
+ */
+@Getter
+public class ImportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final UUID id;
+    private final String fileName;
+    private final String subject;
+    private final List<String> tags;
+    private final String requestedBy;
+    private final Instant createdAt;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile int imported;
+    private volatile int skipped;
+    private volatile int errors;
+    private volatile List<String> errorDetails = List.of();
+    private volatile int nearDuplicates;
+    private volatile List<String> nearDuplicateDetails = List.of();
+    private volatile String message;
+
+    @Getter(AccessLevel.NONE)
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    ImportJob(UUID id, String fileName, String subject, List<String> tags, String requestedBy, Instant createdAt) {
+        this.id = id;
+        this.fileName = fileName;
+        this.subject = subject;
+        this.tags = tags;
+        this.requestedBy = requestedBy;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Bản chỉ đọc của một job đã lưu (chạy trên replica khác hoặc đã xong); không nhận SSE trực tiếp.
+     */
+    static ImportJob restore(ImportJobJdbcRepository.Row row) {
+        ImportJob job = new ImportJob(row.id(), row.fileName(), row.subject(), row.tags(), row.requestedBy(),
+                row.createdAt());
+        job.status = Status.valueOf(row.status());
+        job.startedAt = row.startedAt();
+        job.finishedAt = row.finishedAt();
+        job.imported = row.imported();
+        job.skipped = row.skipped();
+        job.errors = row.errors();
+        job.errorDetails = row.errorDetails();
+        job.nearDuplicates = row.nearDuplicates();
+        job.nearDuplicateDetails = row.nearDuplicateDetails();
+        job.message = row.message();
+        return job;
+    }
+
+    ImportJobJdbcRepository.Row toRow() {
+        return new ImportJobJdbcRepository.Row(id, fileName, subject, tags, requestedBy, status.name(),
+                imported, skipped, errors, errorDetails, nearDuplicates, nearDuplicateDetails, message,
+                createdAt, startedAt, finishedAt);
+    }
+
+    void markRunning() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    void progress(int imported, int skipped, int errors) {
+        this.imported = imported;
+        this.skipped = skipped;
+        this.errors = errors;
+    }
+
+    void complete(int imported, int skipped, int errors, List<String> errorDetails,
+                  int nearDuplicates, List<String> nearDuplicateDetails) {
+        progress(imported, skipped, errors);
+        this.errorDetails = List.copyOf(errorDetails);
+        this.nearDuplicates = nearDuplicates;
+        this.nearDuplicateDetails = List.copyOf(nearDuplicateDetails);
+        finishedAt = Instant.now();
+        status = Status.COMPLETED;
+    }
+
+    void fail(String message) {
+        this.message = message;
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    List<SseEmitter> emitters() {
+        return emitters;
+    }
+}
@@ -0,0 +1,79 @@
+package com.dao.examservice.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cây khoảng tĩnh trên các khoảng nửa mở {@code [start, end)}: mảng sắp theo {@code start}
+ * là một cây nhị phân cân bằng ngầm (gốc ở giữa mỗi đoạn), mỗi nút giữ {@code end} lớn nhất
+ * của cây con để bỏ qua cả nhánh. Dựng O(n log n), tìm chồng lấn O(log n + k).
+ * Dựng một lần rồi chỉ đọc.
+ */
+final class IntervalTree<T> {
+
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;
+    private final List<T> values;
+
+    IntervalTree(Collection<T> items, ToLongFunction<T> start, ToLongFunction<T> end) {
+        List<T> sorted = new ArrayList<>(items);
+        sorted.sort(Comparator.comparingLong(start));
+        int n = sorted.size();
+        this.values = sorted;
+        this.starts = new long[n];
+        this.ends = new long[n];
+        this.maxEnds = new long[n];
+        for (int i = 0; i < n; i++) {
+            starts[i] = start.applyAsLong(sorted.get(i));
+            ends[i] = end.applyAsLong(sorted.get(i));
+        }
+        build(0, n - 1);
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * Các khoảng giao với {@code [start, end)}; hai khoảng chỉ chạm đầu mút thì không giao.
+     */
+    List<T> overlapping(long start, long end) {
+        List<T> result = new ArrayList<>();
+        if (start < end) {
+            search(0, values.size() - 1, start, end, result);
+        }
+        return result;
+    }
+
+    private long build(int lo, int hi) {
+        if (lo > hi) {
+            return Long.MIN_VALUE;
+        }
+        int mid = (lo + hi) >>> 1;
+        long max = Math.max(ends[mid], Math.max(build(lo, mid - 1), build(mid + 1, hi)));
+        maxEnds[mid] = max;
+        return max;
+    }
+
+    private void search(int lo, int hi, long start, long end, List<T> result) {
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (maxEnds[mid] <= start) {
+                return;
+            }
+            search(lo, mid - 1, start, end, result);
+            if (starts[mid] >= end) {
+                // Nút này và cả cây con phải đều bắt đầu sau khoảng cần tìm.
+                return;
+            }
+            if (ends[mid] > start) {
+                result.add(values.get(mid));
+            }
+            lo = mid + 1;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.dto.response.ItemAnalysisResponse;
+import com.dao.examservice.exception.ResourceNotFoundException;
+import com.dao.examservice.repository.ItemAnalysisJdbcRepository;
+import com.dao.examservice.repository.SchedulerLeaseJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Phân tích câu hỏi (item analysis) tăng dần từ các bài đã nộp.
+ *
+ * <p>Job {@link #ingest()} đọc các bài nộp mới theo con trỏ {@code (submitted_at, id)} và cộng
+ * dồn vào {@code question_item_stats}: số lượt trả lời, số lượt đúng và các tổng điểm bài cần
+ * cho hệ số point-biserial; số lượt chọn từng phương án vào {@code question_option_stats}.
+ * Chỉ tính câu đã chấm ({@code is_correct} khác null); câu tự luận chờ chấm bị bỏ qua.</p>
+ *
+ * <p>Job {@link #recalibrate()} tính p-value cho mọi câu đủ số lượt trả lời (chia việc bằng
+ * fork-join) và ghi lại {@code questions.difficulty}: p-value thấp (ít người đúng) là câu khó.
+ * Cả hai job chỉ chạy trên replica giữ lease {@code item-analysis}.</p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ItemAnalysisService {
+
+    private static final String LEASE_NAME = "item-analysis";
+    private static final int CALIBRATION_SLICE = 1024;
+
+    private final ItemAnalysisJdbcRepository itemAnalysisRepository;
+    private final SchedulerLeaseJdbcRepository leaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final QuestionBankIndex questionBankIndex;
+    private final AnswerSheetService answerSheetService;
+
+    /** Bài nộp gần hơn khoảng này chưa được tính: replica khác có thể chưa ghi xong bài nộp trước đó. */
+    @Value("${exam.item-analysis.settle-delay-ms:300000}")
+    private long settleDelayMillis;
+
+    @Value("${exam.item-analysis.batch-submissions:2000}")
+    private int batchSubmissions;
+
+    @Value("${exam.item-analysis.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    @Value("${exam.item-analysis.min-responses:30}")
+    private long minResponses;
+
+    @Value("${exam.item-analysis.lease-ttl-ms:600000}")
+    private long leaseTtlMillis;
+
+    private final String owner = UUID.randomUUID().toString();
+
+    @PostConstruct
+    void createTables() {
+        try {
+            leaseRepository.createTableIfMissing();
+            itemAnalysisRepository.createTablesIfMissing();
+        } catch (DataAccessException ex) {
+            log.warn("Could not create item analysis tables: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Cộng dồn các bài nộp mới vào thống kê, từng lô; mỗi lô cùng con trỏ được ghi trong một transaction.
+     */
+    @Scheduled(fixedDelayString = "${exam.item-analysis.ingest-interval-ms:60000}",
+            initialDelayString = "${exam.item-analysis.ingest-interval-ms:60000}")
+    public void ingest() {
+        if (!holdLease()) {
+            return;
+        }
+        try {
+            Instant before = Instant.now().minusMillis(settleDelayMillis);
+            ItemAnalysisJdbcRepository.Cursor cursor = itemAnalysisRepository.readCursor();
+            long answers = 0;
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                Fold fold = new Fold(answerSheetService);
+                itemAnalysisRepository.streamGradedAnswers(cursor, before, batchSubmissions, fold::add);
+                if (fold.last == null) {
+                    break;
+                }
+                ItemAnalysisJdbcRepository.Cursor next = fold.last;
+                transactionTemplate.executeWithoutResult(status -> {
+                    itemAnalysisRepository.addItemDeltas(fold.itemDeltas());
+                    itemAnalysisRepository.addOptionPicks(fold.optionDeltas());
+                    itemAnalysisRepository.writeCursor(next);
+                });
+                cursor = next;
+                answers += fold.answers;
+                if (fold.submissions < batchSubmissions) {
+                    break;
+                }
+            }
+            if (answers > 0) {
+                log.debug("Item analysis folded {} graded answers up to {}", answers, cursor.submittedAt());
+            }
+        } catch (DataAccessException ex) {
+            log.warn("Item analysis ingest failed, will resume from the last cursor: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Hiệu chỉnh độ khó từ p-value; chỉ ghi những câu có độ khó thay đổi.
+     */
+    @Scheduled(fixedDelayString = "${exam.item-analysis.calibrate-interval-ms:3600000}",
+            initialDelayString = "${exam.item-analysis.calibrate-interval-ms:3600000}")
+    public void recalibrate() {
+        if (!holdLease()) {
+            return;
+        }
+        try {
+            List<ItemAnalysisJdbcRepository.ItemStats> items = itemAnalysisRepository.findCalibratable(minResponses);
+            if (items.isEmpty()) {
+                return;
+            }
+            int[] difficulties = new int[items.size()];
+            ForkJoinPool.commonPool().invoke(new CalibrationTask(items, difficulties, 0, items.size()));
+
+            List<UUID> changed = transactionTemplate.execute(status ->
+                    itemAnalysisRepository.updateDifficulties(items, difficulties));
+            if (changed == null || changed.isEmpty()) {
+                return;
+            }
+            Set<UUID> changedIds = new HashSet<>(changed);
+            Map<UUID, Integer> updates = new HashMap<>();
+            for (int i = 0; i < items.size(); i++) {
+                if (changedIds.contains(items.get(i).questionId())) {
+                    updates.put(items.get(i).questionId(), difficulties[i]);
+                }
+            }
+            questionBankIndex.onDifficultyChanged(updates);
+            log.info("Recalibrated difficulty of {} of {} analysed questions", updates.size(), items.size());
+        } catch (DataAccessException ex) {
+            log.warn("Difficulty recalibration failed: {}", ex.getMessage());
+        }
+    }
+
+    public ItemAnalysisResponse getItemAnalysis(UUID questionId) {
+        ItemAnalysisJdbcRepository.ItemStats stats = itemAnalysisRepository.findStats(questionId)
+                .orElseThrow(() -> new ResourceNotFoundException("No item analysis for question: " + questionId));
+        ItemAnalysisResponse r = new ItemAnalysisResponse();
+        r.questionId = questionId;
+        r.responses = stats.responses();
+        r.pValue = pValue(stats);
+        r.discrimination = pointBiserial(stats);
+        r.difficulty = stats.difficulty();
+        r.calibratedDifficulty = stats.responses() >= minResponses ? difficultyOf(r.pValue) : null;
+        for (ItemAnalysisJdbcRepository.OptionDelta option : itemAnalysisRepository.findOptionPicks(questionId)) {
+            ItemAnalysisResponse.OptionPick pick = new ItemAnalysisResponse.OptionPick();
+            pick.index = option.optionIndex();
+            pick.picks = option.picks();
+            pick.rate = stats.responses() > 0 ? (double) option.picks() / stats.responses() : 0d;
+            r.options.add(pick);
+        }
+        return r;
+    }
+
+    static double pValue(ItemAnalysisJdbcRepository.ItemStats s) {
+        return s.responses() > 0 ? (double) s.correct() / s.responses() : 0d;
+    }
+
+    /**
+     * r_pb = (n·ΣXc − k·ΣX) / √(k(n−k) · (nΣX² − (ΣX)²)), với X là điểm bài, k số lượt đúng,
+     * ΣXc tổng điểm bài của các lượt đúng. Bằng 0 khi mọi người cùng đúng/sai hoặc cùng điểm.
+     */
+    static double pointBiserial(ItemAnalysisJdbcRepository.ItemStats s) {
+        double n = s.responses();
+        double k = s.correct();
+        double spread = n * s.sumTotalSq() - s.sumTotal() * s.sumTotal();
+        double denominator = Math.sqrt(k * (n - k) * spread);
+        if (!(denominator > 0)) {
+            return 0d;
+        }
+        double r = (n * s.sumTotalCorrect() - k * s.sumTotal()) / denominator;
+        return Math.max(-1d, Math.min(1d, r));
+    }
+
+    /**
+     * p-value 1 (ai cũng đúng) là độ khó 1, p-value 0 là độ khó 10.
+     */
+    static int difficultyOf(double pValue) {
+        return (int) Math.max(1, Math.min(10, 1 + Math.round((1d - pValue) * 9d)));
+    }
+
+    private boolean holdLease() {
+        try {
+            return leaseRepository.tryAcquire(LEASE_NAME, owner, Duration.ofMillis(leaseTtlMillis));
+        } catch (DataAccessException ex) {
+            log.warn("Could not acquire item analysis lease: {}", ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Gom các câu trả lời đã chấm của một lô bài nộp thành delta theo câu hỏi / phương án.
+     * Bài có answer sheet được giải mã, bài cũ đọc từ các dòng {@code answers}.
+     */
+    private static final class Fold {
+        private final AnswerSheetService sheets;
+        private final Map<UUID, double[]> items = new HashMap<>();
+        private final Map<UUID, long[]> options = new HashMap<>();
+        private ItemAnalysisJdbcRepository.Cursor last;
+        private UUID lastSubmission;
+        private int submissions;
+        private long answers;
+
+        Fold(AnswerSheetService sheets) {
+            this.sheets = sheets;
+        }
+
+        void add(ItemAnalysisJdbcRepository.GradedAnswer a) {
+            if (!a.submissionId().equals(lastSubmission)) {
+                lastSubmission = a.submissionId();
+                last = new ItemAnalysisJdbcRepository.Cursor(a.submittedAt(), a.submissionId());
+                submissions++;
+            }
+            if (a.answerSheet() != null) {
+                try {
+                    for (AnswerSheetService.DecodedAnswer d : sheets.decode(a.answerSheet())) {
+                        if (!d.isText()) {
+                            add(d.questionId(), a.total(), d.correct(), d.mask());
+                        }
+                    }
+                } catch (IllegalArgumentException ex) {
+                    log.warn("Skipping unreadable answer sheet of submission {}: {}", a.submissionId(), ex.getMessage());
+                }
+                return;
+            }
+            if (a.questionId() != null) {
+                add(a.questionId(), a.total(), a.correct(), optionMask(a.selectedAnswer()));
+            }
+        }
+
+        private void add(UUID questionId, double total, boolean correct, int mask) {
+            answers++;
+            // responses, correct, ΣX, ΣX², ΣX của lượt đúng
+            double[] sums = items.computeIfAbsent(questionId, id -> new double[5]);
+            sums[0]++;
+            sums[2] += total;
+            sums[3] += total * total;
+            if (correct) {
+                sums[1]++;
+                sums[4] += total;
+            }
+            if (mask != 0) {
+                long[] picks = options.computeIfAbsent(questionId, id -> new long[Integer.SIZE]);
+                for (int rest = mask; rest != 0; rest &= rest - 1) {
+                    picks[Integer.numberOfTrailingZeros(rest)]++;
+                }
+            }
+        }
+
+        List<ItemAnalysisJdbcRepository.ItemDelta> itemDeltas() {
+            List<ItemAnalysisJdbcRepository.ItemDelta> deltas = new ArrayList<>(items.size());
+            items.forEach((id, s) -> deltas.add(new ItemAnalysisJdbcRepository.ItemDelta(
+                    id, (long) s[0], (long) s[1], s[2], s[3], s[4])));
+            return deltas;
+        }
+
+        List<ItemAnalysisJdbcRepository.OptionDelta> optionDeltas() {
+            List<ItemAnalysisJdbcRepository.OptionDelta> deltas = new ArrayList<>();
+            options.forEach((id, picks) -> {
+                for (int i = 0; i < picks.length; i++) {
+                    if (picks[i] > 0) {
+                        deltas.add(new ItemAnalysisJdbcRepository.OptionDelta(id, i, picks[i]));
+                    }
+                }
+            });
+            return deltas;
+        }
+
+        /**
+         * Đáp án trắc nghiệm được lưu theo chỉ số gốc ("0,2"); giá trị khác không tính phương án.
+         */
+        private static int optionMask(String selected) {
+            if (selected == null || selected.isEmpty()) {
+                return 0;
+            }
+            int mask = 0;
+            for (String token : selected.split(",")) {
+                String t = token.strip();
+                if (t.isEmpty() || t.length() > 2 || !t.chars().allMatch(Character::isDigit)) {
+                    return 0;
+                }
+                mask |= CompiledAnswerKey.bit(Integer.parseInt(t));
+            }
+            return mask;
+        }
+    }
+
+    /**
+     * Chia danh sách câu hỏi làm đôi cho tới khi đủ nhỏ rồi tính độ khó trực tiếp.
+     */
+    private static final class CalibrationTask extends RecursiveAction {
+        private final List<ItemAnalysisJdbcRepository.ItemStats> items;
+        private final int[] difficulties;
+        private final int from;
+        private final int to;
+
+        CalibrationTask(List<ItemAnalysisJdbcRepository.ItemStats> items, int[] difficulties, int from, int to) {
+            this.items = items;
+            this.difficulties = difficulties;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CALIBRATION_SLICE) {
+                for (int i = from; i < to; i++) {
+                    difficulties[i] = difficultyOf(pValue(items.get(i)));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new CalibrationTask(items, difficulties, from, mid),
+                    new CalibrationTask(items, difficulties, mid, to));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.dao.examservice.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * In-memory state of one running exam attempt (one {@code quiz_submissions} row
+ * plus its {@code exam_sessions} row and {@code answers}).
+ *
+ * <p>All mutation goes through {@link ExamAttemptService}, which synchronizes on the
+ * instance. Dirty flags record what still has to be written by the next flush.</p>
+ */
+public class LiveAttempt {
+
+    public enum State { ACTIVE, SUBMITTED }
+
+    private final UUID submissionId;
+    private final UUID sessionId;
+    private final UUID examId;
+    private final UUID userId;
+    private final Instant startedAt;
+    private final Instant deadline;
+    private final String ipAddress;
+    private final String userAgent;
+    private final int totalQuestions;
+
+    private final Map<UUID, LiveAnswer> answers = new LinkedHashMap<>();
+
+    private State state = State.ACTIVE;
+    private Instant submittedAt;
+    private SubmissionGrader.GradeResult result;
+    private boolean autoClosed;
+
+    private boolean persisted;
+    private boolean finalizePending;
+
+    public LiveAttempt(UUID submissionId, UUID sessionId, UUID examId, UUID userId,
+                       Instant startedAt, Instant deadline, String ipAddress, String userAgent,
+                       int totalQuestions) {
+        this.submissionId = submissionId;
+        this.sessionId = sessionId;
+        this.examId = examId;
+        this.userId = userId;
+        this.startedAt = startedAt;
+        this.deadline = deadline;
+        this.ipAddress = ipAddress;
+        this.userAgent = userAgent;
+        this.totalQuestions = totalQuestions;
+    }
+
+    /**
+     * Stores the latest value for a question. Earlier unflushed values for the same
+     * question are overwritten, so only the last click reaches the database.
+     */
+    LiveAnswer putAnswer(UUID answerId, UUID questionId, String selectedAnswer, Instant at) {
+        LiveAnswer answer = answers.get(questionId);
+        if (answer == null) {
+            answer = new LiveAnswer(answerId != null ? answerId : UUID.randomUUID(), questionId);
+            answers.put(questionId, answer);
+        }
+        answer.selectedAnswer = selectedAnswer;
+        answer.updatedAt = at;
+        answer.dirty = true;
+        return answer;
+    }
+
+    /**
+     * Loads an answer that is already stored in the database (not dirty).
+     */
+    void loadAnswer(AnswerRow row) {
+        LiveAnswer answer = new LiveAnswer(row.id(), row.questionId());
+        answer.selectedAnswer = row.selectedAnswer();
+        answer.updatedAt = row.updatedAt();
+        answers.put(row.questionId(), answer);
+    }
+
+    void markSubmitted(Instant at, SubmissionGrader.GradeResult gradeResult) {
+        this.state = State.SUBMITTED;
+        this.submittedAt = at;
+        this.result = gradeResult;
+        this.finalizePending = true;
+        // Graded values must be written for every answer, not only the changed ones.
+        for (LiveAnswer answer : answers.values()) {
+            answer.dirty = true;
+        }
+    }
+
+    /** Nộp tự động do hết giờ (không phải thí sinh bấm nộp). */
+    void markAutoClosed() {
+        this.autoClosed = true;
+    }
+
+    boolean hasPendingWrites() {
+        if (!persisted || finalizePending) {
+            return true;
+        }
+        for (LiveAnswer answer : answers.values()) {
+            if (answer.dirty) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies everything that is dirty and clears the flags. If the flush fails the
+     * caller hands the snapshot back to {@link #restore(Snapshot)}.
+     */
+    Snapshot drain() {
+        List<AnswerRow> rows = new ArrayList<>();
+        for (LiveAnswer answer : answers.values()) {
+            if (answer.dirty) {
+                SubmissionGrader.QuestionOutcome outcome = result != null
+                        ? result.outcomes().get(answer.questionId)
+                        : null;
+                rows.add(new AnswerRow(answer.id, answer.questionId, answer.selectedAnswer, answer.updatedAt,
+                        outcome != null ? outcome.correct() : null,
+                        outcome != null ? outcome.points() : null));
+                answer.dirty = false;
+            }
+        }
+        Snapshot snapshot = new Snapshot(this, !persisted, rows, finalizePending);
+        persisted = true;
+        finalizePending = false;
+        return snapshot;
+    }
+
+    void restore(Snapshot snapshot) {
+        if (snapshot.insert()) {
+            persisted = false;
+        }
+        if (snapshot.complete()) {
+            finalizePending = true;
+        }
+        for (AnswerRow row : snapshot.answers()) {
+            LiveAnswer answer = answers.get(row.questionId());
+            if (answer != null) {
+                answer.dirty = true;
+            }
+        }
+    }
+
+    void markPersisted() {
+        this.persisted = true;
+    }
+
+    public Map<UUID, String> answerValues() {
+        Map<UUID, String> values = new LinkedHashMap<>();
+        for (LiveAnswer answer : answers.values()) {
+            values.put(answer.questionId, answer.selectedAnswer);
+        }
+        return values;
+    }
+
+    public UUID getSubmissionId() { return submissionId; }
+    public UUID getSessionId() { return sessionId; }
+    public UUID getExamId() { return examId; }
+    public UUID getUserId() { return userId; }
+    public Instant getStartedAt() { return startedAt; }
+    public Instant getDeadline() { return deadline; }
+    public String getIpAddress() { return ipAddress; }
+    public String getUserAgent() { return userAgent; }
+    public int getTotalQuestions() { return totalQuestions; }
+    public State getState() { return state; }
+    public Instant getSubmittedAt() { return submittedAt; }
+    public SubmissionGrader.GradeResult getResult() { return result; }
+    public boolean isAutoClosed() { return autoClosed; }
+
+    static final class LiveAnswer {
+        final UUID id;
+        final UUID questionId;
+        String selectedAnswer;
+        Instant updatedAt;
+        boolean dirty;
+
+        LiveAnswer(UUID id, UUID questionId) {
+            this.id = id;
+            this.questionId = questionId;
+        }
+    }
+
+    public record AnswerRow(UUID id, UUID questionId, String selectedAnswer, Instant updatedAt,
+                            Boolean correct, BigDecimal points) {}
+
+    public record Snapshot(LiveAttempt attempt, boolean insert, List<AnswerRow> answers, boolean complete) {}
+}
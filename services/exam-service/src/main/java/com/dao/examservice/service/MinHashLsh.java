@@ -0,0 +1,257 @@
+package com.dao.examservice.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Chữ ký MinHash của câu hỏi và bảng LSH để tìm câu gần giống mà không quét cả ngân hàng.
+ *
+ * <p>Câu hỏi được cắt thành tập shingle 4 ký tự (sau khi bỏ dấu, chữ thường, gộp khoảng trắng)
+ * của nội dung câu hỏi và của từng phương án; tập không phụ thuộc thứ tự phương án. Chữ ký gồm
+ * {@link #HASHES} giá trị min-hash; tỉ lệ vị trí trùng nhau của hai chữ ký ước lượng độ tương
+ * đồng Jaccard của hai tập shingle.</p>
+ *
+ * <p>Chữ ký chia thành {@link #BANDS} dải {@link #ROWS} giá trị; hai câu là ứng viên khi trùng
+ * trọn một dải. Với 16 x 8, cặp có Jaccard 0.7 trở lên gần như chắc chắn gặp nhau, cặp dưới
+ * 0.4 hầu như không. Không thread-safe: {@link QuestionSimilarityIndex} giữ khóa khi dùng.</p>
+ */
+final class MinHashLsh {
+
+    static final int HASHES = 128;
+    static final int BANDS = 16;
+    static final int ROWS = HASHES / BANDS;
+    private static final int SHINGLE = 4;
+    /** Dọn (dựng lại bảng) khi số câu đã xóa vượt số câu còn sống và vượt ngưỡng này. */
+    private static final int COMPACT_MIN_DEAD = 1024;
+    private static final long[] SEEDS = new long[HASHES];
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EEDL);
+        for (int i = 0; i < HASHES; i++) {
+            SEEDS[i] = random.nextLong();
+        }
+    }
+
+    private final List<UUID> ids = new ArrayList<>();
+    private final List<int[]> signatures = new ArrayList<>();
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private int dead;
+    @SuppressWarnings("unchecked")
+    private final Map<Long, int[]>[] bands = new Map[BANDS];
+
+    MinHashLsh() {
+        for (int b = 0; b < BANDS; b++) {
+            bands[b] = new HashMap<>();
+        }
+    }
+
+    /**
+     * @return null nếu câu hỏi không có chữ nào để so sánh
+     */
+    static int[] signature(String questionText, List<String> options) {
+        Set<Long> shingles = new HashSet<>();
+        addShingles(shingles, 'q', questionText);
+        for (String option : options) {
+            addShingles(shingles, 'o', option);
+        }
+        if (shingles.isEmpty()) {
+            return null;
+        }
+        long[] mins = new long[HASHES];
+        Arrays.fill(mins, Long.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < HASHES; i++) {
+                long h = mix(shingle ^ SEEDS[i]);
+                if (h < mins[i]) {
+                    mins[i] = h;
+                }
+            }
+        }
+        int[] signature = new int[HASHES];
+        for (int i = 0; i < HASHES; i++) {
+            signature[i] = (int) (mins[i] >>> 32);
+        }
+        return signature;
+    }
+
+    static double similarity(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (a[i] == b[i]) {
+                same++;
+            }
+        }
+        return (double) same / HASHES;
+    }
+
+    void add(UUID id, int[] signature) {
+        Integer existing = ordinals.get(id);
+        if (existing != null && live.get(existing)) {
+            return;
+        }
+        int ordinal = ids.size();
+        ids.add(id);
+        signatures.add(signature);
+        ordinals.put(id, ordinal);
+        live.set(ordinal);
+        for (int b = 0; b < BANDS; b++) {
+            bands[b].merge(bandKey(signature, b), new int[]{1, ordinal}, MinHashLsh::append);
+        }
+    }
+
+    /**
+     * Đánh dấu xóa; khi phần lớn đã bị xóa thì dựng lại chỉ với các câu còn sống để bucket và
+     * danh sách chữ ký không phình mãi.
+     */
+    void remove(UUID id) {
+        Integer ordinal = ordinals.remove(id);
+        if (ordinal != null && live.get(ordinal)) {
+            live.clear(ordinal);
+            dead++;
+            if (dead >= COMPACT_MIN_DEAD && dead > ids.size() - dead) {
+                compact();
+            }
+        }
+    }
+
+    private void compact() {
+        List<UUID> liveIds = new ArrayList<>(ids.size() - dead);
+        List<int[]> liveSignatures = new ArrayList<>(ids.size() - dead);
+        for (int ordinal = live.nextSetBit(0); ordinal >= 0; ordinal = live.nextSetBit(ordinal + 1)) {
+            liveIds.add(ids.get(ordinal));
+            liveSignatures.add(signatures.get(ordinal));
+        }
+        clear();
+        for (int i = 0; i < liveIds.size(); i++) {
+            add(liveIds.get(i), liveSignatures.get(i));
+        }
+    }
+
+    /** Số chỗ trong bảng, kể cả câu đã xóa chưa dọn. */
+    int capacity() {
+        return ids.size();
+    }
+
+    int[] signatureOf(UUID id) {
+        Integer ordinal = ordinals.get(id);
+        return ordinal != null && live.get(ordinal) ? signatures.get(ordinal) : null;
+    }
+
+    int size() {
+        return live.cardinality();
+    }
+
+    void clear() {
+        ids.clear();
+        signatures.clear();
+        ordinals.clear();
+        live.clear();
+        dead = 0;
+        for (Map<Long, int[]> band : bands) {
+            band.clear();
+        }
+    }
+
+    /**
+     * Các câu có độ tương đồng ước lượng từ {@code threshold} trở lên, giảm dần, tối đa {@code limit}.
+     */
+    List<QuestionSimilarityIndex.Match> query(int[] signature, double threshold, int limit, UUID exclude) {
+        BitSet seen = new BitSet();
+        List<QuestionSimilarityIndex.Match> matches = new ArrayList<>();
+        for (int b = 0; b < BANDS; b++) {
+            int[] bucket = bands[b].get(bandKey(signature, b));
+            if (bucket == null) {
+                continue;
+            }
+            for (int i = 1; i <= bucket[0]; i++) {
+                int ordinal = bucket[i];
+                if (seen.get(ordinal) || !live.get(ordinal)) {
+                    continue;
+                }
+                seen.set(ordinal);
+                UUID id = ids.get(ordinal);
+                if (id.equals(exclude)) {
+                    continue;
+                }
+                double similarity = similarity(signature, signatures.get(ordinal));
+                if (similarity >= threshold) {
+                    matches.add(new QuestionSimilarityIndex.Match(id, similarity));
+                }
+            }
+        }
+        matches.sort(Comparator.comparingDouble(QuestionSimilarityIndex.Match::similarity).reversed());
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Danh sách ordinal dạng {@code [count, o1, o2, ...]}, nới gấp đôi khi đầy.
+     */
+    private static int[] append(int[] bucket, int[] single) {
+        int count = bucket[0];
+        if (count + 1 >= bucket.length) {
+            bucket = Arrays.copyOf(bucket, Math.max(4, bucket.length * 2));
+        }
+        bucket[count + 1] = single[1];
+        bucket[0] = count + 1;
+        return bucket;
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long h = band;
+        for (int i = band * ROWS, end = i + ROWS; i < end; i++) {
+            h = mix(h * 31 + signature[i]);
+        }
+        return h;
+    }
+
+    private static void addShingles(Set<Long> shingles, char prefix, String text) {
+        if (text == null) {
+            return;
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .replace('đ', 'd').replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+        String normalized = NON_WORD.matcher(folded).replaceAll(" ").trim();
+        if (normalized.isEmpty()) {
+            return;
+        }
+        if (normalized.length() < SHINGLE) {
+            shingles.add(hash(prefix, normalized, 0, normalized.length()));
+            return;
+        }
+        for (int i = 0; i + SHINGLE <= normalized.length(); i++) {
+            shingles.add(hash(prefix, normalized, i, i + SHINGLE));
+        }
+    }
+
+    /** FNV-1a 64-bit trên các ký tự, phân biệt shingle của câu hỏi và của phương án. */
+    private static long hash(char prefix, String text, int from, int to) {
+        long h = 0xcbf29ce484222325L ^ prefix;
+        for (int i = from; i < to; i++) {
+            h = (h ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /** Bước trộn cuối của SplitMix64. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,71 @@
+package com.dao.examservice.service;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Hoán vị câu hỏi / phương án cho từng thí sinh, tính lại được bất cứ lúc nào từ
+ * (examId, userId, lượt làm bài) nên không cần lưu hoán vị vào database.
+ *
+ * <p>Quy ước: {@code perm[p]} là chỉ số gốc của phần tử hiển thị ở vị trí {@code p}.
+ * Thí sinh chọn phương án hiển thị {@code d} nghĩa là phương án gốc {@code perm[d]}.</p>
+ */
+public final class PaperShuffler {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long seed;
+
+    /**
+     * @param attemptId id của lượt làm bài ({@code quiz_submissions.id}); mỗi lượt một thứ tự mới
+     */
+    public PaperShuffler(UUID examId, UUID userId, UUID attemptId) {
+        long h = mix(examId.getMostSignificantBits());
+        h = mix(h ^ examId.getLeastSignificantBits());
+        h = mix(h ^ userId.getMostSignificantBits());
+        h = mix(h ^ userId.getLeastSignificantBits());
+        h = mix(h ^ attemptId.getMostSignificantBits());
+        this.seed = mix(h ^ attemptId.getLeastSignificantBits());
+    }
+
+    /**
+     * Thứ tự câu hỏi: {@code result[position]} là ordinal câu hỏi trong đề gốc.
+     */
+    public int[] questionOrder(int questionCount) {
+        return permutation(questionCount, seed);
+    }
+
+    /**
+     * Thứ tự phương án của câu hỏi có ordinal {@code questionOrdinal} trong đề gốc.
+     */
+    public int[] optionOrder(int questionOrdinal, int optionCount) {
+        return permutation(optionCount, mix(seed + (questionOrdinal + 1L) * GOLDEN_GAMMA));
+    }
+
+    static int[] identity(int n) {
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        return perm;
+    }
+
+    private static int[] permutation(int n, long seed) {
+        int[] perm = identity(n);
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = perm[i];
+            perm[i] = perm[j];
+            perm[j] = tmp;
+        }
+        return perm;
+    }
+
+    /** Bộ trộn bit của SplitMix64. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,263 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.repository.PartitionJdbcRepository;
+import com.dao.examservice.repository.SchedulerLeaseJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Phân vùng theo tháng cho các bảng chỉ tăng: {@code answers} (theo {@code created_at}),
+ * {@code proctoring_events} và {@code media_captures} (theo {@code timestamp}).
+ *
+ * <p>Job định kỳ (một replica, qua lease): tạo trước phân vùng cho các tháng tới, rồi tách
+ * các phân vùng quá {@code exam.partitions.retention-months}, ghi ra file CSV nén gzip trong
+ * {@code exam.partitions.archive-dir} và xóa khỏi database. Cột thời gian dùng BRIN thay cho
+ * B-tree; vacuum và index chỉ còn làm việc trên phân vùng tháng hiện tại.</p>
+ *
+ * <p>Bảng thường đã có dữ liệu chỉ được chuyển khi bật {@code exam.partitions.convert-existing}:
+ * index khóa mới và ràng buộc CHECK được dựng/kiểm tra trước, không chặn ghi, nên khóa độc
+ * quyền chỉ giữ trong lúc đổi catalog (tối đa {@code exam.partitions.lock-timeout-ms} để chờ
+ * khóa). Dữ liệu cũ giữ nguyên thành phân vùng {@code <table>_before_YYYYMM}.</p>
+ *
+ * <p>File lưu trữ được ghi trên đĩa của replica đang giữ lease, nên {@code archive-dir} phải là
+ * volume dùng chung hoặc bền vững; mặc định không lưu trữ ({@code retention-months} âm).</p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PartitionMaintenanceService {
+
+    private static final String LEASE_NAME = "partition-maintenance";
+
+    private static final List<PartitionJdbcRepository.Table> TABLES = List.of(
+            new PartitionJdbcRepository.Table("answers", "created_at", "idx_answers_created_at"),
+            new PartitionJdbcRepository.Table("proctoring_events", "timestamp", "idx_proctoring_events_timestamp"),
+            new PartitionJdbcRepository.Table("media_captures", "timestamp", "idx_media_captures_timestamp"));
+
+    private final PartitionJdbcRepository partitionRepository;
+    private final SchedulerLeaseJdbcRepository leaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${exam.partitions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${exam.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    /** Giữ bao nhiêu tháng trong database; âm thì không lưu trữ. */
+    @Value("${exam.partitions.retention-months:-1}")
+    private int retentionMonths;
+
+    @Value("${exam.partitions.archive-dir:./data/partition-archive}")
+    private String archiveDir;
+
+    /** Chuyển bảng thường đang có dữ liệu thành bảng phân vùng. */
+    @Value("${exam.partitions.convert-existing:false}")
+    private boolean convertExisting;
+
+    /** Thời gian tối đa chờ khóa khi đổi cấu trúc bảng. */
+    @Value("${exam.partitions.lock-timeout-ms:5000}")
+    private long lockTimeoutMillis;
+
+    @Value("${exam.partitions.lease-ttl-ms:1800000}")
+    private long leaseTtlMillis;
+
+    private final String owner = UUID.randomUUID().toString();
+
+    @PostConstruct
+    void createTables() {
+        try {
+            leaseRepository.createTableIfMissing();
+        } catch (DataAccessException ex) {
+            log.warn("Could not create scheduler lease table: {}", ex.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${exam.partitions.maintenance-interval-ms:3600000}",
+            initialDelayString = "${exam.partitions.initial-delay-ms:60000}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!leaseRepository.tryAcquire(LEASE_NAME, owner, Duration.ofMillis(leaseTtlMillis))) {
+                return;
+            }
+        } catch (DataAccessException ex) {
+            log.warn("Partition maintenance skipped: {}", ex.getMessage());
+            return;
+        }
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (PartitionJdbcRepository.Table table : TABLES) {
+            try {
+                maintain(table, current);
+            } catch (DataAccessException ex) {
+                log.warn("Partition maintenance of {} failed, will retry: {}", table.name(), ex.getMessage());
+            }
+        }
+    }
+
+    private void maintain(PartitionJdbcRepository.Table table, YearMonth current) {
+        String kind = partitionRepository.relationKind(table.name());
+        if ("r".equals(kind) && convertExisting) {
+            convert(table, current.plusMonths(2));
+        }
+        if (!"p".equals(partitionRepository.relationKind(table.name()))) {
+            return;
+        }
+        List<PartitionJdbcRepository.Partition> partitions = partitionRepository.findPartitions(table);
+        Set<String> names = partitions.stream()
+                .map(PartitionJdbcRepository.Partition::name)
+                .collect(Collectors.toSet());
+        YearMonth firstMonth = partitions.stream()
+                .filter(p -> isLegacy(table, p.name()))
+                .map(p -> endOf(table, p.name()))
+                .max(YearMonth::compareTo)
+                .orElse(current);
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            if (!month.isBefore(firstMonth) && !names.contains(PartitionJdbcRepository.partitionName(table, month))) {
+                transactionTemplate.executeWithoutResult(status -> partitionRepository.createPartition(table, month));
+                log.info("Created partition {}", PartitionJdbcRepository.partitionName(table, month));
+            }
+        }
+        if (retentionMonths >= 0) {
+            YearMonth cutoff = current.minusMonths(retentionMonths);
+            for (PartitionJdbcRepository.Partition partition : partitions) {
+                if (!endOf(table, partition.name()).isAfter(cutoff)) {
+                    archive(table, partition);
+                }
+            }
+        }
+    }
+
+    /**
+     * Phân vùng cũ kết thúc ở {@code firstMonth}, cách tháng hiện tại đủ xa để việc chuẩn bị
+     * (có thể lâu trên bảng lớn) xong trước khi CHECK bắt đầu từ chối dòng mới. Không chuyển
+     * được thì gỡ CHECK để bảng thường tiếp tục nhận dữ liệu.
+     */
+    private void convert(PartitionJdbcRepository.Table table, YearMonth firstMonth) {
+        boolean converted = false;
+        try {
+            partitionRepository.prepareConversion(table, firstMonth, lockTimeoutMillis);
+            converted = Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                    partitionRepository.convertToPartitioned(table, firstMonth, lockTimeoutMillis)));
+        } finally {
+            if (!converted) {
+                try {
+                    partitionRepository.dropConversionCheck(table, firstMonth, lockTimeoutMillis);
+                } catch (DataAccessException ex) {
+                    log.warn("Could not drop the conversion check of {}: {}", table.name(), ex.getMessage());
+                }
+            }
+        }
+        if (converted) {
+            log.info("Converted {} to a partitioned table; existing rows kept as {}", table.name(),
+                    PartitionJdbcRepository.legacyName(table, firstMonth));
+        }
+    }
+
+    /**
+     * Tách phân vùng (nếu còn gắn, bằng DETACH CONCURRENTLY), ghi ra file rồi mới xóa. Lỗi ghi
+     * file thì giữ bảng đã tách để lần chạy sau thử lại.
+     */
+    private void archive(PartitionJdbcRepository.Table table, PartitionJdbcRepository.Partition partition) {
+        if (partition.attached() || partition.detachPending()) {
+            partitionRepository.detach(table, partition, lockTimeoutMillis);
+        }
+        Path directory = Paths.get(archiveDir, table.name());
+        Path target = directory.resolve(partition.name() + ".csv.gz");
+        Path temp = directory.resolve(partition.name() + ".csv.gz.tmp");
+        long rows;
+        try {
+            Files.createDirectories(directory);
+            rows = writeArchive(partition.name(), temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UncheckedIOException ex) {
+            log.warn("Could not archive partition {} to {}, keeping it detached: {}",
+                    partition.name(), target, ex.getMessage());
+            return;
+        }
+        partitionRepository.drop(partition.name());
+        log.info("Archived partition {} ({} rows) to {}", partition.name(), rows, target);
+    }
+
+    /**
+     * CSV (header, NULL là ô rỗng không có ngoặc kép) nạp lại được bằng
+     * {@code COPY ... FROM PROGRAM 'gunzip -c <file>' WITH (FORMAT csv, HEADER)}.
+     */
+    private long writeArchive(String partition, Path file) throws IOException {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file), 1 << 16), StandardCharsets.UTF_8), 1 << 16)) {
+            Long rows = readOnly.execute(status ->
+                    partitionRepository.streamRows(partition, values -> writeLine(writer, values),
+                            values -> writeLine(writer, values)));
+            return rows != null ? rows : 0;
+        }
+    }
+
+    private static void writeLine(Writer writer, String[] values) {
+        try {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                String value = values[i];
+                if (value == null) {
+                    continue;
+                }
+                if (value.isEmpty() || value.equals("\\.") || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                        || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                    writer.write('"');
+                    writer.write(value.replace("\"", "\"\""));
+                    writer.write('"');
+                } else {
+                    writer.write(value);
+                }
+            }
+            writer.write('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static boolean isLegacy(PartitionJdbcRepository.Table table, String partition) {
+        return partition.startsWith(table.name() + "_before_");
+    }
+
+    /** Tháng đầu tiên không còn thuộc phân vùng. */
+    private static YearMonth endOf(PartitionJdbcRepository.Table table, String partition) {
+        String suffix = partition.substring(partition.length() - 6);
+        YearMonth month = YearMonth.of(Integer.parseInt(suffix.substring(0, 4)), Integer.parseInt(suffix.substring(4)));
+        return isLegacy(table, partition) ? month : month.plusMonths(1);
+    }
+}
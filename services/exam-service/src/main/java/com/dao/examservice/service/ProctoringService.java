@@ -0,0 +1,357 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.dto.request.ProctoringEventBatchRequest;
+import com.dao.examservice.dto.response.ProctoringIngestResponse;
+import com.dao.examservice.exception.TooManyRequestsException;
+import com.dao.examservice.exception.ValidationException;
+import com.dao.examservice.repository.ProctoringJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Nhận sự kiện giám sát (webcam, chuyển tab, ...) theo lô trong lúc thi.
+ *
+ * <p>Sự kiện được đệm trong bộ nhớ và ghi xuống định kỳ bằng một câu INSERT cho cả lô;
+ * bộ đếm vi phạm mức HIGH/CRITICAL của từng phiên thi giữ trong bộ nhớ và cộng dồn vào
+ * {@code exam_sessions} cùng lúc. Khi số vi phạm chạm {@code violation_threshold_count},
+ * lượt làm bài bị chấm và đóng ngay, phiên thi chuyển {@code TERMINATED} với
+ * {@code auto_fail_reason}.</p>
+ *
+ * <p>Sau mỗi lần flush, bộ đếm được đồng bộ lại theo tổng trong database, nên vi phạm gửi
+ * tới nhiều replica vẫn được cộng đủ (trễ tối đa một chu kỳ flush).</p>
+ */
+@Service
+@Slf4j
+public class ProctoringService {
+
+    public static final String AUTO_FAIL_REASON = "VIOLATION_THRESHOLD_EXCEEDED";
+
+    /** Giống giá trị mặc định khi tạo phiên thi, dùng khi phiên chưa kịp ghi xuống. */
+    private static final int DEFAULT_VIOLATION_THRESHOLD = 3;
+    private static final List<String> SEVERITIES = List.of("LOW", "MEDIUM", "HIGH", "CRITICAL");
+    private static final int HIGH_RANK = SEVERITIES.indexOf("HIGH");
+    private static final int INSERT_CHUNK = 2000;
+
+    private final ExamAttemptService attemptService;
+    private final ProctoringJdbcRepository proctoringRepository;
+    private final int maxBatchSize;
+    private final int maxBufferedEvents;
+    private final long orphanRetentionMillis;
+    private final long idleEvictionMillis;
+
+    private final Map<UUID, SessionViolations> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<PendingEvent> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public ProctoringService(ExamAttemptService attemptService,
+                             ProctoringJdbcRepository proctoringRepository,
+                             @Value("${exam.proctoring.max-batch-size:200}") int maxBatchSize,
+                             @Value("${exam.proctoring.max-buffered-events:200000}") int maxBufferedEvents,
+                             @Value("${exam.proctoring.orphan-retention-ms:60000}") long orphanRetentionMillis,
+                             @Value("${exam.proctoring.idle-eviction-ms:900000}") long idleEvictionMillis) {
+        this.attemptService = attemptService;
+        this.proctoringRepository = proctoringRepository;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBufferedEvents = maxBufferedEvents;
+        this.orphanRetentionMillis = orphanRetentionMillis;
+        this.idleEvictionMillis = idleEvictionMillis;
+    }
+
+    public ProctoringIngestResponse ingest(UUID submissionId, UUID userId, List<ProctoringEventBatchRequest.Event> events) {
+        if (events.size() > maxBatchSize) {
+            throw new ValidationException("Too many events in one batch (max " + maxBatchSize + ")");
+        }
+        LiveAttempt attempt = attemptService.get(submissionId, userId);
+        if (attempt.getState() != LiveAttempt.State.ACTIVE) {
+            throw new ValidationException("Attempt is not in progress");
+        }
+        if (pendingCount.get() + events.size() > maxBufferedEvents) {
+            throw new TooManyRequestsException("Proctoring ingestion is overloaded, please retry", 1);
+        }
+
+        long now = System.currentTimeMillis();
+        List<PendingEvent> rows = new ArrayList<>(events.size());
+        int highCount = 0;
+        int maxRank = -1;
+        for (ProctoringEventBatchRequest.Event event : events) {
+            int rank = severityRank(event.severity);
+            if (rank >= HIGH_RANK) {
+                highCount++;
+            }
+            maxRank = Math.max(maxRank, rank);
+            rows.add(new PendingEvent(new ProctoringJdbcRepository.EventRow(UUID.randomUUID(),
+                    attempt.getSessionId(), event.eventType.strip(), event.data, SEVERITIES.get(rank),
+                    eventTime(event.timestamp, attempt.getStartedAt(), now)), now));
+        }
+
+        SessionViolations session = sessions.computeIfAbsent(attempt.getSessionId(),
+                sessionId -> load(sessionId, submissionId, now));
+        boolean crossed;
+        ProctoringIngestResponse response = new ProctoringIngestResponse();
+        synchronized (session) {
+            session.pendingHigh += highCount;
+            session.pendingMaxRank = Math.max(session.pendingMaxRank, maxRank);
+            session.lastEventMillis = now;
+            crossed = session.checkThreshold();
+            response.accepted = rows.size();
+            response.highSeverityViolationCount = session.total();
+            response.violationThreshold = session.threshold;
+            response.terminated = session.terminated;
+        }
+        pending.addAll(rows);
+        pendingCount.addAndGet(rows.size());
+
+        if (crossed) {
+            terminate(session);
+        }
+        return response;
+    }
+
+    /**
+     * Giờ do client gửi, kẹp vào khoảng {@code [startedAt, now]}: không tin đồng hồ client,
+     * và bảng phân vùng theo tháng không có phân vùng mặc định cho giờ ngoài khoảng đó.
+     */
+    private static Instant eventTime(Instant reported, Instant startedAt, long now) {
+        Instant upper = Instant.ofEpochMilli(now);
+        if (reported == null || reported.isAfter(upper)) {
+            return upper;
+        }
+        return startedAt != null && reported.isBefore(startedAt) ? startedAt : reported;
+    }
+
+    /**
+     * Ghi sự kiện đang đệm và cộng dồn bộ đếm vi phạm xuống database.
+     */
+    @Scheduled(fixedDelayString = "${exam.proctoring.flush-interval-ms:1000}")
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            flushEvents();
+            flushViolations();
+            retryTerminations();
+            evictIdle();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushEvents() {
+        List<PendingEvent> batch = new ArrayList<>();
+        PendingEvent event;
+        while ((event = pending.poll()) != null) {
+            batch.add(event);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        pendingCount.addAndGet(-batch.size());
+
+        long now = System.currentTimeMillis();
+        int requeued = 0;
+        int dropped = 0;
+        for (int from = 0; from < batch.size(); from += INSERT_CHUNK) {
+            List<PendingEvent> chunk = batch.subList(from, Math.min(batch.size(), from + INSERT_CHUNK));
+            Set<UUID> inserted;
+            try {
+                inserted = proctoringRepository.insertEvents(chunk.stream().map(PendingEvent::row).toList());
+            } catch (DataAccessException ex) {
+                log.warn("Could not write {} proctoring events, will retry: {}", chunk.size(), ex.getMessage());
+                inserted = Set.of();
+            }
+            for (PendingEvent e : chunk) {
+                if (inserted.contains(e.row().id())) {
+                    continue;
+                }
+                // Phiên thi chưa được ghi xuống (write-behind) hoặc lỗi tạm thời: thử lại sau.
+                if (now - e.receivedAtMillis() < orphanRetentionMillis) {
+                    pending.add(e);
+                    requeued++;
+                } else {
+                    dropped++;
+                }
+            }
+        }
+        pendingCount.addAndGet(requeued);
+        if (dropped > 0) {
+            log.warn("Dropped {} proctoring events whose session was never persisted", dropped);
+        }
+    }
+
+    private void flushViolations() {
+        Map<UUID, ProctoringJdbcRepository.ViolationDelta> deltas = new HashMap<>();
+        for (SessionViolations session : sessions.values()) {
+            synchronized (session) {
+                if (session.pendingHigh > 0 || session.pendingMaxRank >= 0) {
+                    deltas.put(session.sessionId, new ProctoringJdbcRepository.ViolationDelta(session.sessionId,
+                            session.pendingHigh, session.pendingMaxRank >= 0 ? SEVERITIES.get(session.pendingMaxRank) : null));
+                    session.pendingHigh = 0;
+                    session.pendingMaxRank = -1;
+                }
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<ProctoringJdbcRepository.SessionCounters> totals;
+        try {
+            totals = proctoringRepository.applyViolations(new ArrayList<>(deltas.values()));
+        } catch (DataAccessException ex) {
+            log.warn("Could not update violation counters of {} sessions, will retry: {}", deltas.size(), ex.getMessage());
+            totals = List.of();
+        }
+
+        List<SessionViolations> crossed = new ArrayList<>();
+        for (ProctoringJdbcRepository.SessionCounters counters : totals) {
+            deltas.remove(counters.sessionId());
+            SessionViolations session = sessions.get(counters.sessionId());
+            if (session == null) {
+                continue;
+            }
+            synchronized (session) {
+                session.baseHigh = counters.highSeverityCount();
+                session.threshold = counters.threshold();
+                if ("TERMINATED".equals(counters.status())) {
+                    session.terminated = true;
+                    session.terminationPersisted = true;
+                }
+                if (session.checkThreshold()) {
+                    crossed.add(session);
+                }
+            }
+        }
+        // Phiên chưa có trong database: giữ lại phần chênh lệch cho lần sau.
+        for (ProctoringJdbcRepository.ViolationDelta delta : deltas.values()) {
+            SessionViolations session = sessions.get(delta.sessionId());
+            if (session != null) {
+                synchronized (session) {
+                    session.pendingHigh += delta.highSeverityCount();
+                    if (delta.maxSeverity() != null) {
+                        session.pendingMaxRank = Math.max(session.pendingMaxRank, SEVERITIES.indexOf(delta.maxSeverity()));
+                    }
+                }
+            }
+        }
+        crossed.forEach(this::terminate);
+    }
+
+    private void retryTerminations() {
+        for (SessionViolations session : sessions.values()) {
+            if (session.terminated && !session.terminationPersisted) {
+                persistTermination(session);
+            }
+        }
+    }
+
+    private void evictIdle() {
+        long idleBefore = System.currentTimeMillis() - idleEvictionMillis;
+        sessions.values().removeIf(session -> {
+            synchronized (session) {
+                return session.lastEventMillis < idleBefore
+                        && session.pendingHigh == 0 && session.pendingMaxRank < 0
+                        && (!session.terminated || session.terminationPersisted);
+            }
+        });
+    }
+
+    private void terminate(SessionViolations session) {
+        try {
+            attemptService.terminate(session.submissionId);
+        } catch (RuntimeException ex) {
+            log.error("Could not close attempt {} after violation threshold: {}", session.submissionId, ex.getMessage());
+        }
+        persistTermination(session);
+    }
+
+    private void persistTermination(SessionViolations session) {
+        try {
+            if (proctoringRepository.terminateSession(session.sessionId, AUTO_FAIL_REASON, Instant.now())) {
+                session.terminationPersisted = true;
+                log.info("Session {} terminated: {}", session.sessionId, AUTO_FAIL_REASON);
+            } else if (proctoringRepository.findSession(session.sessionId).isPresent()) {
+                // Đã bị đóng trước đó (replica khác hoặc người giám sát).
+                session.terminationPersisted = true;
+            }
+        } catch (DataAccessException ex) {
+            log.warn("Could not terminate session {}, will retry: {}", session.sessionId, ex.getMessage());
+        }
+    }
+
+    private SessionViolations load(UUID sessionId, UUID submissionId, long now) {
+        SessionViolations session = new SessionViolations(sessionId, submissionId, now);
+        proctoringRepository.findSession(sessionId).ifPresent(counters -> {
+            session.baseHigh = counters.highSeverityCount();
+            session.threshold = counters.threshold();
+            session.terminated = "TERMINATED".equals(counters.status());
+            session.terminationPersisted = session.terminated;
+        });
+        return session;
+    }
+
+    private static int severityRank(String severity) {
+        if (severity == null || severity.isBlank()) {
+            return 0;
+        }
+        int rank = SEVERITIES.indexOf(severity.strip().toUpperCase(Locale.ROOT));
+        if (rank < 0) {
+            throw new ValidationException("Unknown severity: " + severity + " (expected one of " + SEVERITIES + ")");
+        }
+        return rank;
+    }
+
+    private record PendingEvent(ProctoringJdbcRepository.EventRow row, long receivedAtMillis) {}
+
+    /**
+     * Bộ đếm vi phạm của một phiên thi; {@code baseHigh} là tổng đã có trong database,
+     * {@code pendingHigh} là phần nhận trên node này chưa ghi xuống.
+     */
+    private static final class SessionViolations {
+        final UUID sessionId;
+        final UUID submissionId;
+        int threshold = DEFAULT_VIOLATION_THRESHOLD;
+        int baseHigh;
+        int pendingHigh;
+        int pendingMaxRank = -1;
+        volatile boolean terminated;
+        volatile boolean terminationPersisted;
+        long lastEventMillis;
+
+        SessionViolations(UUID sessionId, UUID submissionId, long now) {
+            this.sessionId = sessionId;
+            this.submissionId = submissionId;
+            this.lastEventMillis = now;
+        }
+
+        int total() {
+            return baseHigh + pendingHigh;
+        }
+
+        /** @return {@code true} đúng một lần, khi phiên vừa vượt ngưỡng */
+        boolean checkThreshold() {
+            if (terminated || threshold <= 0 || total() < threshold) {
+                return false;
+            }
+            terminated = true;
+            return true;
+        }
+    }
+}
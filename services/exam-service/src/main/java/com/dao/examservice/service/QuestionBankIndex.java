@@ -0,0 +1,386 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.repository.QuestionJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chỉ mục ngân hàng câu hỏi trong bộ nhớ để lọc và bốc câu hỏi ngẫu nhiên không cần
+ * nạp entity từ Postgres.
+ *
+ * <p>Mỗi câu hỏi có một ordinal; tag và mức độ khó ánh xạ sang {@link BitSet} các ordinal.
+ * Lọc theo tag/độ khó là phép OR/AND bitmap; bốc {@code count} câu là reservoir sampling
+ * trên các bit còn lại. Bit {@code canonical} đánh dấu bản đầu tiên của mỗi nội dung
+ * (câu có {@code content_fingerprint}), dùng để loại câu trùng khi bốc đề.</p>
+ *
+ * <p>Cập nhật khi tạo/xóa/import (sau khi transaction commit). Job định kỳ so chữ ký của
+ * ngân hàng câu hỏi trong database; khác (thay đổi từ replica khác) thì dựng lại.</p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class QuestionBankIndex {
+
+    private final QuestionJdbcRepository questionJdbcRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<UUID> ids = new ArrayList<>();
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final BitSet canonical = new BitSet();
+    private final Map<String, BitSet> byTag = new HashMap<>();
+    private final NavigableMap<Integer, BitSet> byDifficulty = new TreeMap<>();
+    private final BitSet noDifficulty = new BitSet();
+    private volatile boolean loaded;
+
+    /**
+     * Bộ lọc giống {@code QuestionRepository.search}: thuộc một trong các tag (nếu có) và
+     * độ khó trong khoảng (nếu có).
+     */
+    public List<UUID> find(Collection<String> tags, Integer minDifficulty, Integer maxDifficulty) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            BitSet matches = filter(tags, minDifficulty, maxDifficulty);
+            List<UUID> result = new ArrayList<>(matches.cardinality());
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                result.add(ids.get(i));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bốc ngẫu nhiên {@code count} câu không trùng nội dung.
+     *
+     * @throws IllegalArgumentException nếu không đủ câu hỏi
+     */
+    public List<UUID> sample(Collection<String> tags, Integer minDifficulty, Integer maxDifficulty, int count) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            BitSet matches = filter(tags, minDifficulty, maxDifficulty);
+            int poolSize = matches.cardinality();
+            matches.and(canonical);
+            int available = matches.cardinality();
+            if (available < count) {
+                throw new IllegalArgumentException(String.format(
+                        "Not enough unique questions available. Requested: %d, Available: %d (after removing %d duplicates). " +
+                        "Please adjust filter criteria (tags: %s, difficulty: %s-%s)",
+                        count, available, poolSize - available, tags, minDifficulty, maxDifficulty));
+            }
+            return reservoirSample(matches, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bốc câu hỏi theo nhiều nhóm (stratified sampling) trong một lần giữ lock. Mọi nhóm được
+     * lọc trước; nhóm ít ứng viên nhất được bốc trước và câu đã chọn bị loại khỏi các nhóm
+     * sau, nên một câu không xuất hiện hai lần trong đề.
+     *
+     * @return id đã chọn của từng nhóm, cùng thứ tự với {@code strata}
+     * @throws IllegalArgumentException nếu một nhóm không đủ câu hỏi
+     */
+    public List<List<UUID>> sampleStrata(List<Stratum> strata) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            BitSet[] candidates = new BitSet[strata.size()];
+            Integer[] order = new Integer[strata.size()];
+            for (int i = 0; i < strata.size(); i++) {
+                Stratum s = strata.get(i);
+                candidates[i] = filter(s.tags(), s.minDifficulty(), s.maxDifficulty());
+                candidates[i].and(canonical);
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingInt(i -> candidates[i].cardinality() - strata.get(i).count()));
+
+            BitSet chosen = new BitSet();
+            List<List<UUID>> result = new ArrayList<>(Collections.nCopies(strata.size(), List.of()));
+            for (int i : order) {
+                Stratum s = strata.get(i);
+                BitSet pool = candidates[i];
+                pool.andNot(chosen);
+                int available = pool.cardinality();
+                if (available < s.count()) {
+                    throw new IllegalArgumentException(String.format(
+                            "Not enough unique questions for section '%s'. Requested: %d, Available: %d " +
+                            "(tags: %s, difficulty: %s-%s)",
+                            s.label(), s.count(), available, s.tags(), s.minDifficulty(), s.maxDifficulty()));
+                }
+                List<UUID> picked = reservoirSample(pool, s.count());
+                for (UUID id : picked) {
+                    chosen.set(ordinals.get(id));
+                }
+                result.set(i, picked);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void onCreated(UUID id, Integer difficulty, boolean isCanonical, Collection<String> tags) {
+        afterCommit(() -> apply(id, difficulty, isCanonical, tags));
+    }
+
+    public void onDeleted(Collection<UUID> questionIds) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                for (UUID id : questionIds) {
+                    Integer ordinal = ordinals.get(id);
+                    if (ordinal != null) {
+                        live.clear(ordinal);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Độ khó vừa được hiệu chỉnh lại (đã commit): chuyển câu hỏi sang bitmap độ khó mới.
+     */
+    public void onDifficultyChanged(Map<UUID, Integer> difficulties) {
+        if (!loaded || difficulties.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<UUID, Integer> entry : difficulties.entrySet()) {
+                Integer ordinal = ordinals.get(entry.getKey());
+                if (ordinal == null) {
+                    continue;
+                }
+                noDifficulty.clear(ordinal);
+                for (BitSet bits : byDifficulty.values()) {
+                    bits.clear(ordinal);
+                }
+                if (entry.getValue() == null) {
+                    noDifficulty.set(ordinal);
+                } else {
+                    byDifficulty.computeIfAbsent(entry.getValue(), d -> new BitSet()).set(ordinal);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * So chữ ký (số câu hỏi, số cặp câu hỏi-tag, tổng độ khó) với database; khác thì dựng lại.
+     */
+    @Scheduled(fixedDelayString = "${exam.question-index.validate-interval-ms:300000}")
+    public void refreshIfStale() {
+        if (!loaded) {
+            return;
+        }
+        QuestionJdbcRepository.BankSignature current = questionJdbcRepository.bankSignature();
+        QuestionJdbcRepository.BankSignature local;
+        lock.readLock().lock();
+        try {
+            local = localSignature();
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!current.equals(local)) {
+            log.info("Question bank index out of date (db {} / index {}), rebuilding", current, local);
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            ids.clear();
+            ordinals.clear();
+            live.clear();
+            canonical.clear();
+            byTag.clear();
+            byDifficulty.clear();
+            noDifficulty.clear();
+
+            long start = System.nanoTime();
+            questionJdbcRepository.streamIndexRows(row -> put(row.id(), row.difficulty(), row.canonical()));
+            questionJdbcRepository.streamTags((questionId, tag) -> {
+                Integer ordinal = ordinals.get(questionId);
+                if (ordinal != null) {
+                    byTag.computeIfAbsent(tag, t -> new BitSet()).set(ordinal);
+                }
+            });
+            loaded = true;
+            log.info("Built question bank index: {} questions, {} tags in {} ms",
+                    ids.size(), byTag.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    private void apply(UUID id, Integer difficulty, boolean isCanonical, Collection<String> tags) {
+        if (!loaded) {
+            // Chưa dựng: lần dựng đầu tiên sẽ đọc câu hỏi này từ database
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int ordinal = put(id, difficulty, isCanonical);
+            for (String tag : tags) {
+                byTag.computeIfAbsent(tag, t -> new BitSet()).set(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int put(UUID id, Integer difficulty, boolean isCanonical) {
+        Integer existing = ordinals.get(id);
+        int ordinal = existing != null ? existing : ids.size();
+        if (existing == null) {
+            ids.add(id);
+            ordinals.put(id, ordinal);
+        }
+        live.set(ordinal);
+        canonical.set(ordinal, isCanonical);
+        if (difficulty == null) {
+            noDifficulty.set(ordinal);
+        } else {
+            byDifficulty.computeIfAbsent(difficulty, d -> new BitSet()).set(ordinal);
+        }
+        return ordinal;
+    }
+
+    private BitSet filter(Collection<String> tags, Integer minDifficulty, Integer maxDifficulty) {
+        BitSet result = (BitSet) live.clone();
+
+        if (tags != null && !tags.isEmpty()) {
+            BitSet tagged = new BitSet();
+            for (String tag : tags) {
+                BitSet bits = byTag.get(tag);
+                if (bits != null) {
+                    tagged.or(bits);
+                }
+            }
+            result.and(tagged);
+        }
+
+        if (minDifficulty != null || maxDifficulty != null) {
+            NavigableMap<Integer, BitSet> range = byDifficulty;
+            if (minDifficulty != null) {
+                range = range.tailMap(minDifficulty, true);
+            }
+            if (maxDifficulty != null) {
+                range = range.headMap(maxDifficulty, true);
+            }
+            BitSet inRange = new BitSet();
+            for (BitSet bits : range.values()) {
+                inRange.or(bits);
+            }
+            result.and(inRange);
+        }
+        return result;
+    }
+
+    /**
+     * Algorithm R: một lượt qua các bit, giữ {@code count} phần tử với xác suất đều.
+     */
+    private List<UUID> reservoirSample(BitSet candidates, int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int[] reservoir = new int[count];
+        int seen = 0;
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (seen < count) {
+                reservoir[seen] = i;
+            } else {
+                int j = random.nextInt(seen + 1);
+                if (j < count) {
+                    reservoir[j] = i;
+                }
+            }
+            seen++;
+        }
+        int size = Math.min(seen, count);
+        // Thứ tự trong reservoir thiên về thứ tự ordinal ở phần đầu: xáo lại
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = reservoir[i];
+            reservoir[i] = reservoir[j];
+            reservoir[j] = tmp;
+        }
+        List<UUID> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(ids.get(reservoir[i]));
+        }
+        return result;
+    }
+
+    private QuestionJdbcRepository.BankSignature localSignature() {
+        long tagCount = 0;
+        for (BitSet bits : byTag.values()) {
+            BitSet alive = (BitSet) bits.clone();
+            alive.and(live);
+            tagCount += alive.cardinality();
+        }
+        long difficultySum = 0;
+        for (Map.Entry<Integer, BitSet> entry : byDifficulty.entrySet()) {
+            BitSet alive = (BitSet) entry.getValue().clone();
+            alive.and(live);
+            difficultySum += (long) entry.getKey() * alive.cardinality();
+        }
+        return new QuestionJdbcRepository.BankSignature(live.cardinality(), tagCount, difficultySum);
+    }
+
+    public record Stratum(String label, Collection<String> tags, Integer minDifficulty, Integer maxDifficulty,
+                          int count) {}
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
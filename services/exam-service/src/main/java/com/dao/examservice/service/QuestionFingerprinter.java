@@ -0,0 +1,91 @@
+package com.dao.examservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Tính dấu vân tay 64-bit cho nội dung câu hỏi ({@code questions.content_fingerprint}).
+ *
+ * <p>Cùng ý tưởng với {@code QuestionService.normalizeQuestionContent}: khóa gồm câu hỏi,
+ * các phương án và chỉ số đáp án đúng, nhưng dùng toàn bộ nội dung (không cắt prefix) đã
+ * chuẩn hóa Unicode, chữ thường và khoảng trắng. Khóa được băm SHA-256 và lấy 8 byte đầu.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class QuestionFingerprinter {
+
+    private final ObjectMapper objectMapper;
+
+    public long fingerprint(String questionText, List<String> options, int correctAnswerIndex) {
+        StringBuilder key = new StringBuilder();
+        key.append("q:").append(normalize(questionText));
+        key.append("|o:");
+        for (int i = 0; i < options.size(); i++) {
+            if (i > 0) {
+                key.append('|');
+            }
+            key.append(normalize(options.get(i)));
+        }
+        key.append("|a:").append(correctAnswerIndex);
+        return hash(key.toString());
+    }
+
+    /**
+     * Dấu vân tay từ JSON {@code content}; nội dung không phải JSON câu hỏi thì băm nguyên văn.
+     *
+     * @return null nếu không có nội dung
+     */
+    public Long fingerprint(String content) {
+        if (content == null || content.isBlank()) {
+            return null;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(content);
+            JsonNode questionNode = node.path("question");
+            JsonNode optionsNode = node.path("options");
+            if (!questionNode.isTextual() && !optionsNode.isArray()) {
+                return hash("raw:" + normalize(content));
+            }
+            List<String> options = new ArrayList<>();
+            for (JsonNode option : optionsNode) {
+                options.add(option.asText(""));
+            }
+            int correct = node.path("correctAnswer").isInt() ? node.path("correctAnswer").asInt() : -1;
+            return fingerprint(questionNode.asText(""), options, correct);
+        } catch (JsonProcessingException ex) {
+            return hash("raw:" + normalize(content));
+        }
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String nfc = Normalizer.normalize(value, Normalizer.Form.NFC);
+        return nfc.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            long value = 0L;
+            for (int i = 0; i < Long.BYTES; i++) {
+                value = (value << 8) | (digest[i] & 0xFF);
+            }
+            return value;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.dto.response.ImportJobResponse;
+import com.dao.examservice.exception.ResourceNotFoundException;
+import com.dao.examservice.exception.TooManyRequestsException;
+import com.dao.examservice.repository.ImportJobJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chạy import Excel dưới dạng job nền.
+ *
+ * <p>Request upload chỉ lưu file ra đĩa rồi trả về job id; một pool worker có giới hạn
+ * (hàng đợi đầy thì từ chối) gọi {@link QuestionImportService#importFromFile}, mỗi lô
+ * commit riêng. Tiến độ được poll qua {@link #get} hoặc đẩy qua SSE ({@link #subscribe}).</p>
+ *
+ * <p>Trạng thái job được lưu trong bảng {@code question_import_jobs} nên replica nào cũng trả
+ * lời được khi poll, và kết quả còn sau khi khởi động lại. SSE chỉ đẩy tiến độ liên tục trên
+ * replica đang chạy job; replica khác gửi trạng thái hiện tại rồi đóng stream (EventSource tự
+ * kết nối lại). Job đang chờ hoặc đang chạy mà replica giữ nó dừng (file upload mất theo) bị
+ * đánh dấu FAILED sau {@code exam.import.stale-after-ms}. Job đã xong được giữ một thời gian
+ * rồi dọn.</p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class QuestionImportJobService {
+
+    private final QuestionImportService importService;
+    private final ImportJobJdbcRepository jobRepository;
+
+    @Value("${exam.import.workers:2}")
+    private int workers;
+
+    @Value("${exam.import.queue-capacity:20}")
+    private int queueCapacity;
+
+    /** Gợi ý {@code Retry-After} khi hàng đợi đầy. */
+    @Value("${exam.import.retry-after-seconds:30}")
+    private long retryAfterSeconds;
+
+    @Value("${exam.import.job-retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Value("${exam.import.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    /** Job chưa xong mà không replica nào cập nhật quá khoảng này thì coi như đã mất. */
+    @Value("${exam.import.stale-after-ms:300000}")
+    private long staleAfterMillis;
+
+    /** Job do replica này chạy; chỉ các job này có SSE trực tiếp. */
+    private final Map<UUID, ImportJob> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        try {
+            jobRepository.createTableIfMissing();
+        } catch (DataAccessException ex) {
+            log.warn("Could not create import job table: {}", ex.getMessage());
+        }
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "question-import-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Lưu file upload và xếp job vào hàng đợi.
+     */
+    public ImportJob submit(InputStream upload, String fileName, String subject, String[] tags,
+                            boolean skipDuplicates, String requestedBy) throws IOException {
+        Path file = importService.spool(upload);
+        ImportJob job = new ImportJob(UUID.randomUUID(), fileName, subject, List.of(tags), requestedBy, Instant.now());
+        try {
+            jobRepository.save(job.toRow());
+        } catch (DataAccessException e) {
+            importService.deleteQuietly(file);
+            throw e;
+        }
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, file, tags, skipDuplicates));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            jobRepository.deleteById(job.getId());
+            importService.deleteQuietly(file);
+            throw new TooManyRequestsException("Import queue is full, please try again later", retryAfterSeconds);
+        }
+        log.info("📥 Queued import job {} ({}) by {}", job.getId(), fileName, requestedBy);
+        return job;
+    }
+
+    /**
+     * Job đang chạy trên replica này, hoặc bản đã lưu của job chạy nơi khác / đã xong.
+     */
+    public ImportJob get(UUID jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job != null) {
+            return job;
+        }
+        return jobRepository.findById(jobId)
+                .map(ImportJob::restore)
+                .orElseThrow(() -> new ResourceNotFoundException("Import job not found with id: " + jobId));
+    }
+
+    /**
+     * Đăng ký nhận tiến độ qua SSE: sự kiện {@code progress} sau mỗi lô và {@code done} khi kết thúc.
+     */
+    public SseEmitter subscribe(UUID jobId) {
+        ImportJob job = get(jobId);
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        if (jobs.get(jobId) != job) {
+            // Job không chạy ở đây: chỉ có bản đã lưu, gửi một lần rồi đóng
+            send(emitter, job.isFinished() ? "done" : "progress", toResponse(job));
+            emitter.complete();
+            return emitter;
+        }
+        emitter.onCompletion(() -> job.emitters().remove(emitter));
+        emitter.onTimeout(() -> job.emitters().remove(emitter));
+        emitter.onError(e -> job.emitters().remove(emitter));
+        job.emitters().add(emitter);
+
+        // Job có thể đã xong trước khi đăng ký: gửi ngay trạng thái hiện tại
+        send(emitter, job.isFinished() ? "done" : "progress", toResponse(job));
+        if (job.isFinished()) {
+            job.emitters().remove(emitter);
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    public ImportJobResponse toResponse(ImportJob job) {
+        ImportJobResponse r = new ImportJobResponse();
+        r.jobId = job.getId();
+        r.status = job.getStatus().name();
+        r.fileName = job.getFileName();
+        r.subject = job.getSubject();
+        r.tags = job.getTags();
+        r.imported = job.getImported();
+        r.skipped = job.getSkipped();
+        r.errors = job.getErrors();
+        r.errorDetails = job.getErrorDetails();
+        r.nearDuplicates = job.getNearDuplicates();
+        r.nearDuplicateDetails = job.getNearDuplicateDetails();
+        r.message = job.getMessage();
+        r.createdAt = job.getCreatedAt();
+        r.startedAt = job.getStartedAt();
+        r.finishedAt = job.getFinishedAt();
+        return r;
+    }
+
+    /**
+     * Giữ cho job của replica này khỏi bị coi là mất, đánh dấu FAILED các job bị bỏ rơi và dọn
+     * job đã xong quá hạn giữ lại.
+     */
+    @Scheduled(fixedDelayString = "${exam.import.cleanup-interval-ms:60000}")
+    public void evictFinishedJobs() {
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(retentionMinutes));
+        jobs.values().removeIf(ImportJob::isFinished);
+        try {
+            jobRepository.touch(jobs.keySet());
+            int stale = jobRepository.failStale(Duration.ofMillis(staleAfterMillis),
+                    "Import was interrupted because the server running it stopped");
+            if (stale > 0) {
+                log.warn("Marked {} abandoned import jobs as failed", stale);
+            }
+            jobRepository.deleteFinishedBefore(cutoff);
+        } catch (DataAccessException ex) {
+            log.warn("Import job cleanup failed: {}", ex.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void run(ImportJob job, Path file, String[] tags, boolean skipDuplicates) {
+        job.markRunning();
+        persist(job);
+        publish(job, "progress");
+        try {
+            Map<String, Object> result = importService.importFromFile(file, job.getSubject(), tags, skipDuplicates,
+                    job.getRequestedBy(), (imported, skipped, errors) -> {
+                        job.progress(imported, skipped, errors);
+                        persist(job);
+                        publish(job, "progress");
+                    });
+            job.complete((int) result.get("imported"), (int) result.get("skipped"), (int) result.get("errors"),
+                    (List<String>) result.get("errorDetails"), (int) result.get("nearDuplicates"),
+                    (List<String>) result.get("nearDuplicateDetails"));
+            log.info("✅ Import job {} completed", job.getId());
+        } catch (Exception e) {
+            log.error("❌ Import job {} failed: {}", job.getId(), e.getMessage());
+            job.fail(e.getMessage());
+            importService.notifyImportFailed(job.getRequestedBy(), job.getSubject(), e.getMessage());
+        } finally {
+            persist(job);
+            importService.deleteQuietly(file);
+            publish(job, "done");
+            for (SseEmitter emitter : job.emitters()) {
+                emitter.complete();
+            }
+            job.emitters().clear();
+        }
+    }
+
+    /**
+     * Lỗi ghi trạng thái không làm hỏng import; lần ghi sau hoặc lúc kết thúc sẽ ghi lại.
+     */
+    private void persist(ImportJob job) {
+        try {
+            jobRepository.save(job.toRow());
+        } catch (DataAccessException ex) {
+            log.warn("Could not save state of import job {}: {}", job.getId(), ex.getMessage());
+        }
+    }
+
+    private void publish(ImportJob job, String event) {
+        if (job.emitters().isEmpty()) {
+            return;
+        }
+        ImportJobResponse snapshot = toResponse(job);
+        for (SseEmitter emitter : job.emitters()) {
+            if (!send(emitter, event, snapshot)) {
+                job.emitters().remove(emitter);
+            }
+        }
+    }
+
+    private boolean send(SseEmitter emitter, String event, ImportJobResponse snapshot) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(snapshot, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            return false;
+        }
+    }
+}
@@ -4,17 +4,23 @@ import com.dao.common.notification.NotificationMessage;
 import com.dao.common.notification.NotificationProducerService;
 import com.dao.examservice.entity.Question;
 import com.dao.examservice.entity.QuestionTag;
+import com.dao.examservice.repository.QuestionJdbcRepository;
 import com.dao.examservice.repository.QuestionRepository;
 import com.dao.examservice.repository.QuestionTagRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 import javax.management.Notification;
@@ -24,11 +30,22 @@ import javax.management.Notification;
 @Slf4j
 public class QuestionImportService {
 
+    private static final int IMPORT_BATCH_SIZE = 500;
+    private static final int MAX_QUESTION_TEXT_LENGTH = 2000;
+    private static final int MAX_NEAR_DUPLICATE_DETAILS = 100;
+
     private final QuestionRepository questionRepository;
     private final QuestionTagRepository questionTagRepository;
+    private final QuestionJdbcRepository questionJdbcRepository;
+    private final QuestionFingerprinter fingerprinter;
     private final ObjectMapper objectMapper;
         private final NotificationService notificationService;
     private final NotificationProducerService notificationProducerService;
+    private final AnswerKeyCache answerKeyCache;
+    private final ExamPaperCache paperCache;
+    private final TransactionTemplate transactionTemplate;
+    private final QuestionBankIndex questionBankIndex;
+    private final QuestionSimilarityIndex similarityIndex;
 
     /**
      * Import questions from Excel file
@@ -48,92 +65,70 @@ public class QuestionImportService {
      * @param skipDuplicates If true, skip duplicate questions; if false, import all
      * @return Import statistics
      */
-    @Transactional
     public Map<String, Object> importFromExcel(InputStream inputStream, String subject, String[] tags, boolean skipDuplicates) {
+        Path tempFile = null;
+        try {
+            tempFile = spool(inputStream);
+            return importFromFile(tempFile, subject, tags, skipDuplicates, currentUserId(), null);
+        } catch (IOException e) {
+            log.error("❌ Fatal error during import: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to process Excel file: " + e.getMessage(), e);
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    /**
+     * Import một file .xlsx đã lưu trên đĩa.
+     * 
+     * File được đọc tuần tự bằng SAX ({@link QuestionSheetReader}); câu hỏi và tag được gom
+     * thành lô {@link #IMPORT_BATCH_SIZE} dòng, mỗi lô ghi bằng JDBC batch và commit trong
+     * transaction riêng. Lô lỗi được ghi vào errorDetails, không rollback các lô đã commit.
+     * 
+     * @param recipientUserId người nhận notification khi import xong
+     * @param listener nhận tiến độ sau mỗi lô, có thể null
+     * @return Import statistics
+     */
+    public Map<String, Object> importFromFile(Path file, String subject, String[] tags, boolean skipDuplicates,
+                                              String recipientUserId, ProgressListener listener) {
         log.info("🔄 Starting import from Excel...");
         log.info("   Subject: {}", subject);
         log.info("   Tags: {}", Arrays.toString(tags));
         log.info("   Skip Duplicates: {}", skipDuplicates);
 
-        int importedCount = 0;
-        int skippedCount = 0;
-        int errorCount = 0;
-        List<String> errors = new ArrayList<>();
-
-        try (Workbook workbook = new XSSFWorkbook(inputStream)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            
-            log.info("📄 Processing sheet: {} ({} rows)", 
-                    sheet.getSheetName(), 
-                    sheet.getLastRowNum());
-
-            // Skip header row (start from row 1)
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                
-                if (row == null) {
-                    skippedCount++;
-                    continue;
-                }
-
-                try {
-                    Question question = parseRow(row, subject, tags);
-                    
-                    if (question == null) {
-                        skippedCount++;
-                        continue;
-                    }
-
-                    // Check for duplicate content (only if skipDuplicates is true)
-                    if (skipDuplicates && isDuplicateContent(question.getText())) {
-                        log.warn("⚠️  Row {}: Duplicate question content found, skipping", i + 1);
-                        skippedCount++;
-                        continue;
-                    }
-
-                    questionRepository.save(question);
-                    importedCount++;
-
-                    if (importedCount % 50 == 0) {
-                        log.info("   ✅ Imported {} questions...", importedCount);
-                    }
-
-                } catch (Exception e) {
-                    errorCount++;
-                    String error = String.format("Row %d: %s", i + 1, e.getMessage());
-                    errors.add(error);
-                    log.error("❌ {}", error);
-                }
-            }
+        ImportBatch batch = new ImportBatch(normalizeTags(tags), skipDuplicates, listener);
 
+        try {
+            QuestionSheetReader.read(file, batch::accept);
+            batch.flush();
         } catch (Exception e) {
             log.error("❌ Fatal error during import: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to process Excel file: " + e.getMessage(), e);
         }
 
+        int importedCount = batch.importedCount;
+        int skippedCount = batch.skippedCount;
+        int errorCount = batch.errorCount;
+
         log.info("✅ Import completed!");
         log.info("   Imported: {}", importedCount);
         log.info("   Skipped: {}", skippedCount);
         log.info("   Errors: {}", errorCount);
+        log.info("   Near-duplicates: {}", batch.nearDuplicateCount);
 
         Map<String, Object> result = new HashMap<>();
         result.put("imported", importedCount);
         result.put("skipped", skippedCount);
         result.put("errors", errorCount);
-        result.put("errorDetails", errors);
+        result.put("errorDetails", batch.errors);
+        result.put("nearDuplicates", batch.nearDuplicateCount);
+        result.put("nearDuplicateDetails", batch.nearDuplicates);
         result.put("subject", subject);
         result.put("tags", tags);
 
         try {
             NotificationMessage msg = new NotificationMessage();
-            
-            // Lấy trực tiếp ID của user đang đăng nhập từ Spring Security (Không cần truyền tham số)
-            org.springframework.security.core.Authentication auth = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
-            if (auth != null && auth.isAuthenticated()) {
-                msg.setRecipientUserId(auth.getName()); 
-            } else {
-                msg.setRecipientUserId("SYSTEM");
-            }
+            msg.setRecipientUserId(recipientUserId != null ? recipientUserId : "SYSTEM");
             
             msg.setTitle("Excel Import Completed");
             
@@ -156,28 +151,247 @@ public class QuestionImportService {
     }
 
     /**
-     * Parse a single Excel row into a Question entity
+     * Gửi notification khi import thất bại hẳn (file hỏng, lỗi đọc file...).
+     */
+    void notifyImportFailed(String recipientUserId, String subject, String reason) {
+        try {
+            NotificationMessage msg = new NotificationMessage();
+            msg.setRecipientUserId(recipientUserId != null ? recipientUserId : "SYSTEM");
+            msg.setTitle("Excel Import Failed");
+            String subjectName = (subject != null && !subject.isEmpty()) ? subject : "General";
+            msg.setContent("Import for '" + subjectName + "' failed: " + reason);
+            msg.setType("ERROR");
+            msg.setSeverity("high");
+            msg.setData(Map.of("actionType", "IMPORT_FAILED", "subject", subjectName));
+            notificationProducerService.sendNotification(msg);
+        } catch (Exception e) {
+            log.error("Lỗi khi gửi thông báo import Excel: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Tiến độ import, gọi sau mỗi lô đã commit.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(int imported, int skipped, int errors);
+    }
+
+    /**
+     * Gom các dòng đã parse thành lô và ghi xuống database khi đủ {@link #IMPORT_BATCH_SIZE}.
+     * Câu gần trùng (viết lại vài chữ, đảo phương án) với ngân hàng hoặc với dòng khác trong file
+     * chỉ được đánh dấu trong nearDuplicateDetails, vẫn được import.
      */
-    private Question parseRow(Row row, String subject, String[] tags) {
+    private final class ImportBatch {
+
+        private final List<String> tags;
+        private final boolean skipDuplicates;
+        private final ProgressListener listener;
+        /** Fingerprint đã có trong database (đã commit); lô đang gom giữ riêng ở {@link #pendingFingerprints}. */
+        private final LongHashSet fingerprints;
+        private LongHashSet pendingFingerprints = new LongHashSet(IMPORT_BATCH_SIZE);
+        private final List<Question> questions = new ArrayList<>(IMPORT_BATCH_SIZE);
+        private final List<QuestionJdbcRepository.TagRow> tagRows = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private final List<String> nearDuplicates = new ArrayList<>();
+        /** Dòng của lô đang gom; dòng đã ghi được tìm qua {@link QuestionSimilarityIndex}. */
+        private final MinHashLsh pendingSignatures = new MinHashLsh();
+        private final Map<UUID, Integer> pendingRows = new HashMap<>();
+        private int importedCount;
+        private int nearDuplicateCount;
+        private int skippedCount;
+        private int errorCount;
+        private int lastRowNum;
+        private int chunkFirstRow;
+
+        ImportBatch(List<String> tags, boolean skipDuplicates, ProgressListener listener) {
+            this.tags = tags;
+            this.skipDuplicates = skipDuplicates;
+            this.listener = listener;
+            this.fingerprints = questionJdbcRepository.loadFingerprints();
+        }
+
+        void accept(int rowNum, String[] cells) {
+            // Skip header row; rows missing from the sheet count as skipped (empty) rows
+            if (rowNum == 0) {
+                lastRowNum = 0;
+                return;
+            }
+            skippedCount += Math.max(0, rowNum - lastRowNum - 1);
+            lastRowNum = rowNum;
+
+            try {
+                Question question = parseRow(cells);
+
+                if (question == null) {
+                    skippedCount++;
+                    return;
+                }
+
+                // Duplicate check is one in-memory lookup against DB fingerprints + rows of this chunk
+                long fingerprint = question.getContentFingerprint();
+                if (fingerprints.contains(fingerprint) || !pendingFingerprints.add(fingerprint)) {
+                    if (skipDuplicates) {
+                        log.warn("⚠️  Row {}: Duplicate question content found, skipping", rowNum + 1);
+                        skippedCount++;
+                        return;
+                    }
+                    // Imported anyway; only the first copy keeps the (unique) fingerprint
+                    question.setContentFingerprint(null);
+                }
+
+                int[] signature = similarityIndex.signature(question.getText(),
+                        Arrays.asList(cells[2], cells[3], cells[4], cells[5]));
+                if (signature != null) {
+                    flagNearDuplicate(rowNum + 1, signature);
+                    pendingSignatures.add(question.getId(), signature);
+                    pendingRows.put(question.getId(), rowNum + 1);
+                }
+
+                if (questions.isEmpty()) {
+                    chunkFirstRow = rowNum + 1;
+                }
+                questions.add(question);
+                for (String tag : tags) {
+                    tagRows.add(new QuestionJdbcRepository.TagRow(question.getId(), tag));
+                }
+
+            } catch (Exception e) {
+                String error = String.format("Row %d: %s", rowNum + 1, e.getMessage());
+                errors.add(error);
+                errorCount++;
+                log.error("❌ {}", error);
+            }
+
+            if (questions.size() >= IMPORT_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        /**
+         * Ghi lô hiện tại trong transaction riêng; lỗi chỉ làm mất lô này. Câu hỏi trùng nội
+         * dung với dòng vừa được ghi từ nơi khác (import song song, replica khác) không làm hỏng
+         * cả lô: bị bỏ qua nếu {@code skipDuplicates}, ngược lại ghi không kèm fingerprint.
+         * Fingerprint chỉ vào {@link #fingerprints} sau khi commit.
+         */
+        void flush() {
+            if (questions.isEmpty()) {
+                return;
+            }
+            List<Long> conflicted = new ArrayList<>();
+            // Cùng giá trị với created_at/updated_at ghi xuống (chỉ mục gần trùng dùng làm digest).
+            Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+            try {
+                Set<UUID> inserted = transactionTemplate.execute(status -> {
+                    Set<UUID> ids = questionJdbcRepository.insertQuestions(questions, createdAt);
+                    List<Question> retry = new ArrayList<>();
+                    for (Question question : questions) {
+                        if (!ids.contains(question.getId())) {
+                            conflicted.add(question.getContentFingerprint());
+                            if (!skipDuplicates) {
+                                question.setContentFingerprint(null);
+                                retry.add(question);
+                            }
+                        }
+                    }
+                    if (!retry.isEmpty()) {
+                        ids.addAll(questionJdbcRepository.insertQuestions(retry, createdAt));
+                    }
+                    questionJdbcRepository.insertTags(ids.size() == questions.size() ? tagRows
+                            : tagRows.stream().filter(row -> ids.contains(row.questionId())).toList());
+                    return ids;
+                });
+                for (Long fingerprint : conflicted) {
+                    fingerprints.add(fingerprint);
+                }
+                for (Question question : questions) {
+                    if (question.getContentFingerprint() != null) {
+                        fingerprints.add(question.getContentFingerprint());
+                    }
+                }
+                if (skipDuplicates && !conflicted.isEmpty()) {
+                    log.warn("⚠️  Rows {}-{}: {} questions were stored meanwhile by another import, skipping",
+                            chunkFirstRow, lastRowNum + 1, conflicted.size());
+                    skippedCount += conflicted.size();
+                }
+                importedCount += inserted.size();
+                for (Question question : questions) {
+                    if (!inserted.contains(question.getId())) {
+                        continue;
+                    }
+                    questionBankIndex.onCreated(question.getId(), question.getDifficulty(),
+                            question.getContentFingerprint() != null, tags);
+                    similarityIndex.onCreated(question.getId(), pendingSignatures.signatureOf(question.getId()),
+                            createdAt);
+                }
+                log.info("   ✅ Imported {} questions...", importedCount);
+            } catch (RuntimeException e) {
+                String error = String.format("Rows %d-%d: %s", chunkFirstRow, lastRowNum + 1, e.getMessage());
+                errors.add(error);
+                errorCount += questions.size();
+                log.error("❌ {}", error);
+            } finally {
+                questions.clear();
+                tagRows.clear();
+                pendingFingerprints = new LongHashSet(IMPORT_BATCH_SIZE);
+                pendingSignatures.clear();
+                pendingRows.clear();
+            }
+            if (listener != null) {
+                listener.onProgress(importedCount, skippedCount, errorCount);
+            }
+        }
+
+        private void flagNearDuplicate(int row, int[] signature) {
+            String detail = null;
+            List<QuestionSimilarityIndex.Match> matches = similarityIndex.findSimilar(signature, 1);
+            if (!matches.isEmpty()) {
+                QuestionSimilarityIndex.Match match = matches.get(0);
+                detail = String.format("Row %d: near-duplicate of question %s (similarity %.2f)",
+                        row, match.questionId(), match.similarity());
+            } else {
+                matches = pendingSignatures.query(signature, similarityIndex.getThreshold(), 1, null);
+                if (!matches.isEmpty()) {
+                    QuestionSimilarityIndex.Match match = matches.get(0);
+                    detail = String.format("Row %d: near-duplicate of row %d (similarity %.2f)",
+                            row, pendingRows.get(match.questionId()), match.similarity());
+                }
+            }
+            if (detail != null) {
+                nearDuplicateCount++;
+                if (nearDuplicates.size() < MAX_NEAR_DUPLICATE_DETAILS) {
+                    nearDuplicates.add(detail);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse a single Excel row (columns A-G) into a Question entity with a pre-assigned id
+     */
+    private Question parseRow(String[] cells) {
         // Check if row is empty or header
-        Cell questionCell = row.getCell(1);
-        if (questionCell == null || isEmptyOrHeader(questionCell)) {
+        if (isEmptyOrHeader(cells[1])) {
             return null;
         }
 
         try {
             // Extract values
-            String questionText = getCellValueAsString(questionCell).trim();
-            String optionA = getCellValueAsString(row.getCell(2)).trim();
-            String optionB = getCellValueAsString(row.getCell(3)).trim();
-            String optionC = getCellValueAsString(row.getCell(4)).trim();
-            String optionD = getCellValueAsString(row.getCell(5)).trim();
-            String correctAnswerRaw = getCellValueAsString(row.getCell(6)).trim();
+            String questionText = cells[1].trim();
+            String optionA = cells[2].trim();
+            String optionB = cells[3].trim();
+            String optionC = cells[4].trim();
+            String optionD = cells[5].trim();
+            String correctAnswerRaw = cells[6].trim();
 
             // Validate required fields
             if (questionText.isEmpty() || correctAnswerRaw.isEmpty()) {
                 return null;
             }
+            // Batch insert fails as a whole, so reject rows the column cannot hold here
+            if (questionText.length() > MAX_QUESTION_TEXT_LENGTH) {
+                throw new IllegalArgumentException("Question text exceeds " + MAX_QUESTION_TEXT_LENGTH + " characters");
+            }
 
             // Build options array
             List<String> options = Arrays.asList(optionA, optionB, optionC, optionD);
@@ -193,21 +407,14 @@ public class QuestionImportService {
 
             // Create Question entity
             Question question = new Question();
+            question.setId(UUID.randomUUID());
             question.setType(Question.QuestionType.MULTIPLE_CHOICE);
             question.setText(questionText);
             question.setContent(objectMapper.writeValueAsString(content));
             question.setDifficulty(5); // Default medium difficulty
             question.setExplanation(null);
             question.setScore(10); // Default score
-            question = questionRepository.save(question);
-
-            // Create QuestionTag entries for each tag
-            for (String tag : tags) {
-                QuestionTag qt = new QuestionTag();
-                qt.setQuestion(question);
-                qt.setTag(tag);
-                questionTagRepository.save(qt);
-            }
+            question.setContentFingerprint(fingerprinter.fingerprint(questionText, options, correctIndex));
 
             return question;
 
@@ -249,47 +456,56 @@ public class QuestionImportService {
     }
 
     /**
-     * Check if question content already exists in database (case-insensitive)
-     * This prevents duplicate questions with same text
+     * Trim tags, drop blanks and duplicates (question_tags is unique per question and tag)
      */
-    private boolean isDuplicateContent(String questionText) {
-        if (questionText == null || questionText.isBlank()) {
-            return false;
+    private List<String> normalizeTags(String[] tags) {
+        Set<String> normalized = new LinkedHashSet<>();
+        if (tags != null) {
+            for (String tag : tags) {
+                if (tag != null && !tag.isBlank()) {
+                    normalized.add(tag.trim());
+                }
+            }
         }
-        List<Question> existingQuestions = questionRepository.findByTextIgnoreCase(questionText.trim());
-        return !existingQuestions.isEmpty();
+        return new ArrayList<>(normalized);
     }
 
     /**
-     * Get cell value as string, handling different cell types
+     * Lưu upload ra file tạm để đọc bằng {@link QuestionSheetReader}.
      */
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) {
-            return "";
+    Path spool(InputStream inputStream) throws IOException {
+        Path tempFile = Files.createTempFile("question-import-", ".xlsx");
+        try {
+            Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            return tempFile;
+        } catch (IOException e) {
+            deleteQuietly(tempFile);
+            throw e;
+        }
+    }
+
+    void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete temp import file {}: {}", file, e.getMessage());
         }
+    }
 
-        return switch (cell.getCellType()) {
-            case STRING -> cell.getStringCellValue();
-            case NUMERIC -> {
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    yield cell.getDateCellValue().toString();
-                } else {
-                    // Format number without scientific notation
-                    yield String.format("%.0f", cell.getNumericCellValue());
-                }
-            }
-            case BOOLEAN -> String.valueOf(cell.getBooleanCellValue());
-            case FORMULA -> cell.getCellFormula();
-            case BLANK -> "";
-            default -> "";
-        };
+    private String currentUserId() {
+        // Lấy trực tiếp ID của user đang đăng nhập từ Spring Security (Không cần truyền tham số)
+        org.springframework.security.core.Authentication auth = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.isAuthenticated() ? auth.getName() : "SYSTEM";
     }
 
     /**
      * Check if cell is empty or contains header text
      */
-    private boolean isEmptyOrHeader(Cell cell) {
-        String value = getCellValueAsString(cell).toLowerCase().trim();
+    private boolean isEmptyOrHeader(String cellValue) {
+        String value = cellValue.toLowerCase().trim();
         return value.isEmpty() || 
                value.equals("câu hỏi") || 
                value.equals("question") || 
@@ -342,6 +558,10 @@ public class QuestionImportService {
         if (count > 0) {
             questionTagRepository.deleteAll(questionTags);
             questionRepository.deleteAllById(questionIds);
+            answerKeyCache.invalidateQuestions(questionIds);
+            paperCache.invalidateQuestions(questionIds);
+            questionBankIndex.onDeleted(questionIds);
+            similarityIndex.onDeleted(questionIds);
             log.info("✅ Deleted {} questions with tag '{}'", count, tag);
         } else {
             log.warn("⚠️  No questions found with tag '{}'", tag);
@@ -2,22 +2,25 @@ package com.dao.examservice.service;
 
 import com.dao.examservice.dto.request.QuestionCreationRequest;
 import com.dao.examservice.dto.request.QuestionSearchRequest;
+import com.dao.examservice.dto.response.SimilarQuestionResponse;
 import com.dao.examservice.entity.Question;
+import com.dao.examservice.exception.ResourceNotFoundException;
+import com.dao.examservice.exception.ValidationException;
+import com.dao.examservice.repository.QuestionJdbcRepository;
 import com.dao.examservice.repository.QuestionRepository;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,149 +29,121 @@ import java.util.stream.Collectors;
 public class QuestionService {
 
     private final QuestionRepository questionRepository;
-    private final ObjectMapper objectMapper;
+    private final QuestionJdbcRepository questionJdbcRepository;
+    private final AnswerKeyCache answerKeyCache;
+    private final ExamPaperCache paperCache;
+    private final QuestionFingerprinter fingerprinter;
+    private final QuestionBankIndex questionBankIndex;
+    private final QuestionSimilarityIndex similarityIndex;
 
+    /**
+     * Tạo câu hỏi. Chỉ câu đầu tiên của mỗi nội dung giữ {@code content_fingerprint}: câu được
+     * chèn bằng cùng lệnh {@code ON CONFLICT} như import, nên khi câu cùng nội dung đã có (kể cả
+     * vừa được lưu song song) thì câu này được lưu lại không kèm fingerprint thay vì lỗi unique.
+     */
     @Transactional
     public Question create(QuestionCreationRequest request) {
+        if (request.type == null) {
+            throw new ValidationException("type is required");
+        }
         Question q = new Question();
+        q.setId(UUID.randomUUID());
         q.setType(request.type);
         q.setContent(request.content);
         q.setDifficulty(request.difficulty);
         q.setExplanation(request.explanation);
         q.setScore(request.score);
         q.setText(request.text);
-        return questionRepository.save(q);
+        q.setContentFingerprint(fingerprinter.fingerprint(request.content));
+        Instant now = Instant.now();
+        if (questionJdbcRepository.insertQuestions(List.of(q), now).isEmpty()) {
+            q.setContentFingerprint(null);
+            questionJdbcRepository.insertQuestions(List.of(q), now);
+        }
+        q.setCreatedAt(now);
+        q.setUpdatedAt(now);
+        questionBankIndex.onCreated(q.getId(), q.getDifficulty(),
+                q.getContentFingerprint() != null || q.getContent() == null, List.of());
+        similarityIndex.onCreated(q.getId(), similarityIndex.signature(q.getText(), q.getContent()), now);
+        return q;
     }
 
     @Transactional(readOnly = true)
     public List<Question> search(QuestionSearchRequest request) {
         List<String> tags = request.tags == null ? Collections.emptyList() : new ArrayList<>(request.tags);
-        return questionRepository.search(tags, tags.isEmpty(), request.minDifficulty, request.maxDifficulty);
+        List<UUID> ids = questionBankIndex.find(tags, request.minDifficulty, request.maxDifficulty);
+        return ids.isEmpty() ? Collections.emptyList() : loadInOrder(ids);
+    }
+
+    /**
+     * Nạp câu hỏi theo đúng thứ tự {@code ids}; {@code findAllById} không giữ thứ tự.
+     */
+    private List<Question> loadInOrder(List<UUID> ids) {
+        Map<UUID, Question> loaded = questionRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Question::getId, Function.identity()));
+        List<Question> ordered = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            Question question = loaded.get(id);
+            if (question != null) {
+                ordered.add(question);
+            }
+        }
+        return ordered;
     }
 
     /**
      * Generate random unique question IDs based on filter criteria.
-     * Đảm bảo không trả về câu hỏi trùng lặp: so sánh theo trường JSON "content".
+     * Đảm bảo không trả về câu hỏi trùng lặp: chỉ bốc bản đầu tiên của mỗi nội dung
+     * (câu giữ {@code content_fingerprint}), lọc và bốc hoàn toàn trên {@link QuestionBankIndex}.
      * 
      * @param request Filter criteria (tags, difficulty, count)
      * @return List of unique random question IDs
      * @throws IllegalArgumentException if not enough unique questions available
      */
-    @Transactional(readOnly = true)
     public List<UUID> generateRandomIds(com.dao.examservice.dto.request.GenerateQuestionsRequest request) {
-        QuestionSearchRequest filter = new QuestionSearchRequest();
-        filter.tags = request.tags;
-        filter.minDifficulty = request.minDifficulty;
-        filter.maxDifficulty = request.maxDifficulty;
-
-        List<Question> pool = search(filter);
-
-        if (pool == null || pool.isEmpty() || request.count <= 0) {
+        if (request.count <= 0) {
             return Collections.emptyList();
         }
-
-        // ✅ Loại trùng dựa trên nội dung JSON "content"
-        Set<String> seenContents = new HashSet<>();
-        List<Question> uniqueQuestions = new ArrayList<>();
-        
-        for (Question q : pool) {
-            String normalizedContent = normalizeQuestionContent(q.getContent());
-            if (normalizedContent == null || seenContents.add(normalizedContent)) {
-                uniqueQuestions.add(q);
-            }
-        }
-
-        // ✅ Validate we have enough unique questions
-        if (uniqueQuestions.size() < request.count) {
-            throw new IllegalArgumentException(
-                String.format(
-                    "Not enough unique questions available. Requested: %d, Available: %d (after removing %d duplicates). " +
-                    "Please adjust filter criteria (tags: %s, difficulty: %d-%d)",
-                    request.count,
-                    uniqueQuestions.size(),
-                    pool.size() - uniqueQuestions.size(),
-                    request.tags,
-                    request.minDifficulty,
-                    request.maxDifficulty
-                )
-            );
-        }
-
-        // ✅ Shuffle and select random questions
-        Collections.shuffle(uniqueQuestions);
-        List<UUID> result = uniqueQuestions.stream()
-                .limit(request.count)
-                .map(Question::getId)
-                .collect(Collectors.toList());
-        
-        return result;
+        return questionBankIndex.sample(request.tags, request.minDifficulty, request.maxDifficulty, request.count);
     }
 
-    private static final int QUESTION_PREFIX_LENGTH = 20;
-    private static final int OPTION_PREFIX_LENGTH = 15;
-
-    private String normalizeQuestionContent(String content) {
-        if (content == null) {
-            return null;
-        }
-
-        try {
-            JsonNode node = objectMapper.readTree(content);
-            String questionKey = takePrefix(node.path("question").asText(null), QUESTION_PREFIX_LENGTH);
-
-            List<String> optionKeys = new ArrayList<>();
-            JsonNode optionsNode = node.path("options");
-            if (optionsNode.isArray()) {
-                for (JsonNode optionNode : optionsNode) {
-                    if (optionNode.isTextual()) {
-                        String optionKey = takePrefix(optionNode.asText(), OPTION_PREFIX_LENGTH);
-                        if (optionKey != null) {
-                            optionKeys.add(optionKey);
-                        }
-                    }
-                }
-            }
-
-            if (questionKey == null && optionKeys.isEmpty()) {
-                return takePrefix(content, QUESTION_PREFIX_LENGTH * 2);
-            }
-
-            int correctAnswerIndex = node.path("correctAnswer").isInt() ? node.path("correctAnswer").asInt() : -1;
-
-            StringBuilder keyBuilder = new StringBuilder();
-            if (questionKey != null) {
-                keyBuilder.append("q:").append(questionKey);
-            }
-            if (!optionKeys.isEmpty()) {
-                if (keyBuilder.length() > 0) {
-                    keyBuilder.append("|");
-                }
-                keyBuilder.append("o:").append(String.join("|", optionKeys));
-            }
-            keyBuilder.append("|a:").append(correctAnswerIndex);
-
-            return keyBuilder.toString();
-        } catch (JsonProcessingException ex) {
-            return takePrefix(content, QUESTION_PREFIX_LENGTH * 2);
-        }
+    @Transactional
+    public void delete(UUID id) {
+        questionRepository.deleteById(id);
+        answerKeyCache.invalidateQuestions(List.of(id));
+        paperCache.invalidateQuestions(List.of(id));
+        questionBankIndex.onDeleted(List.of(id));
+        similarityIndex.onDeleted(List.of(id));
     }
 
-    private String takePrefix(String value, int maxLength) {
-        if (value == null) {
-            return null;
+    /**
+     * Câu gần trùng với một câu hỏi (MinHash/LSH), độ tương đồng giảm dần.
+     */
+    @Transactional(readOnly = true)
+    public List<SimilarQuestionResponse> findSimilar(UUID id, int limit) {
+        if (!questionRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Question not found with id: " + id);
         }
-
-        String trimmed = value.trim();
-        if (trimmed.isEmpty()) {
-            return null;
+        List<QuestionSimilarityIndex.Match> matches = similarityIndex.similarTo(id, Math.max(1, limit));
+        Map<UUID, Double> similarities = new HashMap<>();
+        matches.forEach(match -> similarities.put(match.questionId(), match.similarity()));
+        List<UUID> ids = matches.stream().map(QuestionSimilarityIndex.Match::questionId).toList();
+        List<SimilarQuestionResponse> result = new ArrayList<>(matches.size());
+        for (Question question : loadInOrder(ids)) {
+            SimilarQuestionResponse r = new SimilarQuestionResponse();
+            r.questionId = question.getId();
+            r.similarity = similarities.get(question.getId());
+            r.text = question.getText();
+            result.add(r);
         }
-
-        return trimmed.length() > maxLength ? trimmed.substring(0, maxLength) : trimmed;
+        return result;
     }
 
-    @Transactional
-    public void delete(UUID id) {
-        questionRepository.deleteById(id);
+    /**
+     * Các nhóm câu gần trùng nhau trong một bộ câu vừa bốc (chỉ đánh dấu, không loại bỏ).
+     */
+    public List<List<UUID>> findNearDuplicateGroups(List<UUID> questionIds) {
+        return similarityIndex.clusters(questionIds);
     }
 
     @Transactional(readOnly = true)
@@ -0,0 +1,100 @@
+package com.dao.examservice.service;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Đọc sheet đầu tiên của file .xlsx theo kiểu SAX (event model của POI).
+ *
+ * <p>Không dựng {@code XSSFWorkbook}: từng dòng được phát ra ngay khi parse xong, chỉ giữ
+ * một mảng ô của dòng hiện tại. Mở file bằng {@link Path} để POI đọc zip trực tiếp từ đĩa
+ * thay vì giải nén toàn bộ vào heap.</p>
+ */
+final class QuestionSheetReader {
+
+    /** Cột A-G: STT, câu hỏi, đáp án A-D, đáp án đúng. */
+    static final int COLUMNS = 7;
+
+    @FunctionalInterface
+    interface RowHandler {
+        /**
+         * @param rowNum chỉ số dòng (0-based) trong sheet
+         * @param cells  giá trị đã format của cột A-G, ô trống là chuỗi rỗng; mảng dùng lại giữa các dòng
+         */
+        void row(int rowNum, String[] cells);
+    }
+
+    private QuestionSheetReader() {
+    }
+
+    static void read(Path file, RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings,
+                        new RowCollector(handler), new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Invalid .xlsx file: " + e.getMessage(), e);
+        }
+    }
+
+    private static final class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final RowHandler handler;
+        private final String[] cells = new String[COLUMNS];
+        private int nextColumn;
+
+        RowCollector(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            Arrays.fill(cells, "");
+            nextColumn = 0;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            handler.row(rowNum, cells);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            nextColumn = column + 1;
+            if (column < COLUMNS && formattedValue != null) {
+                cells[column] = formattedValue;
+            }
+        }
+    }
+}
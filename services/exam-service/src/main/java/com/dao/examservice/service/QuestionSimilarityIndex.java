@@ -0,0 +1,334 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.repository.QuestionJdbcRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Chỉ mục câu hỏi gần trùng (MinHash + LSH, xem {@link MinHashLsh}) trên toàn ngân hàng.
+ *
+ * <p>Khác {@code content_fingerprint} (chỉ bắt bản sao y hệt), chỉ mục này bắt cả câu viết lại
+ * vài chữ hay đảo thứ tự phương án. Tìm câu tương tự chỉ xét các câu trùng ít nhất một dải
+ * chữ ký, không quét cả ngân hàng.</p>
+ *
+ * <p>Dựng lần đầu khi cần, cập nhật khi tạo/xóa/import (sau khi transaction commit); job định
+ * kỳ so digest nội dung ({@code id} + {@code updated_at} của mọi câu) với database và dựng lại
+ * khi lệch (thay đổi từ replica khác hoặc sửa trực tiếp DB). Bản mới được dựng ngoài khóa rồi
+ * mới thay vào, nên tìm kiếm không bị chặn trong lúc quét cả ngân hàng.</p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class QuestionSimilarityIndex {
+
+    private final QuestionJdbcRepository questionJdbcRepository;
+    private final ObjectMapper objectMapper;
+
+    /** Ngưỡng độ tương đồng Jaccard (ước lượng) để coi hai câu là gần trùng. */
+    @Value("${exam.similarity.threshold:0.7}")
+    private double threshold;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Các trường dưới đây đọc/ghi dưới {@link #lock}. */
+    private MinHashLsh lsh = new MinHashLsh();
+    /** Digest từng câu đã biết (kể cả câu rỗng không vào {@link #lsh}) và XOR của chúng. */
+    private Map<UUID, Long> rowDigests = new HashMap<>();
+    private long digest;
+    /** Thay đổi cục bộ trong lúc đang dựng bản mới, áp lại lên bản mới khi thay vào. */
+    private List<Consumer<Snapshot>> pendingChanges;
+    private volatile boolean loaded;
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Chữ ký từ nội dung JSON ({@code question}, {@code options}) hoặc văn bản câu hỏi.
+     *
+     * @return null nếu câu hỏi không có chữ nào
+     */
+    public int[] signature(String text, String content) {
+        if (content != null && !content.isBlank()) {
+            try {
+                JsonNode node = objectMapper.readTree(content);
+                JsonNode questionNode = node.path("question");
+                List<String> options = new ArrayList<>();
+                for (JsonNode option : node.path("options")) {
+                    options.add(option.asText(""));
+                }
+                String questionText = questionNode.isTextual() ? questionNode.asText() : text;
+                if (questionText != null || !options.isEmpty()) {
+                    return MinHashLsh.signature(questionText, options);
+                }
+            } catch (JsonProcessingException ex) {
+                return MinHashLsh.signature(text != null ? text : content, List.of());
+            }
+        }
+        return MinHashLsh.signature(text, List.of());
+    }
+
+    public int[] signature(String questionText, List<String> options) {
+        return MinHashLsh.signature(questionText, options);
+    }
+
+    /**
+     * Câu gần trùng với một câu đã có trong ngân hàng.
+     *
+     * @return rỗng nếu câu hỏi không có trong chỉ mục
+     */
+    public List<Match> similarTo(UUID questionId, int limit) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            int[] signature = lsh.signatureOf(questionId);
+            return signature != null ? lsh.query(signature, threshold, limit, questionId) : List.of();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Match> findSimilar(int[] signature, int limit) {
+        if (signature == null) {
+            return List.of();
+        }
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return lsh.query(signature, threshold, limit, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gom các câu trong {@code questionIds} thành cụm gần trùng (union-find trên các cặp ứng viên
+     * LSH vượt ngưỡng). Chỉ trả về cụm có từ hai câu trở lên.
+     */
+    public List<List<UUID>> clusters(Collection<UUID> questionIds) {
+        if (questionIds.size() < 2) {
+            return List.of();
+        }
+        ensureLoaded();
+        Map<UUID, UUID> parent = new HashMap<>();
+        for (UUID id : questionIds) {
+            parent.put(id, id);
+        }
+        lock.readLock().lock();
+        try {
+            for (UUID id : questionIds) {
+                int[] signature = lsh.signatureOf(id);
+                if (signature == null) {
+                    continue;
+                }
+                for (Match match : lsh.query(signature, threshold, Integer.MAX_VALUE, id)) {
+                    if (parent.containsKey(match.questionId())) {
+                        parent.put(find(parent, id), find(parent, match.questionId()));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<UUID, List<UUID>> groups = new LinkedHashMap<>();
+        for (UUID id : questionIds) {
+            groups.computeIfAbsent(find(parent, id), root -> new ArrayList<>()).add(id);
+        }
+        List<List<UUID>> clusters = new ArrayList<>();
+        for (List<UUID> group : groups.values()) {
+            if (group.size() > 1) {
+                clusters.add(group);
+            }
+        }
+        return clusters;
+    }
+
+    /**
+     * @param signature null nếu câu hỏi không có chữ nào (chỉ tính vào digest)
+     * @param updatedAt {@code updated_at} (hoặc {@code created_at}) đã ghi của câu hỏi
+     */
+    public void onCreated(UUID id, int[] signature, Instant updatedAt) {
+        long rowDigest = QuestionJdbcRepository.rowDigest(id, updatedAt);
+        afterCommit(() -> change(snapshot -> snapshot.put(id, signature, rowDigest)));
+    }
+
+    public void onDeleted(Collection<UUID> questionIds) {
+        List<UUID> ids = List.copyOf(questionIds);
+        afterCommit(() -> change(snapshot -> ids.forEach(snapshot::remove)));
+    }
+
+    /**
+     * So digest nội dung của database với chỉ mục; lệch thì dựng lại.
+     */
+    @Scheduled(fixedDelayString = "${exam.similarity.validate-interval-ms:300000}")
+    public void refreshIfStale() {
+        if (!loaded) {
+            return;
+        }
+        long expected = questionJdbcRepository.contentDigest();
+        long actual;
+        lock.readLock().lock();
+        try {
+            actual = digest;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (expected != actual) {
+            log.info("Question similarity index out of date, rebuilding");
+            rebuild();
+        }
+    }
+
+    /**
+     * Quét cả ngân hàng vào một bản mới (không giữ khóa), rồi thay vào dưới khóa ghi cùng các
+     * thay đổi cục bộ xảy ra trong lúc quét.
+     */
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Snapshot fresh = new Snapshot(new MinHashLsh(), new HashMap<>(), 0L);
+        long start = System.nanoTime();
+        try {
+            questionJdbcRepository.streamContents(row ->
+                    fresh.put(row.id(), signature(row.text(), row.content()), row.digest()));
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+        lock.writeLock().lock();
+        try {
+            pendingChanges.forEach(change -> change.accept(fresh));
+            pendingChanges = null;
+            lsh = fresh.lsh;
+            rowDigests = fresh.rowDigests;
+            digest = fresh.digest;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Built question similarity index: {} questions in {} ms",
+                fresh.lsh.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void change(Consumer<Snapshot> change) {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+            if (!loaded) {
+                return;
+            }
+            Snapshot current = new Snapshot(lsh, rowDigests, digest);
+            change.accept(current);
+            digest = current.digest;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    private static UUID find(Map<UUID, UUID> parent, UUID id) {
+        UUID root = id;
+        while (!parent.get(root).equals(root)) {
+            root = parent.get(root);
+        }
+        while (!parent.get(id).equals(root)) {
+            UUID next = parent.get(id);
+            parent.put(id, root);
+            id = next;
+        }
+        return root;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public record Match(UUID questionId, double similarity) {}
+
+    /**
+     * Chỉ mục cùng digest của nó; {@link #put} và {@link #remove} idempotent nên áp lại một
+     * thay đổi đã có trong bản quét không làm lệch digest.
+     */
+    private static final class Snapshot {
+        private final MinHashLsh lsh;
+        private final Map<UUID, Long> rowDigests;
+        private long digest;
+
+        Snapshot(MinHashLsh lsh, Map<UUID, Long> rowDigests, long digest) {
+            this.lsh = lsh;
+            this.rowDigests = rowDigests;
+            this.digest = digest;
+        }
+
+        void put(UUID id, int[] signature, long rowDigest) {
+            Long previous = rowDigests.put(id, rowDigest);
+            if (previous != null && previous == rowDigest) {
+                return;
+            }
+            if (previous != null) {
+                digest ^= previous;
+                lsh.remove(id);
+            }
+            digest ^= rowDigest;
+            if (signature != null) {
+                lsh.add(id, signature);
+            }
+        }
+
+        void remove(UUID id) {
+            Long previous = rowDigests.remove(id);
+            if (previous != null) {
+                digest ^= previous;
+            }
+            lsh.remove(id);
+        }
+    }
+}
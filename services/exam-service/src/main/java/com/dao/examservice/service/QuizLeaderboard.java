@@ -0,0 +1,224 @@
+package com.dao.examservice.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bảng xếp hạng trong bộ nhớ của một đề thi.
+ *
+ * <p>Điểm là số nguyên 0-100 nên thứ hạng được tính bằng histogram điểm lưu trong cây
+ * Fenwick: thêm/đổi điểm một thí sinh và tra hạng đều là O(log 101). Mỗi thí sinh chỉ giữ
+ * bài có điểm cao nhất; cùng điểm thì bài nộp trước đứng trước (thứ tự trong bucket).</p>
+ *
+ * <p>Hạng theo kiểu thi đấu (1, 2, 2, 4). Percentile là phần trăm thí sinh có điểm
+ * nhỏ hơn hoặc bằng, nên người đứng đầu luôn có percentile 100.</p>
+ *
+ * <p>Chỉ dòng đổi hạng (thí sinh xếp sau người mới) được ghi từng dòng; percentile và tổng số
+ * của các dòng còn lại được cập nhật bằng một câu {@code UPDATE} theo đề khi tổng số đổi.</p>
+ *
+ * <p>Mọi method đều {@code synchronized}; một bảng chỉ bị khóa trong vài micro giây.</p>
+ */
+public final class QuizLeaderboard {
+
+    static final int MAX_SCORE = 100;
+
+    private final UUID quizId;
+    /** Cây Fenwick 1-based; điểm {@code s} nằm ở vị trí {@code s + 1}. */
+    private final int[] tree = new int[MAX_SCORE + 2];
+    private final List<LinkedHashSet<UUID>> buckets = new ArrayList<>(MAX_SCORE + 1);
+    private final Map<UUID, Standing> standings = new HashMap<>();
+    /** Số bài nộp chính thức đã ghi nhận (kể cả bài không cải thiện điểm). */
+    private long finalSubmissions;
+    private boolean modified;
+
+    QuizLeaderboard(UUID quizId) {
+        this.quizId = quizId;
+        for (int i = 0; i <= MAX_SCORE; i++) {
+            buckets.add(new LinkedHashSet<>());
+        }
+    }
+
+    UUID getQuizId() {
+        return quizId;
+    }
+
+    /**
+     * Nạp một dòng lúc dựng bảng từ database, kèm hạng đã ghi trong {@code quiz_rankings}.
+     */
+    synchronized void load(UUID studentId, UUID submissionId, int score, Integer writtenRank) {
+        Standing standing = place(studentId, submissionId, score);
+        standing.writtenRank = writtenRank;
+        standing.writtenSubmissionId = writtenRank != null ? submissionId : null;
+        modified = true;
+    }
+
+    synchronized void setFinalSubmissions(long finalSubmissions) {
+        this.finalSubmissions = finalSubmissions;
+    }
+
+    synchronized long getFinalSubmissions() {
+        return finalSubmissions;
+    }
+
+    /**
+     * Ghi nhận một bài nộp chính thức.
+     *
+     * @return true nếu bảng xếp hạng thay đổi (thí sinh mới hoặc điểm cao hơn)
+     */
+    synchronized boolean record(UUID studentId, UUID submissionId, int score) {
+        finalSubmissions++;
+        Standing current = standings.get(studentId);
+        if (current != null && clamp(score) <= current.score) {
+            return false;
+        }
+        place(studentId, submissionId, score);
+        modified = true;
+        return true;
+    }
+
+    synchronized Position positionOf(UUID studentId) {
+        Standing standing = standings.get(studentId);
+        if (standing == null) {
+            return null;
+        }
+        int total = standings.size();
+        int rank = total - prefix(standing.score) + 1;
+        return new Position(studentId, standing.submissionId, standing.score, rank, percentile(rank, total), total);
+    }
+
+    synchronized List<Position> top(int limit) {
+        int total = standings.size();
+        List<Position> result = new ArrayList<>(Math.min(limit, total));
+        int above = 0;
+        for (int score = MAX_SCORE; score >= 0 && result.size() < limit; score--) {
+            LinkedHashSet<UUID> bucket = buckets.get(score);
+            if (bucket.isEmpty()) {
+                continue;
+            }
+            int rank = above + 1;
+            BigDecimal percentile = percentile(rank, total);
+            Iterator<UUID> it = bucket.iterator();
+            while (it.hasNext() && result.size() < limit) {
+                UUID studentId = it.next();
+                result.add(new Position(studentId, standings.get(studentId).submissionId, score, rank, percentile, total));
+            }
+            above += bucket.size();
+        }
+        return result;
+    }
+
+    synchronized int size() {
+        return standings.size();
+    }
+
+    /**
+     * Các dòng có hạng hoặc bài nộp khác với giá trị đã ghi xuống database. Duyệt bucket từ
+     * điểm cao xuống; số dòng trả về chỉ gồm thí sinh bị đổi hạng.
+     */
+    synchronized List<Position> pendingWrites() {
+        if (!modified) {
+            return List.of();
+        }
+        modified = false;
+        int total = standings.size();
+        List<Position> changed = new ArrayList<>();
+        int above = 0;
+        for (int score = MAX_SCORE; score >= 0; score--) {
+            LinkedHashSet<UUID> bucket = buckets.get(score);
+            if (bucket.isEmpty()) {
+                continue;
+            }
+            int rank = above + 1;
+            BigDecimal percentile = percentile(rank, total);
+            for (UUID studentId : bucket) {
+                Standing s = standings.get(studentId);
+                if (!Integer.valueOf(rank).equals(s.writtenRank) || !s.submissionId.equals(s.writtenSubmissionId)) {
+                    changed.add(new Position(studentId, s.submissionId, score, rank, percentile, total));
+                }
+            }
+            above += bucket.size();
+        }
+        return changed;
+    }
+
+    /**
+     * Đánh dấu các dòng đã ghi thành công. Dòng nào đã đổi tiếp từ lúc lấy sẽ được ghi ở lượt sau.
+     */
+    synchronized void markWritten(List<Position> written) {
+        for (Position p : written) {
+            Standing s = standings.get(p.studentId());
+            if (s != null) {
+                s.writtenRank = p.rank();
+                s.writtenSubmissionId = p.submissionId();
+            }
+        }
+    }
+
+    /**
+     * Ghi thất bại: giữ cờ để lượt sau tính lại.
+     */
+    synchronized void markModified() {
+        modified = true;
+    }
+
+    private Standing place(UUID studentId, UUID submissionId, int rawScore) {
+        int score = clamp(rawScore);
+        Standing standing = standings.get(studentId);
+        if (standing == null) {
+            standing = new Standing();
+            standings.put(studentId, standing);
+        } else {
+            buckets.get(standing.score).remove(studentId);
+            add(standing.score, -1);
+        }
+        standing.submissionId = submissionId;
+        standing.score = score;
+        buckets.get(score).add(studentId);
+        add(score, 1);
+        return standing;
+    }
+
+    private void add(int score, int delta) {
+        for (int i = score + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /** Số thí sinh có điểm {@code <= score}. */
+    private int prefix(int score) {
+        int sum = 0;
+        for (int i = score + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private static BigDecimal percentile(int rank, int total) {
+        if (total == 0) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+        return BigDecimal.valueOf((long) (total - rank + 1) * 100)
+                .divide(BigDecimal.valueOf(total), 2, RoundingMode.HALF_UP);
+    }
+
+    private static int clamp(int score) {
+        return Math.max(0, Math.min(MAX_SCORE, score));
+    }
+
+    private static final class Standing {
+        UUID submissionId;
+        int score;
+        Integer writtenRank;
+        UUID writtenSubmissionId;
+    }
+
+    public record Position(UUID studentId, UUID submissionId, int score, int rank, BigDecimal percentile,
+                    int totalSubmissions) {}
+}
@@ -0,0 +1,115 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.exception.ResourceNotFoundException;
+import com.dao.examservice.repository.QuizRankingJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Xếp hạng và percentile theo đề thi, cập nhật tăng dần mỗi khi có bài nộp chính thức.
+ *
+ * <p>Bảng xếp hạng ({@link QuizLeaderboard}) của mỗi đề được dựng từ database ở lần truy cập
+ * đầu tiên, sau đó "hạng của tôi" và top-N được trả lời hoàn toàn từ bộ nhớ. Bảng
+ * {@code quiz_rankings} được ghi theo lô định kỳ: những dòng đổi hạng, và percentile / tổng số
+ * của cả đề bằng một câu cập nhật khi số thí sinh đổi.</p>
+ *
+ * <p>Nhiều replica: job định kỳ so số bài nộp chính thức trong database với số bài đã ghi
+ * nhận; lệch (do replica khác chấm bài) thì bảng bị bỏ và dựng lại ở lần truy cập sau.</p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RankingService {
+
+    private final QuizRankingJdbcRepository rankingJdbcRepository;
+
+    @Value("${exam.ranking.max-top-limit:100}")
+    private int maxTopLimit;
+
+    private final Map<UUID, QuizLeaderboard> boards = new ConcurrentHashMap<>();
+
+    /**
+     * Ghi nhận bài nộp đã được lưu chính thức. Nếu bảng của đề chưa được nạp thì bỏ qua:
+     * lần nạp sau sẽ đọc bài này từ database.
+     */
+    public void recordFinalSubmission(UUID quizId, UUID studentId, UUID submissionId, int score) {
+        QuizLeaderboard board = boards.get(quizId);
+        if (board != null) {
+            board.record(studentId, submissionId, score);
+        }
+    }
+
+    public QuizLeaderboard.Position getPosition(UUID quizId, UUID studentId) {
+        QuizLeaderboard.Position position = board(quizId).positionOf(studentId);
+        if (position == null) {
+            throw new ResourceNotFoundException("No ranked submission for user " + studentId + " in exam " + quizId);
+        }
+        return position;
+    }
+
+    public List<QuizLeaderboard.Position> getTop(UUID quizId, int limit) {
+        return board(quizId).top(Math.max(1, Math.min(limit, maxTopLimit)));
+    }
+
+    /**
+     * Ghi các dòng xếp hạng thay đổi xuống {@code quiz_rankings}.
+     */
+    @Scheduled(fixedDelayString = "${exam.ranking.flush-interval-ms:5000}")
+    public void flush() {
+        for (QuizLeaderboard board : boards.values()) {
+            List<QuizLeaderboard.Position> changed = board.pendingWrites();
+            if (changed.isEmpty()) {
+                continue;
+            }
+            try {
+                rankingJdbcRepository.upsertRankings(board.getQuizId(), changed);
+                board.markWritten(changed);
+                log.debug("Wrote {} ranking rows for exam {}", changed.size(), board.getQuizId());
+            } catch (RuntimeException ex) {
+                board.markModified();
+                log.error("Failed to write rankings for exam {}: {}", board.getQuizId(), ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Bỏ các bảng lệch với database để dựng lại ở lần truy cập sau.
+     */
+    @Scheduled(fixedDelayString = "${exam.ranking.validate-interval-ms:60000}")
+    public void evictStale() {
+        if (boards.isEmpty()) {
+            return;
+        }
+        UUID[] quizIds = boards.keySet().toArray(new UUID[0]);
+        Map<UUID, Long> counts = rankingJdbcRepository.countFinalSubmissions(quizIds);
+        for (UUID quizId : quizIds) {
+            QuizLeaderboard board = boards.get(quizId);
+            if (board != null && board.getFinalSubmissions() != counts.getOrDefault(quizId, 0L)) {
+                boards.remove(quizId, board);
+                log.info("Leaderboard for exam {} is out of date, evicted", quizId);
+            }
+        }
+    }
+
+    private QuizLeaderboard board(UUID quizId) {
+        return boards.computeIfAbsent(quizId, this::load);
+    }
+
+    private QuizLeaderboard load(UUID quizId) {
+        QuizLeaderboard board = new QuizLeaderboard(quizId);
+        board.setFinalSubmissions(rankingJdbcRepository.countFinalSubmissions(new UUID[]{quizId})
+                .getOrDefault(quizId, 0L));
+        rankingJdbcRepository.streamBestSubmissions(quizId, row -> board.load(row.studentId(), row.submissionId(),
+                row.score(), row.rank()));
+        log.info("Loaded leaderboard for exam {} ({} students)", quizId, board.size());
+        return board;
+    }
+}
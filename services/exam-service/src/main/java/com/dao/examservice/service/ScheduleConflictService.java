@@ -0,0 +1,279 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.dto.response.ScheduleConflictResponse;
+import com.dao.examservice.entity.Exam;
+import com.dao.examservice.exception.ResourceNotFoundException;
+import com.dao.examservice.exception.ValidationException;
+import com.dao.examservice.repository.ExamRegistrationJdbcRepository;
+import com.dao.examservice.repository.ExamRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Phát hiện thí sinh bị trùng giờ thi.
+ *
+ * <p>Lịch của mọi thí sinh liên quan được nạp bằng một câu truy vấn (chỉ các kỳ thi giao với
+ * khoảng thời gian đang xét), mỗi thí sinh có một {@link IntervalTree} trên
+ * {@code startAt}/{@code endAt} các kỳ thi đã đăng ký; mỗi kỳ thi cần kiểm tra là một truy
+ * vấn chồng lấn trên cây đó. Hai kỳ thi nối tiếp nhau (kết thúc đúng lúc bắt đầu) không tính
+ * là trùng, trừ khi cấu hình {@code exam.schedule.min-gap-minutes}.</p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ScheduleConflictService {
+
+    private static final int DESCRIBED_CONFLICTS = 5;
+
+    private static final Comparator<ScheduleConflictResponse.Conflict> REPORT_ORDER =
+            Comparator.comparing((ScheduleConflictResponse.Conflict c) -> c.startAt)
+                    .thenComparing(c -> c.candidateId)
+                    .thenComparing(c -> c.examId)
+                    .thenComparing(c -> c.conflictingExamId);
+
+    private final ExamRepository examRepository;
+    private final ExamRegistrationJdbcRepository registrationJdbcRepository;
+
+    /** Khoảng nghỉ tối thiểu giữa hai kỳ thi của cùng một thí sinh. */
+    @Value("${exam.schedule.min-gap-minutes:0}")
+    private long minGapMinutes;
+
+    @Value("${exam.schedule.max-exams-per-check:500}")
+    private int maxExamsPerCheck;
+
+    @Value("${exam.schedule.max-reported-conflicts:1000}")
+    private int maxReportedConflicts;
+
+    /**
+     * Kiểm tra cohort hiện tại của các kỳ thi với mọi kỳ thi khác mà thí sinh đã đăng ký, kể cả
+     * giữa các kỳ thi trong danh sách với nhau (mỗi cặp báo một lần).
+     */
+    @Transactional(readOnly = true)
+    public ScheduleConflictResponse checkExams(Collection<UUID> examIds) {
+        if (examIds == null || examIds.isEmpty()) {
+            throw new ValidationException("examIds must not be empty");
+        }
+        List<UUID> ids = new ArrayList<>(new LinkedHashSet<>(examIds));
+        if (ids.size() > maxExamsPerCheck) {
+            throw new ValidationException("Too many exams in one check (max " + maxExamsPerCheck + ")");
+        }
+        Map<UUID, Exam> exams = new HashMap<>();
+        for (Exam exam : examRepository.findAllById(ids)) {
+            if (!exam.isDeleted()) {
+                exams.put(exam.getId(), exam);
+            }
+        }
+        Map<UUID, Window> proposed = new LinkedHashMap<>();
+        List<UUID> unscheduled = new ArrayList<>();
+        for (UUID id : ids) {
+            Exam exam = exams.get(id);
+            if (exam == null) {
+                throw new ResourceNotFoundException("Exam not found with id: " + id);
+            }
+            if (exam.getStartAt() != null && exam.getEndAt() != null) {
+                proposed.put(id, Window.of(exam));
+            } else {
+                unscheduled.add(id);
+            }
+        }
+
+        Scan scan = new Scan(proposed);
+        if (!proposed.isEmpty()) {
+            registrationJdbcRepository.streamCohortSchedules(proposed.keySet().toArray(new UUID[0]),
+                    scan.from(), scan.to(), scan::add);
+        }
+        ScheduleConflictResponse report = scan.report();
+        report.examIds = ids;
+        report.unscheduledExamIds = unscheduled;
+        log.info("Schedule conflict check of {} exams: {} candidates, {} with conflicts, {} conflicts",
+                ids.size(), report.candidatesChecked, report.candidatesWithConflicts, report.conflictCount);
+        return report;
+    }
+
+    /**
+     * Khóa các thí sinh liên quan tới hết transaction của caller rồi kiểm tra như
+     * {@link #checkSchedule}; ném {@link ValidationException} nếu có thí sinh bị trùng giờ.
+     * Hai lần xếp lịch hay đăng ký song song cho cùng thí sinh không thể cùng qua kiểm tra rồi
+     * cùng đăng ký.
+     */
+    @Transactional
+    public void requireNoConflicts(Exam exam, Collection<UUID> candidateIds, boolean wholeCohort) {
+        registrationJdbcRepository.lockCandidates(exam.getId(), candidateIds, wholeCohort);
+        ScheduleConflictResponse conflicts = checkSchedule(exam, candidateIds, wholeCohort);
+        if (conflicts.conflictCount > 0) {
+            throw new ValidationException(describe(conflicts));
+        }
+    }
+
+    /**
+     * Kiểm tra một kỳ thi với khung giờ đang đặt trên {@code exam} (có thể chưa lưu): cho các
+     * thí sinh sắp đăng ký, và cho cả cohort hiện tại nếu {@code wholeCohort}.
+     */
+    @Transactional(readOnly = true)
+    public ScheduleConflictResponse checkSchedule(Exam exam, Collection<UUID> candidateIds, boolean wholeCohort) {
+        Map<UUID, Window> proposed = new LinkedHashMap<>();
+        if (exam.getStartAt() != null && exam.getEndAt() != null) {
+            proposed.put(exam.getId(), Window.of(exam));
+        }
+        Scan scan = new Scan(proposed);
+        if (!proposed.isEmpty()) {
+            UUID[] examIds = {exam.getId()};
+            if (wholeCohort) {
+                registrationJdbcRepository.streamCohortSchedules(examIds, scan.from(), scan.to(), scan::add);
+            }
+            List<UUID> candidates = new ArrayList<>(new LinkedHashSet<>(candidateIds));
+            if (!candidates.isEmpty()) {
+                registrationJdbcRepository.streamSchedules(candidates, examIds, scan.from(), scan.to(), scan::add);
+                candidates.forEach(candidate -> scan.addProposed(candidate, exam.getId()));
+            }
+        }
+        ScheduleConflictResponse report = scan.report();
+        report.examIds = List.of(exam.getId());
+        report.unscheduledExamIds = proposed.isEmpty() ? List.of(exam.getId()) : List.of();
+        return report;
+    }
+
+    /**
+     * Thông báo lỗi ngắn gọn: tổng số và vài xung đột đầu tiên.
+     */
+    public static String describe(ScheduleConflictResponse report) {
+        StringBuilder message = new StringBuilder()
+                .append(report.candidatesWithConflicts).append(" candidate(s) have overlapping exams (")
+                .append(report.conflictCount).append(" conflicts)");
+        report.conflicts.stream().limit(DESCRIBED_CONFLICTS).forEach(c -> message
+                .append("; candidate ").append(c.candidateId)
+                .append(": '").append(c.examTitle).append("' ").append(c.startAt).append(" - ").append(c.endAt)
+                .append(" vs '").append(c.conflictingExamTitle).append("' ")
+                .append(c.conflictingStartAt).append(" - ").append(c.conflictingEndAt));
+        if (report.conflictCount > DESCRIBED_CONFLICTS) {
+            message.append("; ...");
+        }
+        return message.toString();
+    }
+
+    private record Window(UUID examId, String title, Instant startAt, Instant endAt) {
+
+        static Window of(Exam exam) {
+            return new Window(exam.getId(), exam.getTitle(), exam.getStartAt(), exam.getEndAt());
+        }
+    }
+
+    /**
+     * Lịch của từng thí sinh trong một lần kiểm tra. Khung giờ của các kỳ thi đang kiểm tra
+     * lấy từ {@code proposed}, không lấy từ database.
+     */
+    private final class Scan {
+
+        private final Map<UUID, Window> proposed;
+        private final Map<UUID, Map<UUID, Window>> schedules = new HashMap<>();
+        private final long gapMillis = Duration.ofMinutes(Math.max(0, minGapMinutes)).toMillis();
+
+        Scan(Map<UUID, Window> proposed) {
+            this.proposed = proposed;
+        }
+
+        Instant from() {
+            return proposed.values().stream().map(Window::startAt).min(Comparator.naturalOrder())
+                    .orElseThrow().minusMillis(gapMillis);
+        }
+
+        Instant to() {
+            return proposed.values().stream().map(Window::endAt).max(Comparator.naturalOrder())
+                    .orElseThrow().plusMillis(gapMillis);
+        }
+
+        void add(ExamRegistrationJdbcRepository.ScheduledExam row) {
+            Window window = proposed.get(row.examId());
+            if (window == null) {
+                if (row.startAt() == null || row.endAt() == null) {
+                    return;
+                }
+                window = new Window(row.examId(), row.title(), row.startAt(), row.endAt());
+            }
+            schedules.computeIfAbsent(row.userId(), id -> new LinkedHashMap<>()).putIfAbsent(row.examId(), window);
+        }
+
+        void addProposed(UUID userId, UUID examId) {
+            schedules.computeIfAbsent(userId, id -> new LinkedHashMap<>()).putIfAbsent(examId, proposed.get(examId));
+        }
+
+        /**
+         * Giữ {@code maxReportedConflicts} xung đột đầu tiên theo (giờ bắt đầu, thí sinh) bằng
+         * một heap có giới hạn, để báo cáo bị cắt vẫn ổn định giữa các lần gọi.
+         */
+        ScheduleConflictResponse report() {
+            ScheduleConflictResponse report = new ScheduleConflictResponse();
+            int limit = Math.max(0, maxReportedConflicts);
+            PriorityQueue<ScheduleConflictResponse.Conflict> kept = new PriorityQueue<>(REPORT_ORDER.reversed());
+            for (Map.Entry<UUID, Map<UUID, Window>> entry : schedules.entrySet()) {
+                Map<UUID, Window> schedule = entry.getValue();
+                report.candidatesChecked++;
+                if (schedule.size() < 2) {
+                    continue;
+                }
+                IntervalTree<Window> tree = new IntervalTree<>(schedule.values(),
+                        w -> w.startAt().toEpochMilli(), w -> w.endAt().toEpochMilli());
+                int before = report.conflictCount;
+                for (Window mine : schedule.values()) {
+                    if (!proposed.containsKey(mine.examId())) {
+                        continue;
+                    }
+                    for (Window other : tree.overlapping(mine.startAt().toEpochMilli() - gapMillis,
+                            mine.endAt().toEpochMilli() + gapMillis)) {
+                        if (other.examId().equals(mine.examId())
+                                || (proposed.containsKey(other.examId()) && other.examId().compareTo(mine.examId()) < 0)) {
+                            continue;
+                        }
+                        report.conflictCount++;
+                        if (limit > 0) {
+                            kept.add(toConflict(entry.getKey(), mine, other));
+                            if (kept.size() > limit) {
+                                kept.poll();
+                            }
+                        }
+                    }
+                }
+                if (report.conflictCount > before) {
+                    report.candidatesWithConflicts++;
+                }
+            }
+            report.conflicts = new ArrayList<>(kept);
+            report.conflicts.sort(REPORT_ORDER);
+            report.truncated = report.conflictCount > report.conflicts.size();
+            return report;
+        }
+
+        private ScheduleConflictResponse.Conflict toConflict(UUID candidateId, Window mine, Window other) {
+            ScheduleConflictResponse.Conflict conflict = new ScheduleConflictResponse.Conflict();
+            conflict.candidateId = candidateId;
+            conflict.examId = mine.examId();
+            conflict.examTitle = mine.title();
+            conflict.startAt = mine.startAt();
+            conflict.endAt = mine.endAt();
+            conflict.conflictingExamId = other.examId();
+            conflict.conflictingExamTitle = other.title();
+            conflict.conflictingStartAt = other.startAt();
+            conflict.conflictingEndAt = other.endAt();
+            Instant overlapStart = mine.startAt().isAfter(other.startAt()) ? mine.startAt() : other.startAt();
+            Instant overlapEnd = mine.endAt().isBefore(other.endAt()) ? mine.endAt() : other.endAt();
+            conflict.overlapMinutes = Math.max(0, Duration.between(overlapStart, overlapEnd).toMinutes());
+            return conflict;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.entity.Exam;
+import com.dao.examservice.entity.Question;
+import com.dao.examservice.exception.ValidationException;
+import com.dao.examservice.repository.ExamRepository;
+import com.dao.examservice.repository.QuestionRepository;
+import com.dao.examservice.repository.SearchJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Tìm kiếm toàn văn đề thi và ngân hàng câu hỏi, không phân biệt dấu tiếng Việt.
+ *
+ * <p>Chuỗi tìm kiếm được tách thành các từ; mỗi từ được khớp như tiền tố (phù hợp tìm kiếm
+ * khi đang gõ) và toàn bộ chuỗi còn được khớp gần đúng bằng trigram. Phân trang bằng cursor
+ * {@code (rank, id)} thay cho offset.</p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SearchService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_TERMS = 8;
+    private static final int MAX_QUERY_LENGTH = 200;
+
+    private final SearchJdbcRepository searchJdbcRepository;
+    private final ExamRepository examRepository;
+    private final QuestionRepository questionRepository;
+
+    @Transactional(readOnly = true)
+    public Result<Exam> searchExams(String query, Exam.ExamStatus status, String cursor, int size) {
+        String term = normalizeTerm(query);
+        List<SearchJdbcRepository.Hit> hits = searchJdbcRepository.searchExams(
+                toPrefixQuery(term), term, status, decodeCursor(cursor), pageSize(size) + 1);
+        return toResult(hits, pageSize(size), examRepository::findAllById, Exam::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public Result<Question> searchQuestions(String query, String cursor, int size) {
+        String term = normalizeTerm(query);
+        List<SearchJdbcRepository.Hit> hits = searchJdbcRepository.searchQuestions(
+                toPrefixQuery(term), term, decodeCursor(cursor), pageSize(size) + 1);
+        return toResult(hits, pageSize(size), questionRepository::findAllById, Question::getId);
+    }
+
+    /**
+     * Nạp entity theo thứ tự xếp hạng. Trang được truy vấn dư một dòng để biết còn trang sau.
+     */
+    private <T> Result<T> toResult(List<SearchJdbcRepository.Hit> hits, int size,
+                                   Function<List<UUID>, List<T>> loader, Function<T, UUID> idOf) {
+        boolean hasMore = hits.size() > size;
+        List<SearchJdbcRepository.Hit> page = hasMore ? hits.subList(0, size) : hits;
+        if (page.isEmpty()) {
+            return new Result<>(List.of(), null);
+        }
+
+        List<UUID> ids = new ArrayList<>(page.size());
+        page.forEach(hit -> ids.add(hit.id()));
+        Map<UUID, T> loaded = new HashMap<>(ids.size() * 2);
+        for (T entity : loader.apply(ids)) {
+            loaded.put(idOf.apply(entity), entity);
+        }
+
+        List<T> items = new ArrayList<>(page.size());
+        for (UUID id : ids) {
+            T entity = loaded.get(id);
+            if (entity != null) {
+                items.add(entity);
+            }
+        }
+        return new Result<>(items, hasMore ? encodeCursor(page.get(page.size() - 1)) : null);
+    }
+
+    private static String normalizeTerm(String query) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Search query must not be empty");
+        }
+        // Dạng NFC: chữ có dấu gõ ở dạng tổ hợp (NFD, thường gặp trên macOS) thành một ký tự.
+        String term = Normalizer.normalize(query.strip(), Normalizer.Form.NFC);
+        return term.length() > MAX_QUERY_LENGTH ? term.substring(0, MAX_QUERY_LENGTH) : term;
+    }
+
+    /**
+     * "Toán  học!" → {@code "Toán:* & học:*"}. Chỉ giữ chữ, số và dấu kết hợp (dấu không có
+     * dạng dựng sẵn sau NFC) nên chuỗi luôn là tsquery hợp lệ.
+     */
+    static String toPrefixQuery(String term) {
+        StringBuilder query = new StringBuilder();
+        int terms = 0;
+        int i = 0;
+        int len = term.length();
+        while (i < len && terms < MAX_TERMS) {
+            while (i < len && !Character.isLetterOrDigit(term.codePointAt(i))) {
+                i += Character.charCount(term.codePointAt(i));
+            }
+            int start = i;
+            while (i < len && isWordChar(term.codePointAt(i))) {
+                i += Character.charCount(term.codePointAt(i));
+            }
+            if (i > start) {
+                if (terms > 0) {
+                    query.append(" & ");
+                }
+                query.append(term, start, i).append(":*");
+                terms++;
+            }
+        }
+        if (terms == 0) {
+            throw new ValidationException("Search query must contain letters or digits");
+        }
+        return query.toString();
+    }
+
+    private static boolean isWordChar(int codePoint) {
+        return Character.isLetterOrDigit(codePoint) || Character.getType(codePoint) == Character.NON_SPACING_MARK;
+    }
+
+    private static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    private static String encodeCursor(SearchJdbcRepository.Hit hit) {
+        String raw = Long.toHexString(Double.doubleToLongBits(hit.rank())) + ":" + hit.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static SearchJdbcRepository.Hit decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            double rank = Double.longBitsToDouble(Long.parseUnsignedLong(raw.substring(0, sep), 16));
+            return new SearchJdbcRepository.Hit(UUID.fromString(raw.substring(sep + 1)), rank);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ValidationException("Invalid search cursor");
+        }
+    }
+
+    public record Result<T>(List<T> items, String nextCursor) {
+    }
+}
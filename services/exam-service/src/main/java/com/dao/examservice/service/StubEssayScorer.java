@@ -0,0 +1,83 @@
+package com.dao.examservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Model chấm tự luận cục bộ, không gọi mạng: điểm tỉ lệ với số từ của tiêu chí (hoặc câu
+ * hỏi) xuất hiện trong câu trả lời. Độ trễ và tỉ lệ lỗi giả lập cấu hình được, để chạy
+ * thử tải {@link EssayScoringPipeline} (giới hạn đồng thời, rate limit, retry) offline.
+ */
+@Component
+public class StubEssayScorer implements EssayScorer {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private final long latencyMillis;
+    private final double failureRate;
+
+    public StubEssayScorer(@Value("${exam.essay.stub.latency-ms:200}") long latencyMillis,
+                           @Value("${exam.essay.stub.failure-rate:0.0}") double failureRate) {
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public String name() {
+        return "stub";
+    }
+
+    @Override
+    public EssayScoringService.EssayScoreResult score(String questionContent, String studentAnswer,
+                                                      int maxScore, String gradingCriteria) {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted", e);
+            }
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new IllegalStateException("Simulated scoring failure");
+        }
+
+        Set<String> expected = words(gradingCriteria != null && !gradingCriteria.isBlank() ? gradingCriteria : questionContent);
+        Set<String> answered = words(studentAnswer);
+        int matched = 0;
+        for (String word : expected) {
+            if (answered.contains(word)) {
+                matched++;
+            }
+        }
+        double coverage = expected.isEmpty() ? 0d : (double) matched / expected.size();
+        int score = (int) Math.round(Math.min(1d, coverage) * maxScore);
+        return new EssayScoringService.EssayScoreResult(score,
+                "Chấm tự động (stub): " + matched + "/" + expected.size() + " ý khớp tiêu chí.",
+                "", "");
+    }
+
+    private static Set<String> words(String text) {
+        Set<String> words = new HashSet<>();
+        if (text == null) {
+            return words;
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .replace('đ', 'd').replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+        for (String word : NON_WORD.split(folded)) {
+            if (word.length() > 2) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,31 @@
+package com.dao.examservice.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Chấm điểm một bài làm trắc nghiệm bằng đáp án đã biên dịch trong {@link AnswerKeyCache}.
+ *
+ * <p>Đáp án thí sinh gửi lên là chỉ số phương án ("0", "2"), chữ cái ("A", "C"),
+ * nhiều phương án cách nhau bởi dấu phẩy ("0,2"), hoặc nguyên văn nội dung phương án.
+ * Khi đề bật {@code partialScoringEnabled}, câu nhiều đáp án được chấm điểm từng phần.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class SubmissionGrader {
+
+    private final AnswerKeyCache answerKeyCache;
+
+    public GradeResult grade(UUID examId, Map<UUID, String> answers) {
+        return answerKeyCache.get(examId).grade(answers);
+    }
+
+    public record QuestionOutcome(UUID questionId, boolean correct, BigDecimal points) {}
+
+    public record GradeResult(int score, int correctAnswers, int wrongAnswers, int totalQuestions,
+                              Map<UUID, QuestionOutcome> outcomes) {}
+}
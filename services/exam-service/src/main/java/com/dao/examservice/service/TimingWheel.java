@@ -0,0 +1,156 @@
+package com.dao.examservice.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel: 4 tầng x 64 ô. Ô tầng {@code l} dài {@code 64^l} tick, nên với
+ * tick 1 giây wheel phủ khoảng 194 ngày; mốc xa hơn nằm trong danh sách tràn và được xếp lại
+ * khi tầng trên cùng quay hết một vòng.
+ *
+ * <p>Đặt lịch, hủy và lấy các mốc đến hạn đều O(1) theo số mốc đang chờ (không quét bảng,
+ * không dùng heap). Mốc ở tầng cao được hạ dần xuống tầng thấp khi thời gian tiến tới.
+ * Đặt lại cùng một key sẽ thay mốc cũ.</p>
+ *
+ * <p>Thread-safe (mọi thao tác đồng bộ trên instance).</p>
+ */
+final class TimingWheel<K> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final Map<K, Long>[][] buckets;
+    private final Map<K, Long> overflow = new HashMap<>();
+    /** key → tick đến hạn; dùng để hủy / đặt lại. */
+    private final Map<K, Long> deadlines = new HashMap<>();
+    private final List<K> ready = new ArrayList<>();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, Instant now) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.buckets = new Map[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                buckets[level][slot] = new HashMap<>();
+            }
+        }
+        this.currentTick = now.toEpochMilli() / tickMillis;
+    }
+
+    synchronized void schedule(K key, Instant deadline) {
+        cancel(key);
+        // Làm tròn lên: không bao giờ bắn trước mốc.
+        long tick = Math.floorDiv(deadline.toEpochMilli() + tickMillis - 1, tickMillis);
+        deadlines.put(key, tick);
+        place(key, tick);
+    }
+
+    synchronized boolean cancel(K key) {
+        Long tick = deadlines.remove(key);
+        if (tick == null) {
+            return false;
+        }
+        if (tick <= currentTick) {
+            ready.remove(key);
+            return true;
+        }
+        Map<K, Long> bucket = bucketFor(tick);
+        (bucket != null ? bucket : overflow).remove(key);
+        return true;
+    }
+
+    synchronized int size() {
+        return deadlines.size();
+    }
+
+    synchronized void clear() {
+        for (Map<K, Long>[] level : buckets) {
+            for (Map<K, Long> bucket : level) {
+                bucket.clear();
+            }
+        }
+        overflow.clear();
+        deadlines.clear();
+        ready.clear();
+    }
+
+    /**
+     * Tiến wheel tới {@code now} và trả về các key đã đến hạn (đã bị gỡ khỏi wheel).
+     */
+    synchronized List<K> advance(Instant now) {
+        long target = now.toEpochMilli() / tickMillis;
+        while (currentTick < target) {
+            currentTick++;
+            cascade();
+            Map<K, Long> due = buckets[0][(int) (currentTick & MASK)];
+            if (!due.isEmpty()) {
+                ready.addAll(due.keySet());
+                due.clear();
+            }
+        }
+        if (ready.isEmpty()) {
+            return List.of();
+        }
+        List<K> fired = new ArrayList<>(ready);
+        ready.clear();
+        fired.forEach(deadlines::remove);
+        return fired;
+    }
+
+    /**
+     * Khi các tầng dưới quay hết một vòng, hạ các mốc trong ô hiện tại của tầng trên xuống.
+     * Đi từ tầng cao xuống để mốc vừa hạ có thể được hạ tiếp ngay trong cùng tick.
+     */
+    private void cascade() {
+        if ((currentTick & ((1L << (BITS * LEVELS)) - 1)) == 0 && !overflow.isEmpty()) {
+            Map<K, Long> pending = new HashMap<>(overflow);
+            overflow.clear();
+            pending.forEach(this::place);
+        }
+        for (int level = LEVELS - 1; level >= 1; level--) {
+            if ((currentTick & ((1L << (BITS * level)) - 1)) != 0) {
+                continue;
+            }
+            Map<K, Long> bucket = buckets[level][(int) ((currentTick >>> (BITS * level)) & MASK)];
+            if (!bucket.isEmpty()) {
+                Map<K, Long> pending = new HashMap<>(bucket);
+                bucket.clear();
+                pending.forEach(this::place);
+            }
+        }
+    }
+
+    private void place(K key, long tick) {
+        if (tick <= currentTick) {
+            ready.add(key);
+            return;
+        }
+        Map<K, Long> bucket = bucketFor(tick);
+        (bucket != null ? bucket : overflow).put(key, tick);
+    }
+
+    /**
+     * Tầng thấp nhất mà mốc và thời điểm hiện tại chung mọi bit phía trên tầng đó.
+     *
+     * @return {@code null} nếu mốc nằm ngoài phạm vi wheel (đi vào danh sách tràn)
+     */
+    private Map<K, Long> bucketFor(long tick) {
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = BITS * (level + 1);
+            if ((tick >>> shift) == (currentTick >>> shift)) {
+                return buckets[level][(int) ((tick >>> (BITS * level)) & MASK)];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,75 @@
+package com.dao.examservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AnswerSheetCodecTest {
+
+    @Test
+    void roundTripsChoicesAndTextInOrdinalOrder() {
+        long layoutId = AnswerSheetCodec.layoutId(UUID.randomUUID(), new UUID[]{UUID.randomUUID(), UUID.randomUUID()});
+        List<AnswerSheetCodec.Entry> entries = List.of(
+                AnswerSheetCodec.Entry.text(40, "Quang hợp là quá trình ..."),
+                AnswerSheetCodec.Entry.choice(0, 0b101, true),
+                AnswerSheetCodec.Entry.choice(3, 1 << 31, false),
+                AnswerSheetCodec.Entry.text(7, ""));
+
+        byte[] data = AnswerSheetCodec.encode(layoutId, entries);
+        AnswerSheetCodec.Sheet sheet = AnswerSheetCodec.decode(data);
+
+        assertThat(sheet.layoutId()).isEqualTo(layoutId);
+        assertThat(AnswerSheetCodec.layoutIdOf(data)).isEqualTo(layoutId);
+        assertThat(sheet.entries()).containsExactly(
+                AnswerSheetCodec.Entry.choice(0, 0b101, true),
+                AnswerSheetCodec.Entry.choice(3, 1 << 31, false),
+                AnswerSheetCodec.Entry.text(7, ""),
+                AnswerSheetCodec.Entry.text(40, "Quang hợp là quá trình ..."));
+    }
+
+    @Test
+    void layoutIdDependsOnQuestionOrder() {
+        UUID examId = UUID.randomUUID();
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+
+        assertThat(AnswerSheetCodec.layoutId(examId, new UUID[]{a, b}))
+                .isEqualTo(AnswerSheetCodec.layoutId(examId, new UUID[]{a, b}))
+                .isNotEqualTo(AnswerSheetCodec.layoutId(examId, new UUID[]{b, a}));
+    }
+
+    @Test
+    void rejectsDuplicateOrdinals() {
+        assertThatThrownBy(() -> AnswerSheetCodec.encode(1L, List.of(
+                AnswerSheetCodec.Entry.choice(2, 1, true), AnswerSheetCodec.Entry.choice(2, 2, false))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        byte[] data = AnswerSheetCodec.encode(42L, List.of(AnswerSheetCodec.Entry.text(0, "essay answer")));
+
+        assertThatThrownBy(() -> AnswerSheetCodec.decode(Arrays.copyOf(data, data.length - 3)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AnswerSheetCodec.decode(new byte[0]))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AnswerSheetCodec.layoutIdOf(new byte[]{AnswerSheetCodec.VERSION, 1, 2}))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        byte[] wrongVersion = data.clone();
+        wrongVersion[0] = 9;
+        assertThatThrownBy(() -> AnswerSheetCodec.decode(wrongVersion))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        byte[] endlessVarint = new byte[20];
+        endlessVarint[0] = AnswerSheetCodec.VERSION;
+        Arrays.fill(endlessVarint, 9, endlessVarint.length, (byte) 0x80);
+        assertThatThrownBy(() -> AnswerSheetCodec.decode(endlessVarint))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
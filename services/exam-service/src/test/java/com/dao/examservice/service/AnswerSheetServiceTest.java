@@ -0,0 +1,76 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.entity.Question;
+import com.dao.examservice.repository.AnswerSheetJdbcRepository;
+import com.dao.examservice.repository.SchedulerLeaseJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnswerSheetServiceTest {
+
+    private final UUID choice = UUID.randomUUID();
+    private final UUID essay = UUID.randomUUID();
+    private final CompiledAnswerKey key = new CompiledAnswerKey(UUID.randomUUID(), new UUID[]{choice, essay},
+            new int[]{0b10, 0}, new int[]{1, 1}, new boolean[]{true, false},
+            new String[][]{{"A", "B"}, {}}, new String[]{"Pick", "Explain"},
+            new Question.QuestionType[]{Question.QuestionType.MULTIPLE_CHOICE, Question.QuestionType.ESSAY},
+            false, false, false, false, 0L, 0L);
+
+    private final AnswerSheetJdbcRepository sheetRepository = mock(AnswerSheetJdbcRepository.class);
+    private final SchedulerLeaseJdbcRepository leaseRepository = mock(SchedulerLeaseJdbcRepository.class);
+    private final AnswerSheetService service = new AnswerSheetService(sheetRepository, leaseRepository,
+            mock(AnswerKeyCache.class), mock(TransactionTemplate.class));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "backfillBatchSize", 10);
+        ReflectionTestUtils.setField(service, "maxBatchesPerRun", 1);
+        ReflectionTestUtils.setField(service, "compactAfterMillis", -1L);
+        ReflectionTestUtils.setField(service, "compactBatchRows", 100);
+        ReflectionTestUtils.setField(service, "leaseTtlMillis", 1000L);
+    }
+
+    @Test
+    void encodesAndDecodesBySubmittedQuestion() {
+        byte[] sheet = service.encode(key, Map.of(choice, "1", essay, "Because."),
+                Map.of(choice, new SubmissionGrader.QuestionOutcome(choice, true, BigDecimal.ONE)));
+        when(sheetRepository.findLayout(key.getLayoutId())).thenReturn(Optional.of(new UUID[]{choice, essay}));
+
+        assertThat(service.decode(sheet)).containsExactly(
+                new AnswerSheetService.DecodedAnswer(choice, 0, 0b10, true, null),
+                new AnswerSheetService.DecodedAnswer(essay, 1, 0, false, "Because."));
+    }
+
+    @Test
+    void keepsRowsWhenTheKeyNoLongerMatches() {
+        assertThat(service.encode(key, Map.of(UUID.randomUUID(), "0"), Map.of())).isNull();
+        assertThat(service.encode(key, Map.of(choice, "1"), Map.of())).isNull();
+    }
+
+    @Test
+    void doesNotDeleteAnswerRowsUnlessCompactionIsEnabled() {
+        when(leaseRepository.tryAcquire(eq("answer-sheet"), any(), any())).thenReturn(true);
+        when(sheetRepository.findUnencoded(any(), anyInt())).thenReturn(List.of());
+
+        service.migrate();
+
+        verify(sheetRepository, never()).deleteEncodedChoiceAnswers(any(), anyInt());
+    }
+}
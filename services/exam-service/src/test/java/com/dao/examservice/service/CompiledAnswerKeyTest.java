@@ -0,0 +1,80 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.entity.Question;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompiledAnswerKeyTest {
+
+    private final UUID single = UUID.randomUUID();
+    private final UUID multiple = UUID.randomUUID();
+    private final UUID essay = UUID.randomUUID();
+
+    @Test
+    void gradesExactAnswersInEveryAcceptedFormat() {
+        CompiledAnswerKey key = key(false);
+
+        // Câu tự luận (4/8 điểm) chấm sau, nên phần trắc nghiệm đúng hết là 50.
+        assertThat(key.grade(Map.of(single, "1", multiple, "0,2")).score()).isEqualTo(50);
+        assertThat(key.grade(Map.of(single, "B", multiple, "a, c")).score()).isEqualTo(50);
+        assertThat(key.grade(Map.of(single, "Paris", multiple, "2,0")).score()).isEqualTo(50);
+    }
+
+    @Test
+    void countsCorrectAndWrongAndSkipsEssays() {
+        SubmissionGrader.GradeResult result = key(false).grade(Map.of(single, "0", multiple, "0,2", essay, "text"));
+
+        assertThat(result.correctAnswers()).isEqualTo(1);
+        assertThat(result.wrongAnswers()).isEqualTo(1);
+        assertThat(result.totalQuestions()).isEqualTo(3);
+        assertThat(result.score()).isEqualTo(25);
+        assertThat(result.outcomes()).containsOnlyKeys(single, multiple);
+        assertThat(result.outcomes().get(single).points()).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    void partialScoringAwardsHitsMinusMisses() {
+        CompiledAnswerKey partial = key(true);
+        int multipleOrdinal = partial.ordinalOf(multiple);
+
+        assertThat(partial.award(multipleOrdinal, 0b001)).isEqualTo(1.0);
+        assertThat(partial.award(multipleOrdinal, 0b011)).isEqualTo(0.0);
+        assertThat(partial.award(multipleOrdinal, 0b101)).isEqualTo(2.0);
+        assertThat(key(false).award(multipleOrdinal, 0b001)).isEqualTo(0.0);
+    }
+
+    @Test
+    void displayOrderIsMappedBackToCanonicalOptions() {
+        CompiledAnswerKey key = key(false);
+        int[] optionOrder = {2, 0, 1};
+        int ordinal = key.ordinalOf(multiple);
+
+        assertThat(key.selectionMask(ordinal, "A,B", optionOrder)).isEqualTo(0b101);
+        assertThat(CompiledAnswerKey.toDisplayMask(0b101, optionOrder)).isEqualTo(0b011);
+        assertThat(CompiledAnswerKey.indexList(0b101)).isEqualTo("0,2");
+    }
+
+    @Test
+    void scoresMasksAndIgnoresUnknownQuestions() {
+        CompiledAnswerKey key = key(false);
+
+        assertThat(key.scoreMasks(new int[]{0b010, 0b101, 0})).isEqualTo(50);
+        assertThat(key.ordinalOf(UUID.randomUUID())).isEqualTo(-1);
+        assertThat(key.grade(Map.of(UUID.randomUUID(), "0")).score()).isZero();
+    }
+
+    private CompiledAnswerKey key(boolean partialScoring) {
+        return new CompiledAnswerKey(UUID.randomUUID(), new UUID[]{single, multiple, essay},
+                new int[]{0b010, 0b101, 0}, new int[]{2, 2, 4}, new boolean[]{true, true, false},
+                new String[][]{{"London", "Paris", "Rome"}, {"2", "3", "5"}, {}},
+                new String[]{"Capital of France?", "Primes?", "Explain."},
+                new Question.QuestionType[]{Question.QuestionType.MULTIPLE_CHOICE,
+                        Question.QuestionType.MULTIPLE_CHOICE, Question.QuestionType.ESSAY},
+                partialScoring, false, false, false, 0L, 0L);
+    }
+}
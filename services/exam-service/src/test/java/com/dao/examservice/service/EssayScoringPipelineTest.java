@@ -0,0 +1,85 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.repository.EssayScoringJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EssayScoringPipelineTest {
+
+    private final EssayScoringJdbcRepository repository = mock(EssayScoringJdbcRepository.class);
+    private final EssayScorer scorer = mock(EssayScorer.class);
+    private final EssayScoringPipeline pipeline = new EssayScoringPipeline(repository, List.of(scorer));
+    private final EssayScoringJdbcRepository.EssayAnswer answer = new EssayScoringJdbcRepository.EssayAnswer(
+            UUID.randomUUID(), UUID.randomUUID(), "Quang hợp tạo ra oxy.", "Quang hợp là gì?", null, 10);
+
+    @BeforeEach
+    void setUp() {
+        when(scorer.name()).thenReturn("test");
+        ReflectionTestUtils.setField(pipeline, "scorerName", "test");
+        ReflectionTestUtils.setField(pipeline, "maxConcurrency", 2);
+        ReflectionTestUtils.setField(pipeline, "ratePerSecond", 0d);
+        ReflectionTestUtils.setField(pipeline, "maxRetries", 2);
+        ReflectionTestUtils.setField(pipeline, "retryBackoffMillis", 1L);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 10);
+        ReflectionTestUtils.setField(pipeline, "cacheSize", 10);
+        pipeline.start();
+        when(repository.findUnscoredBySubmissions(any())).thenReturn(List.of(answer));
+    }
+
+    @Test
+    void retriesFailedCallsAndWritesTheScore() {
+        when(scorer.score(anyString(), anyString(), anyInt(), any()))
+                .thenThrow(new IllegalStateException("Empty response from the scoring model"))
+                .thenReturn(new EssayScoringService.EssayScoreResult(7, "Khá", "", ""));
+
+        pipeline.enqueueSubmissions(List.of(UUID.randomUUID()));
+        verify(scorer, timeout(2000).times(2)).score(anyString(), anyString(), anyInt(), any());
+        awaitIdle();
+        pipeline.stop();
+
+        verify(repository).updateScores(argThat(rows -> rows.size() == 1
+                && rows.get(0).answerId().equals(answer.answerId())
+                && rows.get(0).score().compareTo(BigDecimal.valueOf(7)) == 0));
+    }
+
+    @Test
+    void leavesTheScoreUnsetWhenEveryAttemptFails() {
+        when(scorer.score(anyString(), anyString(), anyInt(), any()))
+                .thenThrow(new IllegalStateException("No score in the response of the scoring model"));
+
+        pipeline.enqueueSubmissions(List.of(UUID.randomUUID()));
+        verify(scorer, timeout(2000).times(3)).score(anyString(), anyString(), anyInt(), any());
+        awaitIdle();
+        pipeline.stop();
+
+        verify(repository, never()).updateScores(anyList());
+        verify(scorer, times(3)).score(anyString(), anyString(), anyInt(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void awaitIdle() {
+        Set<UUID> queued = (Set<UUID>) ReflectionTestUtils.getField(pipeline, "queuedAnswers");
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!queued.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.dao.examservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EssayScoringServiceTest {
+
+    @Test
+    void parsesScoreAndFeedbackAndClampsToMaxScore() {
+        EssayScoringService.EssayScoreResult result = EssayScoringService.parseScoreResult(
+                "{\"score\": 12, \"feedback\": \"Tốt\", \"strengths\": \"Rõ ràng\", \"improvements\": \"Thêm ví dụ\"}", 10);
+
+        assertThat(result.score()).isEqualTo(10);
+        assertThat(result.feedback()).isEqualTo("Tốt");
+        assertThat(result.improvements()).isEqualTo("Thêm ví dụ");
+    }
+
+    @Test
+    void failsInsteadOfScoringZeroOnUnusableResponses() {
+        assertThatThrownBy(() -> EssayScoringService.parseScoreResult("  ", 10))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> EssayScoringService.parseScoreResult("I cannot grade this.", 10))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> EssayScoringService.parseScoreResult("{\"score\": \"n/a\", \"feedback\": \"\"}", 10))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
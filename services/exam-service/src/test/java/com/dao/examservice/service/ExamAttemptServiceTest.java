@@ -0,0 +1,189 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.entity.Exam;
+import com.dao.examservice.entity.Question;
+import com.dao.examservice.exception.ForbiddenException;
+import com.dao.examservice.repository.ExamAttemptJdbcRepository;
+import com.dao.examservice.repository.ExamQuestionRepository;
+import com.dao.examservice.repository.ExamRegistrationJdbcRepository;
+import com.dao.examservice.repository.ExamRepository;
+import com.dao.examservice.repository.QuizSubmissionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExamAttemptServiceTest {
+
+    private final ExamRepository examRepository = mock(ExamRepository.class);
+    private final ExamQuestionRepository examQuestionRepository = mock(ExamQuestionRepository.class);
+    private final ExamRegistrationJdbcRepository registrationRepository = mock(ExamRegistrationJdbcRepository.class);
+    private final ExamAttemptJdbcRepository attemptRepository = mock(ExamAttemptJdbcRepository.class);
+    private final AttemptJournal journal = mock(AttemptJournal.class);
+    private final ExamAdmissionGate admissionGate = mock(ExamAdmissionGate.class);
+    private final SubmissionGrader grader = mock(SubmissionGrader.class);
+    private final AnswerKeyCache answerKeyCache = mock(AnswerKeyCache.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final ExamAttemptService service = new ExamAttemptService(examRepository, examQuestionRepository,
+            mock(QuizSubmissionRepository.class), registrationRepository, attemptRepository, journal,
+            grader, answerKeyCache, admissionGate,
+            mock(ExamBundleService.class), mock(ExamService.class), mock(RankingService.class),
+            mock(EssayScoringPipeline.class), mock(AdaptiveTestingService.class), mock(AnswerSheetService.class),
+            transactionTemplate, new ObjectMapper());
+
+    private final UUID examId = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+    private final UUID first = UUID.randomUUID();
+    private final UUID second = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        Exam exam = new Exam();
+        exam.setId(examId);
+        exam.setStatus(Exam.ExamStatus.OPEN);
+        when(examRepository.findActiveById(examId)).thenReturn(Optional.of(exam));
+        when(examQuestionRepository.countByExamId(examId)).thenReturn(10L);
+        when(attemptRepository.findOpenSubmissionId(examId, userId)).thenReturn(Optional.empty());
+        when(answerKeyCache.get(examId)).thenReturn(new CompiledAnswerKey(examId, new UUID[]{first, second},
+                new int[]{0b001, 0b010}, new int[]{1, 1}, new boolean[]{true, true},
+                new String[][]{{"A", "B"}, {"A", "B"}}, new String[]{"First?", "Second?"},
+                new Question.QuestionType[]{Question.QuestionType.MULTIPLE_CHOICE,
+                        Question.QuestionType.MULTIPLE_CHOICE},
+                false, false, false, false, 0L, 0L));
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(new SimpleTransactionStatus());
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void refusesCandidatesWithoutAnActiveRegistration() {
+        when(registrationRepository.hasActiveRegistration(examId, userId)).thenReturn(false);
+
+        assertThatThrownBy(() -> service.start(examId, userId, "127.0.0.1", "test"))
+                .isInstanceOf(ForbiddenException.class);
+        verify(admissionGate, never()).admit();
+        verify(journal, never()).append(any());
+    }
+
+    @Test
+    void concurrentStartsOfOneCandidateShareOneAttempt() throws Exception {
+        when(registrationRepository.hasActiveRegistration(examId, userId)).thenReturn(true);
+        int threads = 8;
+        CountDownLatch ready = new CountDownLatch(threads);
+        Callable<LiveAttempt> start = () -> {
+            ready.countDown();
+            ready.await();
+            return service.start(examId, userId, "127.0.0.1", "test");
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Set<UUID> submissions = ConcurrentHashMap.newKeySet();
+        try {
+            List<Future<LiveAttempt>> results = executor.invokeAll(java.util.Collections.nCopies(threads, start));
+            for (Future<LiveAttempt> result : results) {
+                submissions.add(result.get().getSubmissionId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(submissions).hasSize(1);
+        verify(journal, times(1)).append(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void repeatedSavesOfAQuestionAreFlushedAsOneRow() {
+        when(registrationRepository.hasActiveRegistration(examId, userId)).thenReturn(true);
+        LiveAttempt attempt = service.start(examId, userId, "127.0.0.1", "test");
+        UUID submissionId = attempt.getSubmissionId();
+        service.saveAnswer(submissionId, userId, first, "0");
+        service.saveAnswer(submissionId, userId, first, "1");
+        service.saveAnswer(submissionId, userId, second, "1");
+        service.saveAnswer(submissionId, userId, first, "0");
+
+        service.flush();
+
+        ArgumentCaptor<List<ExamAttemptJdbcRepository.AnswerWrite>> writes = ArgumentCaptor.forClass(List.class);
+        verify(attemptRepository).upsertAnswers(writes.capture());
+        assertThat(writes.getValue()).extracting(write -> write.row().questionId() + "=" + write.row().selectedAnswer())
+                .containsExactlyInAnyOrder(first + "=0", second + "=1");
+        verify(attemptRepository).insertSubmissions(List.of(attempt));
+        verify(journal, times(5)).append(any());
+
+        service.flush();
+        verify(attemptRepository, times(1)).upsertAnswers(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void submitFlushesWithoutWaitingForTheInterval() {
+        when(registrationRepository.hasActiveRegistration(examId, userId)).thenReturn(true);
+        when(grader.grade(eq(examId), any())).thenReturn(new SubmissionGrader.GradeResult(100, 1, 0, 2, Map.of()));
+        service.startFlushExecutor();
+        try {
+            LiveAttempt attempt = service.start(examId, userId, "127.0.0.1", "test");
+            service.saveAnswer(attempt.getSubmissionId(), userId, first, "0");
+
+            service.submit(attempt.getSubmissionId(), userId);
+
+            ArgumentCaptor<List<ExamAttemptJdbcRepository.SubmissionResult>> results =
+                    ArgumentCaptor.forClass(List.class);
+            verify(attemptRepository, timeout(5000)).finalizeSubmissions(results.capture());
+            assertThat(results.getValue()).extracting(ExamAttemptJdbcRepository.SubmissionResult::submissionId)
+                    .containsExactly(attempt.getSubmissionId());
+        } finally {
+            service.stopFlushExecutor();
+        }
+    }
+
+    @Test
+    void manyUnflushedSavesTriggerAnEarlyFlush() {
+        when(registrationRepository.hasActiveRegistration(examId, userId)).thenReturn(true);
+        ReflectionTestUtils.setField(service, "flushThreshold", 3);
+        service.startFlushExecutor();
+        try {
+            LiveAttempt attempt = service.start(examId, userId, "127.0.0.1", "test");
+            service.saveAnswer(attempt.getSubmissionId(), userId, first, "0");
+            service.saveAnswer(attempt.getSubmissionId(), userId, second, "1");
+            verify(attemptRepository, after(200).never()).upsertAnswers(anyList());
+
+            service.saveAnswer(attempt.getSubmissionId(), userId, first, "1");
+
+            verify(attemptRepository, timeout(5000)).upsertAnswers(anyList());
+        } finally {
+            service.stopFlushExecutor();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.dao.examservice.service;
+
+import com.dao.common.notification.NotificationMessage;
+import com.dao.common.notification.NotificationProducerService;
+import com.dao.examservice.repository.ExamCohortOutboxJdbcRepository;
+import com.dao.examservice.repository.ExamRegistrationJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExamCohortNotifierTest {
+
+    private final ExamRegistrationJdbcRepository registrationRepository = mock(ExamRegistrationJdbcRepository.class);
+    private final ExamCohortOutboxJdbcRepository outboxRepository = mock(ExamCohortOutboxJdbcRepository.class);
+    private final NotificationProducerService producer = mock(NotificationProducerService.class);
+    private final ExamCohortNotifier notifier =
+            new ExamCohortNotifier(registrationRepository, outboxRepository, producer);
+
+    private final UUID examId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(notifier, "claimTtlMillis", 60_000L);
+        ReflectionTestUtils.setField(notifier, "maxAttempts", 5);
+    }
+
+    @Test
+    void eventsAreRecordedInTheOutbox() {
+        List<UUID> recipients = List.of(UUID.randomUUID());
+        Instant startAt = Instant.parse("2026-06-01T09:00:00Z");
+
+        notifier.record(new ExamCohortEvent(examId, ExamCohortEvent.Kind.SCHEDULED, "Final", startAt, recipients));
+
+        verify(outboxRepository).insert(examId, "SCHEDULED", "Final", startAt, recipients);
+        verify(producer, never()).sendNotification(any());
+    }
+
+    @Test
+    void drainNotifiesTheRegisteredCohortAndDeletesTheEntry() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        givenOutbox(new ExamCohortOutboxJdbcRepository.Entry(7, examId, "OPENED", "Final", null, null, 1));
+        doAnswer(invocation -> {
+            Consumer<UUID> consumer = invocation.getArgument(1);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).when(registrationRepository).streamUserIds(eq(examId), any());
+
+        notifier.drain();
+
+        ArgumentCaptor<NotificationMessage> messages = ArgumentCaptor.forClass(NotificationMessage.class);
+        verify(producer, times(2)).sendNotification(messages.capture());
+        assertThat(messages.getAllValues()).extracting(NotificationMessage::getRecipientUserId)
+                .containsExactly(first.toString(), second.toString());
+        verify(outboxRepository).delete(7);
+    }
+
+    @Test
+    void failedFanOutKeepsTheEntryForRetry() {
+        givenOutbox(new ExamCohortOutboxJdbcRepository.Entry(8, examId, "CANCELLED", "Final", null, null, 1));
+        doThrow(new IllegalStateException("connection reset"))
+                .when(registrationRepository).streamUserIds(eq(examId), any());
+
+        notifier.drain();
+
+        verify(outboxRepository, never()).delete(anyLong());
+    }
+
+    private void givenOutbox(ExamCohortOutboxJdbcRepository.Entry entry) {
+        when(outboxRepository.claimNext(any(), anyInt())).thenReturn(Optional.of(entry), Optional.empty());
+    }
+}
@@ -0,0 +1,48 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.entity.Exam;
+import com.dao.examservice.exception.ForbiddenException;
+import com.dao.examservice.repository.ExamQuestionJdbcRepository;
+import com.dao.examservice.repository.ExamRepository;
+import com.dao.examservice.repository.ExamTimelineJdbcRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExamPaperCacheTest {
+
+    private final ExamRepository examRepository = mock(ExamRepository.class);
+    private final ExamPaperCache cache = new ExamPaperCache(examRepository, mock(ExamQuestionJdbcRepository.class),
+            mock(ExamTimelineJdbcRepository.class), mock(AnswerKeyCache.class),
+            new ObjectMapper().findAndRegisterModules());
+
+    @Test
+    void adaptiveItemPoolIsHiddenFromNonStaff() {
+        UUID examId = givenExam(true);
+
+        assertThatThrownBy(() -> cache.getForViewer(examId, false)).isInstanceOf(ForbiddenException.class);
+        assertThat(cache.getForViewer(examId, true).adaptive()).isTrue();
+    }
+
+    @Test
+    void fixedPapersAreServedToEveryone() {
+        UUID examId = givenExam(false);
+
+        assertThat(cache.getForViewer(examId, false).body()).isNotEmpty();
+    }
+
+    private UUID givenExam(boolean adaptive) {
+        Exam exam = new Exam();
+        exam.setId(UUID.randomUUID());
+        exam.setAdaptive(adaptive);
+        when(examRepository.findByIdWithQuestions(exam.getId())).thenReturn(Optional.of(exam));
+        return exam.getId();
+    }
+}
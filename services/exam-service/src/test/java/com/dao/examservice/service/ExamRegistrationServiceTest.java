@@ -0,0 +1,101 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.dto.response.BulkRegistrationResponse;
+import com.dao.examservice.entity.Exam;
+import com.dao.examservice.exception.ValidationException;
+import com.dao.examservice.repository.ExamRegistrationJdbcRepository;
+import com.dao.examservice.repository.ExamRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExamRegistrationServiceTest {
+
+    private final ExamRepository examRepository = mock(ExamRepository.class);
+    private final ExamRegistrationJdbcRepository registrationRepository = mock(ExamRegistrationJdbcRepository.class);
+    private final ScheduleConflictService scheduleConflictService = mock(ScheduleConflictService.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final ExamRegistrationService service = new ExamRegistrationService(examRepository,
+            registrationRepository, scheduleConflictService, eventPublisher);
+
+    private final UUID candidate = UUID.randomUUID();
+    private Exam exam;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "maxBulkSize", 1000);
+        exam = new Exam();
+        exam.setId(UUID.randomUUID());
+        when(examRepository.findActiveById(exam.getId())).thenReturn(Optional.of(exam));
+        when(registrationRepository.insertMissing(any(), anyList())).thenReturn(List.of(candidate));
+    }
+
+    @Test
+    void bulkRegistrationIsRejectedOnScheduleConflicts() {
+        doThrow(new ValidationException("1 candidate(s) have overlapping exams"))
+                .when(scheduleConflictService).requireNoConflicts(any(), any(), anyBoolean());
+
+        assertThatThrownBy(() -> service.registerBulk(exam.getId(), List.of(candidate.toString()), false, false))
+                .isInstanceOf(ValidationException.class);
+        verify(scheduleConflictService).requireNoConflicts(exam, Set.of(candidate), false);
+        verify(registrationRepository, never()).insertMissing(any(), anyList());
+    }
+
+    @Test
+    void csvRegistrationGoesThroughTheSameCheck() throws Exception {
+        String csv = "candidate_id\n" + candidate + "\nnot-an-id\n";
+
+        BulkRegistrationResponse response = service.registerFromCsv(exam.getId(),
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), false, false);
+
+        verify(scheduleConflictService).requireNoConflicts(exam, Set.of(candidate), false);
+        assertThat(response.registered).isEqualTo(1);
+        assertThat(response.invalid).isEqualTo(1);
+    }
+
+    @Test
+    void reRegisteredCandidatesAreReportedAndNotified() {
+        UUID active = UUID.randomUUID();
+        exam.setCourseId(UUID.randomUUID());
+        // insertMissing returns new and reactivated (previously cancelled) candidates alike
+        when(registrationRepository.insertMissing(any(), anyList())).thenReturn(List.of(candidate));
+
+        BulkRegistrationResponse response = service.registerBulk(exam.getId(),
+                List.of(candidate.toString(), active.toString()), true, true);
+
+        assertThat(response.outcomes).extracting(o -> o.status).containsExactly("REGISTERED", "ALREADY_REGISTERED");
+        verify(registrationRepository).insertMissing(exam.getId(), List.of(candidate, active));
+        ArgumentCaptor<ExamCohortEvent> event = ArgumentCaptor.forClass(ExamCohortEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().recipients()).containsExactly(candidate);
+    }
+
+    @Test
+    void allowConflictsSkipsTheCheck() {
+        BulkRegistrationResponse response =
+                service.registerBulk(exam.getId(), List.of(candidate.toString()), false, true);
+
+        verify(scheduleConflictService, never()).requireNoConflicts(any(), any(), anyBoolean());
+        assertThat(response.registered).isEqualTo(1);
+    }
+}
@@ -0,0 +1,105 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.entity.Question;
+import com.dao.examservice.repository.ExamExportJdbcRepository;
+import com.dao.examservice.repository.ExamRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExamResultExportServiceTest {
+
+    private static final Instant SUBMITTED_AT = Instant.parse("2026-06-01T10:00:00Z");
+
+    private final ExamExportJdbcRepository exportRepository = mock(ExamExportJdbcRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final AnswerSheetService answerSheetService = mock(AnswerSheetService.class);
+    private final AnswerKeyCache answerKeyCache = mock(AnswerKeyCache.class);
+    private final ExamResultExportService service = new ExamResultExportService(mock(ExamRepository.class),
+            exportRepository, transactionManager, answerSheetService, answerKeyCache);
+
+    private final UUID examId = UUID.randomUUID();
+    private final UUID single = UUID.randomUUID();
+    private final UUID multiple = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void sheetPointsAreRecomputedWhileTheKeyIsUnchanged() throws Exception {
+        givenSubmission(key(SUBMITTED_AT.minusSeconds(3600)), true, false);
+
+        assertThat(answerScores(export())).containsExactly("2.00", "0.00");
+    }
+
+    @Test
+    void sheetPointsAreLeftEmptyOnceTheKeyWasEditedAfterSubmission() throws Exception {
+        givenSubmission(key(SUBMITTED_AT.plusSeconds(60)), true, false);
+
+        assertThat(answerScores(export())).containsExactly("", "");
+    }
+
+    @Test
+    void sheetPointsAreLeftEmptyWhenTheStoredOutcomeDisagreesWithTheKey() throws Exception {
+        // Stored as wrong, but the current key would accept the same selection
+        givenSubmission(key(SUBMITTED_AT.minusSeconds(3600)), false, false);
+
+        assertThat(answerScores(export())).containsExactly("", "0.00");
+    }
+
+    private CompiledAnswerKey key(Instant updatedAt) {
+        return new CompiledAnswerKey(examId, new UUID[]{single, multiple}, new int[]{0b010, 0b101},
+                new int[]{2, 2}, new boolean[]{true, true},
+                new String[][]{{"London", "Paris", "Rome"}, {"2", "3", "5"}},
+                new String[]{"Capital of France?", "Primes?"},
+                new Question.QuestionType[]{Question.QuestionType.MULTIPLE_CHOICE,
+                        Question.QuestionType.MULTIPLE_CHOICE},
+                false, false, false, false, updatedAt.toEpochMilli(), 0L);
+    }
+
+    /** Answers B to the first question and A to the second, with the given stored outcomes. */
+    private void givenSubmission(CompiledAnswerKey key, boolean firstCorrect, boolean secondCorrect) {
+        when(answerKeyCache.get(examId)).thenReturn(key);
+        byte[] sheet = AnswerSheetCodec.encode(key.getLayoutId(), List.of(
+                AnswerSheetCodec.Entry.choice(0, 0b010, firstCorrect),
+                AnswerSheetCodec.Entry.choice(1, 0b001, secondCorrect)));
+        when(answerSheetService.decode(sheet)).thenReturn(List.of(
+                new AnswerSheetService.DecodedAnswer(single, 0, 0b010, firstCorrect, null),
+                new AnswerSheetService.DecodedAnswer(multiple, 1, 0b001, secondCorrect, null)));
+        ExamExportJdbcRepository.ResultRow row = new ExamExportJdbcRepository.ResultRow(UUID.randomUUID(),
+                UUID.randomUUID(), SUBMITTED_AT.minusSeconds(1800), SUBMITTED_AT, 1800, 50, 1, 1, 2, true,
+                null, null, null, null, null, null, sheet);
+        doAnswer(invocation -> {
+            Consumer<ExamExportJdbcRepository.ResultRow> consumer = invocation.getArgument(1);
+            consumer.accept(row);
+            return null;
+        }).when(exportRepository).streamResults(eq(examId), any());
+    }
+
+    private String export() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(examId, ExamResultExportService.Format.CSV, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> answerScores(String csv) {
+        return csv.lines().skip(1).map(line -> line.split(",", -1)[14]).toList();
+    }
+}
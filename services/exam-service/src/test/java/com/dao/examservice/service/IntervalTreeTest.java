@@ -0,0 +1,54 @@
+package com.dao.examservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntervalTreeTest {
+
+    private record Span(long start, long end) {}
+
+    @Test
+    void touchingIntervalsDoNotOverlap() {
+        IntervalTree<Span> tree = tree(List.of(new Span(0, 10), new Span(10, 20), new Span(20, 30)));
+
+        assertThat(tree.overlapping(10, 20)).containsExactly(new Span(10, 20));
+        assertThat(tree.overlapping(9, 11)).containsExactlyInAnyOrder(new Span(0, 10), new Span(10, 20));
+        assertThat(tree.overlapping(30, 40)).isEmpty();
+        assertThat(tree.overlapping(15, 15)).isEmpty();
+    }
+
+    @Test
+    void emptyTreeHasNoOverlaps() {
+        IntervalTree<Span> tree = tree(List.of());
+
+        assertThat(tree.size()).isZero();
+        assertThat(tree.overlapping(Long.MIN_VALUE, Long.MAX_VALUE)).isEmpty();
+    }
+
+    @Test
+    void matchesBruteForce() {
+        SplittableRandom random = new SplittableRandom(7);
+        List<Span> spans = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            long start = random.nextLong(10_000);
+            spans.add(new Span(start, start + 1 + random.nextLong(500)));
+        }
+        IntervalTree<Span> tree = tree(spans);
+
+        for (int q = 0; q < 200; q++) {
+            long start = random.nextLong(10_500);
+            long end = start + random.nextLong(300);
+            List<Span> expected = spans.stream().filter(s -> s.start() < end && s.end() > start).toList();
+            assertThat(tree.overlapping(start, end)).containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    private static IntervalTree<Span> tree(List<Span> spans) {
+        return new IntervalTree<>(spans, Span::start, Span::end);
+    }
+}
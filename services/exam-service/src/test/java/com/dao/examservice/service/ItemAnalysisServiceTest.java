@@ -0,0 +1,128 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.repository.ItemAnalysisJdbcRepository;
+import com.dao.examservice.repository.SchedulerLeaseJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ItemAnalysisServiceTest {
+
+    private final ItemAnalysisJdbcRepository repository = mock(ItemAnalysisJdbcRepository.class);
+    private final SchedulerLeaseJdbcRepository leaseRepository = mock(SchedulerLeaseJdbcRepository.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final QuestionBankIndex questionBankIndex = mock(QuestionBankIndex.class);
+    private final ItemAnalysisService service = new ItemAnalysisService(repository, leaseRepository,
+            transactionTemplate, questionBankIndex, mock(AnswerSheetService.class));
+
+    private final UUID question = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "batchSubmissions", 10);
+        ReflectionTestUtils.setField(service, "maxBatchesPerRun", 5);
+        ReflectionTestUtils.setField(service, "minResponses", 2L);
+        when(leaseRepository.tryAcquire(eq("item-analysis"), anyString(), any())).thenReturn(true);
+        when(repository.readCursor()).thenReturn(ItemAnalysisJdbcRepository.Cursor.START);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(new SimpleTransactionStatus());
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(new SimpleTransactionStatus()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ingestFoldsGradedAnswersAndAdvancesTheCursor() {
+        UUID strong = UUID.randomUUID();
+        UUID weak = UUID.randomUUID();
+        Instant at = Instant.parse("2026-10-01T08:00:00Z");
+        doAnswer(invocation -> {
+            Consumer<ItemAnalysisJdbcRepository.GradedAnswer> consumer = invocation.getArgument(3);
+            consumer.accept(new ItemAnalysisJdbcRepository.GradedAnswer(strong, at, 90, null, question, "0,2", true));
+            consumer.accept(new ItemAnalysisJdbcRepository.GradedAnswer(weak, at.plusSeconds(1), 40, null, question,
+                    "1", false));
+            return null;
+        }).when(repository).streamGradedAnswers(eq(ItemAnalysisJdbcRepository.Cursor.START), any(), eq(10), any());
+
+        service.ingest();
+
+        verify(repository).addItemDeltas(List.of(
+                new ItemAnalysisJdbcRepository.ItemDelta(question, 2, 1, 130, 90 * 90 + 40 * 40, 90)));
+        ArgumentCaptor<List<ItemAnalysisJdbcRepository.OptionDelta>> picks = ArgumentCaptor.forClass(List.class);
+        verify(repository).addOptionPicks(picks.capture());
+        assertThat(picks.getValue()).containsExactlyInAnyOrder(
+                new ItemAnalysisJdbcRepository.OptionDelta(question, 0, 1),
+                new ItemAnalysisJdbcRepository.OptionDelta(question, 1, 1),
+                new ItemAnalysisJdbcRepository.OptionDelta(question, 2, 1));
+        verify(repository).writeCursor(new ItemAnalysisJdbcRepository.Cursor(at.plusSeconds(1), weak));
+    }
+
+    @Test
+    void ingestWithoutTheLeaseReadsNothing() {
+        when(leaseRepository.tryAcquire(eq("item-analysis"), anyString(), any())).thenReturn(false);
+
+        service.ingest();
+        service.recalibrate();
+
+        verify(repository, never()).streamGradedAnswers(any(), any(), anyInt(), any());
+        verify(repository, never()).findCalibratable(2L);
+    }
+
+    @Test
+    void statisticsFollowTheObservedAnswers() {
+        // Hai người đúng có điểm bài 90 và 80, hai người sai có 40 và 30.
+        ItemAnalysisJdbcRepository.ItemStats stats = new ItemAnalysisJdbcRepository.ItemStats(question, 5, 4, 2,
+                240, 90 * 90 + 80 * 80 + 40 * 40 + 30 * 30, 170);
+
+        assertThat(ItemAnalysisService.pValue(stats)).isEqualTo(0.5);
+        assertThat(ItemAnalysisService.pointBiserial(stats)).isCloseTo(0.98, within(0.01));
+        assertThat(ItemAnalysisService.pointBiserial(new ItemAnalysisJdbcRepository.ItemStats(question, 5, 3, 3,
+                150, 7500, 150))).isZero();
+        assertThat(ItemAnalysisService.difficultyOf(1.0)).isEqualTo(1);
+        assertThat(ItemAnalysisService.difficultyOf(0.5)).isEqualTo(6);
+        assertThat(ItemAnalysisService.difficultyOf(0.0)).isEqualTo(10);
+    }
+
+    @Test
+    void recalibrationReportsOnlyChangedDifficulties() {
+        UUID easy = UUID.randomUUID();
+        UUID hard = UUID.randomUUID();
+        List<ItemAnalysisJdbcRepository.ItemStats> items = List.of(
+                new ItemAnalysisJdbcRepository.ItemStats(easy, 1, 10, 10, 0, 0, 0),
+                new ItemAnalysisJdbcRepository.ItemStats(hard, 5, 10, 0, 0, 0, 0));
+        when(repository.findCalibratable(2L)).thenReturn(items);
+        when(repository.updateDifficulties(eq(items), any())).thenReturn(List.of(hard));
+
+        service.recalibrate();
+
+        ArgumentCaptor<int[]> difficulties = ArgumentCaptor.forClass(int[].class);
+        verify(repository).updateDifficulties(eq(items), difficulties.capture());
+        assertThat(difficulties.getValue()).containsExactly(1, 10);
+        verify(questionBankIndex).onDifficultyChanged(Map.of(hard, 10));
+    }
+}
@@ -0,0 +1,90 @@
+package com.dao.examservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MinHashLshTest {
+
+    @Test
+    void signatureIgnoresAccentsCaseAndOptionOrder() {
+        int[] a = MinHashLsh.signature("Thủ đô của Việt Nam là gì?", List.of("Hà Nội", "Huế", "Đà Nẵng"));
+        int[] b = MinHashLsh.signature("thu do cua viet nam la gi", List.of("Da Nang", "Ha Noi", "Hue"));
+
+        assertThat(MinHashLsh.similarity(a, b)).isEqualTo(1.0);
+    }
+
+    @Test
+    void signatureIsNullWithoutWords() {
+        assertThat(MinHashLsh.signature("  ?! ", List.of("--"))).isNull();
+    }
+
+    @Test
+    void queryFindsNearDuplicatesAndSkipsUnrelated() {
+        MinHashLsh lsh = new MinHashLsh();
+        UUID original = UUID.randomUUID();
+        UUID unrelated = UUID.randomUUID();
+        lsh.add(original, MinHashLsh.signature("Which planet is known as the red planet in our solar system?",
+                List.of("Mars", "Venus", "Jupiter", "Saturn")));
+        lsh.add(unrelated, MinHashLsh.signature("What is the boiling point of water at sea level?",
+                List.of("100 degrees", "90 degrees", "80 degrees")));
+
+        int[] probe = MinHashLsh.signature("Which planet is known as the red planet of our solar system?",
+                List.of("Mars", "Venus", "Jupiter", "Saturn"));
+        List<QuestionSimilarityIndex.Match> matches = lsh.query(probe, 0.5, 10, null);
+
+        assertThat(matches).extracting(QuestionSimilarityIndex.Match::questionId).containsExactly(original);
+        assertThat(lsh.query(probe, 0.5, 10, original)).isEmpty();
+    }
+
+    @Test
+    void removedQuestionsAreNotReturned() {
+        MinHashLsh lsh = new MinHashLsh();
+        UUID id = UUID.randomUUID();
+        int[] signature = MinHashLsh.signature("Define photosynthesis", List.of());
+        lsh.add(id, signature);
+        lsh.remove(id);
+
+        assertThat(lsh.size()).isZero();
+        assertThat(lsh.signatureOf(id)).isNull();
+        assertThat(lsh.query(signature, 0.1, 10, null)).isEmpty();
+    }
+
+    @Test
+    void addingTheSameIdTwiceKeepsOneEntry() {
+        MinHashLsh lsh = new MinHashLsh();
+        UUID id = UUID.randomUUID();
+        int[] signature = MinHashLsh.signature("Define photosynthesis", List.of());
+        lsh.add(id, signature);
+        lsh.add(id, signature);
+
+        assertThat(lsh.size()).isEqualTo(1);
+        assertThat(lsh.query(signature, 0.1, 10, null)).hasSize(1);
+    }
+
+    @Test
+    void compactsOnceMostEntriesAreRemoved() {
+        MinHashLsh lsh = new MinHashLsh();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            lsh.add(id, MinHashLsh.signature("Question number " + i + " about topic " + (i * 7919), List.of()));
+        }
+        for (int i = 0; i < 2000; i++) {
+            lsh.remove(ids.get(i));
+        }
+
+        assertThat(lsh.size()).isEqualTo(1000);
+        assertThat(lsh.capacity()).isLessThan(3000);
+        UUID kept = ids.get(2500);
+        int[] signature = lsh.signatureOf(kept);
+        assertThat(signature).isNotNull();
+        assertThat(lsh.query(signature, 0.99, 5, null))
+                .extracting(QuestionSimilarityIndex.Match::questionId).contains(kept);
+    }
+}
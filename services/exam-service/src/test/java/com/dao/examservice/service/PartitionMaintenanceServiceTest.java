@@ -0,0 +1,159 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.repository.PartitionJdbcRepository;
+import com.dao.examservice.repository.SchedulerLeaseJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PartitionMaintenanceServiceTest {
+
+    private static final PartitionJdbcRepository.Table ANSWERS =
+            new PartitionJdbcRepository.Table("answers", "created_at", "idx_answers_created_at");
+
+    private final PartitionJdbcRepository repository = mock(PartitionJdbcRepository.class);
+    private final SchedulerLeaseJdbcRepository leaseRepository = mock(SchedulerLeaseJdbcRepository.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final PartitionMaintenanceService service = new PartitionMaintenanceService(repository, leaseRepository,
+            transactionTemplate, transactionManager);
+
+    private final YearMonth current = YearMonth.now(ZoneOffset.UTC);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "monthsAhead", 3);
+        ReflectionTestUtils.setField(service, "retentionMonths", -1);
+        ReflectionTestUtils.setField(service, "lockTimeoutMillis", 5000L);
+        when(leaseRepository.tryAcquire(eq("partition-maintenance"), anyString(), any())).thenReturn(true);
+        when(repository.relationKind(anyString())).thenReturn("p");
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(new SimpleTransactionStatus());
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(new SimpleTransactionStatus()));
+    }
+
+    @Test
+    void createsMissingPartitionsAheadWithoutArchivingByDefault() {
+        when(repository.findPartitions(ANSWERS)).thenReturn(List.of(
+                partition(current.minusMonths(12), true),
+                partition(current, true)));
+
+        service.maintain();
+
+        verify(repository, never()).createPartition(ANSWERS, current);
+        for (int i = 1; i <= 3; i++) {
+            verify(repository).createPartition(ANSWERS, current.plusMonths(i));
+        }
+        verify(repository, never()).createPartition(ANSWERS, current.plusMonths(4));
+        verify(repository, never()).detach(any(), any(), anyLong());
+        verify(repository, never()).drop(anyString());
+    }
+
+    @Test
+    void ordinaryTablesAreOnlyConvertedWhenEnabled() {
+        when(repository.relationKind(anyString())).thenReturn("r");
+
+        service.maintain();
+
+        verify(repository, never()).prepareConversion(any(), any(), anyLong());
+        verify(repository, never()).createPartition(any(), any());
+    }
+
+    @Test
+    void conversionKeepsExistingRowsBeforeTheFirstPartition() {
+        ReflectionTestUtils.setField(service, "convertExisting", true);
+        YearMonth firstMonth = current.plusMonths(2);
+        when(repository.relationKind("answers")).thenReturn("r", "p");
+        when(repository.convertToPartitioned(ANSWERS, firstMonth, 5000L)).thenReturn(true);
+        when(repository.findPartitions(ANSWERS)).thenReturn(List.of(
+                new PartitionJdbcRepository.Partition(PartitionJdbcRepository.legacyName(ANSWERS, firstMonth),
+                        true, false)));
+
+        service.maintain();
+
+        verify(repository).prepareConversion(ANSWERS, firstMonth, 5000L);
+        verify(repository, never()).dropConversionCheck(any(), any(), anyLong());
+        verify(repository, never()).createPartition(ANSWERS, current);
+        verify(repository, never()).createPartition(ANSWERS, current.plusMonths(1));
+        verify(repository).createPartition(ANSWERS, firstMonth);
+        verify(repository).createPartition(ANSWERS, current.plusMonths(3));
+    }
+
+    @Test
+    void failedConversionDropsTheCheck() {
+        ReflectionTestUtils.setField(service, "convertExisting", true);
+        YearMonth firstMonth = current.plusMonths(2);
+        when(repository.relationKind("answers")).thenReturn("r");
+        when(repository.convertToPartitioned(ANSWERS, firstMonth, 5000L)).thenReturn(false);
+
+        service.maintain();
+
+        verify(repository).dropConversionCheck(ANSWERS, firstMonth, 5000L);
+        verify(repository, never()).createPartition(eq(ANSWERS), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void expiredPartitionsAreArchivedThenDropped() throws Exception {
+        Path archiveDir = Files.createTempDirectory("partition-archive");
+        ReflectionTestUtils.setField(service, "retentionMonths", 1);
+        ReflectionTestUtils.setField(service, "archiveDir", archiveDir.toString());
+        PartitionJdbcRepository.Partition expired = partition(current.minusMonths(2), true);
+        PartitionJdbcRepository.Partition kept = partition(current.minusMonths(1), true);
+        when(repository.findPartitions(ANSWERS)).thenReturn(List.of(expired, kept));
+        when(repository.streamRows(eq(expired.name()), any(), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<String[]>>getArgument(1).accept(new String[]{"id", "selected_answer"});
+            invocation.<Consumer<String[]>>getArgument(2).accept(new String[]{"1", "a, \"b\""});
+            invocation.<Consumer<String[]>>getArgument(2).accept(new String[]{"2", null});
+            return 2L;
+        });
+
+        service.maintain();
+
+        verify(repository).detach(ANSWERS, expired, 5000L);
+        verify(repository).drop(expired.name());
+        verify(repository, times(1)).detach(any(), any(), anyLong());
+        Path archive = archiveDir.resolve("answers").resolve(expired.name() + ".csv.gz");
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(archive))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo("id,selected_answer\n1,\"a, \"\"b\"\"\"\n2,\n");
+        }
+    }
+
+    private static PartitionJdbcRepository.Partition partition(YearMonth month, boolean attached) {
+        return new PartitionJdbcRepository.Partition(PartitionJdbcRepository.partitionName(ANSWERS, month),
+                attached, false);
+    }
+}
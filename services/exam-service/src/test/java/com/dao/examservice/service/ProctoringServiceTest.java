@@ -0,0 +1,133 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.dto.request.ProctoringEventBatchRequest;
+import com.dao.examservice.dto.response.ProctoringIngestResponse;
+import com.dao.examservice.exception.ValidationException;
+import com.dao.examservice.repository.ProctoringJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProctoringServiceTest {
+
+    private final ExamAttemptService attemptService = mock(ExamAttemptService.class);
+    private final ProctoringJdbcRepository repository = mock(ProctoringJdbcRepository.class);
+    private final ProctoringService service = new ProctoringService(attemptService, repository, 200, 200000,
+            60000, 900000);
+
+    private final UUID submissionId = UUID.randomUUID();
+    private final UUID sessionId = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+    private final Instant startedAt = Instant.now().minus(10, ChronoUnit.MINUTES);
+
+    @BeforeEach
+    void setUp() {
+        LiveAttempt attempt = new LiveAttempt(submissionId, sessionId, UUID.randomUUID(), userId, startedAt,
+                startedAt.plus(1, ChronoUnit.HOURS), "127.0.0.1", "test", 10);
+        when(attemptService.get(submissionId, userId)).thenReturn(attempt);
+        when(repository.findSession(sessionId)).thenReturn(Optional.of(
+                new ProctoringJdbcRepository.SessionCounters(sessionId, "ACTIVE", 3, 1, "HIGH")));
+        when(repository.terminateSession(eq(sessionId), any(), any())).thenReturn(true);
+    }
+
+    @Test
+    void crossingTheThresholdTerminatesAttemptAndSession() {
+        ProctoringIngestResponse first = service.ingest(submissionId, userId,
+                List.of(event("TAB_SWITCH", "LOW"), event("NO_FACE", "HIGH")));
+
+        assertThat(first.accepted).isEqualTo(2);
+        assertThat(first.highSeverityViolationCount).isEqualTo(2);
+        assertThat(first.terminated).isFalse();
+        verify(attemptService, never()).terminate(any());
+
+        ProctoringIngestResponse second = service.ingest(submissionId, userId,
+                List.of(event("MULTIPLE_FACES", "CRITICAL")));
+
+        assertThat(second.highSeverityViolationCount).isEqualTo(3);
+        assertThat(second.violationThreshold).isEqualTo(3);
+        assertThat(second.terminated).isTrue();
+        verify(attemptService).terminate(submissionId);
+        verify(repository).terminateSession(eq(sessionId), eq(ProctoringService.AUTO_FAIL_REASON), any());
+
+        service.ingest(submissionId, userId, List.of(event("NO_FACE", "HIGH")));
+        verify(attemptService, times(1)).terminate(submissionId);
+    }
+
+    @Test
+    void rejectsUnknownSeverity() {
+        assertThatThrownBy(() -> service.ingest(submissionId, userId, List.of(event("NO_FACE", "SEVERE"))))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushWritesEventsWithClampedTimesAndViolationDeltas() {
+        when(repository.insertEvents(anyList())).thenAnswer(invocation -> {
+            List<ProctoringJdbcRepository.EventRow> rows = invocation.getArgument(0);
+            return Set.copyOf(rows.stream().map(ProctoringJdbcRepository.EventRow::id).toList());
+        });
+        ProctoringEventBatchRequest.Event early = event("TAB_SWITCH", null);
+        early.timestamp = startedAt.minus(1, ChronoUnit.DAYS);
+        ProctoringEventBatchRequest.Event late = event("NO_FACE", "high");
+        late.timestamp = Instant.now().plus(1, ChronoUnit.DAYS);
+        service.ingest(submissionId, userId, List.of(early, late));
+
+        service.flush();
+
+        ArgumentCaptor<List<ProctoringJdbcRepository.EventRow>> rows = ArgumentCaptor.forClass(List.class);
+        verify(repository).insertEvents(rows.capture());
+        assertThat(rows.getValue()).extracting(ProctoringJdbcRepository.EventRow::severity)
+                .containsExactly("LOW", "HIGH");
+        assertThat(rows.getValue().get(0).timestamp()).isEqualTo(startedAt);
+        assertThat(rows.getValue().get(1).timestamp()).isBeforeOrEqualTo(Instant.now());
+
+        ArgumentCaptor<List<ProctoringJdbcRepository.ViolationDelta>> deltas = ArgumentCaptor.forClass(List.class);
+        verify(repository).applyViolations(deltas.capture());
+        assertThat(deltas.getValue()).containsExactly(
+                new ProctoringJdbcRepository.ViolationDelta(sessionId, 1, "HIGH"));
+
+        service.flush();
+        verify(repository, times(1)).insertEvents(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void eventsOfAnUnpersistedSessionAreRetried() {
+        when(repository.insertEvents(anyList())).thenReturn(Set.of());
+        service.ingest(submissionId, userId, List.of(event("TAB_SWITCH", "LOW")));
+
+        service.flush();
+        service.flush();
+
+        ArgumentCaptor<List<ProctoringJdbcRepository.EventRow>> rows = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(2)).insertEvents(rows.capture());
+        assertThat(rows.getAllValues().get(1)).extracting(ProctoringJdbcRepository.EventRow::id)
+                .containsExactlyElementsOf(rows.getAllValues().get(0).stream()
+                        .map(ProctoringJdbcRepository.EventRow::id).toList());
+    }
+
+    private static ProctoringEventBatchRequest.Event event(String type, String severity) {
+        ProctoringEventBatchRequest.Event event = new ProctoringEventBatchRequest.Event();
+        event.eventType = type;
+        event.severity = severity;
+        return event;
+    }
+}
@@ -0,0 +1,80 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.exception.ResourceNotFoundException;
+import com.dao.examservice.repository.ImportJobJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuestionImportJobServiceTest {
+
+    private final QuestionImportService importService = mock(QuestionImportService.class);
+    private final ImportJobJdbcRepository jobRepository = mock(ImportJobJdbcRepository.class);
+    private final QuestionImportJobService service = new QuestionImportJobService(importService, jobRepository);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "workers", 1);
+        ReflectionTestUtils.setField(service, "queueCapacity", 1);
+        service.start();
+    }
+
+    @Test
+    void jobsRunElsewhereAreReadFromTheTable() {
+        UUID id = UUID.randomUUID();
+        when(jobRepository.findById(id)).thenReturn(Optional.of(new ImportJobJdbcRepository.Row(id, "bank.xlsx",
+                "Math", List.of("algebra"), "teacher", "COMPLETED", 40, 2, 1, List.of("Row 7: missing answer"),
+                0, List.of(), null, Instant.now(), Instant.now(), Instant.now())));
+
+        ImportJob job = service.get(id);
+
+        assertThat(job.getStatus()).isEqualTo(ImportJob.Status.COMPLETED);
+        assertThat(job.getImported()).isEqualTo(40);
+        assertThat(job.getErrorDetails()).containsExactly("Row 7: missing answer");
+    }
+
+    @Test
+    void unknownJobsAreNotFound() {
+        UUID id = UUID.randomUUID();
+        when(jobRepository.findById(id)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.get(id)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void finishedStateIsSaved() throws Exception {
+        when(importService.spool(any())).thenReturn(Path.of("upload.xlsx"));
+        when(importService.importFromFile(any(), any(), any(), anyBoolean(), any(), any())).thenReturn(Map.of(
+                "imported", 3, "skipped", 0, "errors", 0, "errorDetails", List.of(),
+                "nearDuplicates", 0, "nearDuplicateDetails", List.of()));
+
+        service.submit(new ByteArrayInputStream(new byte[0]), "bank.xlsx", "Math", new String[0], true, "teacher");
+
+        ArgumentCaptor<ImportJobJdbcRepository.Row> rows = ArgumentCaptor.forClass(ImportJobJdbcRepository.Row.class);
+        verify(jobRepository, timeout(5000).times(3)).save(rows.capture());
+        service.stop();
+        assertThat(rows.getAllValues()).extracting(ImportJobJdbcRepository.Row::status)
+                .containsExactly("QUEUED", "RUNNING", "COMPLETED");
+        ImportJobJdbcRepository.Row last = rows.getAllValues().get(rows.getAllValues().size() - 1);
+        assertThat(last.status()).isEqualTo("COMPLETED");
+        assertThat(last.imported()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,118 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.dto.request.QuestionCreationRequest;
+import com.dao.examservice.dto.request.QuestionSearchRequest;
+import com.dao.examservice.dto.response.SimilarQuestionResponse;
+import com.dao.examservice.entity.Question;
+import com.dao.examservice.repository.QuestionJdbcRepository;
+import com.dao.examservice.repository.QuestionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuestionServiceTest {
+
+    private final QuestionRepository questionRepository = mock(QuestionRepository.class);
+    private final QuestionJdbcRepository questionJdbcRepository = mock(QuestionJdbcRepository.class);
+    private final QuestionFingerprinter fingerprinter = mock(QuestionFingerprinter.class);
+    private final QuestionBankIndex questionBankIndex = mock(QuestionBankIndex.class);
+    private final QuestionSimilarityIndex similarityIndex = mock(QuestionSimilarityIndex.class);
+    private final QuestionService service = new QuestionService(questionRepository, questionJdbcRepository,
+            mock(AnswerKeyCache.class), mock(ExamPaperCache.class), fingerprinter, questionBankIndex,
+            similarityIndex);
+
+    private final QuestionCreationRequest request = new QuestionCreationRequest();
+    /** Fingerprint of each insert attempt, captured when it happens (the entity is reused). */
+    private final List<Long> attemptedFingerprints = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        request.type = Question.QuestionType.MULTIPLE_CHOICE;
+        request.content = "{\"question\":\"2 + 2?\",\"options\":[\"3\",\"4\"],\"correctAnswer\":1}";
+        when(fingerprinter.fingerprint(request.content)).thenReturn(42L);
+    }
+
+    @Test
+    void firstCopyOfAContentKeepsTheFingerprint() {
+        givenInserts(true);
+
+        Question created = service.create(request);
+
+        assertThat(created.getContentFingerprint()).isEqualTo(42L);
+        assertThat(attemptedFingerprints).containsExactly(42L);
+        verify(questionBankIndex).onCreated(eq(created.getId()), any(), eq(true), anyList());
+    }
+
+    @Test
+    void fingerprintConflictStoresTheQuestionWithoutFingerprint() {
+        givenInserts(false, true);
+
+        Question created = service.create(request);
+
+        assertThat(created.getContentFingerprint()).isNull();
+        assertThat(attemptedFingerprints).containsExactly(42L, null);
+        verify(questionJdbcRepository, times(2)).insertQuestions(anyList(), any());
+        verify(questionBankIndex).onCreated(eq(created.getId()), any(), eq(false), anyList());
+    }
+
+    @Test
+    void searchKeepsTheOrderOfTheIndex() {
+        Question first = question("first");
+        Question second = question("second");
+        Question third = question("third");
+        when(questionBankIndex.find(anyList(), any(), any()))
+                .thenReturn(List.of(third.getId(), first.getId(), second.getId()));
+        when(questionRepository.findAllById(anyList())).thenReturn(List.of(first, second, third));
+
+        assertThat(service.search(new QuestionSearchRequest())).containsExactly(third, first, second);
+    }
+
+    @Test
+    void similarQuestionsKeepTheirRankAndSkipDeletedOnes() {
+        UUID id = UUID.randomUUID();
+        Question close = question("close");
+        Question far = question("far");
+        UUID deleted = UUID.randomUUID();
+        when(questionRepository.existsById(id)).thenReturn(true);
+        when(similarityIndex.similarTo(id, 10)).thenReturn(List.of(
+                new QuestionSimilarityIndex.Match(close.getId(), 0.9),
+                new QuestionSimilarityIndex.Match(deleted, 0.8),
+                new QuestionSimilarityIndex.Match(far.getId(), 0.6)));
+        when(questionRepository.findAllById(anyList())).thenReturn(List.of(far, close));
+
+        List<SimilarQuestionResponse> similar = service.findSimilar(id, 10);
+
+        assertThat(similar).extracting(r -> r.questionId).containsExactly(close.getId(), far.getId());
+        assertThat(similar).extracting(r -> r.similarity).containsExactly(0.9, 0.6);
+    }
+
+    private static Question question(String text) {
+        Question q = new Question();
+        q.setId(UUID.randomUUID());
+        q.setText(text);
+        return q;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenInserts(boolean... results) {
+        int[] call = {0};
+        when(questionJdbcRepository.insertQuestions(anyList(), any())).thenAnswer(invocation -> {
+            Question q = ((List<Question>) invocation.getArgument(0)).get(0);
+            attemptedFingerprints.add(q.getContentFingerprint());
+            return results[call[0]++] ? Set.of(q.getId()) : Set.of();
+        });
+    }
+}
@@ -0,0 +1,70 @@
+package com.dao.examservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QuizLeaderboardTest {
+
+    private final QuizLeaderboard board = new QuizLeaderboard(UUID.randomUUID());
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+
+    @Test
+    void ranksWithTiesAndPercentile() {
+        board.record(alice, UUID.randomUUID(), 90);
+        board.record(bob, UUID.randomUUID(), 70);
+        board.record(carol, UUID.randomUUID(), 90);
+
+        QuizLeaderboard.Position first = board.positionOf(alice);
+        QuizLeaderboard.Position last = board.positionOf(bob);
+        assertThat(first.rank()).isEqualTo(1);
+        assertThat(board.positionOf(carol).rank()).isEqualTo(1);
+        assertThat(first.percentile()).isEqualByComparingTo(new BigDecimal("100.00"));
+        assertThat(last.rank()).isEqualTo(3);
+        assertThat(last.percentile()).isEqualByComparingTo(new BigDecimal("33.33"));
+        assertThat(last.totalSubmissions()).isEqualTo(3);
+        assertThat(board.top(2)).extracting(QuizLeaderboard.Position::studentId).containsExactly(alice, carol);
+    }
+
+    @Test
+    void keepsTheBestSubmissionOnly() {
+        UUID best = UUID.randomUUID();
+        board.record(alice, best, 80);
+
+        assertThat(board.record(alice, UUID.randomUUID(), 60)).isFalse();
+        assertThat(board.positionOf(alice).submissionId()).isEqualTo(best);
+        assertThat(board.getFinalSubmissions()).isEqualTo(2);
+    }
+
+    @Test
+    void pendingWritesHoldOnlyChangedRowsWithPercentileAndTotal() {
+        board.record(alice, UUID.randomUUID(), 90);
+        board.record(bob, UUID.randomUUID(), 50);
+        board.markWritten(board.pendingWrites());
+
+        board.record(carol, UUID.randomUUID(), 70);
+        List<QuizLeaderboard.Position> changed = board.pendingWrites();
+
+        assertThat(changed).extracting(QuizLeaderboard.Position::studentId).containsExactlyInAnyOrder(carol, bob);
+        assertThat(changed).allSatisfy(p -> assertThat(p.totalSubmissions()).isEqualTo(3));
+        assertThat(changed).filteredOn(p -> p.studentId().equals(bob))
+                .singleElement().satisfies(p -> assertThat(p.percentile()).isEqualByComparingTo("33.33"));
+        board.markWritten(changed);
+        assertThat(board.pendingWrites()).isEmpty();
+    }
+
+    @Test
+    void loadedRowsWithoutStoredRankAreRewritten() {
+        UUID submission = UUID.randomUUID();
+        board.load(alice, submission, 90, 1);
+        board.load(bob, UUID.randomUUID(), 50, null);
+
+        assertThat(board.pendingWrites()).extracting(QuizLeaderboard.Position::studentId).containsExactly(bob);
+    }
+}
@@ -0,0 +1,71 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.repository.QuizRankingJdbcRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RankingServiceTest {
+
+    private final QuizRankingJdbcRepository repository = mock(QuizRankingJdbcRepository.class);
+    private final RankingService service = new RankingService(repository);
+    private final UUID quizId = UUID.randomUUID();
+
+    @Test
+    void flushWritesChangedRowsWithPercentileAndTotal() {
+        when(repository.countFinalSubmissions(any())).thenReturn(Map.of(quizId, 0L));
+        UUID student = UUID.randomUUID();
+        service.getTop(quizId, 10);
+        service.recordFinalSubmission(quizId, student, UUID.randomUUID(), 75);
+
+        service.flush();
+        service.flush();
+
+        verify(repository, times(1)).upsertRankings(eq(quizId), argThat(
+                (List<QuizLeaderboard.Position> rows) -> rows.size() == 1
+                        && rows.get(0).totalSubmissions() == 1
+                        && rows.get(0).percentile().compareTo(BigDecimal.valueOf(100)) == 0));
+    }
+
+    @Test
+    void failedFlushIsRetried() {
+        when(repository.countFinalSubmissions(any())).thenReturn(Map.of(quizId, 0L));
+        service.getTop(quizId, 10);
+        service.recordFinalSubmission(quizId, UUID.randomUUID(), UUID.randomUUID(), 40);
+        doThrow(new IllegalStateException("down")).doNothing().when(repository).upsertRankings(eq(quizId), anyList());
+
+        service.flush();
+        service.flush();
+
+        verify(repository, times(2)).upsertRankings(eq(quizId), anyList());
+    }
+
+    @Test
+    void evictsBoardsThatMissSubmissionsOfOtherReplicas() {
+        when(repository.countFinalSubmissions(any())).thenReturn(Map.of(quizId, 0L));
+        service.getTop(quizId, 10);
+        when(repository.countFinalSubmissions(any())).thenReturn(Map.of(quizId, 3L));
+
+        service.evictStale();
+        service.recordFinalSubmission(quizId, UUID.randomUUID(), UUID.randomUUID(), 40);
+        service.flush();
+
+        verify(repository, never()).upsertRankings(any(), anyList());
+        assertThat(service.getTop(quizId, 10)).isEmpty();
+    }
+}
@@ -0,0 +1,92 @@
+package com.dao.examservice.service;
+
+import com.dao.examservice.dto.response.ScheduleConflictResponse;
+import com.dao.examservice.entity.Exam;
+import com.dao.examservice.exception.ValidationException;
+import com.dao.examservice.repository.ExamRegistrationJdbcRepository;
+import com.dao.examservice.repository.ExamRegistrationJdbcRepository.ScheduledExam;
+import com.dao.examservice.repository.ExamRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+class ScheduleConflictServiceTest {
+
+    private static final Instant NINE = Instant.parse("2026-06-01T09:00:00Z");
+    private static final Instant TEN = Instant.parse("2026-06-01T10:00:00Z");
+    private static final Instant ELEVEN = Instant.parse("2026-06-01T11:00:00Z");
+
+    private final ExamRegistrationJdbcRepository registrationRepository = mock(ExamRegistrationJdbcRepository.class);
+    private final ScheduleConflictService service =
+            new ScheduleConflictService(mock(ExamRepository.class), registrationRepository);
+
+    private final UUID candidate = UUID.randomUUID();
+    private Exam exam;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "maxReportedConflicts", 1000);
+        exam = new Exam();
+        exam.setId(UUID.randomUUID());
+        exam.setTitle("Final");
+        exam.setStartAt(TEN);
+        exam.setEndAt(ELEVEN);
+    }
+
+    @Test
+    void overlappingRegistrationIsAConflict() {
+        UUID other = UUID.randomUUID();
+        givenSchedule(new ScheduledExam(candidate, other, "Midterm", NINE, TEN.plusSeconds(1800)));
+
+        ScheduleConflictResponse report = service.checkSchedule(exam, List.of(candidate), false);
+
+        assertThat(report.conflictCount).isEqualTo(1);
+        assertThat(report.conflicts.get(0).candidateId).isEqualTo(candidate);
+        assertThat(report.conflicts.get(0).conflictingExamId).isEqualTo(other);
+    }
+
+    @Test
+    void backToBackExamsDoNotConflict() {
+        givenSchedule(new ScheduledExam(candidate, UUID.randomUUID(), "Midterm", NINE, TEN));
+
+        assertThat(service.checkSchedule(exam, List.of(candidate), false).conflictCount).isZero();
+    }
+
+    @Test
+    void requireNoConflictsLocksCandidatesBeforeCheckingAndRejects() {
+        givenSchedule(new ScheduledExam(candidate, UUID.randomUUID(), "Midterm", NINE, ELEVEN));
+
+        assertThatThrownBy(() -> service.requireNoConflicts(exam, List.of(candidate), false))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("1 candidate(s) have overlapping exams");
+        InOrder order = inOrder(registrationRepository);
+        order.verify(registrationRepository).lockCandidates(exam.getId(), List.of(candidate), false);
+        order.verify(registrationRepository).streamSchedules(anyList(), any(), any(), any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenSchedule(ScheduledExam... rows) {
+        doAnswer(invocation -> {
+            Consumer<ScheduledExam> consumer = invocation.getArgument(4);
+            for (ScheduledExam row : rows) {
+                consumer.accept(row);
+            }
+            return null;
+        }).when(registrationRepository).streamSchedules(eq(List.of(candidate)), any(), any(), any(), any());
+    }
+}
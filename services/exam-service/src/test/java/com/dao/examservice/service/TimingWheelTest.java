@@ -0,0 +1,74 @@
+package com.dao.examservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimingWheelTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Test
+    void firesAtTheDeadlineNotBefore() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, START);
+        wheel.schedule("a", START.plusMillis(2500));
+
+        assertThat(wheel.advance(START.plusMillis(2999))).isEmpty();
+        assertThat(wheel.advance(START.plusSeconds(3))).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void pastDeadlinesFireOnNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, START);
+        wheel.schedule("late", START.minusSeconds(10));
+
+        assertThat(wheel.advance(START)).containsExactly("late");
+    }
+
+    @Test
+    void cancelAndRescheduleReplaceTheDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, START);
+        wheel.schedule("a", START.plusSeconds(5));
+        wheel.schedule("b", START.plusSeconds(5));
+        wheel.schedule("a", START.plusSeconds(60));
+
+        assertThat(wheel.cancel("b")).isTrue();
+        assertThat(wheel.cancel("b")).isFalse();
+        assertThat(wheel.advance(START.plusSeconds(59))).isEmpty();
+        assertThat(wheel.advance(START.plusSeconds(60))).containsExactly("a");
+    }
+
+    @Test
+    void cascadesFarDeadlinesAndOverflow() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(1000, START);
+        List<Duration> offsets = List.of(Duration.ofSeconds(63), Duration.ofSeconds(65), Duration.ofHours(2),
+                Duration.ofDays(3), Duration.ofDays(250));
+        for (int i = 0; i < offsets.size(); i++) {
+            wheel.schedule(i, START.plus(offsets.get(i)));
+        }
+
+        List<Integer> fired = new ArrayList<>();
+        Instant now = START;
+        for (int i = 0; i < offsets.size(); i++) {
+            Instant due = START.plus(offsets.get(i));
+            assertThat(wheel.advance(due.minusSeconds(1))).isEmpty();
+            fired.addAll(wheel.advance(due));
+            now = due;
+        }
+
+        assertThat(fired).containsExactly(0, 1, 2, 3, 4);
+        assertThat(wheel.advance(now.plus(Duration.ofDays(1)))).isEmpty();
+    }
+
+    @Test
+    void rejectsNonPositiveTick() {
+        assertThatThrownBy(() -> new TimingWheel<String>(0, START)).isInstanceOf(IllegalArgumentException.class);
+    }
+}